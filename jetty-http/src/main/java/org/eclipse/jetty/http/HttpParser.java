@@ -25,9 +25,9 @@ import java.util.EnumSet;
 import java.util.Locale;
 
 import org.eclipse.jetty.http.HttpTokens.EndOfContent;
-import org.eclipse.jetty.util.ArrayTernaryTrie;
 import org.eclipse.jetty.util.ArrayTrie;
 import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.GrowingTernaryTrie;
 import org.eclipse.jetty.util.StringUtil;
 import org.eclipse.jetty.util.Trie;
 import org.eclipse.jetty.util.TypeUtil;
@@ -844,8 +844,11 @@ public class HttpParser
                         // Should we try to cache header fields?
                         if (_connectionFields==null && _version.getVersion()>=HttpVersion.HTTP_1_1.getVersion() && _handler.getHeaderCacheSize()>0)
                         {
+                            // Start small and grow up to the configured size, as most connections only cache a few fields.
+                            // The max capacity counts rows as the ArrayTernaryTrie capacity did, a row per character plus
+                            // a value row per key, so the cache holds the same fields as an ArrayTernaryTrie of that size.
                             int header_cache = _handler.getHeaderCacheSize();
-                            _connectionFields=new ArrayTernaryTrie<>(header_cache);
+                            _connectionFields=new GrowingTernaryTrie<>(true,Math.min(64,header_cache),header_cache);
                         }
 
                         setState(State.HEADER);
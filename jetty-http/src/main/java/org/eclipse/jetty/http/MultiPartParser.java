@@ -0,0 +1,391 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.http;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.SearchPattern;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+/**
+ * <p>A non-blocking parser of {@code multipart/form-data} content (RFC 7578).</p>
+ * <p>The content is given to the parser in {@link ByteBuffer}s, as it arrives, and
+ * the parser calls its {@link Handler} for the start of each part, each of its
+ * header fields, the end of its headers, its content and the end of the message.</p>
+ * <p>The delimiter {@code CRLF--boundary} is searched for in the content with a
+ * {@link SearchPattern}, so that the content of the parts is not scanned byte by
+ * byte, and the content is given to the handler as views of the parsed buffers,
+ * without being copied. A delimiter split across buffers is detected and the bytes
+ * held back at the end of a buffer are given to the handler if they turn out not
+ * to be a delimiter.</p>
+ * <p>The Content-Transfer-Encoding header, deprecated by RFC 7578, is reported
+ * as any other header field, but the content is not decoded.</p>
+ * <p>This class is not thread safe.</p>
+ */
+public class MultiPartParser
+{
+    private static final Logger LOG = Log.getLogger(MultiPartParser.class);
+    public static final int DEFAULT_MAX_HEADER_BYTES = 8 * 1024;
+
+    public enum State
+    {
+        PREAMBLE,
+        DELIMITER,
+        DELIMITER_CLOSE,
+        BODY_PART,
+        OCTETS,
+        EPILOGUE,
+        END
+    }
+
+    private final Handler _handler;
+    private final byte[] _delimiterBytes;
+    private final SearchPattern _delimiter;
+    private final int _maxHeaderBytes;
+    private State _state = State.PREAMBLE;
+    // The number of bytes of the delimiter matched at the end of the previous buffer.
+    // The content starts as if preceded by a CRLF, so the first delimiter can start it.
+    private int _partial = 2;
+    private byte[] _header = new byte[256];
+    private int _headerLength;
+    private int _headerBytes;
+    private String _fieldName;
+    private String _fieldValue;
+    private byte[] _chunk;
+    private boolean _complete;
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param handler the handler of the parsed parts
+     * @param boundary the boundary of the parts, from the Content-Type header
+     */
+    public MultiPartParser(Handler handler, String boundary)
+    {
+        this(handler, boundary, DEFAULT_MAX_HEADER_BYTES);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param handler the handler of the parsed parts
+     * @param boundary the boundary of the parts, from the Content-Type header
+     * @param maxHeaderBytes the max number of bytes of the headers of a part
+     */
+    public MultiPartParser(Handler handler, String boundary, int maxHeaderBytes)
+    {
+        if (boundary == null || boundary.isEmpty())
+            throw new IllegalArgumentException("No boundary");
+        _handler = handler;
+        _delimiterBytes = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        _delimiter = SearchPattern.compile(_delimiterBytes);
+        _maxHeaderBytes = maxHeaderBytes;
+    }
+
+    /* ------------------------------------------------------------ */
+    public State getState()
+    {
+        return _state;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return whether the close delimiter has been parsed
+     */
+    public boolean isComplete()
+    {
+        return _complete;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Parses all the remaining bytes of a buffer.
+     *
+     * @param buffer the buffer to parse, whose position is moved to its limit
+     * @param last whether the buffer is the last of the content
+     * @throws BadMessageException if the content is not valid multipart content
+     */
+    public void parse(ByteBuffer buffer, boolean last)
+    {
+        if (buffer.hasArray())
+        {
+            parse(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.arrayOffset() + buffer.limit());
+            buffer.position(buffer.limit());
+        }
+        else
+        {
+            if (_chunk == null)
+                _chunk = new byte[4096];
+            while (buffer.hasRemaining())
+            {
+                int length = Math.min(_chunk.length, buffer.remaining());
+                buffer.get(_chunk, 0, length);
+                parse(_chunk, 0, length);
+            }
+        }
+
+        if (last && _state != State.END)
+        {
+            State state = _state;
+            _state = State.END;
+            if (state != State.EPILOGUE)
+                _handler.earlyEOF();
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    private void parse(byte[] array, int position, int end)
+    {
+        while (position < end)
+        {
+            switch (_state)
+            {
+                case PREAMBLE:
+                case OCTETS:
+                    position = parseOctets(array, position, end);
+                    break;
+                case DELIMITER:
+                    position = parseDelimiter(array, position, end);
+                    break;
+                case DELIMITER_CLOSE:
+                    if (array[position++] != '-')
+                        throw new BadMessageException("Bad multipart delimiter");
+                    _state = State.EPILOGUE;
+                    _complete = true;
+                    if (LOG.isDebugEnabled())
+                        LOG.debug("{} complete", this);
+                    _handler.messageComplete();
+                    break;
+                case BODY_PART:
+                    position = parseFields(array, position, end);
+                    break;
+                case EPILOGUE:
+                case END:
+                    position = end;
+                    break;
+                default:
+                    throw new IllegalStateException(_state.toString());
+            }
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    private int parseOctets(byte[] array, int position, int end)
+    {
+        boolean content = _state == State.OCTETS;
+        int length = end - position;
+
+        if (_partial > 0)
+        {
+            int matched = _delimiter.startsWith(array, position, length, _partial);
+            if (matched == _delimiterBytes.length)
+            {
+                position += matched - _partial;
+                _partial = 0;
+                if (content)
+                    _handler.content(BufferUtil.EMPTY_BUFFER, true);
+                _state = State.DELIMITER;
+                return position;
+            }
+            if (matched > 0)
+            {
+                _partial = matched;
+                return end;
+            }
+            // The bytes held back were not a delimiter.
+            if (content)
+                _handler.content(ByteBuffer.wrap(_delimiterBytes, 0, _partial), false);
+            _partial = 0;
+        }
+
+        int match = _delimiter.match(array, position, length);
+        if (match >= 0)
+        {
+            if (content)
+                _handler.content(ByteBuffer.wrap(array, position, match - position), true);
+            _state = State.DELIMITER;
+            return match + _delimiterBytes.length;
+        }
+
+        _partial = _delimiter.endsWith(array, position, length);
+        if (content && length > _partial)
+            _handler.content(ByteBuffer.wrap(array, position, length - _partial), false);
+        return end;
+    }
+
+    /* ------------------------------------------------------------ */
+    private int parseDelimiter(byte[] array, int position, int end)
+    {
+        while (position < end)
+        {
+            byte b = array[position++];
+            switch (b)
+            {
+                case '-':
+                    _state = State.DELIMITER_CLOSE;
+                    return position;
+                case ' ':
+                case '\t':
+                case '\r':
+                    // Transport padding.
+                    break;
+                case '\n':
+                    _state = State.BODY_PART;
+                    _headerBytes = 0;
+                    _handler.startPart();
+                    return position;
+                default:
+                    throw new BadMessageException("Bad multipart delimiter");
+            }
+        }
+        return position;
+    }
+
+    /* ------------------------------------------------------------ */
+    private int parseFields(byte[] array, int position, int end)
+    {
+        while (position < end)
+        {
+            byte b = array[position++];
+            if (++_headerBytes > _maxHeaderBytes)
+                throw new BadMessageException("Multipart headers too large");
+
+            if (b != '\n')
+            {
+                if (_headerLength == _header.length)
+                    _header = Arrays.copyOf(_header, _header.length * 2);
+                _header[_headerLength++] = b;
+                continue;
+            }
+
+            int length = _headerLength;
+            if (length > 0 && _header[length - 1] == '\r')
+                length--;
+            _headerLength = 0;
+
+            if (length == 0)
+            {
+                parsedField();
+                _state = State.OCTETS;
+                _handler.headerComplete();
+                return position;
+            }
+
+            String line = new String(_header, 0, length, StandardCharsets.UTF_8);
+            char first = line.charAt(0);
+            if (first == ' ' || first == '\t')
+            {
+                // Folded line.
+                if (_fieldName != null)
+                    _fieldValue = _fieldValue + ' ' + line.trim();
+                continue;
+            }
+
+            parsedField();
+            int colon = line.indexOf(':');
+            if (colon > 0)
+            {
+                _fieldName = line.substring(0, colon).trim();
+                _fieldValue = line.substring(colon + 1).trim();
+            }
+        }
+        return position;
+    }
+
+    /* ------------------------------------------------------------ */
+    private void parsedField()
+    {
+        if (_fieldName != null)
+        {
+            String name = _fieldName;
+            String value = _fieldValue;
+            _fieldName = null;
+            _fieldValue = null;
+            _handler.parsedField(name, value);
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{%s}", getClass().getSimpleName(), hashCode(), _state);
+    }
+
+    /* ------------------------------------------------------------ */
+    /* ------------------------------------------------------------ */
+    /**
+     * <p>The handler of the events of a {@link MultiPartParser}.</p>
+     * <p>The methods are called by the thread that calls {@link MultiPartParser#parse(ByteBuffer, boolean)}
+     * and the exceptions they throw are thrown by that method.</p>
+     */
+    public interface Handler
+    {
+        /**
+         * Called at the start of a part, before its header fields.
+         */
+        default void startPart()
+        {
+        }
+
+        /**
+         * Called for each header field of a part.
+         *
+         * @param name the name of the field
+         * @param value the value of the field
+         */
+        default void parsedField(String name, String value)
+        {
+        }
+
+        /**
+         * Called at the end of the header fields of a part, before its content.
+         */
+        default void headerComplete()
+        {
+        }
+
+        /**
+         * Called for content of a part.
+         *
+         * @param buffer the content, which is only valid during the call
+         * @param last whether this is the last content of the part
+         */
+        default void content(ByteBuffer buffer, boolean last)
+        {
+        }
+
+        /**
+         * Called when the close delimiter is parsed.
+         */
+        default void messageComplete()
+        {
+        }
+
+        /**
+         * Called when the content ends before the close delimiter.
+         */
+        default void earlyEOF()
+        {
+        }
+    }
+}
@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.eclipse.jetty.http.HttpParser.State;
+import org.eclipse.jetty.util.ArrayTernaryTrie;
 import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.log.StacklessLogging;
 import org.hamcrest.Matchers;
@@ -1921,6 +1922,37 @@ public class HttpParserTest
         Assert.assertTrue(field == _fields.get(0));
     }
 
+    @Test
+    public void testFieldCacheCapacity() throws Exception
+    {
+        // As many fields as fit in an ArrayTernaryTrie of the header cache size.
+        ArrayTernaryTrie<String> sized = new ArrayTernaryTrie<>(512);
+        List<String> fields = new ArrayList<>();
+        while (true)
+        {
+            String field = String.format("Cookie: c%03d=v", fields.size());
+            if (!sized.put(field, field))
+                break;
+            fields.add(field);
+        }
+
+        // Send them over several requests, as the handler only records a few headers per request.
+        HttpParser.RequestHandler handler = new Handler();
+        HttpParser parser = new HttpParser(handler);
+        for (int i = 0; i < fields.size(); i += 8)
+        {
+            StringBuilder request = new StringBuilder("GET / HTTP/1.1\r\nHost:\r\n");
+            for (String field : fields.subList(i, Math.min(i + 8, fields.size())))
+                request.append(field).append("\r\n");
+            request.append("\r\n");
+            parseAll(parser, BufferUtil.toBuffer(request.toString()));
+        }
+
+        // The field cache holds all of them as well.
+        for (String field : fields)
+            Assert.assertNotNull(field, parser.getFieldCache().get(field));
+    }
+
     @Test
     public void testParseRequest() throws Exception
     {
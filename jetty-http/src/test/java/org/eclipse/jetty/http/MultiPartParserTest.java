@@ -0,0 +1,196 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.junit.Test;
+
+public class MultiPartParserTest
+{
+    private static final String BOUNDARY = "AaB03x";
+    private static final String CONTENT = "preamble\r\n" +
+            "--AaB03x\r\n" +
+            "Content-Disposition: form-data; name=\"field1\"\r\n" +
+            "\r\n" +
+            "Joe Blow\r\n" +
+            "--AaB03x  \r\n" +
+            "Content-Disposition: form-data;\r\n" +
+            " name=\"pics\"; filename=\"file1.txt\"\r\n" +
+            "Content-Type: text/plain\r\n" +
+            "\r\n" +
+            "line1\r\n--AaB03\r\n--AaB03y\r\n" +
+            "--AaB03x\r\n" +
+            "Content-Disposition: form-data; name=\"empty\"\r\n" +
+            "\r\n" +
+            "\r\n" +
+            "--AaB03x--\r\n" +
+            "epilogue";
+
+    private static final List<String> EXPECTED = Arrays.asList(
+            "startPart",
+            "Content-Disposition: form-data; name=\"field1\"",
+            "headerComplete",
+            "content<Joe Blow>",
+            "startPart",
+            "Content-Disposition: form-data; name=\"pics\"; filename=\"file1.txt\"",
+            "Content-Type: text/plain",
+            "headerComplete",
+            "content<line1\r\n--AaB03\r\n--AaB03y>",
+            "startPart",
+            "Content-Disposition: form-data; name=\"empty\"",
+            "headerComplete",
+            "content<>",
+            "messageComplete");
+
+    private static class TestHandler implements MultiPartParser.Handler
+    {
+        private final List<String> events = new ArrayList<>();
+        private final StringBuilder content = new StringBuilder();
+
+        @Override
+        public void startPart()
+        {
+            events.add("startPart");
+        }
+
+        @Override
+        public void parsedField(String name, String value)
+        {
+            events.add(name + ": " + value);
+        }
+
+        @Override
+        public void headerComplete()
+        {
+            events.add("headerComplete");
+        }
+
+        @Override
+        public void content(ByteBuffer buffer, boolean last)
+        {
+            content.append(BufferUtil.toString(buffer, StandardCharsets.ISO_8859_1));
+            if (last)
+            {
+                events.add("content<" + content + ">");
+                content.setLength(0);
+            }
+        }
+
+        @Override
+        public void messageComplete()
+        {
+            events.add("messageComplete");
+        }
+
+        @Override
+        public void earlyEOF()
+        {
+            events.add("earlyEOF");
+        }
+    }
+
+    @Test
+    public void testAllSplits()
+    {
+        byte[] bytes = CONTENT.getBytes(StandardCharsets.ISO_8859_1);
+        for (int split = 0; split <= bytes.length; split++)
+        {
+            TestHandler handler = new TestHandler();
+            MultiPartParser parser = new MultiPartParser(handler, BOUNDARY);
+            parser.parse(ByteBuffer.wrap(bytes, 0, split), false);
+            parser.parse(ByteBuffer.wrap(bytes, split, bytes.length - split), true);
+            assertEquals("split " + split, EXPECTED, handler.events);
+            assertTrue(parser.isComplete());
+            assertEquals(MultiPartParser.State.END, parser.getState());
+        }
+    }
+
+    @Test
+    public void testByteByByteDirect()
+    {
+        byte[] bytes = CONTENT.getBytes(StandardCharsets.ISO_8859_1);
+        TestHandler handler = new TestHandler();
+        MultiPartParser parser = new MultiPartParser(handler, BOUNDARY);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1);
+        for (byte b : bytes)
+        {
+            buffer.clear();
+            buffer.put(b).flip();
+            parser.parse(buffer, false);
+        }
+        parser.parse(BufferUtil.EMPTY_BUFFER, true);
+        assertEquals(EXPECTED, handler.events);
+    }
+
+    @Test
+    public void testNoPreamble()
+    {
+        TestHandler handler = new TestHandler();
+        MultiPartParser parser = new MultiPartParser(handler, BOUNDARY);
+        parser.parse(BufferUtil.toBuffer("--AaB03x\r\nName: value\r\n\r\ndata\r\n--AaB03x--"), true);
+        assertEquals(Arrays.asList("startPart", "Name: value", "headerComplete", "content<data>", "messageComplete"), handler.events);
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        TestHandler handler = new TestHandler();
+        MultiPartParser parser = new MultiPartParser(handler, BOUNDARY);
+        parser.parse(BufferUtil.toBuffer("--AaB03x--\r\n"), true);
+        assertEquals(Arrays.asList("messageComplete"), handler.events);
+    }
+
+    @Test
+    public void testEarlyEOF()
+    {
+        TestHandler handler = new TestHandler();
+        MultiPartParser parser = new MultiPartParser(handler, BOUNDARY);
+        parser.parse(BufferUtil.toBuffer("--AaB03x\r\nName: value\r\n\r\ndata\r\n--AaB"), true);
+        assertEquals(Arrays.asList("startPart", "Name: value", "headerComplete", "earlyEOF"), handler.events);
+        assertFalse(parser.isComplete());
+    }
+
+    @Test(expected = BadMessageException.class)
+    public void testHeadersTooLarge()
+    {
+        MultiPartParser parser = new MultiPartParser(new TestHandler(), BOUNDARY, 64);
+        StringBuilder content = new StringBuilder("--AaB03x\r\nName: ");
+        for (int i = 0; i < 64; i++)
+            content.append('x');
+        parser.parse(BufferUtil.toBuffer(content.toString()), false);
+    }
+
+    @Test(expected = BadMessageException.class)
+    public void testBadDelimiter()
+    {
+        MultiPartParser parser = new MultiPartParser(new TestHandler(), BOUNDARY);
+        parser.parse(BufferUtil.toBuffer("--AaB03x\r\nName: value\r\n\r\ndata\r\n--AaB03x-x"), false);
+    }
+}
@@ -381,6 +381,15 @@ public abstract class AbstractEndPoint extends IdleTimeout implements EndPoint
         return _fillInterest;
     }
 
+    /**
+     * @param coalescer the coalescer of small buffers written by this endpoint, or null to not coalesce
+     * @see WriteFlusher#setWriteCoalescer(WriteCoalescer)
+     */
+    public void setWriteCoalescer(WriteCoalescer coalescer)
+    {
+        _writeFlusher.setWriteCoalescer(coalescer);
+    }
+
     protected WriteFlusher getWriteFlusher()
     {
         return _writeFlusher;
@@ -0,0 +1,331 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+package org.eclipse.jetty.io;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+
+/**
+ * <p>A {@link MappedByteBufferPool} that carves its direct buffers out of large
+ * direct memory slabs.</p>
+ * <p>Rather than allocating each small direct buffer separately, each with its own
+ * native allocation and {@code Cleaner}, direct buffers up to {@link #getMaxSliceSize()}
+ * bytes are {@link ByteBuffer#slice() sliced} from a slab of {@link #getSlabSize()}
+ * bytes. Each size class, a multiple of the factor of the pool, has its own slabs cut
+ * into slices of that size, and a lock-free free list of the slices that are not in use.
+ * A released slice goes back to the free list of its size class, so a long-lived slice
+ * only holds its own memory, and the number of slabs of a size class is bounded by the
+ * maximum number of its slices in use at the same time.</p>
+ * <p>The pool only holds weak references to the slices in use: a slice that is never
+ * released is reclaimed once it has been garbage collected, and a slice released twice
+ * is ignored the second time.</p>
+ * <p>Heap buffers and direct buffers larger than the max slice size are pooled
+ * as usual by the {@link MappedByteBufferPool}.</p>
+ * <p>Like any other {@link ByteBufferPool}, this pool is used by the connections of
+ * a connector, such as {@code HttpConnection} and {@code SslConnection}, when it is
+ * passed to the connector constructor, or when it is added as a bean of the server
+ * before the connector is created.</p>
+ */
+@ManagedObject("A ByteBufferPool slicing direct buffers from memory slabs")
+public class ArenaByteBufferPool extends MappedByteBufferPool
+{
+    private final ConcurrentMap<SliceReference, SliceReference> _slices = new ConcurrentHashMap<>();
+    private final ReferenceQueue<ByteBuffer> _collected = new ReferenceQueue<>();
+    private final LongAdder _sliceCount = new LongAdder();
+    private final LongAdder _leakedSlices = new LongAdder();
+    private final int _factor;
+    private final int _slabSize;
+    private final int _maxSliceSize;
+    private final SizeClass[] _sizeClasses;
+
+    public ArenaByteBufferPool()
+    {
+        this(-1,-1,-1);
+    }
+
+    /**
+     * @param factor the capacity factor of buckets, or -1 for the default
+     * @param slabSize the size in bytes of the direct slabs, or -1 for the default 1 MiB
+     * @param maxSliceSize the max size in bytes of the buffers sliced from slabs, or -1 for the default 64 KiB
+     */
+    public ArenaByteBufferPool(int factor, int slabSize, int maxSliceSize)
+    {
+        super(factor);
+        _factor = factor<=0?1024:factor;
+        _slabSize = slabSize<=0?1024*1024:slabSize;
+        _maxSliceSize = maxSliceSize<=0?64*1024:maxSliceSize;
+        if (_maxSliceSize>_slabSize)
+            throw new IllegalArgumentException("maxSliceSize > slabSize");
+        _sizeClasses = new SizeClass[_maxSliceSize/_factor];
+        for (int i=0;i<_sizeClasses.length;++i)
+            _sizeClasses[i] = new SizeClass((i+1)*_factor);
+    }
+
+    @ManagedAttribute("The size in bytes of the direct slabs")
+    public int getSlabSize()
+    {
+        return _slabSize;
+    }
+
+    @ManagedAttribute("The max size in bytes of the buffers sliced from slabs")
+    public int getMaxSliceSize()
+    {
+        return _maxSliceSize;
+    }
+
+    @ManagedAttribute("The number of slabs allocated")
+    public long getSlabCount()
+    {
+        long count = 0;
+        for (SizeClass sizeClass : _sizeClasses)
+            count += sizeClass.getSlabCount();
+        return count;
+    }
+
+    @ManagedAttribute("The number of buffers sliced from slabs")
+    public long getSliceCount()
+    {
+        return _sliceCount.sum();
+    }
+
+    @ManagedAttribute("The number of slices reclaimed after being garbage collected without being released")
+    public long getLeakedSliceCount()
+    {
+        return _leakedSlices.sum();
+    }
+
+    @ManagedAttribute("The number of slices not yet released")
+    public int getAcquiredSliceCount()
+    {
+        return _slices.size();
+    }
+
+    @Override
+    public ByteBuffer acquire(int size, boolean direct)
+    {
+        if (direct && size>0 && size<=_maxSliceSize)
+        {
+            // Round up the capacity like the buckets do.
+            int capacity = ((size+_factor-1)/_factor)*_factor;
+            if (capacity<=_maxSliceSize)
+                return slice(_sizeClasses[capacity/_factor-1]);
+        }
+        return super.acquire(size,direct);
+    }
+
+    @Override
+    public void release(ByteBuffer buffer)
+    {
+        if (buffer==null)
+            return;
+        if (buffer.isDirect() && buffer.capacity()<=_maxSliceSize)
+        {
+            // Small direct buffers are never acquired from the buckets, so a
+            // buffer that is not a slice in use, for example a slice already
+            // released, is dropped rather than queued in a bucket.
+            SliceReference reference = _slices.remove(new SliceReference(buffer,null,null));
+            if (reference!=null)
+            {
+                reference.clear();
+                reference._slot.free();
+            }
+            return;
+        }
+        super.release(buffer);
+    }
+
+    private ByteBuffer slice(SizeClass sizeClass)
+    {
+        reclaim();
+        Slot slot = sizeClass.acquire();
+        ByteBuffer buffer = slot._slab._buffer.duplicate();
+        buffer.limit(slot._offset+sizeClass._capacity);
+        buffer.position(slot._offset);
+        ByteBuffer slice = buffer.slice();
+        SliceReference reference = new SliceReference(slice,slot,_collected);
+        _slices.put(reference,reference);
+        _sliceCount.increment();
+        BufferUtil.clear(slice);
+        return slice;
+    }
+
+    private void reclaim()
+    {
+        while (true)
+        {
+            SliceReference reference = (SliceReference)_collected.poll();
+            if (reference==null)
+                return;
+            if (_slices.remove(reference)!=null)
+            {
+                _leakedSlices.increment();
+                reference._slot.free();
+            }
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        super.clear();
+        for (SizeClass sizeClass : _sizeClasses)
+            sizeClass.clear();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{slabs=%d,slices=%d,leaked=%d}",getClass().getSimpleName(),hashCode(),getSlabCount(),getSliceCount(),getLeakedSliceCount());
+    }
+
+    private class SizeClass
+    {
+        // Released slices are reused first, while their memory is likely still cached.
+        private final Deque<Slot> _free = new ConcurrentLinkedDeque<>();
+        private final List<Slab> _slabs = new ArrayList<>();
+        private final int _capacity;
+
+        private SizeClass(int capacity)
+        {
+            _capacity = capacity;
+        }
+
+        private Slot acquire()
+        {
+            Slot slot = poll();
+            if (slot!=null)
+                return slot;
+
+            synchronized (this)
+            {
+                // Another thread may have allocated a slab meanwhile.
+                slot = poll();
+                if (slot!=null)
+                    return slot;
+
+                Slab slab = new Slab(this,BufferUtil.allocateDirect(_slabSize));
+                _slabs.add(slab);
+                // The tail of the slab, if smaller than the capacity, is unused.
+                int slices = _slabSize/_capacity;
+                for (int i=1;i<slices;++i)
+                    _free.offerLast(new Slot(slab,i*_capacity));
+                return new Slot(slab,0);
+            }
+        }
+
+        private Slot poll()
+        {
+            while (true)
+            {
+                Slot slot = _free.pollFirst();
+                if (slot==null || !slot._slab._discarded)
+                    return slot;
+            }
+        }
+
+        private synchronized int getSlabCount()
+        {
+            return _slabs.size();
+        }
+
+        private synchronized void clear()
+        {
+            // The slices still in use are not returned to the free list when released.
+            for (Slab slab : _slabs)
+                slab._discarded = true;
+            _slabs.clear();
+            _free.clear();
+        }
+    }
+
+    private static class Slab
+    {
+        private final SizeClass _sizeClass;
+        private final ByteBuffer _buffer;
+        private volatile boolean _discarded;
+
+        private Slab(SizeClass sizeClass, ByteBuffer buffer)
+        {
+            _sizeClass = sizeClass;
+            _buffer = buffer;
+        }
+    }
+
+    private static class Slot
+    {
+        private final Slab _slab;
+        private final int _offset;
+
+        private Slot(Slab slab, int offset)
+        {
+            _slab = slab;
+            _offset = offset;
+        }
+
+        private void free()
+        {
+            if (!_slab._discarded)
+                _slab._sizeClass._free.offerFirst(this);
+        }
+    }
+
+    /**
+     * <p>A weak reference to a slice in use, compared by the identity of the slice.</p>
+     */
+    private static class SliceReference extends WeakReference<ByteBuffer>
+    {
+        private final int _hash;
+        private final Slot _slot;
+
+        private SliceReference(ByteBuffer slice, Slot slot, ReferenceQueue<ByteBuffer> queue)
+        {
+            super(slice,queue);
+            _hash = System.identityHashCode(slice);
+            _slot = slot;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return _hash;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this==obj)
+                return true;
+            if (!(obj instanceof SliceReference))
+                return false;
+            ByteBuffer slice = get();
+            return slice!=null && slice==((SliceReference)obj).get();
+        }
+    }
+}
@@ -19,11 +19,18 @@
 package org.eclipse.jetty.io;
 
 import java.nio.ByteBuffer;
+import java.util.function.ToLongFunction;
 
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+
+@ManagedObject("A ByteBufferPool backed by an array of buckets")
 public class ArrayByteBufferPool implements ByteBufferPool
 {
     private final int _min;
     private final int _maxQueue;
+    private final int _magazineSize;
     private final ByteBufferPool.Bucket[] _direct;
     private final ByteBufferPool.Bucket[] _indirect;
     private final int _inc;
@@ -39,6 +46,20 @@ public class ArrayByteBufferPool implements ByteBufferPool
     }
     
     public ArrayByteBufferPool(int minSize, int increment, int maxSize, int maxQueue)
+    {
+        this(minSize,increment,maxSize,maxQueue,-1);
+    }
+
+    /**
+     * @param minSize the minimum size of pooled buffers
+     * @param increment the size increment between buckets
+     * @param maxSize the maximum size of pooled buffers
+     * @param maxQueue the maximum number of buffers queued in each bucket, or -1 for unbounded
+     * @param magazineSize the number of buffers cached per thread in front of each bucket,
+     * or -1 to disable thread magazines
+     * @see MagazineBucket
+     */
+    public ArrayByteBufferPool(int minSize, int increment, int maxSize, int maxQueue, int magazineSize)
     {
         if (minSize<=0)
             minSize=0;
@@ -56,16 +77,24 @@ public class ArrayByteBufferPool implements ByteBufferPool
         _direct=new ByteBufferPool.Bucket[maxSize/increment];
         _indirect=new ByteBufferPool.Bucket[maxSize/increment];
         _maxQueue=maxQueue;
+        _magazineSize=magazineSize;
 
         int size=0;
         for (int i=0;i<_direct.length;i++)
         {
             size+=_inc;
-            _direct[i]=new ByteBufferPool.Bucket(this,size,_maxQueue);
-            _indirect[i]=new ByteBufferPool.Bucket(this,size,_maxQueue);
+            _direct[i]=newBucket(size);
+            _indirect[i]=newBucket(size);
         }
     }
 
+    private ByteBufferPool.Bucket newBucket(int size)
+    {
+        if (_magazineSize>0)
+            return new MagazineBucket(this,size,_maxQueue,_magazineSize);
+        return new ByteBufferPool.Bucket(this,size,_maxQueue);
+    }
+
     @Override
     public ByteBuffer acquire(int size, boolean direct)
     {
@@ -88,6 +117,7 @@ public class ArrayByteBufferPool implements ByteBufferPool
         }
     }
 
+    @ManagedOperation(value = "Clears this ByteBufferPool", impact = "ACTION")
     public void clear()
     {
         for (int i=0;i<_direct.length;i++)
@@ -97,6 +127,55 @@ public class ArrayByteBufferPool implements ByteBufferPool
         }
     }
 
+    @ManagedAttribute("The number of buffers cached per thread in front of each bucket")
+    public int getMagazineSize()
+    {
+        return _magazineSize;
+    }
+
+    @ManagedAttribute("The number of acquires served by thread magazines")
+    public long getMagazineHits()
+    {
+        return sumMagazines(MagazineBucket::getHits);
+    }
+
+    @ManagedAttribute("The number of acquires that found the thread magazine empty")
+    public long getMagazineMisses()
+    {
+        return sumMagazines(MagazineBucket::getMisses);
+    }
+
+    @ManagedAttribute("The number of buffers spilled from thread magazines to the shared buckets")
+    public long getMagazineSpills()
+    {
+        return sumMagazines(MagazineBucket::getSpills);
+    }
+
+    @ManagedOperation(value = "Resets the thread magazine statistics", impact = "ACTION")
+    public void resetMagazineStats()
+    {
+        for (int i=0;i<_direct.length;i++)
+        {
+            if (_direct[i] instanceof MagazineBucket)
+                ((MagazineBucket)_direct[i]).resetStats();
+            if (_indirect[i] instanceof MagazineBucket)
+                ((MagazineBucket)_indirect[i]).resetStats();
+        }
+    }
+
+    private long sumMagazines(ToLongFunction<MagazineBucket> stat)
+    {
+        long total=0;
+        for (int i=0;i<_direct.length;i++)
+        {
+            if (_direct[i] instanceof MagazineBucket)
+                total+=stat.applyAsLong((MagazineBucket)_direct[i]);
+            if (_indirect[i] instanceof MagazineBucket)
+                total+=stat.applyAsLong((MagazineBucket)_indirect[i]);
+        }
+        return total;
+    }
+
     private ByteBufferPool.Bucket bucketFor(int size,boolean direct)
     {
         if (size<=_min)
@@ -0,0 +1,423 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
+import org.eclipse.jetty.util.thread.Scheduler;
+
+/**
+ * <p>A {@link ByteBufferPool} that bounds the total memory retained by its buckets.</p>
+ * <p>Heap and direct buffers have separate memory budgets. When a release causes
+ * the retained memory to exceed its budget, buffers are evicted from the least
+ * recently used buckets (largest buckets first, when equally old) until the
+ * retained memory is within the budget again.</p>
+ * <p>When started with a positive idle timeout, buckets that have not been used
+ * for longer than the idle timeout are periodically emptied.</p>
+ */
+@ManagedObject("A ByteBufferPool bounded by retained memory")
+public class BoundedByteBufferPool extends ContainerLifeCycle implements ByteBufferPool
+{
+    private static final Logger LOG = Log.getLogger(BoundedByteBufferPool.class);
+
+    private final ConcurrentMap<Integer, BoundedBucket> _directBuckets = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, BoundedBucket> _heapBuckets = new ConcurrentHashMap<>();
+    private final AtomicLong _directMemory = new AtomicLong();
+    private final AtomicLong _heapMemory = new AtomicLong();
+    private final LongAdder _evictions = new LongAdder();
+    private final int _factor;
+    private final int _maxQueue;
+    private final long _maxHeapMemory;
+    private final long _maxDirectMemory;
+    private Scheduler _scheduler;
+    private volatile long _idleTimeout;
+    private volatile Scheduler.Task _trimTask;
+
+    public BoundedByteBufferPool()
+    {
+        this(-1,-1,-1,-1);
+    }
+
+    /**
+     * @param factor the capacity factor of buckets, or -1 for the default
+     * @param maxQueue the maximum number of buffers queued in each bucket, or -1 for unbounded
+     * @param maxHeapMemory the maximum heap memory in bytes retained by this pool, or -1 for unbounded
+     * @param maxDirectMemory the maximum direct memory in bytes retained by this pool, or -1 for unbounded
+     */
+    public BoundedByteBufferPool(int factor, int maxQueue, long maxHeapMemory, long maxDirectMemory)
+    {
+        this(factor,maxQueue,maxHeapMemory,maxDirectMemory,null);
+    }
+
+    /**
+     * @param factor the capacity factor of buckets, or -1 for the default
+     * @param maxQueue the maximum number of buffers queued in each bucket, or -1 for unbounded
+     * @param maxHeapMemory the maximum heap memory in bytes retained by this pool, or -1 for unbounded
+     * @param maxDirectMemory the maximum direct memory in bytes retained by this pool, or -1 for unbounded
+     * @param scheduler the scheduler used to trim idle buckets, or null to use a private one
+     */
+    public BoundedByteBufferPool(int factor, int maxQueue, long maxHeapMemory, long maxDirectMemory, Scheduler scheduler)
+    {
+        _factor = factor<=0?1024:factor;
+        _maxQueue = maxQueue;
+        _maxHeapMemory = maxHeapMemory;
+        _maxDirectMemory = maxDirectMemory;
+        _scheduler = scheduler;
+        if (scheduler!=null)
+            addBean(scheduler,false);
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        if (_scheduler==null && _idleTimeout>0)
+        {
+            _scheduler = new ScheduledExecutorScheduler(String.format("BufferPoolTrimmer@%x",hashCode()),true);
+            addBean(_scheduler,true);
+        }
+        super.doStart();
+        scheduleTrim();
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        Scheduler.Task task = _trimTask;
+        _trimTask = null;
+        if (task!=null)
+            task.cancel();
+        super.doStop();
+    }
+
+    @Override
+    public ByteBuffer acquire(int size, boolean direct)
+    {
+        int b = bucketFor(size);
+        BoundedBucket bucket = bucketsFor(direct).get(b);
+        if (bucket==null)
+            return newByteBuffer(b*_factor,direct);
+        ByteBuffer buffer = bucket.poll();
+        if (buffer==null)
+            return newByteBuffer(b*_factor,direct);
+        memoryFor(direct).addAndGet(-buffer.capacity());
+        return buffer;
+    }
+
+    @Override
+    public void release(ByteBuffer buffer)
+    {
+        if (buffer==null)
+            return;
+
+        // validate that this buffer is from this pool
+        assert((buffer.capacity() % _factor) == 0);
+
+        boolean direct = buffer.isDirect();
+        BoundedBucket bucket = bucketsFor(direct).computeIfAbsent(bucketFor(buffer.capacity()),this::newBucket);
+        if (bucket.offer(buffer))
+        {
+            long memory = memoryFor(direct).addAndGet(buffer.capacity());
+            long maxMemory = direct?_maxDirectMemory:_maxHeapMemory;
+            if (maxMemory>0 && memory>maxMemory)
+                evict(direct,maxMemory);
+        }
+    }
+
+    @ManagedOperation(value = "Clears this ByteBufferPool", impact = "ACTION")
+    public void clear()
+    {
+        clear(true);
+        clear(false);
+    }
+
+    private void clear(boolean direct)
+    {
+        AtomicLong memory = memoryFor(direct);
+        for (BoundedBucket bucket : bucketsFor(direct).values())
+        {
+            ByteBuffer buffer;
+            while ((buffer=bucket.evict())!=null)
+                memory.addAndGet(-buffer.capacity());
+        }
+    }
+
+    /**
+     * <p>Evicts buffers from the least recently used buckets until
+     * the retained memory is not greater than the given maximum.</p>
+     *
+     * @param direct whether to evict direct or heap buffers
+     * @param maxMemory the maximum retained memory
+     */
+    private void evict(boolean direct, long maxMemory)
+    {
+        AtomicLong memory = memoryFor(direct);
+        ConcurrentMap<Integer, BoundedBucket> buckets = bucketsFor(direct);
+        while (memory.get()>maxMemory)
+        {
+            BoundedBucket victim = null;
+            for (BoundedBucket bucket : buckets.values())
+            {
+                if (bucket.isEmpty())
+                    continue;
+                if (victim==null ||
+                    bucket.getLastUpdate()<victim.getLastUpdate() ||
+                    bucket.getLastUpdate()==victim.getLastUpdate() && bucket.getCapacity()>victim.getCapacity())
+                    victim = bucket;
+            }
+            if (victim==null)
+                return;
+
+            ByteBuffer buffer = victim.evict();
+            if (buffer!=null)
+            {
+                memory.addAndGet(-buffer.capacity());
+                _evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * <p>Empties the buckets that have not been used for longer than the idle timeout.</p>
+     */
+    @ManagedOperation(value = "Empties the idle buckets", impact = "ACTION")
+    public void trim()
+    {
+        long idleTimeout = _idleTimeout;
+        if (idleTimeout<=0)
+            return;
+        long now = System.nanoTime();
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+        trim(true,now,idleNanos);
+        trim(false,now,idleNanos);
+    }
+
+    private void trim(boolean direct, long now, long idleNanos)
+    {
+        AtomicLong memory = memoryFor(direct);
+        for (BoundedBucket bucket : bucketsFor(direct).values())
+        {
+            if (now-bucket.getLastUpdate()<idleNanos)
+                continue;
+            ByteBuffer buffer;
+            while ((buffer=bucket.evict())!=null)
+            {
+                memory.addAndGet(-buffer.capacity());
+                _evictions.increment();
+            }
+        }
+    }
+
+    private void scheduleTrim()
+    {
+        long idleTimeout = _idleTimeout;
+        if (isRunning() && _scheduler!=null && idleTimeout>0)
+            _trimTask = _scheduler.schedule(this::onTrim,Math.max(1,idleTimeout/2),TimeUnit.MILLISECONDS);
+    }
+
+    private void onTrim()
+    {
+        try
+        {
+            trim();
+        }
+        catch (Throwable x)
+        {
+            LOG.warn(x);
+        }
+        finally
+        {
+            scheduleTrim();
+        }
+    }
+
+    @ManagedAttribute("The idle timeout in ms after which unused buckets are emptied")
+    public long getIdleTimeout()
+    {
+        return _idleTimeout;
+    }
+
+    /**
+     * @param idleTimeout the idle timeout in ms after which unused buckets are emptied,
+     * or a non positive value to never empty idle buckets
+     */
+    public void setIdleTimeout(long idleTimeout)
+    {
+        _idleTimeout = idleTimeout;
+    }
+
+    @ManagedAttribute("The max heap memory in bytes retained by this pool")
+    public long getMaxHeapMemory()
+    {
+        return _maxHeapMemory;
+    }
+
+    @ManagedAttribute("The max direct memory in bytes retained by this pool")
+    public long getMaxDirectMemory()
+    {
+        return _maxDirectMemory;
+    }
+
+    @ManagedAttribute("The heap memory in bytes retained by this pool")
+    public long getHeapMemory()
+    {
+        return _heapMemory.get();
+    }
+
+    @ManagedAttribute("The direct memory in bytes retained by this pool")
+    public long getDirectMemory()
+    {
+        return _directMemory.get();
+    }
+
+    @ManagedAttribute("The number of buffers evicted because of memory bounds or idleness")
+    public long getEvictions()
+    {
+        return _evictions.sum();
+    }
+
+    @ManagedAttribute("The heap memory in bytes retained by each bucket")
+    public Map<Integer, Long> getHeapBucketMemory()
+    {
+        return bucketMemory(false);
+    }
+
+    @ManagedAttribute("The direct memory in bytes retained by each bucket")
+    public Map<Integer, Long> getDirectBucketMemory()
+    {
+        return bucketMemory(true);
+    }
+
+    private Map<Integer, Long> bucketMemory(boolean direct)
+    {
+        Map<Integer, Long> result = new TreeMap<>();
+        for (BoundedBucket bucket : bucketsFor(direct).values())
+            result.put(bucket.getCapacity(),(long)bucket.size()*bucket.getCapacity());
+        return result;
+    }
+
+    @Override
+    public void dump(Appendable out, String indent) throws IOException
+    {
+        dumpBeans(out,indent,bucketList(true),bucketList(false));
+    }
+
+    private List<BoundedBucket> bucketList(boolean direct)
+    {
+        List<BoundedBucket> result = new ArrayList<>(bucketsFor(direct).values());
+        result.sort((b1,b2)->Integer.compare(b1.getCapacity(),b2.getCapacity()));
+        return result;
+    }
+
+    private int bucketFor(int size)
+    {
+        int bucket = size / _factor;
+        if (size % _factor > 0)
+            ++bucket;
+        return bucket;
+    }
+
+    private BoundedBucket newBucket(int key)
+    {
+        return new BoundedBucket(this,key*_factor,_maxQueue);
+    }
+
+    // Package local for testing
+    ConcurrentMap<Integer, BoundedBucket> bucketsFor(boolean direct)
+    {
+        return direct ? _directBuckets : _heapBuckets;
+    }
+
+    private AtomicLong memoryFor(boolean direct)
+    {
+        return direct ? _directMemory : _heapMemory;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{heap=%d/%d,direct=%d/%d}",
+                getClass().getSimpleName(),
+                hashCode(),
+                getHeapMemory(),
+                getMaxHeapMemory(),
+                getDirectMemory(),
+                getMaxDirectMemory());
+    }
+
+    static class BoundedBucket extends Bucket
+    {
+        private volatile long _lastUpdate = System.nanoTime();
+
+        BoundedBucket(ByteBufferPool pool, int bufferSize, int maxSize)
+        {
+            super(pool,bufferSize,maxSize);
+        }
+
+        @Override
+        ByteBuffer poll()
+        {
+            ByteBuffer buffer = super.poll();
+            _lastUpdate = System.nanoTime();
+            return buffer;
+        }
+
+        @Override
+        boolean offer(ByteBuffer buffer)
+        {
+            _lastUpdate = System.nanoTime();
+            return super.offer(buffer);
+        }
+
+        /**
+         * @return a pooled buffer, without marking this bucket as recently used
+         */
+        ByteBuffer evict()
+        {
+            return super.poll();
+        }
+
+        long getLastUpdate()
+        {
+            return _lastUpdate;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s{idle=%dms}",super.toString(),TimeUnit.NANOSECONDS.toMillis(System.nanoTime()-_lastUpdate));
+        }
+    }
+}
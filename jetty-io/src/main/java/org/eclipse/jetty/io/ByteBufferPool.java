@@ -140,23 +140,57 @@ public interface ByteBufferPool
 
         public ByteBuffer acquire(boolean direct)
         {
-            ByteBuffer buffer = queuePoll();
+            ByteBuffer buffer = poll();
             if (buffer == null)
                 return _pool.newByteBuffer(_capacity, direct);
-            if (_space != null)
+            return buffer;
+        }
+
+        /**
+         * @return a pooled buffer, or null if this bucket is empty
+         */
+        ByteBuffer poll()
+        {
+            ByteBuffer buffer = queuePoll();
+            if (buffer != null && _space != null)
                 _space.incrementAndGet();
             return buffer;
         }
 
+        int getCapacity()
+        {
+            return _capacity;
+        }
+
+        ByteBufferPool getPool()
+        {
+            return _pool;
+        }
+
         public void release(ByteBuffer buffer)
+        {
+            offer(buffer);
+        }
+
+        /**
+         * @param buffer the buffer to pool
+         * @return whether the buffer was pooled, or false if this bucket is full
+         */
+        boolean offer(ByteBuffer buffer)
         {
             BufferUtil.clear(buffer);
             if (_space == null)
+            {
                 queueOffer(buffer);
-            else if (_space.decrementAndGet() >= 0)
+                return true;
+            }
+            if (_space.decrementAndGet() >= 0)
+            {
                 queueOffer(buffer);
-            else
-                _space.incrementAndGet();
+                return true;
+            }
+            _space.incrementAndGet();
+            return false;
         }
 
         public void clear()
@@ -91,6 +91,14 @@ public interface Connection extends Closeable
     public long getBytesIn();
     public long getBytesOut();
     public long getCreatedTimeStamp();
+
+    /**
+     * @return the total capacity in bytes of the buffers currently retained by this connection
+     */
+    public default long getRetainedBufferBytes()
+    {
+        return 0;
+    }
     
     public interface UpgradeFrom
     {
@@ -21,9 +21,6 @@ package org.eclipse.jetty.io;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.LongAdder;
 
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
@@ -32,7 +29,8 @@ import org.eclipse.jetty.util.component.AbstractLifeCycle;
 import org.eclipse.jetty.util.component.ContainerLifeCycle;
 import org.eclipse.jetty.util.component.Dumpable;
 import org.eclipse.jetty.util.statistic.CounterStatistic;
-import org.eclipse.jetty.util.statistic.SampleStatistic;
+import org.eclipse.jetty.util.statistic.HistogramStatistic;
+import org.eclipse.jetty.util.statistic.RateCounter;
 
 /**
  * <p>A {@link Connection.Listener} that tracks connection statistics.</p>
@@ -45,29 +43,25 @@ import org.eclipse.jetty.util.statistic.SampleStatistic;
 public class ConnectionStatistics extends AbstractLifeCycle implements Connection.Listener, Dumpable
 {
     private final CounterStatistic _connections = new CounterStatistic();
-    private final SampleStatistic _connectionsDuration = new SampleStatistic();
-    private final LongAdder _rcvdBytes = new LongAdder();
-    private final AtomicLong _bytesInStamp = new AtomicLong();
-    private final LongAdder _sentBytes = new LongAdder();
-    private final AtomicLong _bytesOutStamp = new AtomicLong();
-    private final LongAdder _messagesIn = new LongAdder();
-    private final AtomicLong _messagesInStamp = new AtomicLong();
-    private final LongAdder _messagesOut = new LongAdder();
-    private final AtomicLong _messagesOutStamp = new AtomicLong();
+    private final HistogramStatistic _connectionsDuration = new HistogramStatistic();
+    private final HistogramStatistic _connectionsBytesIn = new HistogramStatistic();
+    private final HistogramStatistic _connectionsBytesOut = new HistogramStatistic();
+    private final RateCounter _rcvdBytes = new RateCounter();
+    private final RateCounter _sentBytes = new RateCounter();
+    private final RateCounter _messagesIn = new RateCounter();
+    private final RateCounter _messagesOut = new RateCounter();
 
     @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
     public void reset()
     {
         _connections.reset();
         _connectionsDuration.reset();
+        _connectionsBytesIn.reset();
+        _connectionsBytesOut.reset();
         _rcvdBytes.reset();
-        _bytesInStamp.set(System.nanoTime());
         _sentBytes.reset();
-        _bytesOutStamp.set(System.nanoTime());
         _messagesIn.reset();
-        _messagesInStamp.set(System.nanoTime());
         _messagesOut.reset();
-        _messagesOutStamp.set(System.nanoTime());
     }
 
     @Override
@@ -98,10 +92,16 @@ public class ConnectionStatistics extends AbstractLifeCycle implements Connectio
 
         long bytesIn = connection.getBytesIn();
         if (bytesIn > 0)
+        {
             _rcvdBytes.add(bytesIn);
+            _connectionsBytesIn.set(bytesIn);
+        }
         long bytesOut = connection.getBytesOut();
         if (bytesOut > 0)
+        {
             _sentBytes.add(bytesOut);
+            _connectionsBytesOut.set(bytesOut);
+        }
 
         long messagesIn = connection.getMessagesIn();
         if (messagesIn > 0)
@@ -114,31 +114,37 @@ public class ConnectionStatistics extends AbstractLifeCycle implements Connectio
     @ManagedAttribute("Total number of bytes received by tracked connections")
     public long getReceivedBytes()
     {
-        return _rcvdBytes.sum();
+        return _rcvdBytes.getTotal();
     }
 
     @ManagedAttribute("Total number of bytes received per second since the last invocation of this method")
     public long getReceivedBytesRate()
     {
-        long now = System.nanoTime();
-        long then = _bytesInStamp.getAndSet(now);
-        long elapsed = TimeUnit.NANOSECONDS.toMillis(now - then);
-        return elapsed == 0 ? 0 : getReceivedBytes() * 1000 / elapsed;
+        return _rcvdBytes.getRate();
+    }
+
+    @ManagedAttribute("The 99th percentile of the bytes received by a connection")
+    public long getReceivedBytesPerConnection99()
+    {
+        return _connectionsBytesIn.get99();
     }
 
     @ManagedAttribute("Total number of bytes sent by tracked connections")
     public long getSentBytes()
     {
-        return _sentBytes.sum();
+        return _sentBytes.getTotal();
     }
 
     @ManagedAttribute("Total number of bytes sent per second since the last invocation of this method")
     public long getSentBytesRate()
     {
-        long now = System.nanoTime();
-        long then = _bytesOutStamp.getAndSet(now);
-        long elapsed = TimeUnit.NANOSECONDS.toMillis(now - then);
-        return elapsed == 0 ? 0 : getSentBytes() * 1000 / elapsed;
+        return _sentBytes.getRate();
+    }
+
+    @ManagedAttribute("The 99th percentile of the bytes sent by a connection")
+    public long getSentBytesPerConnection99()
+    {
+        return _connectionsBytesOut.get99();
     }
 
     @ManagedAttribute("The max duration of a connection in ms")
@@ -153,6 +159,18 @@ public class ConnectionStatistics extends AbstractLifeCycle implements Connectio
         return _connectionsDuration.getMean();
     }
 
+    @ManagedAttribute("The median duration of a connection in ms")
+    public long getConnectionDuration50()
+    {
+        return _connectionsDuration.get50();
+    }
+
+    @ManagedAttribute("The 99th percentile of the duration of a connection in ms")
+    public long getConnectionDuration99()
+    {
+        return _connectionsDuration.get99();
+    }
+
     @ManagedAttribute("The standard deviation of the duration of a connection")
     public double getConnectionDurationStdDev()
     {
@@ -180,31 +198,25 @@ public class ConnectionStatistics extends AbstractLifeCycle implements Connectio
     @ManagedAttribute("The total number of messages received")
     public long getReceivedMessages()
     {
-        return _messagesIn.sum();
+        return _messagesIn.getTotal();
     }
 
     @ManagedAttribute("Total number of messages received per second since the last invocation of this method")
     public long getReceivedMessagesRate()
     {
-        long now = System.nanoTime();
-        long then = _messagesInStamp.getAndSet(now);
-        long elapsed = TimeUnit.NANOSECONDS.toMillis(now - then);
-        return elapsed == 0 ? 0 : getReceivedMessages() * 1000 / elapsed;
+        return _messagesIn.getRate();
     }
 
     @ManagedAttribute("The total number of messages sent")
     public long getSentMessages()
     {
-        return _messagesOut.sum();
+        return _messagesOut.getTotal();
     }
 
     @ManagedAttribute("Total number of messages sent per second since the last invocation of this method")
     public long getSentMessagesRate()
     {
-        long now = System.nanoTime();
-        long then = _messagesOutStamp.getAndSet(now);
-        long elapsed = TimeUnit.NANOSECONDS.toMillis(now - then);
-        return elapsed == 0 ? 0 : getSentMessages() * 1000 / elapsed;
+        return _messagesOut.getRate();
     }
 
     @Override
@@ -221,6 +233,7 @@ public class ConnectionStatistics extends AbstractLifeCycle implements Connectio
         children.add(String.format("connections=%s", _connections));
         children.add(String.format("durations=%s", _connectionsDuration));
         children.add(String.format("bytes in/out=%s/%s", getReceivedBytes(), getSentBytes()));
+        children.add(String.format("bytes in/out per connection=%s/%s", _connectionsBytesIn, _connectionsBytesOut));
         children.add(String.format("messages in/out=%s/%s", getReceivedMessages(), getSentMessages()));
         ContainerLifeCycle.dump(out, indent, children);
     }
@@ -0,0 +1,210 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.BufferUtil;
+
+/**
+ * <p>A {@link ByteBufferPool.Bucket} that keeps a small per-thread magazine
+ * of buffers in front of the shared queue.</p>
+ * <p>Acquires and releases are first served by the calling thread's magazine,
+ * without touching the shared queue. When the magazine is empty, it is refilled
+ * with a batch of buffers taken from the shared queue; when the magazine is full,
+ * half of it is spilled back to the shared queue.</p>
+ * <p>Buffers held in magazines are not accounted against the {@code maxQueue}
+ * of the shared queue, so the total number of retained buffers may be up to
+ * {@code magazineSize} per thread larger than {@code maxQueue}.</p>
+ */
+public class MagazineBucket extends ByteBufferPool.Bucket
+{
+    private final ThreadLocal<Magazine> _magazines = ThreadLocal.withInitial(this::newMagazine);
+    private final AtomicInteger _generation = new AtomicInteger();
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+    private final LongAdder _spills = new LongAdder();
+    private final int _magazineSize;
+
+    public MagazineBucket(ByteBufferPool pool, int bufferSize, int maxSize, int magazineSize)
+    {
+        super(pool, bufferSize, maxSize);
+        if (magazineSize <= 0)
+            throw new IllegalArgumentException("magazineSize <= 0");
+        _magazineSize = magazineSize;
+    }
+
+    public int getMagazineSize()
+    {
+        return _magazineSize;
+    }
+
+    @Override
+    public ByteBuffer acquire(boolean direct)
+    {
+        Magazine magazine = magazine();
+        ByteBuffer buffer = magazine.pop();
+        if (buffer != null)
+        {
+            _hits.increment();
+            return buffer;
+        }
+
+        _misses.increment();
+        buffer = poll();
+        if (buffer == null)
+            return getPool().newByteBuffer(getCapacity(), direct);
+
+        // Refill the magazine in a batch, up to half its size.
+        int refill = Math.max(1, _magazineSize / 2);
+        while (magazine.size() < refill)
+        {
+            ByteBuffer pooled = poll();
+            if (pooled == null)
+                break;
+            magazine.push(pooled);
+        }
+        return buffer;
+    }
+
+    @Override
+    public void release(ByteBuffer buffer)
+    {
+        BufferUtil.clear(buffer);
+        Magazine magazine = magazine();
+        if (magazine.isFull())
+        {
+            // Spill half of the magazine to the shared queue.
+            int spill = Math.max(1, _magazineSize / 2);
+            for (int i = 0; i < spill; ++i)
+                super.release(magazine.pop());
+            _spills.add(spill);
+        }
+        magazine.push(buffer);
+    }
+
+    @Override
+    public void clear()
+    {
+        // Magazines of other threads cannot be accessed safely,
+        // so they are invalidated and emptied lazily by their owners.
+        _generation.incrementAndGet();
+        _magazines.remove();
+        super.clear();
+    }
+
+    /**
+     * @return the number of acquires served by a thread magazine
+     */
+    public long getHits()
+    {
+        return _hits.sum();
+    }
+
+    /**
+     * @return the number of acquires that found the thread magazine empty
+     */
+    public long getMisses()
+    {
+        return _misses.sum();
+    }
+
+    /**
+     * @return the number of buffers spilled from thread magazines to the shared queue
+     */
+    public long getSpills()
+    {
+        return _spills.sum();
+    }
+
+    public void resetStats()
+    {
+        _hits.reset();
+        _misses.reset();
+        _spills.reset();
+    }
+
+    private Magazine magazine()
+    {
+        Magazine magazine = _magazines.get();
+        int generation = _generation.get();
+        if (magazine._generation != generation)
+        {
+            magazine.clear();
+            magazine._generation = generation;
+        }
+        return magazine;
+    }
+
+    private Magazine newMagazine()
+    {
+        return new Magazine(_magazineSize, _generation.get());
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s{hits=%d,misses=%d,spills=%d}", super.toString(), getHits(), getMisses(), getSpills());
+    }
+
+    private static class Magazine
+    {
+        private final ByteBuffer[] _buffers;
+        private int _size;
+        private int _generation;
+
+        private Magazine(int capacity, int generation)
+        {
+            _buffers = new ByteBuffer[capacity];
+            _generation = generation;
+        }
+
+        private ByteBuffer pop()
+        {
+            if (_size == 0)
+                return null;
+            ByteBuffer buffer = _buffers[--_size];
+            _buffers[_size] = null;
+            return buffer;
+        }
+
+        private void push(ByteBuffer buffer)
+        {
+            _buffers[_size++] = buffer;
+        }
+
+        private int size()
+        {
+            return _size;
+        }
+
+        private boolean isFull()
+        {
+            return _size == _buffers.length;
+        }
+
+        private void clear()
+        {
+            while (_size > 0)
+                _buffers[--_size] = null;
+        }
+    }
+}
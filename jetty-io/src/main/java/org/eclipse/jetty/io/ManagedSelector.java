@@ -38,10 +38,15 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
 import org.eclipse.jetty.util.component.ContainerLifeCycle;
 import org.eclipse.jetty.util.component.Dumpable;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.statistic.HistogramStatistic;
+import org.eclipse.jetty.util.statistic.SampleStatistic;
 import org.eclipse.jetty.util.thread.ExecutionStrategy;
 import org.eclipse.jetty.util.thread.Invocable;
 import org.eclipse.jetty.util.thread.Invocable.InvocationType;
@@ -55,7 +60,12 @@ import org.eclipse.jetty.util.thread.strategy.EatWhatYouKill;
  * <p>{@link ManagedSelector} runs the select loop, which waits on {@link Selector#select()} until events
  * happen for registered channels. When events happen, it notifies the {@link EndPoint} associated
  * with the channel.</p>
+ * <p>{@link ManagedSelector} records the time spent blocked in select, the latency between a
+ * {@link #submit(Runnable)} that wakes up the selector and the return of select, the number of
+ * keys selected per wakeup and the depth of the queue of submitted actions, so that selector
+ * starvation can be diagnosed via JMX or {@link #dump()}.</p>
  */
+@ManagedObject("Manager of a Selector")
 public class ManagedSelector extends ContainerLifeCycle implements Dumpable
 {
     private static final Logger LOG = Log.getLogger(ManagedSelector.class);
@@ -63,10 +73,16 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
     private final Locker _locker = new Locker();
     private boolean _selecting = false;
     private final Queue<Runnable> _actions = new ArrayDeque<>();
+    private final HistogramStatistic _selectTime = new HistogramStatistic();
+    private final HistogramStatistic _wakeupLatency = new HistogramStatistic();
+    private final SampleStatistic _keysPerSelect = new SampleStatistic();
+    private final SampleStatistic _actionsQueued = new SampleStatistic();
+    private long _wakeupTime;
     private final SelectorManager _selectorManager;
     private final int _id;
     private final ExecutionStrategy _strategy;
     private Selector _selector;
+    private SelectedKeys _selectedKeys;
 
     public ManagedSelector(SelectorManager selectorManager, int id)
     {
@@ -90,13 +106,19 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
         super.doStart();
 
         _selector = _selectorManager.newSelector();
+        if (_selectorManager.isArraySelectedKeys())
+        {
+            _selectedKeys = SelectedKeys.install(_selector);
+            if (_selectedKeys == null)
+                LOG.info("Array selected keys not supported by {}", _selector);
+        }
 
         // The producer used by the strategies will never
         // be idle (either produces a task or blocks).
 
         // The normal strategy obtains the produced task, schedules
         // a new thread to produce more, runs the task and then exits.
-        _selectorManager.execute(_strategy::produce);
+        _selectorManager.execute(new StartProducing());
     }
 
     public int size()
@@ -107,6 +129,88 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
         return s.keys().size();
     }
 
+    @ManagedAttribute(value = "number of selects", readonly = true)
+    public long getSelectCount()
+    {
+        return _selectTime.getCount();
+    }
+
+    @ManagedAttribute(value = "mean time in microseconds blocked in select", readonly = true)
+    public long getSelectTimeMean()
+    {
+        return toMicros(mean(_selectTime));
+    }
+
+    @ManagedAttribute(value = "max time in microseconds blocked in select", readonly = true)
+    public long getSelectTimeMax()
+    {
+        return toMicros(_selectTime.getMax());
+    }
+
+    @ManagedAttribute(value = "mean time in microseconds between a wakeup and the return of select", readonly = true)
+    public long getWakeupLatencyMean()
+    {
+        return toMicros(mean(_wakeupLatency));
+    }
+
+    @ManagedAttribute(value = "99th percentile of the time in microseconds between a wakeup and the return of select", readonly = true)
+    public long getWakeupLatency99()
+    {
+        return toMicros(_wakeupLatency.get99());
+    }
+
+    @ManagedAttribute(value = "max time in microseconds between a wakeup and the return of select", readonly = true)
+    public long getWakeupLatencyMax()
+    {
+        return toMicros(_wakeupLatency.getMax());
+    }
+
+    @ManagedAttribute(value = "mean number of keys selected per select", readonly = true)
+    public double getSelectedKeysMean()
+    {
+        return _keysPerSelect.getCount() == 0 ? 0 : _keysPerSelect.getMean();
+    }
+
+    @ManagedAttribute(value = "max number of keys selected per select", readonly = true)
+    public long getSelectedKeysMax()
+    {
+        return _keysPerSelect.getMax();
+    }
+
+    @ManagedAttribute(value = "number of queued actions", readonly = true)
+    public int getActionsQueued()
+    {
+        try (Locker.Lock lock = _locker.lock())
+        {
+            return _actions.size();
+        }
+    }
+
+    @ManagedAttribute(value = "max number of queued actions", readonly = true)
+    public long getActionsQueuedMax()
+    {
+        return _actionsQueued.getMax();
+    }
+
+    @ManagedOperation(value = "resets the statistics", impact = "ACTION")
+    public void resetStatistics()
+    {
+        _selectTime.reset();
+        _wakeupLatency.reset();
+        _keysPerSelect.reset();
+        _actionsQueued.reset();
+    }
+
+    private static long mean(SampleStatistic statistic)
+    {
+        return statistic.getCount() == 0 ? 0 : (long)statistic.getMean();
+    }
+
+    private static long toMicros(long nanos)
+    {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
     @Override
     protected void doStop() throws Exception
     {
@@ -134,11 +238,13 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
         try (Locker.Lock lock = _locker.lock())
         {
             _actions.offer(change);
+            _actionsQueued.set(_actions.size());
             if (_selecting)
             {
                 selector = _selector;
                 // To avoid the extra select wakeup.
                 _selecting = false;
+                _wakeupTime = System.nanoTime();
             }
         }
         if (selector != null)
@@ -234,16 +340,29 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
         else
         {
             final ArrayList<Object> dump = new ArrayList<>(selector.keys().size() * 2);
+            dump.add(getTelemetry());
             DumpKeys dumpKeys = new DumpKeys(dump);
             submit(dumpKeys);
             dumpKeys.await(5, TimeUnit.SECONDS);
-            if (dump.isEmpty())
-                dumpBeans(out, indent);
-            else
-                dumpBeans(out, indent, dump);
+            dumpBeans(out, indent, dump);
         }
     }
 
+    private String getTelemetry()
+    {
+        return String.format("selects=%d time{mean=%dus,max=%dus} wakeup{mean=%dus,p99=%dus,max=%dus} keys{mean=%.1f,max=%d} actions{n=%d,max=%d}",
+                getSelectCount(),
+                getSelectTimeMean(),
+                getSelectTimeMax(),
+                getWakeupLatencyMean(),
+                getWakeupLatency99(),
+                getWakeupLatencyMax(),
+                getSelectedKeysMean(),
+                getSelectedKeysMax(),
+                getActionsQueued(),
+                getActionsQueuedMax());
+    }
+
     @Override
     public String toString()
     {
@@ -280,6 +399,7 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
     {
         private Set<SelectionKey> _keys = Collections.emptySet();
         private Iterator<SelectionKey> _cursor = Collections.emptyIterator();
+        private int _index;
 
         @Override
         public Runnable produce()
@@ -343,18 +463,31 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
                 {
                     if (LOG.isDebugEnabled())
                         LOG.debug("Selector loop waiting on select");
+                    long begin = System.nanoTime();
                     int selected = selector.select();
+                    long end = System.nanoTime();
                     if (LOG.isDebugEnabled())
                         LOG.debug("Selector loop woken up from select, {}/{} selected", selected, selector.keys().size());
 
+                    long wakeupTime;
                     try (Locker.Lock lock = _locker.lock())
                     {
                         // finished selecting
                         _selecting = false;
+                        wakeupTime = _wakeupTime;
+                        _wakeupTime = 0;
                     }
 
+                    _selectTime.set(end - begin);
+                    _keysPerSelect.set(selected);
+                    if (wakeupTime != 0)
+                        _wakeupLatency.set(Math.max(0, end - wakeupTime));
+
                     _keys = selector.selectedKeys();
-                    _cursor = _keys.iterator();
+                    if (_selectedKeys != null)
+                        _index = 0;
+                    else
+                        _cursor = _keys.iterator();
 
                     return true;
                 }
@@ -370,11 +503,19 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
             return false;
         }
 
+        private SelectionKey nextSelected()
+        {
+            SelectedKeys selectedKeys = _selectedKeys;
+            if (selectedKeys != null)
+                return _index < selectedKeys.size() ? selectedKeys.get(_index++) : null;
+            return _cursor.hasNext() ? _cursor.next() : null;
+        }
+
         private Runnable processSelected()
         {
-            while (_cursor.hasNext())
+            SelectionKey key;
+            while ((key = nextSelected()) != null)
             {
-                SelectionKey key = _cursor.next();
                 if (key.isValid())
                 {
                     Object attachment = key.attachment();
@@ -427,8 +568,17 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
 
         private void update()
         {
-            for (SelectionKey key : _keys)
-                updateKey(key);
+            SelectedKeys selectedKeys = _selectedKeys;
+            if (selectedKeys != null)
+            {
+                for (int i = 0; i < selectedKeys.size(); ++i)
+                    updateKey(selectedKeys.get(i));
+            }
+            else
+            {
+                for (SelectionKey key : _keys)
+                    updateKey(key);
+            }
             _keys.clear();
         }
 
@@ -504,11 +654,23 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
     class Acceptor extends NonBlockingAction implements Selectable, Closeable
     {
         private final SelectableChannel _channel;
+        private final boolean _pinned;
         private SelectionKey _key;
 
         public Acceptor(SelectableChannel channel)
+        {
+            this(channel, false);
+        }
+
+        /**
+         * @param channel the server channel to accept from
+         * @param pinned whether accepted channels are notified with the id of this selector
+         * @see SelectorManager#accepted(SelectableChannel, int)
+         */
+        public Acceptor(SelectableChannel channel, boolean pinned)
         {
             this._channel = channel;
+            this._pinned = pinned;
         }
 
         @Override
@@ -543,7 +705,10 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
                     channel = _selectorManager.doAccept(server);
                     if (channel==null)
                         break;
-                    _selectorManager.accepted(channel);
+                    if (_pinned)
+                        _selectorManager.accepted(channel, _id);
+                    else
+                        _selectorManager.accepted(channel);
                 }
             }
             catch (Throwable x)
@@ -815,4 +980,26 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
             _selectorManager.endPointClosed(endPoint);
         }
     }
+
+    /**
+     * <p>The task that starts the producing of the selector.</p>
+     * <p>It is declared non blocking, as it only blocks in {@link Selector#select()}:
+     * executors that run blocking tasks in other threads, such as
+     * {@link org.eclipse.jetty.util.thread.VirtualThreadPool}, run it in one of
+     * their platform threads.</p>
+     */
+    private class StartProducing extends NonBlockingAction
+    {
+        @Override
+        public void run()
+        {
+            _strategy.produce();
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x", getClass().getSimpleName(), hashCode());
+        }
+    }
 }
@@ -23,15 +23,21 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
 import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
 
+@ManagedObject("A ByteBufferPool backed by a map of buckets")
 public class MappedByteBufferPool implements ByteBufferPool
 {
     private final ConcurrentMap<Integer, Bucket> directBuffers = new ConcurrentHashMap<>();
     private final ConcurrentMap<Integer, Bucket> heapBuffers = new ConcurrentHashMap<>();
     private final int _factor;
     private final int _maxQueue;
+    private final int _magazineSize;
     private final Function<Integer, Bucket> _newBucket;
 
     public MappedByteBufferPool()
@@ -49,11 +55,36 @@ public class MappedByteBufferPool implements ByteBufferPool
         this(factor,maxQueue,null);
     }
     
+    /**
+     * @param factor the capacity factor of buckets
+     * @param maxQueue the maximum number of buffers queued in each bucket, or -1 for unbounded
+     * @param magazineSize the number of buffers cached per thread in front of each bucket,
+     * or -1 to disable thread magazines
+     * @see MagazineBucket
+     */
+    public MappedByteBufferPool(int factor,int maxQueue,int magazineSize)
+    {
+        this(factor,maxQueue,magazineSize,null);
+    }
+
     public MappedByteBufferPool(int factor,int maxQueue,Function<Integer, Bucket> newBucket)
+    {
+        this(factor,maxQueue,-1,newBucket);
+    }
+
+    private MappedByteBufferPool(int factor,int maxQueue,int magazineSize,Function<Integer, Bucket> newBucket)
     {
         _factor = factor<=0?1024:factor;
         _maxQueue = maxQueue;
-        _newBucket = newBucket!=null?newBucket:i->new Bucket(this,i*_factor,_maxQueue);
+        _magazineSize = magazineSize;
+        _newBucket = newBucket!=null?newBucket:this::newBucket;
+    }
+
+    private Bucket newBucket(int key)
+    {
+        if (_magazineSize>0)
+            return new MagazineBucket(this,key*_factor,_maxQueue,_magazineSize);
+        return new Bucket(this,key*_factor,_maxQueue);
     }
 
     @Override
@@ -84,6 +115,7 @@ public class MappedByteBufferPool implements ByteBufferPool
         bucket.release(buffer);
     }
 
+    @ManagedOperation(value = "Clears this ByteBufferPool", impact = "ACTION")
     public void clear()
     {
         directBuffers.values().forEach(Bucket::clear);
@@ -92,6 +124,53 @@ public class MappedByteBufferPool implements ByteBufferPool
         heapBuffers.clear();
     }
 
+    @ManagedAttribute("The number of buffers cached per thread in front of each bucket")
+    public int getMagazineSize()
+    {
+        return _magazineSize;
+    }
+
+    @ManagedAttribute("The number of acquires served by thread magazines")
+    public long getMagazineHits()
+    {
+        return sumMagazines(MagazineBucket::getHits);
+    }
+
+    @ManagedAttribute("The number of acquires that found the thread magazine empty")
+    public long getMagazineMisses()
+    {
+        return sumMagazines(MagazineBucket::getMisses);
+    }
+
+    @ManagedAttribute("The number of buffers spilled from thread magazines to the shared buckets")
+    public long getMagazineSpills()
+    {
+        return sumMagazines(MagazineBucket::getSpills);
+    }
+
+    @ManagedOperation(value = "Resets the thread magazine statistics", impact = "ACTION")
+    public void resetMagazineStats()
+    {
+        directBuffers.values().stream().filter(MagazineBucket.class::isInstance).forEach(b->((MagazineBucket)b).resetStats());
+        heapBuffers.values().stream().filter(MagazineBucket.class::isInstance).forEach(b->((MagazineBucket)b).resetStats());
+    }
+
+    private long sumMagazines(ToLongFunction<MagazineBucket> stat)
+    {
+        long total = 0;
+        for (Bucket bucket : directBuffers.values())
+        {
+            if (bucket instanceof MagazineBucket)
+                total += stat.applyAsLong((MagazineBucket)bucket);
+        }
+        for (Bucket bucket : heapBuffers.values())
+        {
+            if (bucket instanceof MagazineBucket)
+                total += stat.applyAsLong((MagazineBucket)bucket);
+        }
+        return total;
+    }
+
     private int bucketFor(int size)
     {
         int bucket = size / _factor;
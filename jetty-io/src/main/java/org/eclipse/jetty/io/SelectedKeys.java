@@ -0,0 +1,148 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.lang.reflect.Field;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+/**
+ * <p>An array based replacement for the {@code HashSet} of selected keys of JDK selectors.</p>
+ * <p>The JDK selector implementations add the keys selected by each {@link Selector#select()}
+ * to a {@code HashSet}, allocating a node per selected key and then an iterator to walk them.
+ * When {@link #install(Selector) installed} in a selector, this class collects the selected
+ * keys in a reusable array instead, so that the selected keys can be walked by index
+ * with no allocation.</p>
+ * <p>{@link #contains(Object)} always returns false, so a key selected twice before
+ * the set is {@link #clear() cleared} would be added twice: users must process and clear
+ * the selected keys after each select operation, as {@link ManagedSelector} does.</p>
+ */
+class SelectedKeys extends AbstractSet<SelectionKey>
+{
+    private static final Logger LOG = Log.getLogger(SelectedKeys.class);
+
+    private SelectionKey[] _keys = new SelectionKey[1024];
+    private int _size;
+
+    /**
+     * <p>Replaces the selected keys set of the given JDK selector with a new {@link SelectedKeys}.</p>
+     *
+     * @param selector the selector to install the selected keys into
+     * @return the installed selected keys, or null if the selector implementation does not allow it
+     */
+    static SelectedKeys install(Selector selector)
+    {
+        try
+        {
+            Class<?> selectorImpl = Class.forName("sun.nio.ch.SelectorImpl", false, ClassLoader.getSystemClassLoader());
+            if (!selectorImpl.isInstance(selector))
+                return null;
+            Field selectedKeys = selectorImpl.getDeclaredField("selectedKeys");
+            Field publicSelectedKeys = selectorImpl.getDeclaredField("publicSelectedKeys");
+            selectedKeys.setAccessible(true);
+            publicSelectedKeys.setAccessible(true);
+            SelectedKeys keys = new SelectedKeys();
+            selectedKeys.set(selector, keys);
+            publicSelectedKeys.set(selector, keys);
+            return keys;
+        }
+        catch (Throwable x)
+        {
+            // On Java 9+ this requires --add-opens java.base/sun.nio.ch=ALL-UNNAMED.
+            if (LOG.isDebugEnabled())
+                LOG.debug("Could not install selected keys in " + selector, x);
+            return null;
+        }
+    }
+
+    @Override
+    public boolean add(SelectionKey key)
+    {
+        if (key == null)
+            return false;
+        if (_size == _keys.length)
+            _keys = Arrays.copyOf(_keys, _size * 2);
+        _keys[_size++] = key;
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o)
+    {
+        return false;
+    }
+
+    @Override
+    public boolean remove(Object o)
+    {
+        return false;
+    }
+
+    /**
+     * @param index the index of the key
+     * @return the selected key at the given index
+     */
+    SelectionKey get(int index)
+    {
+        return _keys[index];
+    }
+
+    @Override
+    public int size()
+    {
+        return _size;
+    }
+
+    @Override
+    public void clear()
+    {
+        Arrays.fill(_keys, 0, _size, null);
+        _size = 0;
+    }
+
+    @Override
+    public Iterator<SelectionKey> iterator()
+    {
+        return new Iterator<SelectionKey>()
+        {
+            private int _index;
+
+            @Override
+            public boolean hasNext()
+            {
+                return _index < _size;
+            }
+
+            @Override
+            public SelectionKey next()
+            {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return _keys[_index++];
+            }
+        };
+    }
+}
@@ -29,6 +29,7 @@ import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
@@ -39,6 +40,7 @@ import org.eclipse.jetty.util.log.Logger;
 import org.eclipse.jetty.util.thread.ReservedThreadExecutor;
 import org.eclipse.jetty.util.thread.Scheduler;
 import org.eclipse.jetty.util.thread.ThreadPool;
+import org.eclipse.jetty.util.thread.VirtualThreadPool;
 import org.eclipse.jetty.util.thread.strategy.EatWhatYouKill;
 
 /**
@@ -60,6 +62,8 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
     private long _connectTimeout = DEFAULT_CONNECT_TIMEOUT;
     private long _selectorIndex;
     private int _reservedThreads = -1;
+    private long _reservedThreadsIdleTimeout;
+    private boolean _arraySelectedKeys;
 
     public static int defaultSchedulers(Executor executor)
     {
@@ -148,7 +152,8 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
      * @see ReservedThreadExecutor
      * @param threads  The number of producing threads to preallocate. If 
      * less that 0 (the default), then a heuristic based on the number of CPUs and
-     * the thread pool size is used to select the number of threads. If 0, no 
+     * the thread pool size is used to select the number of threads, or no threads
+     * if the executor is a {@link VirtualThreadPool} using virtual threads. If 0, no 
      * threads are preallocated and the EatWhatYouKill scheduler will be 
      * disabled and all produced tasks will be executed in a separate thread. 
      */
@@ -156,7 +161,55 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
     {
         _reservedThreads = threads;
     }
+
+    /**
+     * @return the idle timeout in milliseconds after which a reserved thread is released
+     * @see #setReservedThreadsIdleTimeout(long)
+     */
+    @ManagedAttribute("The idle timeout in ms after which a reserved thread is released")
+    public long getReservedThreadsIdleTimeout()
+    {
+        return _reservedThreadsIdleTimeout;
+    }
+
+    /**
+     * <p>Sets the idle timeout of the reserved threads, after which they lower the
+     * limit of reserved threads and return to the executor.</p>
+     * @see ReservedThreadExecutor#setIdleTimeout(long, TimeUnit)
+     * @param milliseconds the idle timeout in milliseconds, or 0 (the default) to keep
+     * the reserved threads forever
+     */
+    public void setReservedThreadsIdleTimeout(long milliseconds)
+    {
+        _reservedThreadsIdleTimeout = milliseconds;
+    }
     
+    /**
+     * @return whether the selectors collect their selected keys in an array rather than in a HashSet
+     * @see #setArraySelectedKeys(boolean)
+     */
+    @ManagedAttribute("Whether the selectors collect their selected keys in an array")
+    public boolean isArraySelectedKeys()
+    {
+        return _arraySelectedKeys;
+    }
+
+    /**
+     * <p>Sets whether the selectors collect their selected keys in a reusable array
+     * rather than in the {@code HashSet} used by the JDK, so that processing the
+     * selected keys does not allocate.</p>
+     * <p>This requires access to the JDK selector implementation, that on Java 9+ must be
+     * granted with {@code --add-opens java.base/sun.nio.ch=ALL-UNNAMED}; if access is not
+     * granted, selectors fall back to the JDK selected keys.</p>
+     * <p>Must be called before the selectors are started.</p>
+     *
+     * @param arraySelectedKeys whether the selectors collect their selected keys in an array
+     */
+    public void setArraySelectedKeys(boolean arraySelectedKeys)
+    {
+        _arraySelectedKeys = arraySelectedKeys;
+    }
+
     /**
      * Executes the given task in a different thread.
      *
@@ -278,6 +331,53 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
         return acceptor;
     }
 
+    /**
+     * <p>Registers a server channel for accept operations on the given selector.</p>
+     * <p>Unlike {@link #acceptor(SelectableChannel)}, channels accepted from the given
+     * server channel are passed to {@link #accepted(SelectableChannel, int)} with the
+     * selector id, so that they can be registered with {@link #accept(SelectableChannel, int, Object)}
+     * on the same selector that accepted them, without being handed off to another selector thread.</p>
+     *
+     * @param server the server channel to register
+     * @param selector the id of the selector, modulo the number of selectors
+     * @return A Closable that allows the acceptor to be cancelled
+     */
+    public Closeable acceptor(SelectableChannel server, int selector)
+    {
+        final ManagedSelector managed = _selectors[selector % getSelectorCount()];
+        ManagedSelector.Acceptor acceptor = managed.new Acceptor(server, true);
+        managed.submit(acceptor);
+        return acceptor;
+    }
+
+    /**
+     * <p>Registers a channel to perform non-blocking read/write operations on the given selector.</p>
+     *
+     * @param channel    the channel to register
+     * @param selector   the id of the selector, modulo the number of selectors
+     * @param attachment the attachment object
+     * @see #accept(SelectableChannel, Object)
+     */
+    public void accept(SelectableChannel channel, int selector, Object attachment)
+    {
+        final ManagedSelector managed = _selectors[selector % getSelectorCount()];
+        managed.submit(managed.new Accept(channel, attachment));
+    }
+
+    /**
+     * Callback method when a channel is accepted from the {@link ServerSocketChannel}
+     * passed to {@link #acceptor(SelectableChannel, int)}.
+     * The default impl calls {@link #accepted(SelectableChannel)}.
+     *
+     * @param channel the accepted channel
+     * @param selector the id of the selector that accepted the channel
+     * @throws IOException if unable to accept channel
+     */
+    protected void accepted(SelectableChannel channel, int selector) throws IOException
+    {
+        accepted(channel);
+    }
+
     /**
      * Callback method when a channel is accepted from the {@link ServerSocketChannel}
      * passed to {@link #acceptor(SelectableChannel)}.
@@ -295,7 +395,11 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
     @Override
     protected void doStart() throws Exception
     {
-        addBean(new ReservedThreadExecutor(getExecutor(),_reservedThreads),true);
+        int reservedThreads = _reservedThreads;
+        // Blocking tasks must be dispatched to virtual threads rather than consumed by the selector thread.
+        if (reservedThreads < 0 && getExecutor() instanceof VirtualThreadPool && ((VirtualThreadPool)getExecutor()).isUseVirtualThreads())
+            reservedThreads = 0;
+        addBean(new ReservedThreadExecutor(getExecutor(),reservedThreads,_reservedThreadsIdleTimeout,TimeUnit.MILLISECONDS),true);
         for (int i = 0; i < _selectors.length; i++)
         {
             ManagedSelector selector = newSelector(i);
@@ -0,0 +1,243 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+
+/**
+ * <p>Coalesces small buffers of gathering writes into pooled buffers.</p>
+ * <p>Writes of many small buffers, such as frame headers followed by small payloads,
+ * cost one gathering write segment per buffer. When a {@link WriteFlusher} has a
+ * {@link WriteCoalescer}, each run of two or more adjacent buffers with less than
+ * {@link #getThreshold()} remaining bytes is copied into a single buffer acquired
+ * from the {@link ByteBufferPool}, while larger buffers are still written without copy.
+ * The pooled buffers are released when the write completes.</p>
+ * <p>A single instance is typically shared by all the endpoints of a connector.</p>
+ */
+@ManagedObject("Coalesces small buffers of gathering writes")
+public class WriteCoalescer
+{
+    private final LongAdder _coalescedWrites = new LongAdder();
+    private final LongAdder _coalescedBytes = new LongAdder();
+    private final LongAdder _savedBuffers = new LongAdder();
+    private final ByteBufferPool _bufferPool;
+    private final int _threshold;
+    private final boolean _direct;
+
+    /**
+     * @param bufferPool the pool to acquire the coalesced buffers from
+     * @param threshold the size under which buffers are coalesced
+     * @param direct whether the coalesced buffers are direct
+     */
+    public WriteCoalescer(ByteBufferPool bufferPool, int threshold, boolean direct)
+    {
+        if (threshold <= 0)
+            throw new IllegalArgumentException("threshold <= 0");
+        _bufferPool = bufferPool;
+        _threshold = threshold;
+        _direct = direct;
+    }
+
+    @ManagedAttribute("The size under which buffers are coalesced")
+    public int getThreshold()
+    {
+        return _threshold;
+    }
+
+    @ManagedAttribute("The number of writes that have been coalesced")
+    public long getCoalescedWrites()
+    {
+        return _coalescedWrites.sum();
+    }
+
+    @ManagedAttribute("The number of bytes copied into coalesced buffers")
+    public long getCoalescedBytes()
+    {
+        return _coalescedBytes.sum();
+    }
+
+    @ManagedAttribute("The number of buffers saved from gathering writes")
+    public long getSavedBuffers()
+    {
+        return _savedBuffers.sum();
+    }
+
+    @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
+    public void reset()
+    {
+        _coalescedWrites.reset();
+        _coalescedBytes.reset();
+        _savedBuffers.reset();
+    }
+
+    /**
+     * <p>Coalesces the runs of small buffers of the given array.</p>
+     * <p>The bytes of the coalesced buffers are consumed, and the returned
+     * {@link Coalesced} must be {@link Coalesced#release() released}
+     * once the write of its buffers completes.</p>
+     *
+     * @param buffers the buffers to coalesce
+     * @return the coalesced buffers, or null if no buffers can be coalesced
+     */
+    public Coalesced coalesce(ByteBuffer[] buffers)
+    {
+        int runs = 0;
+        int coalesced = 0;
+        int run = 0;
+        for (ByteBuffer buffer : buffers)
+        {
+            if (isSmall(buffer))
+            {
+                ++run;
+            }
+            else
+            {
+                if (run > 1)
+                {
+                    ++runs;
+                    coalesced += run;
+                }
+                run = 0;
+            }
+        }
+        if (run > 1)
+        {
+            ++runs;
+            coalesced += run;
+        }
+        if (runs == 0)
+            return null;
+
+        ByteBuffer[] result = new ByteBuffer[buffers.length - coalesced + runs];
+        ByteBuffer[] pooled = new ByteBuffer[runs];
+        int r = 0;
+        int p = 0;
+        int i = 0;
+        long bytes = 0;
+        while (i < buffers.length)
+        {
+            int end = i;
+            int length = 0;
+            while (end < buffers.length && isSmall(buffers[end]))
+                length += buffers[end++].remaining();
+
+            if (end - i > 1)
+            {
+                ByteBuffer buffer = _bufferPool.acquire(length, _direct);
+                BufferUtil.clearToFill(buffer);
+                for (int k = i; k < end; ++k)
+                    buffer.put(buffers[k]);
+                BufferUtil.flipToFlush(buffer, 0);
+                pooled[p++] = buffer;
+                result[r++] = buffer;
+                bytes += length;
+                i = end;
+            }
+            else
+            {
+                result[r++] = buffers[i++];
+            }
+        }
+
+        _coalescedWrites.increment();
+        _coalescedBytes.add(bytes);
+        _savedBuffers.add(coalesced - runs);
+        return new Coalesced(result, pooled);
+    }
+
+    private boolean isSmall(ByteBuffer buffer)
+    {
+        return buffer.remaining() < _threshold;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{threshold=%d,writes=%d,bytes=%d,saved=%d}",
+                getClass().getSimpleName(),
+                hashCode(),
+                getThreshold(),
+                getCoalescedWrites(),
+                getCoalescedBytes(),
+                getSavedBuffers());
+    }
+
+    /**
+     * <p>The result of {@link #coalesce(ByteBuffer[])}.</p>
+     */
+    public class Coalesced
+    {
+        private final ByteBuffer[] _buffers;
+        private final ByteBuffer[] _pooled;
+
+        private Coalesced(ByteBuffer[] buffers, ByteBuffer[] pooled)
+        {
+            _buffers = buffers;
+            _pooled = pooled;
+        }
+
+        /**
+         * @return the buffers to write in place of the original ones
+         */
+        public ByteBuffer[] getBuffers()
+        {
+            return _buffers;
+        }
+
+        /**
+         * <p>Releases the pooled buffers.</p>
+         */
+        public void release()
+        {
+            for (ByteBuffer buffer : _pooled)
+                _bufferPool.release(buffer);
+        }
+
+        /**
+         * @param callback the callback of the write, may be null
+         * @return a callback that releases the pooled buffers before completing the given callback
+         */
+        public Callback wrap(Callback callback)
+        {
+            return new Callback.Nested(callback == null ? Callback.NOOP : callback)
+            {
+                @Override
+                public void succeeded()
+                {
+                    release();
+                    super.succeeded();
+                }
+
+                @Override
+                public void failed(Throwable x)
+                {
+                    release();
+                    super.failed(x);
+                }
+            };
+        }
+    }
+}
@@ -54,6 +54,7 @@ abstract public class WriteFlusher
     private static final State __COMPLETING = new CompletingState();
     private final EndPoint _endPoint;
     private final AtomicReference<State> _state = new AtomicReference<>();
+    private WriteCoalescer _coalescer;
 
     static
     {
@@ -93,6 +94,22 @@ abstract public class WriteFlusher
         _endPoint = endPoint;
     }
 
+    /**
+     * @return the coalescer of small buffers, or null if small buffers are not coalesced
+     */
+    public WriteCoalescer getWriteCoalescer()
+    {
+        return _coalescer;
+    }
+
+    /**
+     * @param coalescer the coalescer of small buffers, or null to not coalesce small buffers
+     */
+    public void setWriteCoalescer(WriteCoalescer coalescer)
+    {
+        _coalescer = coalescer;
+    }
+
     private enum StateType
     {
         IDLE,
@@ -317,6 +334,35 @@ abstract public class WriteFlusher
         if (!updateState(__IDLE,__WRITING))
             throw new WritePendingException();
 
+        // Coalesce only after the transition to WRITING, so that the buffers
+        // are not consumed by a write that throws WritePendingException.
+        WriteCoalescer coalescer = _coalescer;
+        if (coalescer!=null && buffers.length>1)
+        {
+            try
+            {
+                WriteCoalescer.Coalesced coalesced = coalescer.coalesce(buffers);
+                if (coalesced!=null)
+                {
+                    buffers=coalesced.getBuffers();
+                    callback=coalesced.wrap(callback);
+                }
+            }
+            catch (Throwable x)
+            {
+                if (DEBUG)
+                    LOG.debug("coalesce exception", x);
+                if (updateState(__WRITING,__IDLE))
+                {
+                    if (callback!=null)
+                        callback.failed(x);
+                }
+                else
+                    fail(new PendingState(buffers, callback));
+                return;
+            }
+        }
+
         try
         {
             buffers=flush(buffers);
@@ -94,6 +94,7 @@ public class SslConnection extends AbstractConnection
     private int _renegotiationLimit = -1;
     private boolean _closedOutbound;
     private boolean _allowMissingCloseMessage = true;
+    private boolean _minimizeIdleFootprint;
 
     private abstract class RunnableTask  implements Runnable, Invocable
     {
@@ -242,6 +243,45 @@ public class SslConnection extends AbstractConnection
         this._allowMissingCloseMessage = allowMissingCloseMessage;
     }
 
+    /**
+     * @return whether the buffers of this connection are minimized when no bytes can be filled
+     */
+    public boolean isMinimizeIdleFootprint()
+    {
+        return _minimizeIdleFootprint;
+    }
+
+    /**
+     * <p>Sets whether the buffers of this connection are minimized when no bytes can be filled.</p>
+     * <p>Empty buffers are always released to the {@link ByteBufferPool} after a fill.
+     * When this mode is enabled and a fill returns 0 bytes, the bytes of a partial TLS record
+     * are also copied out of the network buffer into a buffer just large enough to hold them,
+     * so that an idle connection does not retain a whole packet buffer.
+     * A network buffer is acquired again by the next fill.</p>
+     *
+     * @param minimizeIdleFootprint whether the buffers are minimized when no bytes can be filled
+     */
+    public void setMinimizeIdleFootprint(boolean minimizeIdleFootprint)
+    {
+        _minimizeIdleFootprint = minimizeIdleFootprint;
+    }
+
+    @Override
+    public long getRetainedBufferBytes()
+    {
+        long bytes = getDecryptedEndPoint().getConnection().getRetainedBufferBytes();
+        ByteBuffer b = _encryptedInput;
+        if (b != null)
+            bytes += b.capacity();
+        b = _encryptedOutput;
+        if (b != null)
+            bytes += b.capacity();
+        b = _decryptedInput;
+        if (b != null)
+            bytes += b.capacity();
+        return bytes;
+    }
+
     @Override
     public void onOpen()
     {
@@ -619,8 +659,11 @@ public class SslConnection extends AbstractConnection
                             return BufferUtil.append(buffer,_decryptedInput);
 
                         // We will need a network buffer
+                        int packetBufferSize = _sslEngine.getSession().getPacketBufferSize();
                         if (_encryptedInput == null)
-                            _encryptedInput = _bufferPool.acquire(_sslEngine.getSession().getPacketBufferSize(), _encryptedDirectBuffers);
+                            _encryptedInput = _bufferPool.acquire(packetBufferSize, _encryptedDirectBuffers);
+                        else if (_encryptedInput.capacity() < packetBufferSize)
+                            _encryptedInput = resize(_encryptedInput, packetBufferSize);
                         else
                             BufferUtil.compact(_encryptedInput);
 
@@ -675,6 +718,10 @@ public class SslConnection extends AbstractConnection
                                 {
                                     if (net_filled < 0 && _sslEngine.getUseClientMode())
                                         closeInbound();
+                                    // Only shrink if the partial record uses less than half of the network buffer.
+                                    int partial = _encryptedInput.remaining();
+                                    if (net_filled == 0 && _minimizeIdleFootprint && partial > 0 && partial < _encryptedInput.capacity() / 2)
+                                        _encryptedInput = resize(_encryptedInput, partial);
                                     if (net_filled <= 0)
                                         return net_filled;
                                 }
@@ -841,6 +888,14 @@ public class SslConnection extends AbstractConnection
             }
         }
 
+        private ByteBuffer resize(ByteBuffer buffer, int capacity)
+        {
+            ByteBuffer resized = _bufferPool.acquire(capacity, _encryptedDirectBuffers);
+            BufferUtil.append(resized, buffer);
+            _bufferPool.release(buffer);
+            return resized;
+        }
+
         private void handshakeFinished()
         {
             if (_handshaken)
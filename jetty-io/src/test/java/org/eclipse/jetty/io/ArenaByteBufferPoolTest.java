@@ -0,0 +1,209 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.junit.Test;
+
+public class ArenaByteBufferPoolTest
+{
+    @Test
+    public void testDirectBuffersAreSlicedFromSlab() throws Exception
+    {
+        ArenaByteBufferPool bufferPool = new ArenaByteBufferPool(1024, 8 * 1024, 4 * 1024);
+
+        ByteBuffer buffer1 = bufferPool.acquire(1000, true);
+        ByteBuffer buffer2 = bufferPool.acquire(1024, true);
+        assertTrue(buffer1.isDirect());
+        assertEquals(1024, buffer1.capacity());
+        assertTrue(BufferUtil.isEmpty(buffer1));
+        assertEquals(1, bufferPool.getSlabCount());
+        assertEquals(2, bufferPool.getSliceCount());
+
+        // Slices must not overlap.
+        BufferUtil.append(buffer1, (byte)1);
+        BufferUtil.append(buffer2, (byte)2);
+        assertEquals(1, buffer1.get(0));
+        assertEquals(2, buffer2.get(0));
+
+        // Each size class has its own slabs.
+        ByteBuffer buffer3 = bufferPool.acquire(3000, true);
+        assertEquals(3072, buffer3.capacity());
+        assertEquals(2, bufferPool.getSlabCount());
+
+        // The first slab holds 8 slices of 1 KiB.
+        for (int i = 0; i < 6; ++i)
+            bufferPool.acquire(1024, true);
+        assertEquals(2, bufferPool.getSlabCount());
+        bufferPool.acquire(1024, true);
+        assertEquals(3, bufferPool.getSlabCount());
+    }
+
+    @Test
+    public void testReleasedSlicesAreReused() throws Exception
+    {
+        ArenaByteBufferPool bufferPool = new ArenaByteBufferPool();
+
+        ByteBuffer buffer1 = bufferPool.acquire(512, true);
+        BufferUtil.append(buffer1, (byte)1);
+        bufferPool.release(buffer1);
+        assertEquals(0, bufferPool.getAcquiredSliceCount());
+
+        ByteBuffer buffer2 = bufferPool.acquire(1024, true);
+        assertTrue(BufferUtil.isEmpty(buffer2));
+        buffer2.limit(1);
+        assertEquals(1, buffer2.get(0));
+        assertEquals(1, bufferPool.getSlabCount());
+        assertEquals(2, bufferPool.getSliceCount());
+    }
+
+    @Test
+    public void testLongLivedSliceDoesNotPinSlab() throws Exception
+    {
+        ArenaByteBufferPool bufferPool = new ArenaByteBufferPool(1024, 8 * 1024, 4 * 1024);
+
+        ByteBuffer longLived = bufferPool.acquire(1024, true);
+        BufferUtil.append(longLived, (byte)42);
+
+        // The other slices of the slab are reused while the long-lived slice is in use.
+        for (int cycle = 0; cycle < 1000; ++cycle)
+        {
+            List<ByteBuffer> buffers = new ArrayList<>();
+            for (int i = 0; i < 7; ++i)
+                buffers.add(bufferPool.acquire(1024, true));
+            for (ByteBuffer buffer : buffers)
+            {
+                BufferUtil.append(buffer, (byte)cycle);
+                bufferPool.release(buffer);
+            }
+        }
+        assertEquals(1, bufferPool.getSlabCount());
+        assertEquals(1, bufferPool.getAcquiredSliceCount());
+        assertEquals(42, longLived.get(0));
+
+        bufferPool.release(longLived);
+        assertEquals(0, bufferPool.getAcquiredSliceCount());
+    }
+
+    @Test
+    public void testRepeatedAcquireReleaseKeepsSlabCountBounded() throws Exception
+    {
+        ArenaByteBufferPool bufferPool = new ArenaByteBufferPool(1024, 16 * 1024, 4 * 1024);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (int cycle = 0; cycle < 1000; ++cycle)
+        {
+            // At most 16 slices of each size class are in use at the same time.
+            while (buffers.size() < 16)
+                buffers.add(bufferPool.acquire(1 + random.nextInt(4 * 1024), true));
+            for (int i = 0; i < 8; ++i)
+                bufferPool.release(buffers.remove(random.nextInt(buffers.size())));
+        }
+        buffers.forEach(bufferPool::release);
+        assertEquals(0, bufferPool.getAcquiredSliceCount());
+
+        // One slab for 1 KiB slices, 2 for 2 KiB, 3 for 3 KiB and 4 for 4 KiB.
+        assertTrue(bufferPool.getSlabCount() <= 10);
+    }
+
+    @Test
+    public void testSliceReleasedTwiceIsIgnored() throws Exception
+    {
+        ArenaByteBufferPool bufferPool = new ArenaByteBufferPool(1024, 8 * 1024, 4 * 1024);
+
+        ByteBuffer buffer = bufferPool.acquire(1024, true);
+        bufferPool.release(buffer);
+        bufferPool.release(buffer);
+
+        ByteBuffer buffer1 = bufferPool.acquire(1024, true);
+        ByteBuffer buffer2 = bufferPool.acquire(1024, true);
+        assertNotSame(buffer1, buffer2);
+        BufferUtil.append(buffer1, (byte)1);
+        BufferUtil.append(buffer2, (byte)2);
+        assertEquals(1, buffer1.get(0));
+        assertEquals(2, buffer2.get(0));
+        assertEquals(1, bufferPool.getSlabCount());
+        assertEquals(2, bufferPool.getAcquiredSliceCount());
+    }
+
+    @Test
+    public void testLeakedSliceIsReclaimed() throws Exception
+    {
+        ArenaByteBufferPool bufferPool = new ArenaByteBufferPool(1024, 8 * 1024, 4 * 1024);
+
+        bufferPool.acquire(1024, true);
+        assertEquals(1, bufferPool.getAcquiredSliceCount());
+
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (bufferPool.getLeakedSliceCount() == 0 && System.nanoTime() < end)
+        {
+            System.gc();
+            bufferPool.release(bufferPool.acquire(1024, true));
+        }
+        assertEquals(1, bufferPool.getLeakedSliceCount());
+        assertEquals(0, bufferPool.getAcquiredSliceCount());
+        assertEquals(1, bufferPool.getSlabCount());
+    }
+
+    @Test
+    public void testClear() throws Exception
+    {
+        ArenaByteBufferPool bufferPool = new ArenaByteBufferPool(1024, 8 * 1024, 4 * 1024);
+
+        ByteBuffer buffer1 = bufferPool.acquire(1024, true);
+        bufferPool.release(bufferPool.acquire(2048, true));
+        assertEquals(2, bufferPool.getSlabCount());
+
+        bufferPool.clear();
+        assertEquals(0, bufferPool.getSlabCount());
+
+        // A slice of a cleared slab is not reused once released.
+        bufferPool.release(buffer1);
+        assertEquals(0, bufferPool.getAcquiredSliceCount());
+        ByteBuffer buffer2 = bufferPool.acquire(1024, true);
+        assertEquals(1, bufferPool.getSlabCount());
+        bufferPool.release(buffer2);
+    }
+
+    @Test
+    public void testHeapAndLargeBuffersAreNotSliced() throws Exception
+    {
+        ArenaByteBufferPool bufferPool = new ArenaByteBufferPool(1024, 8 * 1024, 4 * 1024);
+
+        ByteBuffer heap = bufferPool.acquire(512, false);
+        assertFalse(heap.isDirect());
+        ByteBuffer large = bufferPool.acquire(5000, true);
+        assertTrue(large.isDirect());
+
+        assertEquals(0, bufferPool.getSlabCount());
+        assertEquals(0, bufferPool.getSliceCount());
+    }
+}
@@ -20,6 +20,7 @@ package org.eclipse.jetty.io;
 
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
@@ -169,4 +170,49 @@ public class ArrayByteBufferPoolTest
         assertEquals(2, bucket.size());
     }
 
+    @Test
+    public void testMagazine() throws Exception
+    {
+        ArrayByteBufferPool bufferPool = new ArrayByteBufferPool(-1,-1,-1,-1,4);
+        Bucket[] buckets = bufferPool.bucketsFor(false);
+
+        ByteBuffer buffer1 = bufferPool.acquire(512, false);
+        bufferPool.release(buffer1);
+
+        // The buffer is cached in the thread magazine, not in the shared queue.
+        Arrays.asList(buckets).forEach(b->assertEquals(0,b.size()));
+
+        ByteBuffer buffer2 = bufferPool.acquire(512, false);
+        assertSame(buffer1, buffer2);
+        assertEquals(1, bufferPool.getMagazineHits());
+        assertEquals(1, bufferPool.getMagazineMisses());
+        assertEquals(0, bufferPool.getMagazineSpills());
+    }
+
+    @Test
+    public void testMagazineSpillAndRefill() throws Exception
+    {
+        ArrayByteBufferPool bufferPool = new ArrayByteBufferPool(-1,-1,-1,-1,4);
+        Bucket[] buckets = bufferPool.bucketsFor(true);
+
+        ByteBuffer[] buffers = new ByteBuffer[6];
+        for (int i = 0; i < buffers.length; ++i)
+            buffers[i] = bufferPool.acquire(512, true);
+        for (ByteBuffer buffer : buffers)
+            bufferPool.release(buffer);
+
+        // The magazine holds 4 buffers, and spilled half of it once.
+        assertEquals(2, bufferPool.getMagazineSpills());
+        Bucket bucket = Arrays.asList(buckets).stream().filter(b->b.size()>0).findFirst().get();
+        assertEquals(2, bucket.size());
+
+        bufferPool.clear();
+        bufferPool.resetMagazineStats();
+        Arrays.asList(buckets).forEach(b->assertEquals(0,b.size()));
+
+        // After the clear, the magazine is empty and must miss.
+        bufferPool.acquire(512, true);
+        assertEquals(0, bufferPool.getMagazineHits());
+        assertEquals(1, bufferPool.getMagazineMisses());
+    }
 }
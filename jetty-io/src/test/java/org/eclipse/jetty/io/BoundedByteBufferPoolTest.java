@@ -0,0 +1,131 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class BoundedByteBufferPoolTest
+{
+    @Test
+    public void testAcquireReleaseAcquire() throws Exception
+    {
+        BoundedByteBufferPool bufferPool = new BoundedByteBufferPool();
+
+        ByteBuffer buffer1 = bufferPool.acquire(512, true);
+        bufferPool.release(buffer1);
+        assertEquals(1024, bufferPool.getDirectMemory());
+        assertEquals(0, bufferPool.getHeapMemory());
+
+        ByteBuffer buffer2 = bufferPool.acquire(512, true);
+        assertSame(buffer1, buffer2);
+        assertEquals(0, bufferPool.getDirectMemory());
+    }
+
+    @Test
+    public void testMaxMemoryEvictsLeastRecentlyUsed() throws Exception
+    {
+        BoundedByteBufferPool bufferPool = new BoundedByteBufferPool(1024, -1, 4096, -1);
+        ConcurrentMap<Integer, BoundedByteBufferPool.BoundedBucket> buckets = bufferPool.bucketsFor(false);
+
+        ByteBuffer small = bufferPool.acquire(1024, false);
+        ByteBuffer large = bufferPool.acquire(3072, false);
+        bufferPool.release(small);
+        bufferPool.release(large);
+        assertEquals(4096, bufferPool.getHeapMemory());
+
+        // Make the small bucket the most recently used one.
+        bufferPool.release(bufferPool.acquire(1024, false));
+
+        // Releasing another large buffer exceeds the budget.
+        bufferPool.release(bufferPool.acquire(2048, false));
+        assertTrue(bufferPool.getHeapMemory() <= 4096);
+        assertTrue(bufferPool.getEvictions() > 0);
+        assertEquals(1, buckets.get(1).size());
+        assertEquals(0, buckets.get(3).size());
+
+        Map<Integer, Long> memory = bufferPool.getHeapBucketMemory();
+        assertEquals(1024L, memory.get(1024).longValue());
+        assertEquals(0L, memory.get(3072).longValue());
+    }
+
+    @Test
+    public void testMaxMemoryIsPerType() throws Exception
+    {
+        BoundedByteBufferPool bufferPool = new BoundedByteBufferPool(1024, -1, 1024, 2048);
+
+        bufferPool.release(ByteBuffer.allocate(1024));
+        bufferPool.release(ByteBuffer.allocateDirect(1024));
+        bufferPool.release(ByteBuffer.allocateDirect(1024));
+        assertEquals(1024, bufferPool.getHeapMemory());
+        assertEquals(2048, bufferPool.getDirectMemory());
+        assertEquals(0, bufferPool.getEvictions());
+
+        bufferPool.release(ByteBuffer.allocate(1024));
+        assertEquals(1024, bufferPool.getHeapMemory());
+        assertEquals(1, bufferPool.getEvictions());
+    }
+
+    @Test
+    public void testIdleTrim() throws Exception
+    {
+        BoundedByteBufferPool bufferPool = new BoundedByteBufferPool();
+        bufferPool.setIdleTimeout(100);
+        bufferPool.start();
+        try
+        {
+            bufferPool.release(bufferPool.acquire(512, true));
+            bufferPool.release(bufferPool.acquire(4096, false));
+            assertEquals(1024, bufferPool.getDirectMemory());
+            assertEquals(4096, bufferPool.getHeapMemory());
+
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (bufferPool.getDirectMemory() + bufferPool.getHeapMemory() > 0 && System.nanoTime() < end)
+                Thread.sleep(50);
+
+            assertEquals(0, bufferPool.getDirectMemory());
+            assertEquals(0, bufferPool.getHeapMemory());
+        }
+        finally
+        {
+            bufferPool.stop();
+        }
+    }
+
+    @Test
+    public void testClear() throws Exception
+    {
+        BoundedByteBufferPool bufferPool = new BoundedByteBufferPool();
+
+        bufferPool.release(bufferPool.acquire(512, true));
+        bufferPool.release(bufferPool.acquire(512, false));
+        bufferPool.clear();
+
+        assertEquals(0, bufferPool.getDirectMemory());
+        assertEquals(0, bufferPool.getHeapMemory());
+    }
+}
@@ -20,6 +20,7 @@ package org.eclipse.jetty.io;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
@@ -159,4 +160,32 @@ public class MappedByteBufferPoolTest
         assertEquals(2, bucket.size());
 
     }
+
+    @Test
+    public void testMagazine() throws Exception
+    {
+        MappedByteBufferPool bufferPool = new MappedByteBufferPool(-1,-1,2);
+        ConcurrentMap<Integer,Bucket> buckets = bufferPool.bucketsFor(false);
+
+        ByteBuffer buffer1 = bufferPool.acquire(512, false);
+        ByteBuffer buffer2 = bufferPool.acquire(512, false);
+        ByteBuffer buffer3 = bufferPool.acquire(512, false);
+        assertEquals(0, buckets.size());
+
+        bufferPool.release(buffer1);
+        bufferPool.release(buffer2);
+        assertEquals(1, buckets.size());
+        Bucket bucket = buckets.values().iterator().next();
+        assertThat(bucket, instanceOf(MagazineBucket.class));
+        assertEquals(0, bucket.size());
+
+        // The magazine is full, so one buffer is spilled to the shared queue.
+        bufferPool.release(buffer3);
+        assertEquals(1, bucket.size());
+        assertEquals(1, bufferPool.getMagazineSpills());
+
+        assertSame(buffer3, bufferPool.acquire(512, false));
+        assertSame(buffer1, bufferPool.acquire(512, false));
+        assertEquals(2, bufferPool.getMagazineHits());
+    }
 }
@@ -0,0 +1,171 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.toolchain.test.AdvancedRunner;
+import org.eclipse.jetty.toolchain.test.annotation.Stress;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * <p>Compares the processing of the selected keys of JDK selectors
+ * using the JDK selected keys and using {@link SelectedKeys}.</p>
+ * <p>All the pipes are kept readable, so that every select returns all of them.</p>
+ */
+@RunWith(AdvancedRunner.class)
+public class SelectedKeysBenchmarkTest
+{
+    private static final Logger logger = Log.getLogger(SelectedKeysBenchmarkTest.class);
+
+    @Test
+    public void testSelectedKeys() throws Exception
+    {
+        List<Pipe> pipes = openPipes(16);
+        try (Selector selector = Selector.open())
+        {
+            SelectedKeys selectedKeys = SelectedKeys.install(selector);
+            Assume.assumeTrue(selectedKeys != null);
+
+            register(selector, pipes);
+            for (int i = 0; i < 3; ++i)
+            {
+                assertEquals(pipes.size(), selector.selectNow());
+                assertEquals(pipes.size(), selectedKeys.size());
+                int count = 0;
+                for (SelectionKey key : selector.selectedKeys())
+                {
+                    if (key.isReadable())
+                        ++count;
+                }
+                assertEquals(pipes.size(), count);
+                selector.selectedKeys().clear();
+                assertEquals(0, selectedKeys.size());
+            }
+        }
+        finally
+        {
+            closePipes(pipes);
+        }
+    }
+
+    @Stress("High CPU")
+    @Test
+    public void testSelectedKeysBenchmark() throws Exception
+    {
+        int channels = 512;
+        int iterations = 20_000;
+        List<Pipe> pipes = openPipes(channels);
+        try
+        {
+            for (int run = 0; run < 5; ++run)
+            {
+                long jdk = benchmark(pipes, iterations, false);
+                long array = benchmark(pipes, iterations, true);
+                Assume.assumeTrue(array >= 0);
+                logger.info("{} channels x {} selects: JDK={}ms array={}ms", channels, iterations,
+                        TimeUnit.NANOSECONDS.toMillis(jdk), TimeUnit.NANOSECONDS.toMillis(array));
+            }
+        }
+        finally
+        {
+            closePipes(pipes);
+        }
+    }
+
+    private long benchmark(List<Pipe> pipes, int iterations, boolean array) throws Exception
+    {
+        try (Selector selector = Selector.open())
+        {
+            SelectedKeys selectedKeys = array ? SelectedKeys.install(selector) : null;
+            if (array && selectedKeys == null)
+                return -1;
+
+            register(selector, pipes);
+            long readable = 0;
+            long begin = System.nanoTime();
+            for (int i = 0; i < iterations; ++i)
+            {
+                selector.selectNow();
+                if (selectedKeys != null)
+                {
+                    for (int k = 0; k < selectedKeys.size(); ++k)
+                        readable += selectedKeys.get(k).readyOps();
+                    selectedKeys.clear();
+                }
+                else
+                {
+                    Set<SelectionKey> keys = selector.selectedKeys();
+                    for (SelectionKey key : keys)
+                        readable += key.readyOps();
+                    keys.clear();
+                }
+            }
+            long elapsed = System.nanoTime() - begin;
+            assertEquals((long)iterations * pipes.size() * SelectionKey.OP_READ, readable);
+
+            // Deregister the channels so that they can be registered with the next selector.
+            for (SelectionKey key : selector.keys())
+                key.cancel();
+            selector.selectNow();
+            return elapsed;
+        }
+    }
+
+    private List<Pipe> openPipes(int count) throws Exception
+    {
+        List<Pipe> pipes = new ArrayList<>();
+        for (int i = 0; i < count; ++i)
+        {
+            Pipe pipe = Pipe.open();
+            pipe.source().configureBlocking(false);
+            pipe.sink().write(ByteBuffer.wrap(new byte[]{(byte)i}));
+            pipes.add(pipe);
+        }
+        return pipes;
+    }
+
+    private void register(Selector selector, List<Pipe> pipes) throws Exception
+    {
+        for (Pipe pipe : pipes)
+            pipe.source().register(selector, SelectionKey.OP_READ);
+    }
+
+    private void closePipes(List<Pipe> pipes) throws Exception
+    {
+        for (Pipe pipe : pipes)
+        {
+            pipe.source().close();
+            pipe.sink().close();
+        }
+    }
+}
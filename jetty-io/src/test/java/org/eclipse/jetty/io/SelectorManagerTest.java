@@ -33,6 +33,7 @@ import org.eclipse.jetty.toolchain.test.annotation.Slow;
 import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.eclipse.jetty.util.thread.TimerScheduler;
+import org.hamcrest.Matchers;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -57,6 +58,58 @@ public class SelectorManagerTest
         executor.stop();
     }
 
+    @Test
+    public void testSelectorTelemetry() throws Exception
+    {
+        SelectorManager selectorManager = new SelectorManager(executor, scheduler, 1)
+        {
+            @Override
+            protected EndPoint newEndPoint(SelectableChannel channel, ManagedSelector selector, SelectionKey key) throws IOException
+            {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Connection newConnection(SelectableChannel channel, EndPoint endpoint, Object attachment) throws IOException
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+        selectorManager.start();
+
+        try
+        {
+            ManagedSelector selector = selectorManager.getBean(ManagedSelector.class);
+            int actions = 5;
+            for (int i = 0; i < actions; ++i)
+            {
+                // Wait for the selector to block in select, so that each action wakes it up.
+                long start = System.nanoTime();
+                while (selector.getSelectCount() <= i && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5))
+                {
+                    CountDownLatch latch = new CountDownLatch(1);
+                    selector.submit(latch::countDown);
+                    Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+                    Thread.sleep(10);
+                }
+            }
+
+            Assert.assertTrue(selector.getSelectCount() >= actions);
+            Assert.assertEquals(0, selector.getSelectedKeysMax());
+            Assert.assertEquals(0, selector.getActionsQueued());
+            Assert.assertTrue(selector.getActionsQueuedMax() >= 1);
+            Assert.assertTrue(selector.getWakeupLatencyMax() >= selector.getWakeupLatencyMean());
+            Assert.assertThat(selector.dump(), Matchers.containsString("selects="));
+
+            selector.resetStatistics();
+            Assert.assertEquals(0, selector.getActionsQueuedMax());
+        }
+        finally
+        {
+            selectorManager.stop();
+        }
+    }
+
     @Slow
     @Test
     public void testConnectTimeoutBeforeSuccessfulConnect() throws Exception
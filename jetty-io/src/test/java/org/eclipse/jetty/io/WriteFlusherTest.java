@@ -31,6 +31,7 @@ import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.Callback;
@@ -80,6 +81,136 @@ public class WriteFlusherTest
         Assert.assertTrue(flusher.isIdle());
     }
 
+    @Test
+    public void testCoalesceSmallBuffers() throws Exception
+    {
+        ByteArrayEndPoint endPoint = new ByteArrayEndPoint(new byte[0], 16);
+        endPoint.setGrowOutput(true);
+
+        WriteFlusher flusher = new WriteFlusher(endPoint)
+        {
+            @Override
+            protected void onIncompleteFlush()
+            {
+            }
+        };
+        MappedByteBufferPool bufferPool = new MappedByteBufferPool();
+        WriteCoalescer coalescer = new WriteCoalescer(bufferPool, 8, false);
+        flusher.setWriteCoalescer(coalescer);
+
+        ByteBuffer large = BufferUtil.toBuffer("a large buffer ");
+        FutureCallback callback = new FutureCallback();
+        flusher.write(callback, BufferUtil.toBuffer("How "), BufferUtil.toBuffer("now "), large, BufferUtil.toBuffer("brown "), BufferUtil.toBuffer("cow!"));
+
+        Assert.assertTrue(callback.isDone());
+        Assert.assertEquals("How now a large buffer brown cow!", endPoint.takeOutputString());
+        Assert.assertTrue(flusher.isIdle());
+        Assert.assertEquals(1, coalescer.getCoalescedWrites());
+        Assert.assertEquals(18, coalescer.getCoalescedBytes());
+        Assert.assertEquals(2, coalescer.getSavedBuffers());
+
+        // The two coalesced buffers have been released to the pool.
+        Assert.assertEquals(2, bufferPool.bucketsFor(false).values().iterator().next().size());
+
+        // A single small buffer is not coalesced.
+        callback = new FutureCallback();
+        flusher.write(callback, BufferUtil.toBuffer("How "), BufferUtil.toBuffer("a large buffer"));
+        Assert.assertTrue(callback.isDone());
+        Assert.assertEquals("How a large buffer", endPoint.takeOutputString());
+        Assert.assertEquals(1, coalescer.getCoalescedWrites());
+    }
+
+    @Test
+    public void testCoalesceFailure() throws Exception
+    {
+        ByteArrayEndPoint endPoint = new ByteArrayEndPoint(new byte[0], 16);
+        endPoint.setGrowOutput(true);
+
+        WriteFlusher flusher = new WriteFlusher(endPoint)
+        {
+            @Override
+            protected void onIncompleteFlush()
+            {
+            }
+        };
+        ByteBufferPool bufferPool = new ByteBufferPool()
+        {
+            @Override
+            public ByteBuffer acquire(int size, boolean direct)
+            {
+                throw new IllegalStateException("No buffer");
+            }
+
+            @Override
+            public void release(ByteBuffer buffer)
+            {
+            }
+        };
+        flusher.setWriteCoalescer(new WriteCoalescer(bufferPool, 8, false));
+
+        FutureCallback callback = new FutureCallback();
+        flusher.write(callback, BufferUtil.toBuffer("How "), BufferUtil.toBuffer("now "));
+
+        Assert.assertTrue(callback.isDone());
+        try
+        {
+            callback.get();
+            Assert.fail();
+        }
+        catch (ExecutionException x)
+        {
+            Assert.assertThat(x.getCause(), Matchers.instanceOf(IllegalStateException.class));
+        }
+        Assert.assertTrue(flusher.isIdle());
+    }
+
+    @Test
+    public void testCallbackThrows() throws Exception
+    {
+        ByteArrayEndPoint endPoint = new ByteArrayEndPoint(new byte[0], 16);
+        endPoint.setGrowOutput(true);
+
+        WriteFlusher flusher = new WriteFlusher(endPoint)
+        {
+            @Override
+            protected void onIncompleteFlush()
+            {
+            }
+        };
+        flusher.setWriteCoalescer(new WriteCoalescer(new MappedByteBufferPool(), 8, false));
+
+        RuntimeException failure = new RuntimeException("callback");
+        AtomicInteger failed = new AtomicInteger();
+        Callback callback = new Callback()
+        {
+            @Override
+            public void succeeded()
+            {
+                throw failure;
+            }
+
+            @Override
+            public void failed(Throwable x)
+            {
+                failed.incrementAndGet();
+            }
+        };
+
+        try
+        {
+            flusher.write(callback, BufferUtil.toBuffer("How "), BufferUtil.toBuffer("now"));
+            Assert.fail();
+        }
+        catch (RuntimeException x)
+        {
+            // The exception of the callback is not hidden, and the callback is not completed twice.
+            Assert.assertSame(failure, x);
+        }
+        Assert.assertEquals(0, failed.get());
+        Assert.assertEquals("How now", endPoint.takeOutputString());
+        Assert.assertTrue(flusher.isIdle());
+    }
+
     @Test
     public void testClosedNoBlocking() throws Exception
     {
@@ -0,0 +1,149 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+package org.eclipse.jetty.http.jmh;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.util.ArrayTernaryTrie;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.GrowingTernaryTrie;
+import org.eclipse.jetty.util.Trie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Uses a per connection header cache as the HTTP parser does: the cache is created
+ * for each connection with the capacity of the default header cache size, then for
+ * each request the header lines are looked up by best match and the cacheable fields
+ * that are missing are added.
+ * The {@link GCProfiler} reports the allocation per connection of each trie type.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeaderCacheBenchmark
+{
+    // As the server connections do.
+    private static final int HEADER_CACHE_SIZE = 4096;
+
+    @Param({"ArrayTernaryTrie", "GrowingTernaryTrie"})
+    public String type;
+
+    @Param({HeaderSets.BROWSER, HeaderSets.API})
+    public String headers;
+
+    @Param({"1", "10"})
+    public int requests;
+
+    private final List<HttpField> fields = new ArrayList<>();
+    private final List<ByteBuffer> lines = new ArrayList<>();
+
+    @Setup
+    public void setUp()
+    {
+        for (HttpField field : HeaderSets.requestFields(headers))
+        {
+            // The fields cached by the parser.
+            if (field.getHeader() != null)
+            {
+                switch (field.getHeader())
+                {
+                    case AUTHORIZATION:
+                    case ACCEPT:
+                    case ACCEPT_CHARSET:
+                    case ACCEPT_ENCODING:
+                    case ACCEPT_LANGUAGE:
+                    case COOKIE:
+                    case CACHE_CONTROL:
+                    case USER_AGENT:
+                    case HOST:
+                        fields.add(field);
+                        break;
+                    default:
+                        break;
+                }
+            }
+            lines.add(BufferUtil.toBuffer(field.getName() + ": " + field.getValue() + "\r\n", StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    private Trie<HttpField> newCache()
+    {
+        switch (type)
+        {
+            case "ArrayTernaryTrie":
+                return new ArrayTernaryTrie<>(true, HEADER_CACHE_SIZE);
+            case "GrowingTernaryTrie":
+                return new GrowingTernaryTrie<>(true, Math.min(64, HEADER_CACHE_SIZE), HEADER_CACHE_SIZE);
+            default:
+                throw new IllegalArgumentException(type);
+        }
+    }
+
+    @Benchmark
+    public void connection(Blackhole blackhole)
+    {
+        Trie<HttpField> cache = newCache();
+        for (int r = 0; r < requests; r++)
+        {
+            for (ByteBuffer line : lines)
+                blackhole.consume(cache.getBest(line, 0, line.remaining()));
+            if (r == 0)
+            {
+                for (HttpField field : fields)
+                {
+                    if (!cache.isFull())
+                        cache.put(field);
+                }
+            }
+        }
+        blackhole.consume(cache);
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .include(HeaderCacheBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,105 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.http.jmh;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Builds and queries HttpFields with realistic headers, as done for every request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpFieldsBenchmark
+{
+    @Param({HeaderSets.CURL, HeaderSets.BROWSER, HeaderSets.API})
+    public String headers;
+
+    private List<HttpField> fields;
+    private HttpFields httpFields;
+
+    @Setup
+    public void setUp()
+    {
+        fields = HeaderSets.requestFields(headers);
+        httpFields = HeaderSets.newHttpFields(fields);
+    }
+
+    @Benchmark
+    public HttpFields build()
+    {
+        HttpFields httpFields = new HttpFields();
+        for (HttpField field : fields)
+            httpFields.add(field);
+        return httpFields;
+    }
+
+    @Benchmark
+    public void lookup(Blackhole blackhole)
+    {
+        // The lookups done by the server for a typical request.
+        blackhole.consume(httpFields.getField(HttpHeader.HOST));
+        blackhole.consume(httpFields.get(HttpHeader.CONTENT_TYPE));
+        blackhole.consume(httpFields.getLongField(HttpHeader.CONTENT_LENGTH.asString()));
+        blackhole.consume(httpFields.contains(HttpHeader.CONNECTION, "close"));
+        blackhole.consume(httpFields.contains(HttpHeader.EXPECT, "100-continue"));
+        blackhole.consume(httpFields.get(HttpHeader.COOKIE));
+    }
+
+    @Benchmark
+    public void iterate(Blackhole blackhole)
+    {
+        for (HttpField field : httpFields)
+            blackhole.consume(field.getValue());
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .include(HttpFieldsBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,122 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.http.jmh;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.http.HttpGenerator;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http.MetaData;
+import org.eclipse.jetty.util.BufferUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Generates HTTP/1.1 responses with realistic headers, either with a known
+ * content length or chunked, reusing the generator as for a persistent connection.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpGeneratorBenchmark
+{
+    @Param({HeaderSets.CURL, HeaderSets.BROWSER, HeaderSets.API})
+    public String headers;
+
+    @Param({"0", "1024", "16384"})
+    public int contentLength;
+
+    @Param({"true", "false"})
+    public boolean knownLength;
+
+    private MetaData.Response response;
+    private ByteBuffer content;
+    private ByteBuffer header;
+    private ByteBuffer chunk;
+    private HttpGenerator generator;
+
+    @Setup
+    public void setUp()
+    {
+        response = new MetaData.Response(HttpVersion.HTTP_1_1, 200, HeaderSets.newHttpFields(HeaderSets.responseFields(headers)), knownLength ? contentLength : -1);
+        content = BufferUtil.toBuffer(new byte[contentLength]);
+        header = BufferUtil.allocate(8192);
+        chunk = BufferUtil.allocate(HttpGenerator.CHUNK_SIZE);
+        generator = new HttpGenerator();
+    }
+
+    @Benchmark
+    public void generateResponse(Blackhole blackhole) throws IOException
+    {
+        generator.reset();
+        BufferUtil.clear(header);
+        BufferUtil.clear(chunk);
+        ByteBuffer content = this.content.slice();
+        while (true)
+        {
+            HttpGenerator.Result result = generator.generateResponse(response, false, header, chunk, content, true);
+            switch (result)
+            {
+                case FLUSH:
+                    // Simulate the write of the generated buffers.
+                    blackhole.consume(header);
+                    BufferUtil.clear(header);
+                    BufferUtil.clear(chunk);
+                    content.position(content.limit());
+                    break;
+                case CONTINUE:
+                    break;
+                case SHUTDOWN_OUT:
+                case DONE:
+                    return;
+                default:
+                    throw new IllegalStateException(result.toString());
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .include(HttpGeneratorBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,164 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.http.jmh;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpParser;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.util.BufferUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Parses HTTP/1.1 requests with realistic headers and content sizes,
+ * reusing the parser as for a persistent connection.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpParserBenchmark
+{
+    @Param({HeaderSets.CURL, HeaderSets.BROWSER, HeaderSets.API})
+    public String headers;
+
+    @Param({"0", "1024", "16384"})
+    public int contentLength;
+
+    private ByteBuffer request;
+    private Handler handler;
+    private HttpParser parser;
+
+    @Setup
+    public void setUp()
+    {
+        String method = contentLength > 0 ? "POST" : "GET";
+        byte[] head = HeaderSets.requestHead(headers, method, contentLength > 0 ? contentLength : -1).getBytes(StandardCharsets.ISO_8859_1);
+        request = BufferUtil.allocate(head.length + contentLength);
+        BufferUtil.append(request, head, 0, head.length);
+        byte[] content = new byte[contentLength];
+        BufferUtil.append(request, content, 0, content.length);
+        handler = new Handler();
+        parser = new HttpParser(handler);
+    }
+
+    @Benchmark
+    public void parseRequest(Blackhole blackhole)
+    {
+        handler.blackhole = blackhole;
+        ByteBuffer buffer = request.slice();
+        parser.reset();
+        while (!parser.isState(HttpParser.State.END) && buffer.hasRemaining())
+            parser.parseNext(buffer);
+        if (!parser.isState(HttpParser.State.END))
+            throw new IllegalStateException(parser.toString());
+    }
+
+    private static class Handler implements HttpParser.RequestHandler
+    {
+        private Blackhole blackhole;
+
+        @Override
+        public boolean startRequest(String method, String uri, HttpVersion version)
+        {
+            blackhole.consume(uri);
+            return false;
+        }
+
+        @Override
+        public void parsedHeader(HttpField field)
+        {
+            blackhole.consume(field);
+        }
+
+        @Override
+        public boolean headerComplete()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean content(ByteBuffer item)
+        {
+            blackhole.consume(item);
+            return false;
+        }
+
+        @Override
+        public boolean contentComplete()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean messageComplete()
+        {
+            return true;
+        }
+
+        @Override
+        public void earlyEOF()
+        {
+            throw new IllegalStateException();
+        }
+
+        @Override
+        public void badMessage(int status, String reason)
+        {
+            throw new IllegalStateException(status + " " + reason);
+        }
+
+        @Override
+        public int getHeaderCacheSize()
+        {
+            // As the server connections do.
+            return 4096;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .include(HttpParserBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,132 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.http2.hpack.jmh;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.http.HostPortHttpField;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpScheme;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http.MetaData;
+import org.eclipse.jetty.http.jmh.HeaderSets;
+import org.eclipse.jetty.http2.hpack.HpackDecoder;
+import org.eclipse.jetty.http2.hpack.HpackEncoder;
+import org.eclipse.jetty.util.BufferUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>Encodes and decodes HTTP/2 requests with realistic headers.</p>
+ * <p>The encoder is reused, as for the requests of a connection, so that its dynamic
+ * table is warm. The decoder decodes the requests of a connection, the first one with
+ * literal fields and the following ones with fields indexed in the dynamic table, so
+ * each decoding uses a new decoder.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HpackBenchmark
+{
+    private static final int REQUESTS = 10;
+
+    @Param({HeaderSets.CURL, HeaderSets.BROWSER, HeaderSets.API})
+    public String headers;
+
+    private MetaData.Request request;
+    private HpackEncoder encoder;
+    private ByteBuffer buffer;
+    private ByteBuffer[] encoded;
+
+    @Setup
+    public void setUp()
+    {
+        HttpFields fields = new HttpFields();
+        for (HttpField field : HeaderSets.requestFields(headers))
+        {
+            // Connection specific headers are not allowed in HTTP/2.
+            if (field.getHeader() != HttpHeader.HOST && field.getHeader() != HttpHeader.CONNECTION)
+                fields.add(field);
+        }
+        request = new MetaData.Request("GET", HttpScheme.HTTPS, new HostPortHttpField("www.example.com"), HeaderSets.URI, HttpVersion.HTTP_2, fields);
+
+        encoder = new HpackEncoder();
+        buffer = BufferUtil.allocate(8192);
+
+        HpackEncoder connection = new HpackEncoder();
+        encoded = new ByteBuffer[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++)
+        {
+            encoded[i] = BufferUtil.allocate(8192);
+            BufferUtil.clearToFill(encoded[i]);
+            connection.encode(encoded[i], request);
+            BufferUtil.flipToFlush(encoded[i], 0);
+        }
+    }
+
+    @Benchmark
+    public ByteBuffer encode()
+    {
+        BufferUtil.clearToFill(buffer);
+        encoder.encode(buffer, request);
+        BufferUtil.flipToFlush(buffer, 0);
+        return buffer;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public MetaData decode()
+    {
+        HpackDecoder decoder = new HpackDecoder(4096, 8192);
+        MetaData metaData = null;
+        for (ByteBuffer block : encoded)
+            metaData = decoder.decode(block.slice());
+        return metaData;
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .include(HpackBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
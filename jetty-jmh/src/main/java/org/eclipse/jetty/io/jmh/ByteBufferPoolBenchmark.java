@@ -0,0 +1,134 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.io.jmh;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.io.ArenaByteBufferPool;
+import org.eclipse.jetty.io.ArrayByteBufferPool;
+import org.eclipse.jetty.io.BoundedByteBufferPool;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.MappedByteBufferPool;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Acquires and releases buffers of typical sizes from the ByteBufferPool
+ * implementations, from one thread and from several contending threads.
+ * The "magazine" type is a MappedByteBufferPool with per-thread magazines,
+ * "bounded" a BoundedByteBufferPool limiting the retained memory and
+ * "arena" an ArenaByteBufferPool slicing direct buffers from slabs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ByteBufferPoolBenchmark
+{
+    @Param({"array", "mapped", "magazine", "bounded", "arena"})
+    public String type;
+
+    @Param({"1024", "16384", "65536"})
+    public int size;
+
+    @Param({"true", "false"})
+    public boolean direct;
+
+    private ByteBufferPool pool;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        switch (type)
+        {
+            case "array":
+                pool = new ArrayByteBufferPool();
+                break;
+            case "mapped":
+                pool = new MappedByteBufferPool();
+                break;
+            case "magazine":
+                pool = new MappedByteBufferPool(-1, -1, 16);
+                break;
+            case "bounded":
+                pool = new BoundedByteBufferPool(-1, -1, 64 * 1024 * 1024, 64 * 1024 * 1024);
+                break;
+            case "arena":
+                pool = new ArenaByteBufferPool();
+                break;
+            default:
+                throw new IllegalArgumentException(type);
+        }
+        if (pool instanceof LifeCycle)
+            ((LifeCycle)pool).start();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        if (pool instanceof LifeCycle)
+            ((LifeCycle)pool).stop();
+    }
+
+    @Benchmark
+    public ByteBuffer acquireRelease()
+    {
+        ByteBuffer buffer = pool.acquire(size, direct);
+        pool.release(buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ByteBuffer acquireReleaseContended()
+    {
+        ByteBuffer buffer = pool.acquire(size, direct);
+        pool.release(buffer);
+        return buffer;
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .include(ByteBufferPoolBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
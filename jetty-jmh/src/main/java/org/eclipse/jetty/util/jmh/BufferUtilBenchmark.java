@@ -0,0 +1,150 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util.jmh;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.Utf8StringBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Converts heap and direct buffers of ASCII or multi-byte UTF-8 text to strings,
+ * and appends to buffers, as done for every header, URI, form field and WebSocket
+ * text frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BufferUtilBenchmark
+{
+    @Param({"16", "256", "4096"})
+    public int size;
+
+    @Param({"true", "false"})
+    public boolean ascii;
+
+    private byte[] bytes;
+    private ByteBuffer buffer;
+    private ByteBuffer directBuffer;
+    private ByteBuffer target;
+    private Utf8StringBuilder utf8;
+
+    @Setup
+    public void setUp()
+    {
+        StringBuilder text = new StringBuilder();
+        String unit = ascii ? "Accept-Encoding: gzip, deflate; " : "Grüße aus Zürich, ça va? € ";
+        while (text.toString().getBytes(StandardCharsets.UTF_8).length < size)
+            text.append(unit);
+        bytes = Arrays.copyOf(text.toString().getBytes(StandardCharsets.UTF_8), size);
+        if (!ascii)
+        {
+            // Do not cut a multi-byte character.
+            int end = size;
+            while (end > 0 && (bytes[end - 1] & 0xC0) == 0x80)
+                end--;
+            if (end > 0 && (bytes[end - 1] & 0x80) != 0)
+                end--;
+            bytes = Arrays.copyOf(bytes, end);
+        }
+        buffer = BufferUtil.toBuffer(bytes);
+        directBuffer = BufferUtil.allocateDirect(bytes.length);
+        BufferUtil.append(directBuffer, bytes, 0, bytes.length);
+        target = BufferUtil.allocate(bytes.length + 16);
+        utf8 = new Utf8StringBuilder(bytes.length);
+    }
+
+    @Benchmark
+    public String toIso88591String()
+    {
+        return BufferUtil.toString(buffer, StandardCharsets.ISO_8859_1);
+    }
+
+    @Benchmark
+    public String toUTF8String()
+    {
+        return BufferUtil.toUTF8String(buffer);
+    }
+
+    @Benchmark
+    public String utf8StringBuilder()
+    {
+        utf8.reset();
+        utf8.append(bytes, 0, bytes.length);
+        return utf8.toString();
+    }
+
+    @Benchmark
+    public String utf8StringBuilderDirect()
+    {
+        utf8.reset();
+        utf8.append(directBuffer.slice());
+        return utf8.toString();
+    }
+
+    @Benchmark
+    public void append(Blackhole blackhole)
+    {
+        BufferUtil.clear(target);
+        BufferUtil.append(target, bytes, 0, bytes.length);
+        blackhole.consume(target);
+    }
+
+    @Benchmark
+    public void putDecInt(Blackhole blackhole)
+    {
+        BufferUtil.clearToFill(target);
+        BufferUtil.putDecInt(target, size);
+        BufferUtil.putDecInt(target, -1234567);
+        BufferUtil.flipToFlush(target, 0);
+        blackhole.consume(target);
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .include(BufferUtilBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,144 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util.jmh;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.util.ArrayTernaryTrie;
+import org.eclipse.jetty.util.ArrayTrie;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.GrowingTernaryTrie;
+import org.eclipse.jetty.util.TreeTrie;
+import org.eclipse.jetty.util.Trie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Looks up the names of common HTTP headers in the Trie implementations,
+ * both by String and, as done by the HTTP parser, by best match in a heap
+ * or direct buffer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrieBenchmark
+{
+    private static final String[] KEYS = {
+            "Accept", "Accept-Charset", "Accept-Encoding", "Accept-Language", "Accept-Ranges",
+            "Authorization", "Cache-Control", "Connection", "Content-Encoding", "Content-Language",
+            "Content-Length", "Content-Location", "Content-Range", "Content-Type", "Cookie",
+            "Date", "ETag", "Expect", "Expires", "Forwarded", "Host", "If-Match", "If-Modified-Since",
+            "If-None-Match", "If-Range", "If-Unmodified-Since", "Keep-Alive", "Last-Modified",
+            "Location", "Origin", "Pragma", "Proxy-Authorization", "Range", "Referer", "Server",
+            "Set-Cookie", "TE", "Trailer", "Transfer-Encoding", "Upgrade", "User-Agent", "Vary",
+            "Via", "WWW-Authenticate", "X-Forwarded-For", "X-Forwarded-Proto"
+    };
+
+    // Lookups of headers, some not in the trie, in the order a browser sends them.
+    private static final String[] LOOKUPS = {
+            "Host", "User-Agent", "Accept", "Accept-Language", "Accept-Encoding", "Referer",
+            "Cookie", "Connection", "Upgrade-Insecure-Requests", "Cache-Control"
+    };
+
+    @Param({"ArrayTrie", "ArrayTernaryTrie", "GrowingTernaryTrie", "TreeTrie"})
+    public String type;
+
+    @Param({"false", "true"})
+    public boolean direct;
+
+    private Trie<String> trie;
+    private ByteBuffer[] buffers;
+
+    @Setup
+    public void setUp()
+    {
+        switch (type)
+        {
+            case "ArrayTrie":
+                trie = new ArrayTrie<>(1024);
+                break;
+            case "ArrayTernaryTrie":
+                trie = new ArrayTernaryTrie<>(1024);
+                break;
+            case "GrowingTernaryTrie":
+                trie = new GrowingTernaryTrie<>();
+                break;
+            case "TreeTrie":
+                trie = new TreeTrie<>();
+                break;
+            default:
+                throw new IllegalArgumentException(type);
+        }
+        for (String key : KEYS)
+        {
+            if (!trie.put(key, key))
+                throw new IllegalStateException("Trie full: " + key);
+        }
+
+        buffers = new ByteBuffer[LOOKUPS.length];
+        for (int i = 0; i < LOOKUPS.length; i++)
+        {
+            String header = LOOKUPS[i] + ": value\r\n";
+            buffers[i] = direct ? BufferUtil.toDirectBuffer(header, StandardCharsets.ISO_8859_1) : BufferUtil.toBuffer(header, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    @Benchmark
+    public void get(Blackhole blackhole)
+    {
+        for (String key : LOOKUPS)
+            blackhole.consume(trie.get(key));
+    }
+
+    @Benchmark
+    public void getBest(Blackhole blackhole)
+    {
+        for (ByteBuffer buffer : buffers)
+            blackhole.consume(trie.getBest(buffer, 0, buffer.remaining()));
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .include(TrieBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,124 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.util.jmh;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.util.MultiMap;
+import org.eclipse.jetty.util.UrlEncoded;
+import org.eclipse.jetty.util.UrlEncodedParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Decodes an {@code application/x-www-form-urlencoded} body, read from a stream
+ * as by the servlet request or parsed from 4 KiB buffers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlEncodedBenchmark
+{
+    @Param({"10", "100", "1000"})
+    public int fields;
+
+    private byte[] form;
+    private ByteBuffer[] buffers;
+    private UrlEncodedParser parser;
+
+    @Setup
+    public void setUp()
+    {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < fields; i++)
+        {
+            if (i > 0)
+                builder.append('&');
+            builder.append("field").append(i).append('=');
+            builder.append(i % 2 == 0 ? "some+plain+value+" + i : "Gr%C3%BC%C3%9Fe+aus+Z%C3%BCrich%21");
+        }
+        form = builder.toString().getBytes(StandardCharsets.ISO_8859_1);
+        int chunk = 4096;
+        buffers = new ByteBuffer[(form.length + chunk - 1) / chunk];
+        for (int i = 0; i < buffers.length; i++)
+            buffers[i] = ByteBuffer.wrap(form, i * chunk, Math.min(chunk, form.length - i * chunk)).slice();
+        parser = new UrlEncodedParser();
+    }
+
+    @Benchmark
+    public MultiMap<String> decodeUtf8To() throws IOException
+    {
+        MultiMap<String> map = new MultiMap<>();
+        UrlEncoded.decodeUtf8To(new ByteArrayInputStream(form), map, -1, -1);
+        return map;
+    }
+
+    @Benchmark
+    public MultiMap<String> parser()
+    {
+        parser.reset(StandardCharsets.UTF_8, -1);
+        for (ByteBuffer buffer : buffers)
+            parser.parse(buffer.duplicate());
+        parser.complete();
+        MultiMap<String> map = new MultiMap<>();
+        parser.decodeTo(map, -1);
+        return map;
+    }
+
+    @Benchmark
+    public String parserOneValue()
+    {
+        parser.reset(StandardCharsets.UTF_8, -1);
+        for (ByteBuffer buffer : buffers)
+            parser.parse(buffer.duplicate());
+        parser.complete();
+        return parser.getValue(parser.size() - 1);
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .include(UrlEncodedBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
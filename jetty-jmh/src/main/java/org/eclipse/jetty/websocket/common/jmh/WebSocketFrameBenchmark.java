@@ -0,0 +1,141 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.websocket.common.jmh;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.MappedByteBufferPool;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.websocket.api.WebSocketPolicy;
+import org.eclipse.jetty.websocket.api.extensions.Frame;
+import org.eclipse.jetty.websocket.api.extensions.IncomingFrames;
+import org.eclipse.jetty.websocket.common.Generator;
+import org.eclipse.jetty.websocket.common.Parser;
+import org.eclipse.jetty.websocket.common.WebSocketFrame;
+import org.eclipse.jetty.websocket.common.frames.BinaryFrame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>Generates and parses WebSocket binary frames of typical payload sizes.</p>
+ * <p>Masked frames are generated as a client does, and parsed as a server does,
+ * unmasked frames are generated as a server does and parsed as a client does.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WebSocketFrameBenchmark
+{
+    @Param({"16", "1024", "32768"})
+    public int payloadSize;
+
+    @Param({"true", "false"})
+    public boolean masked;
+
+    private WebSocketFrame frame;
+    private Generator generator;
+    private Parser parser;
+    private ByteBuffer buffer;
+    private ByteBuffer generated;
+    private Blackhole blackhole;
+
+    @Setup
+    public void setUp()
+    {
+        ByteBufferPool bufferPool = new MappedByteBufferPool();
+        WebSocketPolicy generatorPolicy = masked ? WebSocketPolicy.newClientPolicy() : WebSocketPolicy.newServerPolicy();
+        WebSocketPolicy parserPolicy = masked ? WebSocketPolicy.newServerPolicy() : WebSocketPolicy.newClientPolicy();
+        parserPolicy.setMaxBinaryMessageSize(payloadSize);
+
+        byte[] payload = new byte[payloadSize];
+        ThreadLocalRandom.current().nextBytes(payload);
+        frame = new BinaryFrame().setPayload(payload);
+        if (masked)
+            frame.setMask(new byte[]{0x11, 0x22, 0x33, 0x44});
+
+        generator = new Generator(generatorPolicy, bufferPool);
+        parser = new Parser(parserPolicy, bufferPool);
+        parser.setIncomingFramesHandler(new IncomingFrames()
+        {
+            @Override
+            public void incomingError(Throwable t)
+            {
+                throw new IllegalStateException(t);
+            }
+
+            @Override
+            public void incomingFrame(Frame frame)
+            {
+                blackhole.consume(frame);
+            }
+        });
+
+        buffer = BufferUtil.allocate(payloadSize + 16);
+        generated = BufferUtil.allocate(payloadSize + 16);
+        BufferUtil.clearToFill(generated);
+        generator.generateWholeFrame(frame, generated);
+        BufferUtil.flipToFlush(generated, 0);
+    }
+
+    @Benchmark
+    public ByteBuffer generate()
+    {
+        BufferUtil.clearToFill(buffer);
+        generator.generateWholeFrame(frame, buffer);
+        BufferUtil.flipToFlush(buffer, 0);
+        return buffer;
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole)
+    {
+        this.blackhole = blackhole;
+        parser.parse(generated.slice());
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .include(WebSocketFrameBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
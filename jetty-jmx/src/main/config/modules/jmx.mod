@@ -11,3 +11,6 @@ lib/jetty-jmx-${jetty.version}.jar
 [xml]
 etc/jetty-jmx.xml
 
+[ini-template]
+## Whether the beans of components that are not started are registered when the component starts
+# jetty.jmx.lazyRegistration=false
@@ -19,6 +19,9 @@
 package org.eclipse.jetty.jmx;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
@@ -31,19 +34,29 @@ import javax.management.MBeanRegistrationException;
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
 
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
 import org.eclipse.jetty.util.component.Container;
 import org.eclipse.jetty.util.component.ContainerLifeCycle;
 import org.eclipse.jetty.util.component.Destroyable;
 import org.eclipse.jetty.util.component.Dumpable;
+import org.eclipse.jetty.util.component.LifeCycle;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 
 /**
  * Container class for the MBean instances
+ * <p>
+ * With {@link #setLazyRegistration(boolean) lazy registration}, the beans added to a
+ * component that is not started are registered as MBeans only once the component
+ * has started, so that the beans added and removed while a large tree of components
+ * is configured and started are never registered.
+ * The beans still pending when their component is removed, or when this container
+ * is stopped, are discarded.
  */
 @ManagedObject("The component that registers beans as MBeans")
-public class MBeanContainer implements Container.InheritedListener, Dumpable, Destroyable
+public class MBeanContainer extends AbstractLifeCycle implements Container.InheritedListener, Dumpable, Destroyable
 {
     private final static Logger LOG = Log.getLogger(MBeanContainer.class.getName());
     private final static ConcurrentMap<String, AtomicInteger> __unique = new ConcurrentHashMap<>();
@@ -52,7 +65,10 @@ public class MBeanContainer implements Container.InheritedListener, Dumpable, De
     private final MBeanServer _mbeanServer;
     private final ConcurrentMap<Object, Container> _beans = new ConcurrentHashMap<>();
     private final ConcurrentMap<Object, ObjectName> _mbeans = new ConcurrentHashMap<>();
+    private final Map<LifeCycle, List<Object>> _pending = new HashMap<>();
+    private final LifeCycle.Listener _pendingListener = new PendingListener();
     private String _domain = null;
+    private boolean _lazyRegistration;
 
     /**
      * Lookup an object name by instance
@@ -121,6 +137,30 @@ public class MBeanContainer implements Container.InheritedListener, Dumpable, De
         return _domain;
     }
 
+    /**
+     * @return whether the beans of components that are not started are registered when the component starts
+     */
+    @ManagedAttribute("Whether the beans of components that are not started are registered when the component starts")
+    public boolean isLazyRegistration()
+    {
+        return _lazyRegistration;
+    }
+
+    /**
+     * <p>Sets whether the beans added to a component that is not started are registered
+     * immediately, or when the component starts.</p>
+     * <p>Lazy registration avoids registering, and then unregistering, the beans that are
+     * replaced while a component is configured and started, such as the servlet holders
+     * of a web application, at the cost of these beans not being visible via JMX until
+     * their component is started.</p>
+     *
+     * @param lazyRegistration whether the beans of components that are not started are registered when the component starts
+     */
+    public void setLazyRegistration(boolean lazyRegistration)
+    {
+        _lazyRegistration = lazyRegistration;
+    }
+
 
     @Override
     public void beanAdded(Container parent, Object obj)
@@ -138,6 +178,61 @@ public class MBeanContainer implements Container.InheritedListener, Dumpable, De
         if (_beans.putIfAbsent(obj, parent) != null)
             return;
 
+        if (_lazyRegistration && parent != ROOT && parent instanceof LifeCycle && !((LifeCycle)parent).isStarted())
+            defer((LifeCycle)parent, obj);
+        else
+            register(parent, obj);
+    }
+
+    private void defer(LifeCycle parent, Object obj)
+    {
+        if (LOG.isDebugEnabled())
+            LOG.debug("Deferring {}->{}", parent, obj);
+
+        boolean started;
+        synchronized (_pending)
+        {
+            List<Object> beans = _pending.get(parent);
+            if (beans == null)
+            {
+                beans = new ArrayList<>();
+                _pending.put(parent, beans);
+                parent.addLifeCycleListener(_pendingListener);
+            }
+            beans.add(obj);
+            started = parent.isStarted();
+        }
+
+        // The parent may have started before the listener was added.
+        if (started)
+            registerPending(parent);
+    }
+
+    private void registerPending(LifeCycle parent)
+    {
+        List<Object> beans;
+        synchronized (_pending)
+        {
+            beans = _pending.remove(parent);
+        }
+        if (beans == null)
+            return;
+
+        parent.removeLifeCycleListener(_pendingListener);
+        for (Object obj : beans)
+        {
+            // Skip the beans that have been removed meanwhile.
+            if (_beans.get(obj) == parent)
+                register((Container)parent, obj);
+        }
+    }
+
+    private void register(Container parent, Object obj)
+    {
+        // Is the bean already registered ?
+        if (_mbeans.containsKey(obj))
+            return;
+
         // Is there an object name for the parent ?
         ObjectName parentObjectName = null;
         if (parent != ROOT)
@@ -145,8 +240,12 @@ public class MBeanContainer implements Container.InheritedListener, Dumpable, De
             parentObjectName = findMBean(parent);
             if (parentObjectName == null)
             {
-                // Create the parent bean.
-                beanAdded(null, parent);
+                // Create the parent bean, or register it now if it is pending.
+                Container grandParent = _beans.get(parent);
+                if (grandParent == null)
+                    beanAdded(null, parent);
+                else
+                    register(grandParent, parent);
                 parentObjectName = findMBean(parent);
             }
         }
@@ -234,6 +333,48 @@ public class MBeanContainer implements Container.InheritedListener, Dumpable, De
             if (objectName != null)
                 unregister(objectName);
         }
+
+        removePending(parent, obj);
+    }
+
+    private void removePending(Container parent, Object obj)
+    {
+        List<Object> discarded;
+        synchronized (_pending)
+        {
+            List<Object> beans = _pending.get(parent);
+            if (beans != null)
+            {
+                beans.remove(obj);
+                if (beans.isEmpty())
+                    discardPending((LifeCycle)parent);
+            }
+            discarded = obj instanceof LifeCycle ? discardPending((LifeCycle)obj) : null;
+        }
+
+        // The beans of a removed component will never be registered.
+        if (discarded != null)
+            discarded.forEach(bean -> _beans.remove(bean, obj));
+    }
+
+    private List<Object> discardPending(LifeCycle parent)
+    {
+        List<Object> beans = _pending.remove(parent);
+        if (beans != null)
+            parent.removeLifeCycleListener(_pendingListener);
+        return beans;
+    }
+
+    /**
+     * @return the number of beans waiting for their component to start to be registered
+     */
+    @ManagedAttribute("The number of beans waiting for their component to start to be registered")
+    public int getPendingCount()
+    {
+        synchronized (_pending)
+        {
+            return _pending.values().stream().mapToInt(List::size).sum();
+        }
     }
 
     /**
@@ -266,9 +407,35 @@ public class MBeanContainer implements Container.InheritedListener, Dumpable, De
         return ContainerLifeCycle.dump(this);
     }
 
+    @Override
+    protected void doStop() throws Exception
+    {
+        // The MBeans stay registered until destroy(), but the beans of
+        // components that have not started are no longer waited for.
+        clearPending();
+        super.doStop();
+    }
+
+    private void clearPending()
+    {
+        List<Map.Entry<LifeCycle, List<Object>>> pending;
+        synchronized (_pending)
+        {
+            pending = new ArrayList<>(_pending.entrySet());
+            _pending.clear();
+        }
+        for (Map.Entry<LifeCycle, List<Object>> entry : pending)
+        {
+            LifeCycle parent = entry.getKey();
+            parent.removeLifeCycleListener(_pendingListener);
+            entry.getValue().forEach(bean -> _beans.remove(bean, parent));
+        }
+    }
+
     @Override
     public void destroy()
     {
+        clearPending();
         _mbeans.values().stream()
                 .filter(Objects::nonNull)
                 .forEach(this::unregister);
@@ -293,4 +460,19 @@ public class MBeanContainer implements Container.InheritedListener, Dumpable, De
             LOG.warn(x);
         }
     }
+
+    private class PendingListener extends AbstractLifeCycle.AbstractLifeCycleListener
+    {
+        @Override
+        public void lifeCycleStarted(LifeCycle event)
+        {
+            registerPending(event);
+        }
+
+        @Override
+        public void lifeCycleFailure(LifeCycle event, Throwable cause)
+        {
+            registerPending(event);
+        }
+    }
 }
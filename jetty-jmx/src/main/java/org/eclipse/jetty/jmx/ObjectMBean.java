@@ -19,13 +19,16 @@
 package org.eclipse.jetty.jmx;
 
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -33,6 +36,9 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.UnaryOperator;
 
 import javax.management.Attribute;
 import javax.management.AttributeList;
@@ -71,6 +77,12 @@ import org.eclipse.jetty.util.log.Logger;
  * wrapped object, or "MBean" and must exist on a subclass of OBjectMBean
  * or "MObject" which exists on the wrapped object, but whose values are
  * converted to MBean object names.
+ * <p>
+ * The MBean info, and the method handles used to get and set the attributes and
+ * to invoke the operations, are built once per managed class and MBean class and
+ * shared by all the MBeans of these classes, so that creating an MBean for many
+ * instances of the same class is cheap and accessing the attributes does not
+ * use reflection.
  */
 public class ObjectMBean implements DynamicMBean
 {
@@ -78,18 +90,28 @@ public class ObjectMBean implements DynamicMBean
 
     private static Class<?>[] OBJ_ARG = new Class[]{Object.class};
 
-    protected Object _managed;
-    private MBeanInfo _info;
-    private Map<String, Method> _getters=new HashMap<String, Method>();
-    private Map<String, Method> _setters=new HashMap<String, Method>();
-    private Map<String, Method> _methods=new HashMap<String, Method>();
+    // The candidate MBean classes of a managed class.
+    private static final ClassValue<List<Class<?>>> __mbeanClasses = new ClassValue<List<Class<?>>>()
+    {
+        @Override
+        protected List<Class<?>> computeValue(Class<?> type)
+        {
+            return findMBeanClasses(type);
+        }
+    };
 
-    // set of attributes mined from influence hierarchy
-    private Set<String> _attributes = new HashSet<String>();
+    // The meta data of a managed class, by MBean class.
+    private static final ClassValue<ConcurrentMap<Class<?>, MetaData>> __metaData = new ClassValue<ConcurrentMap<Class<?>, MetaData>>()
+    {
+        @Override
+        protected ConcurrentMap<Class<?>, MetaData> computeValue(Class<?> type)
+        {
+            return new ConcurrentHashMap<>();
+        }
+    };
 
-    // set of attributes that are automatically converted to ObjectName
-    // as they represent other managed beans which can be linked to
-    private Set<String> _convert=new HashSet<String>();
+    protected Object _managed;
+    private volatile MetaData _metaData;
     private ClassLoader _loader;
     private MBeanContainer _mbeanContainer;
 
@@ -120,34 +142,17 @@ public class ObjectMBean implements DynamicMBean
         try
         {
             Class<?> oClass = o.getClass();
-            Object mbean = null;
+            // Classes of the bootstrap loader are looked up in the thread context loader, so are not cached.
+            List<Class<?>> mClasses = oClass.getClassLoader() == null ? findMBeanClasses(oClass) : __mbeanClasses.get(oClass);
 
-            while ( mbean == null && oClass != null )
+            for (Class<?> mClass : mClasses)
             {
-                String pName = oClass.getPackage().getName();
-                String cName = oClass.getName().substring(pName.length() + 1);
-                String mName = pName + ".jmx." + cName + "MBean";
-
                 try
-                { 
-                    Class<?> mClass;
-                    try
-                    {
-                        // Look for an MBean class from the same loader that loaded the original class
-                        mClass = (Object.class.equals(oClass))?oClass=ObjectMBean.class:Loader.loadClass(oClass,mName);
-                    }
-                    catch (ClassNotFoundException e)
-                    {
-                        // Not found, so if not the same as the thread context loader, try that.
-                        if (Thread.currentThread().getContextClassLoader()==oClass.getClassLoader())
-                            throw e;
-                        LOG.ignore(e);
-                        mClass=Loader.loadClass(oClass,mName);
-                    }
-
+                {
                     if (LOG.isDebugEnabled())
                         LOG.debug("ObjectMbean: mbeanFor {} mClass={}", o, mClass);
 
+                    Object mbean = null;
                     try
                     {
                         Constructor<?> constructor = mClass.getConstructor(OBJ_ARG);
@@ -168,29 +173,14 @@ public class ObjectMBean implements DynamicMBean
 
                     return mbean;
                 }
-                catch (ClassNotFoundException e)
-                {
-                    // The code below was modified to fix bugs 332200 and JETTY-1416
-                    // The issue was caused by additional information added to the
-                    // message after the class name when running in Apache Felix,
-                    // as well as before the class name when running in JBoss.
-                    if (e.getMessage().contains(mName))
-                        LOG.ignore(e);
-                    else
-                        LOG.warn(e);
-                }
                 catch (Error e)
                 {
                     LOG.warn(e);
-                    mbean = null;
                 }
                 catch (Exception e)
                 {
                     LOG.warn(e);
-                    mbean = null;
                 }
-
-                oClass = oClass.getSuperclass();
             }
         }
         catch (Exception e)
@@ -201,6 +191,71 @@ public class ObjectMBean implements DynamicMBean
         return null;
     }
 
+    /**
+     * Finds the MBean classes for a managed class, looking up the class names
+     * described in {@link #mbeanFor(Object)} for the class and its super classes.
+     *
+     * @param oClass the managed class
+     * @return the MBean classes found, in lookup order
+     */
+    private static List<Class<?>> findMBeanClasses(Class<?> oClass)
+    {
+        List<Class<?>> mClasses = new ArrayList<>();
+        while (oClass != null)
+        {
+            if (Object.class.equals(oClass))
+            {
+                mClasses.add(ObjectMBean.class);
+                break;
+            }
+
+            String pName = oClass.getPackage().getName();
+            String cName = oClass.getName().substring(pName.length() + 1);
+            String mName = pName + ".jmx." + cName + "MBean";
+
+            try
+            {
+                Class<?> mClass;
+                try
+                {
+                    // Look for an MBean class from the same loader that loaded the original class
+                    mClass = Loader.loadClass(oClass,mName);
+                }
+                catch (ClassNotFoundException e)
+                {
+                    // Not found, so if not the same as the thread context loader, try that.
+                    if (Thread.currentThread().getContextClassLoader()==oClass.getClassLoader())
+                        throw e;
+                    LOG.ignore(e);
+                    mClass=Loader.loadClass(oClass,mName);
+                }
+                mClasses.add(mClass);
+            }
+            catch (ClassNotFoundException e)
+            {
+                // The code below was modified to fix bugs 332200 and JETTY-1416
+                // The issue was caused by additional information added to the
+                // message after the class name when running in Apache Felix,
+                // as well as before the class name when running in JBoss.
+                if (e.getMessage().contains(mName))
+                    LOG.ignore(e);
+                else
+                    LOG.warn(e);
+            }
+            catch (Error e)
+            {
+                LOG.warn(e);
+            }
+            catch (Exception e)
+            {
+                LOG.warn(e);
+            }
+
+            oClass = oClass.getSuperclass();
+        }
+        return Collections.unmodifiableList(mClasses);
+    }
+
 
     public ObjectMBean(Object managedObject)
     {
@@ -243,123 +298,153 @@ public class ObjectMBean implements DynamicMBean
     {
         try
         {
-            if (_info==null)
-            {
-                // Start with blank lazy lists attributes etc.
-                String desc=null;
-                List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
-                List<MBeanConstructorInfo> constructors = new ArrayList<MBeanConstructorInfo>();
-                List<MBeanOperationInfo> operations = new ArrayList<MBeanOperationInfo>();
-                List<MBeanNotificationInfo> notifications = new ArrayList<MBeanNotificationInfo>();
-
-                // Find list of classes that can influence the mbean
-                Class<?> o_class=_managed.getClass();
-                List<Class<?>> influences = new ArrayList<Class<?>>();
-                influences.add(this.getClass()); // always add MBean itself
-                influences = findInfluences(influences, _managed.getClass());
+            return getMetaData()._info;
+        }
+        catch(RuntimeException e)
+        {
+            LOG.warn(e);
+            throw e;
+        }
+    }
 
-                if (LOG.isDebugEnabled())
-                    LOG.debug("Influence Count: {}", influences.size() );
+    private MetaData getMetaData()
+    {
+        MetaData metaData = _metaData;
+        if (metaData == null || metaData._info == null)
+        {
+            metaData = __metaData.get(_managed.getClass()).computeIfAbsent(getClass(), mbeanClass -> newMetaData());
+            _metaData = metaData;
+        }
+        return metaData;
+    }
 
-                // Process Type Annotations
-                ManagedObject primary = o_class.getAnnotation( ManagedObject.class);
+    private MetaData metaData()
+    {
+        MetaData metaData = _metaData;
+        if (metaData == null)
+        {
+            metaData = new MetaData();
+            _metaData = metaData;
+        }
+        return metaData;
+    }
 
-                if ( primary != null )
-                {
-                    desc = primary.value();
-                }
-                else
-                {
-                    if (LOG.isDebugEnabled())
-                        LOG.debug("No @ManagedObject declared on {}", _managed.getClass());
-                }
+    private MetaData newMetaData()
+    {
+        MetaData metaData = new MetaData();
+        _metaData = metaData;
+
+        // Start with blank lazy lists attributes etc.
+        String desc=null;
+        List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+        List<MBeanConstructorInfo> constructors = new ArrayList<MBeanConstructorInfo>();
+        List<MBeanOperationInfo> operations = new ArrayList<MBeanOperationInfo>();
+        List<MBeanNotificationInfo> notifications = new ArrayList<MBeanNotificationInfo>();
+
+        // Find list of classes that can influence the mbean
+        Class<?> o_class=_managed.getClass();
+        List<Class<?>> influences = new ArrayList<Class<?>>();
+        influences.add(this.getClass()); // always add MBean itself
+        influences = findInfluences(influences, _managed.getClass());
 
+        if (LOG.isDebugEnabled())
+            LOG.debug("Influence Count: {}", influences.size() );
 
-                // For each influence
-                for (int i=0;i<influences.size();i++)
-                {
-                    Class<?> oClass = influences.get(i);
+        // Process Type Annotations
+        ManagedObject primary = o_class.getAnnotation( ManagedObject.class);
+
+        if ( primary != null )
+        {
+            desc = primary.value();
+        }
+        else
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("No @ManagedObject declared on {}", _managed.getClass());
+        }
 
-                    ManagedObject typeAnnotation = oClass.getAnnotation( ManagedObject.class );
 
-                    if (LOG.isDebugEnabled())
-                        LOG.debug("Influenced by: " + oClass.getCanonicalName() );
+        // For each influence
+        for (int i=0;i<influences.size();i++)
+        {
+            Class<?> oClass = influences.get(i);
 
-                    if ( typeAnnotation == null )
-                    {
-                        if (LOG.isDebugEnabled())
-                            LOG.debug("Annotations not found for: {}", oClass.getCanonicalName() );
-                        continue;
-                    }
+            ManagedObject typeAnnotation = oClass.getAnnotation( ManagedObject.class );
 
-                    // Process Method Annotations
+            if (LOG.isDebugEnabled())
+                LOG.debug("Influenced by: " + oClass.getCanonicalName() );
 
-                    for (Method method : oClass.getDeclaredMethods())
-                    {
-                        ManagedAttribute methodAttributeAnnotation = method.getAnnotation(ManagedAttribute.class);
+            if ( typeAnnotation == null )
+            {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Annotations not found for: {}", oClass.getCanonicalName() );
+                continue;
+            }
 
-                        if (methodAttributeAnnotation != null)
-                        {
-                            // TODO sort out how a proper name could get here, its a method name as an attribute at this point.
-                            if (LOG.isDebugEnabled())
-                                LOG.debug("Attribute Annotation found for: {}", method.getName());
-                            MBeanAttributeInfo mai = defineAttribute(method,methodAttributeAnnotation);
-                            if ( mai != null )
-                            {
-                                attributes.add(mai);
-                            }
-                        }
+            // Process Method Annotations
 
-                        ManagedOperation methodOperationAnnotation = method.getAnnotation(ManagedOperation.class);
+            for (Method method : oClass.getDeclaredMethods())
+            {
+                ManagedAttribute methodAttributeAnnotation = method.getAnnotation(ManagedAttribute.class);
 
-                        if (methodOperationAnnotation != null)
-                        {
-                            if (LOG.isDebugEnabled())
-                                LOG.debug("Method Annotation found for: {}", method.getName());
-                            MBeanOperationInfo oi = defineOperation(method,methodOperationAnnotation);
-                            if (oi != null)
-                            {
-                                operations.add(oi);
-                            }
-                        }
+                if (methodAttributeAnnotation != null)
+                {
+                    // TODO sort out how a proper name could get here, its a method name as an attribute at this point.
+                    if (LOG.isDebugEnabled())
+                        LOG.debug("Attribute Annotation found for: {}", method.getName());
+                    MBeanAttributeInfo mai = defineAttribute(method,methodAttributeAnnotation);
+                    if ( mai != null )
+                    {
+                        attributes.add(mai);
                     }
-
                 }
 
-                _info = new MBeanInfo(o_class.getName(),
-                                desc,
-                                (MBeanAttributeInfo[])attributes.toArray(new MBeanAttributeInfo[attributes.size()]),
-                                (MBeanConstructorInfo[])constructors.toArray(new MBeanConstructorInfo[constructors.size()]),
-                                (MBeanOperationInfo[])operations.toArray(new MBeanOperationInfo[operations.size()]),
-                                (MBeanNotificationInfo[])notifications.toArray(new MBeanNotificationInfo[notifications.size()]));
+                ManagedOperation methodOperationAnnotation = method.getAnnotation(ManagedOperation.class);
+
+                if (methodOperationAnnotation != null)
+                {
+                    if (LOG.isDebugEnabled())
+                        LOG.debug("Method Annotation found for: {}", method.getName());
+                    MBeanOperationInfo oi = defineOperation(method,methodOperationAnnotation);
+                    if (oi != null)
+                    {
+                        operations.add(oi);
+                    }
+                }
             }
+
         }
-        catch(RuntimeException e)
-        {
-            LOG.warn(e);
-            throw e;
-        }
-        return _info;
+
+        metaData._info = new MBeanInfo(o_class.getName(),
+                        desc,
+                        (MBeanAttributeInfo[])attributes.toArray(new MBeanAttributeInfo[attributes.size()]),
+                        (MBeanConstructorInfo[])constructors.toArray(new MBeanConstructorInfo[constructors.size()]),
+                        (MBeanOperationInfo[])operations.toArray(new MBeanOperationInfo[operations.size()]),
+                        (MBeanNotificationInfo[])notifications.toArray(new MBeanNotificationInfo[notifications.size()]));
+
+        return metaData;
     }
 
 
     /* ------------------------------------------------------------ */
     public Object getAttribute(String name) throws AttributeNotFoundException, MBeanException, ReflectionException
     {
-        Method getter = (Method) _getters.get(name);
+        Accessor getter = getMetaData()._getters.get(name);
         if (getter == null)
         {
             throw new AttributeNotFoundException(name);
         }
 
-        try
+        if (getter._handle == null)
         {
-            Object o = _managed;
-            if (getter.getDeclaringClass().isInstance(this))
-                o = this; // mbean method
+            LOG.warn(Log.EXCEPTION, getter._failure);
+            throw new AttributeNotFoundException(getter._failure.toString());
+        }
 
+        try
+        {
             // get the attribute
-            Object r=getter.invoke(o, (java.lang.Object[]) null);
+            Object r=(Object)getter._handle.invokeExact(getter._onMBean ? this : _managed);
 
             // convert to ObjectName if the type has the @ManagedObject annotation
             if (r!=null )
@@ -420,15 +505,10 @@ public class ObjectMBean implements DynamicMBean
 
             return r;
         }
-        catch (IllegalAccessException e)
-        {
-            LOG.warn(Log.EXCEPTION, e);
-            throw new AttributeNotFoundException(e.toString());
-        }
-        catch (InvocationTargetException e)
+        catch (Throwable e)
         {
             LOG.warn(Log.EXCEPTION, e);
-            throw new ReflectionException(new Exception(e.getCause()));
+            throw new ReflectionException(new Exception(e));
         }
     }
 
@@ -458,24 +538,26 @@ public class ObjectMBean implements DynamicMBean
 
         if (LOG.isDebugEnabled())
             LOG.debug("setAttribute " + _managed + ":" +attr.getName() + "=" + attr.getValue());
-        Method setter = (Method) _setters.get(attr.getName());
+        MetaData metaData = getMetaData();
+        Accessor setter = metaData._setters.get(attr.getName());
         if (setter == null)
             throw new AttributeNotFoundException(attr.getName());
+        if (setter._handle == null)
+        {
+            LOG.warn(Log.EXCEPTION, setter._failure);
+            throw new AttributeNotFoundException(setter._failure.toString());
+        }
         try
         {
-            Object o = _managed;
-            if (setter.getDeclaringClass().isInstance(this))
-                o = this;
-
             // get the value
             Object value = attr.getValue();
 
             // convert from ObjectName if need be
-            if (value!=null && _convert.contains(attr.getName()))
+            if (value!=null && metaData._convert.contains(attr.getName()))
             {
                 if (value.getClass().isArray())
                 {
-                    Class<?> t=setter.getParameterTypes()[0].getComponentType();
+                    Class<?> t=setter._method.getParameterTypes()[0].getComponentType();
                     Object na = Array.newInstance(t,Array.getLength(value));
                     for (int i=Array.getLength(value);i-->0;)
                         Array.set(na, i, _mbeanContainer.findBean((ObjectName)Array.get(value, i)));
@@ -486,17 +568,12 @@ public class ObjectMBean implements DynamicMBean
             }
 
             // do the setting
-            setter.invoke(o, new Object[]{ value });
-        }
-        catch (IllegalAccessException e)
-        {
-            LOG.warn(Log.EXCEPTION, e);
-            throw new AttributeNotFoundException(e.toString());
+            setter._handle.invokeExact(setter._onMBean ? this : _managed, value);
         }
-        catch (InvocationTargetException e)
+        catch (Throwable e)
         {
             LOG.warn(Log.EXCEPTION, e);
-            throw new ReflectionException(new Exception(e.getCause()));
+            throw new ReflectionException(new Exception(e));
         }
     }
 
@@ -540,17 +617,13 @@ public class ObjectMBean implements DynamicMBean
         try
         {
             Thread.currentThread().setContextClassLoader(_loader);
-            Method method = (Method) _methods.get(methodKey);
+            Accessor method = getMetaData()._operations.get(methodKey);
             if (method == null)
                 throw new NoSuchMethodException(methodKey);
+            if (method._handle == null)
+                throw method._failure;
 
-            Object o = _managed;
-
-            if (method.getDeclaringClass().isInstance(this))
-            {
-                o = this;
-            }
-            return method.invoke(o, params);
+            return (Object)method._handle.invokeExact(method._onMBean ? this : _managed, params);
         }
         catch (NoSuchMethodException e)
         {
@@ -562,10 +635,10 @@ public class ObjectMBean implements DynamicMBean
             LOG.warn(Log.EXCEPTION, e);
             throw new MBeanException(e);
         }
-        catch (InvocationTargetException e)
+        catch (Throwable e)
         {
             LOG.warn(Log.EXCEPTION, e);
-            throw new ReflectionException(new Exception(e.getCause()));
+            throw new ReflectionException(new Exception(e));
         }
         finally
         {
@@ -626,7 +699,8 @@ public class ObjectMBean implements DynamicMBean
             name = toVariableName(method.getName());
         }
 
-        if ( _attributes.contains(name))
+        MetaData metaData = metaData();
+        if (metaData._attributes.contains(name))
         {
             return null; // we have an attribute named this already
         }
@@ -732,13 +806,14 @@ public class ObjectMBean implements DynamicMBean
         try
         {
             // Remember the methods
-            _getters.put(name, method);
-            _setters.put(name, setter);
+            metaData._getters.put(name, Accessor.getter(method, method.getDeclaringClass().isInstance(this)));
+            if (setter != null)
+                metaData._setters.put(name, Accessor.setter(setter, setter.getDeclaringClass().isInstance(this)));
 
             MBeanAttributeInfo info=null;
             if (convert)
             {
-                _convert.add(name);
+                metaData._convert.add(name);
 
                 if (component_type.isArray())
                 {
@@ -754,7 +829,7 @@ public class ObjectMBean implements DynamicMBean
                 info= new MBeanAttributeInfo(name,description,method,setter);
             }
 
-            _attributes.add(name);
+            metaData._attributes.add(name);
             
             return info;
         }
@@ -862,14 +937,15 @@ public class ObjectMBean implements DynamicMBean
             if (LOG.isDebugEnabled())
                 LOG.debug("Method Cache: " + signature );
 
-            if ( _methods.containsKey(signature) )
+            MetaData metaData = metaData();
+            if ( metaData._operations.containsKey(signature) )
             {
                 return null; // we have an operation for this already
             }
 
-            _methods.put(signature, method);
+            metaData._operations.put(signature, Accessor.operation(method, method.getDeclaringClass().isInstance(this)));
             if (convert)
-                _convert.add(signature);
+                metaData._convert.add(signature);
 
             return new MBeanOperationInfo(method.getName(), description, pInfo, returnClass.isPrimitive() ? TypeUtil.toName(returnClass) : (returnClass.getName()), impact);
         }
@@ -916,4 +992,75 @@ public class ObjectMBean implements DynamicMBean
         }
         return false;
     }
+
+    /**
+     * The MBean info and the accessors of the attributes and operations,
+     * shared by the MBeans of the same managed class and MBean class.
+     */
+    private static class MetaData
+    {
+        private final Map<String, Accessor> _getters = new HashMap<>();
+        private final Map<String, Accessor> _setters = new HashMap<>();
+        private final Map<String, Accessor> _operations = new HashMap<>();
+        // set of attributes mined from influence hierarchy
+        private final Set<String> _attributes = new HashSet<>();
+        // set of attributes that are automatically converted to ObjectName
+        // as they represent other managed beans which can be linked to
+        private final Set<String> _convert = new HashSet<>();
+        private volatile MBeanInfo _info;
+    }
+
+    /**
+     * A method compiled to a {@link MethodHandle} taking the target object, either
+     * the managed object or the MBean, as first argument.
+     */
+    private static class Accessor
+    {
+        private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+        private static final MethodType SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+        private static final MethodType OPERATION = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+        private final Method _method;
+        private final boolean _onMBean;
+        private final MethodHandle _handle;
+        private final IllegalAccessException _failure;
+
+        private static Accessor getter(Method method, boolean onMBean)
+        {
+            return new Accessor(method, onMBean, handle -> handle.asType(GETTER));
+        }
+
+        private static Accessor setter(Method method, boolean onMBean)
+        {
+            return new Accessor(method, onMBean, handle -> handle.asType(SETTER));
+        }
+
+        private static Accessor operation(Method method, boolean onMBean)
+        {
+            return new Accessor(method, onMBean, handle -> handle.asSpreader(Object[].class, method.getParameterCount()).asType(OPERATION));
+        }
+
+        private Accessor(Method method, boolean onMBean, UnaryOperator<MethodHandle> adapter)
+        {
+            _method = method;
+            _onMBean = onMBean;
+            MethodHandle handle = null;
+            IllegalAccessException failure = null;
+            try
+            {
+                handle = MethodHandles.publicLookup().unreflect(method);
+                // Static methods ignore the target object, as when invoking them reflectively.
+                if (Modifier.isStatic(method.getModifiers()))
+                    handle = MethodHandles.dropArguments(handle, 0, Object.class);
+                handle = adapter.apply(handle);
+            }
+            catch (IllegalAccessException e)
+            {
+                // Reported when the method is used, as when invoking it reflectively.
+                failure = e;
+            }
+            _handle = handle;
+            _failure = failure;
+        }
+    }
 }
@@ -19,12 +19,15 @@
 package org.eclipse.jetty.jmx;
 
 import java.lang.management.ManagementFactory;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
 
 import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.component.LifeCycle;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.junit.After;
 import org.junit.Assert;
@@ -35,13 +38,14 @@ public class MBeanContainerLifeCycleTest
 {
     private ContainerLifeCycle container;
     private MBeanServer mbeanServer;
+    private MBeanContainer mbeanContainer;
 
     @Before
     public void prepare() throws Exception
     {
         container = new ContainerLifeCycle();
         mbeanServer = ManagementFactory.getPlatformMBeanServer();
-        MBeanContainer mbeanContainer = new MBeanContainer(mbeanServer);
+        mbeanContainer = new MBeanContainer(mbeanServer);
         container.addBean(mbeanContainer);
         container.start();
     }
@@ -113,4 +117,104 @@ public class MBeanContainerLifeCycleTest
         objectNames = mbeanServer.queryNames(ObjectName.getInstance(pkg + ":*"), null);
         Assert.assertEquals(0, objectNames.size());
     }
+
+    @Test
+    public void testLazyRegistrationRegistersMBeansWhenParentStarts() throws Exception
+    {
+        mbeanContainer.setLazyRegistration(true);
+
+        ContainerLifeCycle child = new ContainerLifeCycle();
+        container.addBean(child, true);
+        Assert.assertNotNull(mbeanContainer.findMBean(child));
+
+        QueuedThreadPool bean = new QueuedThreadPool();
+        QueuedThreadPool removed = new QueuedThreadPool();
+        child.addBean(bean);
+        child.addBean(removed);
+
+        // The beans of a component that is not started are not registered.
+        String pkg = bean.getClass().getPackage().getName();
+        Set<ObjectName> objectNames = mbeanServer.queryNames(ObjectName.getInstance(pkg + ":*"), null);
+        Assert.assertEquals(0, objectNames.size());
+
+        // Beans removed before the component starts are never registered.
+        child.removeBean(removed);
+        child.start();
+
+        objectNames = mbeanServer.queryNames(ObjectName.getInstance(pkg + ":*"), null);
+        Assert.assertEquals(1, objectNames.size());
+        Assert.assertNotNull(mbeanContainer.findMBean(bean));
+        Assert.assertNull(mbeanContainer.findMBean(removed));
+
+        // Beans added to a started component are registered immediately.
+        QueuedThreadPool added = new QueuedThreadPool();
+        child.addBean(added);
+        objectNames = mbeanServer.queryNames(ObjectName.getInstance(pkg + ":*"), null);
+        Assert.assertEquals(2, objectNames.size());
+
+        child.stop();
+        mbeanContainer.destroy();
+    }
+
+    @Test
+    public void testLazyRegistrationDiscardsPendingBeansOfRemovedComponent() throws Exception
+    {
+        mbeanContainer.setLazyRegistration(true);
+
+        ListenedContainer child = new ListenedContainer();
+        container.addBean(child, true);
+        QueuedThreadPool bean = new QueuedThreadPool();
+        child.addBean(bean);
+        Assert.assertEquals(1, mbeanContainer.getPendingCount());
+        Assert.assertEquals(1, child.listeners.size());
+
+        // The component is removed without ever being started.
+        container.removeBean(child);
+        Assert.assertEquals(0, mbeanContainer.getPendingCount());
+        Assert.assertEquals(0, child.listeners.size());
+
+        child.start();
+        Assert.assertNull(mbeanContainer.findMBean(bean));
+
+        child.stop();
+        mbeanContainer.destroy();
+    }
+
+    @Test
+    public void testLazyRegistrationDiscardsPendingBeansOnStop() throws Exception
+    {
+        mbeanContainer.setLazyRegistration(true);
+
+        ListenedContainer child = new ListenedContainer();
+        container.addBean(child, true);
+        QueuedThreadPool bean = new QueuedThreadPool();
+        child.addBean(bean);
+        Assert.assertEquals(1, mbeanContainer.getPendingCount());
+        Assert.assertEquals(1, child.listeners.size());
+
+        container.stop();
+        Assert.assertEquals(0, mbeanContainer.getPendingCount());
+        Assert.assertEquals(0, child.listeners.size());
+
+        mbeanContainer.destroy();
+    }
+
+    private static class ListenedContainer extends ContainerLifeCycle
+    {
+        private final List<LifeCycle.Listener> listeners = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void addLifeCycleListener(LifeCycle.Listener listener)
+        {
+            super.addLifeCycleListener(listener);
+            listeners.add(listener);
+        }
+
+        @Override
+        public void removeLifeCycleListener(LifeCycle.Listener listener)
+        {
+            super.removeLifeCycleListener(listener);
+            listeners.remove(listener);
+        }
+    }
 }
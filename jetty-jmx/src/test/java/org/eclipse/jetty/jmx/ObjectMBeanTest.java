@@ -25,6 +25,10 @@ import javax.management.MBeanInfo;
 import javax.management.MBeanOperationInfo;
 import javax.management.MBeanParameterInfo;
 
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.annotation.Name;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
@@ -222,4 +226,54 @@ public class ObjectMBeanTest
         Assert.assertEquals("fullName",mbean.toVariableName("fullName"));
     }
 
+
+    @Test
+    public void testMetaDataIsSharedByInstancesOfTheSameClass() throws Exception
+    {
+        Derived derived1 = new Derived();
+        Derived derived2 = new Derived();
+        derived2.setFullName("Other Name");
+        ObjectMBean mbean1 = (ObjectMBean)ObjectMBean.mbeanFor(derived1);
+        ObjectMBean mbean2 = (ObjectMBean)ObjectMBean.mbeanFor(derived2);
+        mbean1.setMBeanContainer(container);
+        mbean2.setMBeanContainer(container);
+
+        Assert.assertSame(mbean1.getClass(), mbean2.getClass());
+        Assert.assertSame(mbean1.getMBeanInfo(), mbean2.getMBeanInfo());
+
+        // The shared accessors act on each managed object, or on each MBean for proxied attributes.
+        Assert.assertEquals("Full Name", mbean1.getAttribute("fname"));
+        Assert.assertEquals("Other Name", mbean2.getAttribute("fname"));
+        mbean1.setAttribute(new Attribute("fname", "Fuller Name"));
+        Assert.assertEquals("Fuller Name", derived1.getFullName());
+        Assert.assertEquals("Other Name", derived2.getFullName());
+        Assert.assertEquals("goop", mbean2.getAttribute("goop"));
+        Assert.assertEquals("not bad", mbean2.invoke("good", new Object[]{}, new String[]{}));
+    }
+
+    @Test
+    public void testStaticAttributeAndOperation() throws Exception
+    {
+        ObjectMBean mbean = (ObjectMBean)ObjectMBean.mbeanFor(new StaticManaged());
+        mbean.setMBeanContainer(container);
+
+        Assert.assertEquals("1.0", mbean.getAttribute("version"));
+        Assert.assertEquals("1.0!", mbean.invoke("shout", new Object[]{"1.0"}, new String[]{String.class.getName()}));
+    }
+
+    @ManagedObject("A managed object with static members")
+    public static class StaticManaged
+    {
+        @ManagedAttribute("The version")
+        public static String getVersion()
+        {
+            return "1.0";
+        }
+
+        @ManagedOperation("Shouts a value")
+        public static String shout(@Name("value") String value)
+        {
+            return value + "!";
+        }
+    }
 }
@@ -18,9 +18,12 @@
 
 package org.eclipse.jetty.monitor;
 
+import java.io.IOException;
 import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
 import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -29,15 +32,32 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Pattern;
 
+import org.eclipse.jetty.monitor.thread.CollapsedStacks;
 import org.eclipse.jetty.monitor.thread.ThreadMonitorException;
 import org.eclipse.jetty.monitor.thread.ThreadMonitorInfo;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
 import org.eclipse.jetty.util.component.AbstractLifeCycle;
 import org.eclipse.jetty.util.component.Dumpable;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 
+/* ------------------------------------------------------------ */
+/**
+ * Monitors the threads of the JVM, logging the threads that use more CPU than a
+ * threshold and the stack traces of the threads that are spinning.
+ * <p>
+ * When a {@link #setSampleInterval(int) sample interval} is set, the monitor also
+ * works as a sampling profiler: at each interval, it samples the stack traces of the
+ * threads whose name matches the {@link #setSampleThreadNames(String) sampled thread
+ * names}, by default the threads of {@link org.eclipse.jetty.util.thread.QueuedThreadPool}s
+ * with default names, which include the selector threads. The samples are counted by
+ * {@link CollapsedStacks collapsed stack} in a bounded table, that can be
+ * {@link #dumpProfile() dumped} in the input format of flame graph tools.
+ */
 @ManagedObject("Busy Thread Monitor")
 public class ThreadMonitor extends AbstractLifeCycle implements Runnable
 {
@@ -58,6 +78,13 @@ public class ThreadMonitor extends AbstractLifeCycle implements Runnable
     private Dumpable _dumpable;
 
     private Map<Long,ThreadMonitorInfo> _monitorInfo;
+
+    private int _sampleInterval;
+    private Pattern _sampleThreadNames = Pattern.compile("qtp.*");
+    private boolean _sampleRunnableOnly = true;
+    private int _sampleMaxStacks = 4096;
+    private int _sampleStackDepth = 128;
+    private volatile CollapsedStacks _profile;
     
     /* ------------------------------------------------------------ */
     /**
@@ -295,6 +322,151 @@ public class ThreadMonitor extends AbstractLifeCycle implements Runnable
         _dumpable = dumpable;
     }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * Gets the sample interval.
+     *
+     * @return the interval between stack samples in milliseconds, or 0 if sampling is disabled
+     */
+    @ManagedAttribute("The interval between stack samples in ms, 0 if disabled")
+    public int getSampleInterval()
+    {
+        return _sampleInterval;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Sets the sample interval.
+     *
+     * @param ms the interval between stack samples in milliseconds, or 0 to disable sampling
+     */
+    public void setSampleInterval(int ms)
+    {
+        _sampleInterval = ms;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Gets the sampled thread names.
+     *
+     * @return the regular expression matching the names of the sampled threads
+     */
+    @ManagedAttribute("The regular expression matching the names of the sampled threads")
+    public String getSampleThreadNames()
+    {
+        return _sampleThreadNames.pattern();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Sets the sampled thread names.
+     *
+     * @param regex the regular expression matching the names of the sampled threads
+     */
+    public void setSampleThreadNames(String regex)
+    {
+        _sampleThreadNames = Pattern.compile(regex);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return whether only the threads in the {@link Thread.State#RUNNABLE} state are sampled
+     */
+    @ManagedAttribute("Whether only the runnable threads are sampled")
+    public boolean isSampleRunnableOnly()
+    {
+        return _sampleRunnableOnly;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param runnableOnly whether only the threads in the {@link Thread.State#RUNNABLE} state are
+     * sampled, so that idle threads waiting for jobs do not dominate the profile
+     */
+    public void setSampleRunnableOnly(boolean runnableOnly)
+    {
+        _sampleRunnableOnly = runnableOnly;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the max number of distinct stacks of the profile
+     */
+    public int getSampleMaxStacks()
+    {
+        return _sampleMaxStacks;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param maxStacks the max number of distinct stacks of the profile
+     */
+    public void setSampleMaxStacks(int maxStacks)
+    {
+        _sampleMaxStacks = maxStacks;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the max number of frames of the sampled stacks
+     */
+    public int getSampleStackDepth()
+    {
+        return _sampleStackDepth;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param depth the max number of frames of the sampled stacks
+     */
+    public void setSampleStackDepth(int depth)
+    {
+        _sampleStackDepth = depth;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the profile of the sampled stacks, or null if the monitor has not been started
+     */
+    public CollapsedStacks getProfile()
+    {
+        return _profile;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the sampled stacks in collapsed format, one stack per line followed by its count
+     */
+    @ManagedOperation(value="Dumps the sampled stacks in collapsed format", impact="INFO")
+    public String dumpProfile()
+    {
+        CollapsedStacks profile = _profile;
+        if (profile == null)
+            return "";
+        StringBuilder builder = new StringBuilder();
+        try
+        {
+            profile.write(builder);
+        }
+        catch (IOException ex)
+        {
+            LOG.ignore(ex);
+        }
+        return builder.toString();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Clears the sampled stacks.
+     */
+    @ManagedOperation(value="Clears the sampled stacks", impact="ACTION")
+    public void resetProfile()
+    {
+        CollapsedStacks profile = _profile;
+        if (profile != null)
+            profile.reset();
+    }
+
     /* ------------------------------------------------------------ */
     /**
      * @see org.eclipse.jetty.util.component.AbstractLifeCycle#doStart()
@@ -302,6 +474,7 @@ public class ThreadMonitor extends AbstractLifeCycle implements Runnable
     public void doStart()
     {
         _done = false;
+        _profile = new CollapsedStacks(_sampleMaxStacks, _sampleStackDepth);
         
         _runner = new Thread(this);
         _runner.setDaemon(true);
@@ -375,13 +548,20 @@ public class ThreadMonitor extends AbstractLifeCycle implements Runnable
         boolean repeat = false;
         boolean scanNow, logNow;
 
-        // Set next scan time and log time
+        // Set next scan time, log time and sample time
         long nextScanTime = System.currentTimeMillis();
         long nextLogTime = nextScanTime + _logInterval;
+        long nextSampleTime = nextScanTime;
         
         while (!_done)
         {
             long currTime = System.currentTimeMillis();
+            if (_sampleInterval > 0 && currTime >= nextSampleTime)
+            {
+                sampleStacks();
+                nextSampleTime = currTime + _sampleInterval;
+            }
+
             scanNow = (currTime > nextScanTime);
             logNow = (_logInterval > 0 && currTime > nextLogTime);
             if (repeat || scanNow || logNow)
@@ -404,7 +584,10 @@ public class ThreadMonitor extends AbstractLifeCycle implements Runnable
             {
                 try
                 {
-                    Thread.sleep(100);
+                    long sleep = 100;
+                    if (_sampleInterval > 0)
+                        sleep = Math.max(1, Math.min(sleep, nextSampleTime - System.currentTimeMillis()));
+                    Thread.sleep(sleep);
                 }
                 catch (InterruptedException ex)
                 {
@@ -415,6 +598,116 @@ public class ThreadMonitor extends AbstractLifeCycle implements Runnable
         
     }
     
+    /* ------------------------------------------------------------ */
+    /**
+     * Sample the stack traces of the profiled threads.
+     * <p>
+     * The threads are selected by name and state first, so that only the stacks
+     * of the selected threads are captured, up to the sampled stack depth.
+     */
+    private void sampleStacks()
+    {
+        CollapsedStacks profile = _profile;
+        if (profile == null)
+            return;
+        try
+        {
+            Pattern names = _sampleThreadNames;
+            Thread[] threads = getAllThreads();
+            long[] ids = new long[threads.length];
+            int count = 0;
+            for (Thread thread : threads)
+            {
+                if (thread == null || thread == _runner)
+                    continue;
+                if (_sampleRunnableOnly && thread.getState() != Thread.State.RUNNABLE)
+                    continue;
+                if (!names.matcher(thread.getName()).matches())
+                    continue;
+                ids[count++] = thread.getId();
+            }
+            if (count == 0)
+                return;
+
+            // One more frame than the profile depth, so that truncated stacks are marked as such.
+            ThreadInfo[] infos = _threadBean.getThreadInfo(Arrays.copyOf(ids, count), _sampleStackDepth + 1);
+            for (ThreadInfo info : infos)
+            {
+                // The thread may have terminated or changed state since it was selected.
+                if (info == null)
+                    continue;
+                StackTraceElement[] stackTrace = info.getStackTrace();
+                if (_sampleRunnableOnly && (info.getThreadState() != Thread.State.RUNNABLE || isBlockedInNative(stackTrace)))
+                    continue;
+                profile.add(stackTrace);
+            }
+        }
+        catch (Exception ex)
+        {
+            LOG.debug(ex);
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the live threads of the JVM, possibly followed by null elements
+     */
+    private static Thread[] getAllThreads()
+    {
+        ThreadGroup root = Thread.currentThread().getThreadGroup();
+        while (root.getParent() != null)
+            root = root.getParent();
+        Thread[] threads = new Thread[root.activeCount() + 16];
+        while (true)
+        {
+            int count = root.enumerate(threads, true);
+            if (count < threads.length)
+                return threads;
+            threads = new Thread[threads.length * 2];
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * <p>Threads blocked in a native select or accept are RUNNABLE for the JVM, so
+     * selectors and acceptors would dominate a profile of the runnable threads.
+     * Such threads are recognized by the native method at the top of their stack.</p>
+     * <p>Threads blocked in other native calls, for example in a blocking read of a
+     * socket stream, are still sampled as runnable.</p>
+     *
+     * @param stackTrace the stack trace of a runnable thread
+     * @return whether the top frame of the stack is a known blocking native method
+     */
+    static boolean isBlockedInNative(StackTraceElement[] stackTrace)
+    {
+        if (stackTrace.length == 0)
+            return false;
+        StackTraceElement top = stackTrace[0];
+        if (!top.isNativeMethod())
+            return false;
+        String className = top.getClassName();
+        String methodName = top.getMethodName();
+        if (className.startsWith("sun.nio.ch."))
+        {
+            switch (methodName)
+            {
+                case "epollWait":
+                case "wait":
+                case "poll0":
+                case "kevent0":
+                case "keventPoll":
+                case "accept":
+                case "accept0":
+                    return true;
+                default:
+                    return false;
+            }
+        }
+        if (className.startsWith("java.net."))
+            return methodName.equals("socketAccept") || methodName.equals("accept0");
+        return false;
+    }
+
     /* ------------------------------------------------------------ */
     /**
      * Collect thread info.
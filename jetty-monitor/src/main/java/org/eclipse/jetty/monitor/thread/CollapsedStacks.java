@@ -0,0 +1,204 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.monitor.thread;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/* ------------------------------------------------------------ */
+/**
+ * A bounded table of sampled stack traces, counted by collapsed stack.
+ * <p>
+ * A collapsed stack is the list of the frames of a stack trace, from the
+ * outermost to the innermost, separated by semicolons. The table is written
+ * as one line per collapsed stack followed by its count, which is the input
+ * format of flame graph tools such as {@code flamegraph.pl}.
+ * <p>
+ * Stack traces deeper than the max depth keep their innermost frames and start
+ * with a {@value #TRUNCATED} frame. Once the table holds the max number of
+ * stacks, the samples of new stacks are counted as {@value #OTHER}.
+ */
+public class CollapsedStacks
+{
+    public static final String TRUNCATED = "[truncated]";
+    public static final String OTHER = "[other]";
+
+    private final ConcurrentMap<String, LongAdder> _stacks = new ConcurrentHashMap<>();
+    private final LongAdder _other = new LongAdder();
+    private final LongAdder _samples = new LongAdder();
+    private final int _maxStacks;
+    private final int _maxDepth;
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param maxStacks the max number of distinct stacks counted
+     * @param maxDepth the max number of frames of a stack
+     */
+    public CollapsedStacks(int maxStacks, int maxDepth)
+    {
+        if (maxStacks < 1)
+            throw new IllegalArgumentException("maxStacks " + maxStacks);
+        if (maxDepth < 1)
+            throw new IllegalArgumentException("maxDepth " + maxDepth);
+        _maxStacks = maxStacks;
+        _maxDepth = maxDepth;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the max number of distinct stacks counted
+     */
+    public int getMaxStacks()
+    {
+        return _maxStacks;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the max number of frames of a stack
+     */
+    public int getMaxDepth()
+    {
+        return _maxDepth;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Counts a sampled stack trace.
+     *
+     * @param stackTrace the stack trace, innermost frame first, as returned by {@link Thread#getStackTrace()}
+     */
+    public void add(StackTraceElement[] stackTrace)
+    {
+        if (stackTrace == null || stackTrace.length == 0)
+            return;
+
+        _samples.increment();
+        String stack = collapse(stackTrace, _maxDepth);
+        LongAdder count = _stacks.get(stack);
+        if (count == null)
+        {
+            if (_stacks.size() >= _maxStacks)
+            {
+                _other.increment();
+                return;
+            }
+            count = _stacks.computeIfAbsent(stack, key -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the number of samples counted
+     */
+    public long getSampleCount()
+    {
+        return _samples.sum();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the number of distinct stacks counted
+     */
+    public int getStackCount()
+    {
+        return _stacks.size();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the number of samples not counted because the table was full
+     */
+    public long getOtherCount()
+    {
+        return _other.sum();
+    }
+
+    /* ------------------------------------------------------------ */
+    public void reset()
+    {
+        _stacks.clear();
+        _other.reset();
+        _samples.reset();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the counts of the collapsed stacks, sorted by stack
+     */
+    public Map<String, Long> getCounts()
+    {
+        Map<String, Long> counts = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : _stacks.entrySet())
+            counts.put(entry.getKey(), entry.getValue().sum());
+        return counts;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Writes the collapsed stacks, one per line followed by a space and their count.
+     *
+     * @param out the output to write to
+     * @throws IOException if the output cannot be written
+     */
+    public void write(Appendable out) throws IOException
+    {
+        for (Map.Entry<String, Long> entry : getCounts().entrySet())
+            out.append(entry.getKey()).append(' ').append(Long.toString(entry.getValue())).append('\n');
+        long other = getOtherCount();
+        if (other > 0)
+            out.append(OTHER).append(' ').append(Long.toString(other)).append('\n');
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param stackTrace the stack trace, innermost frame first
+     * @param maxDepth the max number of frames
+     * @return the frames of the stack trace, outermost first, separated by semicolons
+     */
+    public static String collapse(StackTraceElement[] stackTrace, int maxDepth)
+    {
+        StringBuilder builder = new StringBuilder();
+        int depth = Math.min(stackTrace.length, maxDepth);
+        if (depth < stackTrace.length)
+            builder.append(TRUNCATED);
+        for (int i = depth; i-- > 0;)
+        {
+            if (builder.length() > 0)
+                builder.append(';');
+            StackTraceElement frame = stackTrace[i];
+            builder.append(frame.getClassName()).append('.').append(frame.getMethodName());
+        }
+        return builder.toString();
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{samples=%d,stacks=%d/%d,other=%d}",
+                getClass().getSimpleName(), hashCode(), getSampleCount(), getStackCount(), _maxStacks, getOtherCount());
+    }
+}
@@ -18,10 +18,17 @@
 
 package org.eclipse.jetty.monitor;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.nio.channels.Selector;
 import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.jetty.util.component.Dumpable;
@@ -100,6 +107,99 @@ public class ThreadMonitorTest
     }
 
 
+    @Test
+    public void testSampleProfile() throws Exception
+    {
+        ThreadMonitor monitor = new ThreadMonitor(1000);
+        monitor.setSampleInterval(10);
+        monitor.setSampleThreadNames("spinner");
+        monitor.start();
+
+        Worker worker = new Worker();
+        Thread runner = new Thread(worker, "spinner");
+        runner.start();
+        try
+        {
+            long end = System.currentTimeMillis() + DURATION;
+            while (monitor.getProfile().getSampleCount() < 10 && System.currentTimeMillis() < end)
+                Thread.sleep(10);
+        }
+        finally
+        {
+            worker.done = true;
+            runner.join();
+            monitor.stop();
+        }
+
+        assertTrue(monitor.getProfile().getSampleCount() >= 10);
+        String profile = monitor.dumpProfile();
+        assertThat(profile, containsString("java.lang.Thread.run;" + Worker.class.getName() + ".run;" + Worker.class.getName() + ".work"));
+
+        monitor.resetProfile();
+        assertTrue(monitor.dumpProfile().isEmpty());
+    }
+
+    @Test
+    public void testSampleProfileSkipsThreadsBlockedInSelect() throws Exception
+    {
+        ThreadMonitor monitor = new ThreadMonitor(1000);
+        monitor.setSampleInterval(10);
+        monitor.setSampleThreadNames("selector");
+        monitor.start();
+
+        Selector selector = Selector.open();
+        CountDownLatch selecting = new CountDownLatch(1);
+        Thread runner = new Thread(() ->
+        {
+            try
+            {
+                selecting.countDown();
+                selector.select();
+            }
+            catch (IOException x)
+            {
+                throw new RuntimeException(x);
+            }
+        }, "selector");
+        runner.start();
+        try
+        {
+            assertTrue(selecting.await(5, TimeUnit.SECONDS));
+            Thread.sleep(500);
+        }
+        finally
+        {
+            selector.wakeup();
+            runner.join();
+            selector.close();
+            monitor.stop();
+        }
+
+        assertEquals(0, monitor.getProfile().getSampleCount());
+        assertTrue(ThreadMonitor.isBlockedInNative(new StackTraceElement[]{new StackTraceElement("sun.nio.ch.EPoll", "wait", null, -2)}));
+        assertFalse(ThreadMonitor.isBlockedInNative(new StackTraceElement[]{new StackTraceElement("sun.nio.ch.EPoll", "wait", "EPoll.java", 10)}));
+    }
+
+    private class Worker implements Runnable
+    {
+        private volatile boolean done = false;
+        private long result;
+
+        /* ------------------------------------------------------------ */
+        public void run()
+        {
+            work();
+        }
+
+        /* ------------------------------------------------------------ */
+        public void work()
+        {
+            // Not a counted loop, so the thread can be sampled at any time.
+            while (!done)
+                result ^= System.nanoTime();
+        }
+    }
+
     private class Spinner implements Runnable
     {
         private volatile boolean done = false;
@@ -0,0 +1,84 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.monitor.thread;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+public class CollapsedStacksTest
+{
+    private static StackTraceElement[] stack(String... methods)
+    {
+        // Innermost frame first, as returned by Thread.getStackTrace().
+        StackTraceElement[] stack = new StackTraceElement[methods.length];
+        for (int i = 0; i < methods.length; i++)
+            stack[i] = new StackTraceElement("com.acme.Foo", methods[i], "Foo.java", i + 1);
+        return stack;
+    }
+
+    @Test
+    public void testCollapse() throws Exception
+    {
+        CollapsedStacks stacks = new CollapsedStacks(10, 10);
+        stacks.add(stack("leaf", "middle", "root"));
+        stacks.add(stack("leaf", "middle", "root"));
+        stacks.add(stack("other", "root"));
+
+        Map<String, Long> counts = stacks.getCounts();
+        assertEquals(2, counts.size());
+        assertEquals(2L, (long)counts.get("com.acme.Foo.root;com.acme.Foo.middle;com.acme.Foo.leaf"));
+        assertEquals(1L, (long)counts.get("com.acme.Foo.root;com.acme.Foo.other"));
+        assertEquals(3, stacks.getSampleCount());
+
+        StringBuilder out = new StringBuilder();
+        stacks.write(out);
+        assertEquals("com.acme.Foo.root;com.acme.Foo.middle;com.acme.Foo.leaf 2\n" +
+                "com.acme.Foo.root;com.acme.Foo.other 1\n", out.toString());
+    }
+
+    @Test
+    public void testBounds() throws Exception
+    {
+        CollapsedStacks stacks = new CollapsedStacks(2, 2);
+        stacks.add(stack("a", "b", "c"));
+        stacks.add(stack("d"));
+        stacks.add(stack("e"));
+        stacks.add(stack("a", "b", "x"));
+
+        // Deep stacks keep their innermost frames, new stacks beyond the max are counted as other.
+        Map<String, Long> counts = stacks.getCounts();
+        assertEquals(2, counts.size());
+        assertEquals(2L, (long)counts.get(CollapsedStacks.TRUNCATED + ";com.acme.Foo.b;com.acme.Foo.a"));
+        assertEquals(1L, (long)counts.get("com.acme.Foo.d"));
+        assertEquals(1, stacks.getOtherCount());
+        assertEquals(4, stacks.getSampleCount());
+
+        StringBuilder out = new StringBuilder();
+        stacks.write(out);
+        assertEquals(true, out.toString().endsWith(CollapsedStacks.OTHER + " 1\n"));
+
+        stacks.reset();
+        assertEquals(0, stacks.getStackCount());
+        assertEquals(0, stacks.getSampleCount());
+        assertEquals(0, stacks.getOtherCount());
+    }
+}
@@ -0,0 +1,16 @@
+[description]
+Enables the exposition of the managed attributes of the server
+beans in the OpenMetrics text format, on the /metrics path.
+
+[depend]
+server
+
+[lib]
+lib/jetty-openmetrics-${jetty.version}.jar
+
+[xml]
+etc/jetty-openmetrics.xml
+
+[ini-template]
+## The path the metrics are served on
+# jetty.openmetrics.path=/metrics
@@ -0,0 +1,138 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.openmetrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+
+/**
+ * <p>A handler that serves the metrics of an {@link OpenMetricsRegistry} in the
+ * OpenMetrics text format on a given path, by default {@code /metrics}, and
+ * forwards the other requests to the handler it wraps.</p>
+ * <p>If no registry is given, the registry that is a bean of the server is used,
+ * or else a new registry is added to the server, so that it is notified of the
+ * beans of the server.</p>
+ * <p>Usage:</p>
+ * <pre>
+ * Server server = new Server(8080);
+ * OpenMetricsHandler metrics = new OpenMetricsHandler();
+ * metrics.setHandler(someOtherHandler);
+ * server.setHandler(metrics);
+ * server.start();
+ * </pre>
+ */
+@ManagedObject("OpenMetrics exposition handler")
+public class OpenMetricsHandler extends HandlerWrapper
+{
+    private String _path = "/metrics";
+    private OpenMetricsRegistry _registry;
+
+    public OpenMetricsHandler()
+    {
+        this(null);
+    }
+
+    /**
+     * @param registry the registry whose metrics are served, or null to use the registry of the server
+     */
+    public OpenMetricsHandler(OpenMetricsRegistry registry)
+    {
+        _registry = registry;
+    }
+
+    /**
+     * @return the path the metrics are served on
+     */
+    @ManagedAttribute("The path the metrics are served on")
+    public String getPath()
+    {
+        return _path;
+    }
+
+    /**
+     * @param path the path the metrics are served on
+     */
+    public void setPath(String path)
+    {
+        _path = path;
+    }
+
+    /**
+     * @return the registry whose metrics are served
+     */
+    public OpenMetricsRegistry getRegistry()
+    {
+        return _registry;
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        Server server = getServer();
+        if (_registry == null && server != null)
+        {
+            _registry = server.getBean(OpenMetricsRegistry.class);
+            if (_registry == null)
+            {
+                _registry = new OpenMetricsRegistry();
+                server.addBean(_registry);
+            }
+        }
+        if (_registry == null)
+            throw new IllegalStateException("No OpenMetricsRegistry");
+        super.doStart();
+    }
+
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+    {
+        if (!target.equals(_path))
+        {
+            super.handle(target, baseRequest, request, response);
+            return;
+        }
+
+        baseRequest.setHandled(true);
+        if (!HttpMethod.GET.is(request.getMethod()) && !HttpMethod.HEAD.is(request.getMethod()))
+        {
+            response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            return;
+        }
+
+        byte[] content = _registry.write().getBytes(StandardCharsets.UTF_8);
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(OpenMetricsRegistry.CONTENT_TYPE);
+        response.setHeader(HttpHeader.CACHE_CONTROL.asString(), "no-cache");
+        response.setContentLength(content.length);
+        if (!HttpMethod.HEAD.is(request.getMethod()))
+            response.getOutputStream().write(content);
+    }
+}
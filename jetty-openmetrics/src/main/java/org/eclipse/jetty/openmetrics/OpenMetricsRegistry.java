@@ -0,0 +1,480 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.openmetrics;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.component.Container;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.component.Dumpable;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+/**
+ * <p>A registry of the numeric {@link ManagedAttribute managed attributes} of the
+ * beans of a container tree, that writes their values in the OpenMetrics text format.</p>
+ * <p>Like the {@code MBeanContainer} of the jetty-jmx module, this registry is a
+ * {@link Container.InheritedListener}: when added as a bean to the {@code Server},
+ * it is notified of every bean of the tree, once when the bean is added and once
+ * when it is removed, and it never walks the tree again.</p>
+ * <p>When a bean is added, the {@code @ManagedAttribute} getters of its {@link ManagedObject}
+ * classes that return a primitive number, a boolean or a {@link Number} are converted
+ * to {@link MethodHandle}s, once per class. Writing the metrics then only invokes
+ * these handles, so its cost is proportional to the number of metrics and it
+ * requires neither JMX nor reflection.</p>
+ * <p>The metric name is {@code jetty_<type>_<attribute>}, in snake case, where the type
+ * is the most specific {@code @ManagedObject} class of the bean; beans of the same type
+ * are told apart by an {@code id} label, as in the JMX object names.
+ * All the metrics are reported as gauges, as managed attributes do not tell whether
+ * they are monotonic.</p>
+ *
+ * @see OpenMetricsHandler
+ */
+@ManagedObject("OpenMetrics registry of the managed attributes")
+public class OpenMetricsRegistry implements Container.InheritedListener, Dumpable
+{
+    private static final Logger LOG = Log.getLogger(OpenMetricsRegistry.class);
+    public static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    private final ConcurrentMap<Class<?>, Type> _types = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicInteger> _ids = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Object, List<Sample>> _beans = new ConcurrentHashMap<>();
+    private final Map<String, Family> _families = new ConcurrentSkipListMap<>();
+    private final String _prefix;
+
+    public OpenMetricsRegistry()
+    {
+        this("jetty");
+    }
+
+    /**
+     * @param prefix the prefix of the metric names
+     */
+    public OpenMetricsRegistry(String prefix)
+    {
+        _prefix = toMetricName(prefix);
+    }
+
+    /**
+     * @return the prefix of the metric names
+     */
+    @ManagedAttribute("The prefix of the metric names")
+    public String getPrefix()
+    {
+        return _prefix;
+    }
+
+    /**
+     * @return the number of beans with metrics
+     */
+    @ManagedAttribute("The number of beans with metrics")
+    public int getBeans()
+    {
+        return _beans.size();
+    }
+
+    /**
+     * @return the number of metrics
+     */
+    @ManagedAttribute("The number of metrics")
+    public int getMetrics()
+    {
+        int metrics = 0;
+        for (Family family : _families.values())
+            metrics += family._samples.size();
+        return metrics;
+    }
+
+    @Override
+    public void beanAdded(Container parent, Object bean)
+    {
+        if (bean == null)
+            return;
+
+        // The parent of the beans the registry is first notified of.
+        if (parent != null && !_beans.containsKey(parent))
+            beanAdded(null, parent);
+
+        if (_beans.containsKey(bean))
+            return;
+
+        Type type = _types.computeIfAbsent(bean.getClass(), this::newType);
+        if (type._attributes.isEmpty())
+        {
+            _beans.putIfAbsent(bean, Collections.emptyList());
+            return;
+        }
+
+        String id = String.valueOf(_ids.computeIfAbsent(type._name, k -> new AtomicInteger()).getAndIncrement());
+        List<Sample> samples = new ArrayList<>(type._attributes.size());
+        for (Attribute attribute : type._attributes)
+            samples.add(new Sample(attribute, bean, id));
+        if (_beans.putIfAbsent(bean, samples) != null)
+            return;
+
+        for (Sample sample : samples)
+        {
+            Attribute attribute = sample._attribute;
+            _families.computeIfAbsent(attribute._name, k -> new Family(attribute._help))._samples.add(sample);
+        }
+
+        if (LOG.isDebugEnabled())
+            LOG.debug("Registered {} metrics for {}", samples.size(), bean);
+    }
+
+    @Override
+    public void beanRemoved(Container parent, Object bean)
+    {
+        // Ignore the removal of this registry from the containers it is inherited by.
+        if (bean == null || bean == this)
+            return;
+        List<Sample> samples = _beans.remove(bean);
+        if (samples == null)
+            return;
+        for (Sample sample : samples)
+        {
+            Family family = _families.get(sample._attribute._name);
+            if (family != null)
+                family._samples.remove(sample);
+        }
+        if (LOG.isDebugEnabled() && !samples.isEmpty())
+            LOG.debug("Unregistered {} metrics for {}", samples.size(), bean);
+    }
+
+    /**
+     * <p>Writes the metrics in the OpenMetrics text format, including the final
+     * {@code # EOF} line.</p>
+     * <p>Metrics whose getter throws or returns null are omitted.</p>
+     *
+     * @param out the appendable to write the metrics to
+     * @throws IOException if the metrics cannot be written
+     */
+    public void write(Appendable out) throws IOException
+    {
+        for (Map.Entry<String, Family> entry : _families.entrySet())
+        {
+            String name = entry.getKey();
+            Family family = entry.getValue();
+            boolean described = false;
+            for (Sample sample : family._samples)
+            {
+                String value = sample.getValue();
+                if (value == null)
+                    continue;
+                if (!described)
+                {
+                    out.append("# TYPE ").append(name).append(" gauge\n");
+                    out.append("# HELP ").append(name).append(' ').append(family._help).append('\n');
+                    described = true;
+                }
+                out.append(name).append("{id=\"").append(sample._id).append("\"} ").append(value).append('\n');
+            }
+        }
+        out.append("# EOF\n");
+    }
+
+    /**
+     * @return the metrics in the OpenMetrics text format
+     */
+    public String write()
+    {
+        try
+        {
+            StringBuilder builder = new StringBuilder(64 * getMetrics());
+            write(builder);
+            return builder.toString();
+        }
+        catch (IOException x)
+        {
+            throw new IllegalStateException(x);
+        }
+    }
+
+    @Override
+    public String dump()
+    {
+        return ContainerLifeCycle.dump(this);
+    }
+
+    @Override
+    public void dump(Appendable out, String indent) throws IOException
+    {
+        ContainerLifeCycle.dumpObject(out, this);
+        ContainerLifeCycle.dump(out, indent, _families.keySet());
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{beans=%d,metrics=%d}", getClass().getSimpleName(), hashCode(), getBeans(), getMetrics());
+    }
+
+    private Type newType(Class<?> beanClass)
+    {
+        String typeName = null;
+        List<Attribute> attributes = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (Class<?> influence : findInfluences(new ArrayList<>(), beanClass))
+        {
+            if (!influence.isAnnotationPresent(ManagedObject.class))
+                continue;
+            if (typeName == null)
+                typeName = _prefix + "_" + toMetricName(influence.getSimpleName());
+
+            for (Method method : influence.getDeclaredMethods())
+            {
+                ManagedAttribute annotation = method.getAnnotation(ManagedAttribute.class);
+                if (annotation == null || annotation.proxied() || method.getParameterCount() != 0 || Modifier.isStatic(method.getModifiers()))
+                    continue;
+                String name = annotation.name();
+                if (name.isEmpty())
+                    name = toVariableName(method.getName());
+                // Like ObjectMBean, the most specific declaration wins.
+                if (!names.add(name))
+                    continue;
+                Attribute attribute = newAttribute(typeName + "_" + toMetricName(name), annotation.value(), method);
+                if (attribute != null)
+                    attributes.add(attribute);
+            }
+        }
+        return new Type(typeName, attributes);
+    }
+
+    private Attribute newAttribute(String name, String help, Method method)
+    {
+        Class<?> returnType = method.getReturnType();
+        Kind kind;
+        if (returnType == long.class || returnType == int.class || returnType == short.class || returnType == byte.class)
+            kind = Kind.LONG;
+        else if (returnType == double.class || returnType == float.class)
+            kind = Kind.DOUBLE;
+        else if (returnType == boolean.class)
+            kind = Kind.BOOLEAN;
+        else if (Number.class.isAssignableFrom(returnType))
+            kind = Kind.NUMBER;
+        else
+            return null;
+
+        try
+        {
+            MethodHandle handle;
+            try
+            {
+                handle = MethodHandles.publicLookup().unreflect(method);
+            }
+            catch (IllegalAccessException x)
+            {
+                // The method is public but the class declaring it is not.
+                method.setAccessible(true);
+                handle = MethodHandles.lookup().unreflect(method);
+            }
+            handle = handle.asType(MethodType.methodType(kind._type, Object.class));
+            return new Attribute(name, escapeHelp(help), kind, handle);
+        }
+        catch (Throwable x)
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("Cannot access managed attribute " + method, x);
+            return null;
+        }
+    }
+
+    private static List<Class<?>> findInfluences(List<Class<?>> influences, Class<?> aClass)
+    {
+        if (aClass != null && !influences.contains(aClass))
+        {
+            influences.add(aClass);
+            findInfluences(influences, aClass.getSuperclass());
+            for (Class<?> anInterface : aClass.getInterfaces())
+                findInfluences(influences, anInterface);
+        }
+        return influences;
+    }
+
+    private static String toVariableName(String methodName)
+    {
+        String variableName = methodName;
+        if (methodName.startsWith("get"))
+            variableName = variableName.substring(3);
+        else if (methodName.startsWith("is"))
+            variableName = variableName.substring(2);
+        return variableName.isEmpty() ? methodName : variableName;
+    }
+
+    /**
+     * @param name a camel case name
+     * @return the name in snake case, with only the characters allowed in metric names
+     */
+    static String toMetricName(String name)
+    {
+        StringBuilder builder = new StringBuilder(name.length() + 8);
+        for (int i = 0; i < name.length(); ++i)
+        {
+            char c = name.charAt(i);
+            if (Character.isUpperCase(c))
+            {
+                // Start a word, unless inside an acronym such as "SSL".
+                char previous = i > 0 ? name.charAt(i - 1) : '_';
+                char next = i + 1 < name.length() ? name.charAt(i + 1) : 'A';
+                if (builder.length() > 0 && builder.charAt(builder.length() - 1) != '_' &&
+                        (!Character.isUpperCase(previous) || Character.isLowerCase(next)))
+                    builder.append('_');
+                builder.append(Character.toLowerCase(c));
+            }
+            else if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9' && builder.length() > 0))
+            {
+                builder.append(c);
+            }
+            else if (builder.length() > 0 && builder.charAt(builder.length() - 1) != '_')
+            {
+                builder.append('_');
+            }
+        }
+        return builder.toString().toLowerCase(Locale.ENGLISH);
+    }
+
+    private static String escapeHelp(String help)
+    {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+    private enum Kind
+    {
+        LONG(long.class), DOUBLE(double.class), BOOLEAN(boolean.class), NUMBER(Number.class);
+
+        private final Class<?> _type;
+
+        Kind(Class<?> type)
+        {
+            _type = type;
+        }
+    }
+
+    private static class Type
+    {
+        private final String _name;
+        private final List<Attribute> _attributes;
+
+        private Type(String name, List<Attribute> attributes)
+        {
+            _name = name;
+            _attributes = attributes;
+        }
+    }
+
+    private static class Attribute
+    {
+        private final String _name;
+        private final String _help;
+        private final Kind _kind;
+        private final MethodHandle _getter;
+
+        private Attribute(String name, String help, Kind kind, MethodHandle getter)
+        {
+            _name = name;
+            _help = help;
+            _kind = kind;
+            _getter = getter;
+        }
+    }
+
+    private static class Family
+    {
+        private final String _help;
+        private final List<Sample> _samples = new CopyOnWriteArrayList<>();
+
+        private Family(String help)
+        {
+            _help = help;
+        }
+    }
+
+    private static class Sample
+    {
+        private final Attribute _attribute;
+        private final Object _bean;
+        private final String _id;
+
+        private Sample(Attribute attribute, Object bean, String id)
+        {
+            _attribute = attribute;
+            _bean = bean;
+            _id = id;
+        }
+
+        /**
+         * @return the current value of the sample, or null if it cannot be read
+         */
+        private String getValue()
+        {
+            try
+            {
+                MethodHandle getter = _attribute._getter;
+                switch (_attribute._kind)
+                {
+                    case LONG:
+                        return Long.toString((long)getter.invokeExact(_bean));
+                    case DOUBLE:
+                        return toString((double)getter.invokeExact(_bean));
+                    case BOOLEAN:
+                        return (boolean)getter.invokeExact(_bean) ? "1" : "0";
+                    default:
+                        Number number = (Number)getter.invokeExact(_bean);
+                        if (number == null)
+                            return null;
+                        return number instanceof Double || number instanceof Float ? toString(number.doubleValue()) : number.toString();
+                }
+            }
+            catch (Throwable x)
+            {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Cannot read " + _attribute._name + " of " + _bean, x);
+                return null;
+            }
+        }
+
+        private static String toString(double value)
+        {
+            if (Double.isNaN(value))
+                return "NaN";
+            if (Double.isInfinite(value))
+                return value > 0 ? "+Inf" : "-Inf";
+            return Double.toString(value);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.openmetrics;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpTester;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.server.handler.StatisticsHandler;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.endsWith;
+
+public class OpenMetricsHandlerTest
+{
+    private Server _server;
+    private LocalConnector _connector;
+
+    @Before
+    public void prepare() throws Exception
+    {
+        _server = new Server();
+        _connector = new LocalConnector(_server);
+        _server.addConnector(_connector);
+
+        OpenMetricsHandler metrics = new OpenMetricsHandler();
+        StatisticsHandler statistics = new StatisticsHandler();
+        statistics.setHandler(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                baseRequest.setHandled(true);
+            }
+        });
+        metrics.setHandler(statistics);
+        _server.setHandler(metrics);
+        _server.start();
+    }
+
+    @After
+    public void dispose() throws Exception
+    {
+        _server.stop();
+    }
+
+    @Test
+    public void testMetrics() throws Exception
+    {
+        HttpTester.Response response = HttpTester.parseResponse(_connector.getResponse("GET /app HTTP/1.1\r\nHost: localhost\r\n\r\n"));
+        Assert.assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+
+        response = HttpTester.parseResponse(_connector.getResponse("GET /metrics HTTP/1.1\r\nHost: localhost\r\n\r\n"));
+        Assert.assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        Assert.assertEquals(OpenMetricsRegistry.CONTENT_TYPE, response.get(HttpHeader.CONTENT_TYPE));
+        String content = response.getContent();
+        Assert.assertThat(content, containsString("# TYPE jetty_queued_thread_pool_threads gauge\n"));
+        Assert.assertThat(content, containsString("jetty_queued_thread_pool_max_threads{id=\"0\"} 200\n"));
+        Assert.assertThat(content, containsString("jetty_statistics_handler_responses2xx{id=\"0\"} 1\n"));
+        Assert.assertThat(content, endsWith("# EOF\n"));
+    }
+
+    @Test
+    public void testMethodNotAllowed() throws Exception
+    {
+        HttpTester.Response response = HttpTester.parseResponse(_connector.getResponse("POST /metrics HTTP/1.1\r\nHost: localhost\r\nContent-Length: 0\r\n\r\n"));
+        Assert.assertEquals(HttpServletResponse.SC_METHOD_NOT_ALLOWED, response.getStatus());
+    }
+}
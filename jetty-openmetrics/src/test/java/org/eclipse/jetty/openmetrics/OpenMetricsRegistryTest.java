@@ -0,0 +1,135 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.openmetrics;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.not;
+
+public class OpenMetricsRegistryTest
+{
+    @Test
+    public void testMetricName()
+    {
+        Assert.assertEquals("queued_thread_pool", OpenMetricsRegistry.toMetricName("QueuedThreadPool"));
+        Assert.assertEquals("request_time99", OpenMetricsRegistry.toMetricName("requestTime99"));
+        Assert.assertEquals("ssl_connection_factory", OpenMetricsRegistry.toMetricName("SSLConnectionFactory"));
+        Assert.assertEquals("max_idle_time", OpenMetricsRegistry.toMetricName("max-idle.time"));
+    }
+
+    @Test
+    public void testMetrics() throws Exception
+    {
+        ContainerLifeCycle container = new ContainerLifeCycle();
+        OpenMetricsRegistry registry = new OpenMetricsRegistry();
+        container.addBean(registry);
+
+        Counter counter1 = new Counter();
+        counter1.count = 3;
+        container.addBean(counter1);
+        Counter counter2 = new ExtendedCounter();
+        counter2.count = 5;
+        container.addBean(counter2);
+
+        String metrics = registry.write();
+        Assert.assertThat(metrics, containsString("# TYPE jetty_counter_count gauge\n# HELP jetty_counter_count The count\n"));
+        Assert.assertThat(metrics, containsString("jetty_counter_count{id=\"0\"} 3\n"));
+        Assert.assertThat(metrics, containsString("jetty_counter_count{id=\"1\"} 5\n"));
+        Assert.assertThat(metrics, containsString("jetty_counter_ratio{id=\"0\"} 0.5\n"));
+        Assert.assertThat(metrics, containsString("jetty_counter_enabled{id=\"0\"} 1\n"));
+        Assert.assertThat(metrics, containsString("jetty_counter_boxed{id=\"0\"} 7\n"));
+        Assert.assertThat(metrics, containsString("jetty_counter_renamed{id=\"0\"} 11\n"));
+        // Non numeric attributes, attributes returning null and failing getters are omitted.
+        Assert.assertThat(metrics, not(containsString("jetty_counter_name")));
+        Assert.assertThat(metrics, not(containsString("jetty_counter_missing")));
+        Assert.assertThat(metrics, not(containsString("jetty_counter_failing")));
+        Assert.assertThat(metrics, endsWith("# EOF\n"));
+
+        // Values are read at every write.
+        counter1.count = 4;
+        Assert.assertThat(registry.write(), containsString("jetty_counter_count{id=\"0\"} 4\n"));
+
+        container.removeBean(counter2);
+        Assert.assertThat(registry.write(), not(containsString("jetty_counter_count{id=\"1\"}")));
+    }
+
+    @ManagedObject("A counter")
+    public static class Counter
+    {
+        private volatile long count;
+
+        @ManagedAttribute("The count")
+        public long getCount()
+        {
+            return count;
+        }
+
+        @ManagedAttribute("The ratio")
+        public double getRatio()
+        {
+            return 0.5;
+        }
+
+        @ManagedAttribute("Whether enabled")
+        public boolean isEnabled()
+        {
+            return true;
+        }
+
+        @ManagedAttribute("A boxed value")
+        public Integer getBoxed()
+        {
+            return 7;
+        }
+
+        @ManagedAttribute(value = "A renamed value", name = "renamed")
+        public int getValue()
+        {
+            return 11;
+        }
+
+        @ManagedAttribute("The name")
+        public String getName()
+        {
+            return "counter";
+        }
+
+        @ManagedAttribute("A missing value")
+        public Long getMissing()
+        {
+            return null;
+        }
+
+        @ManagedAttribute("A failing value")
+        public long getFailing()
+        {
+            throw new IllegalStateException();
+        }
+    }
+
+    private static class ExtendedCounter extends Counter
+    {
+    }
+}
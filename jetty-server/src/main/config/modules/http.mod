@@ -10,6 +10,9 @@ http
 [depend]
 server
 
+[optional]
+timing-wheel-scheduler
+
 [xml]
 etc/jetty-http.xml
 
@@ -37,12 +40,18 @@ etc/jetty-http.xml
 ## ServerSocketChannel backlog (0 picks platform default)
 # jetty.http.acceptorQueueSize=0
 
+## Whether to open one listening socket per selector (or acceptor) with SO_REUSEPORT
+# jetty.http.reusePort=false
+
 ## Thread priority delta to give to acceptor threads
 # jetty.http.acceptorPriorityDelta=0
 
 ## Reserve threads for high priority tasks (-1 use a heuristic, 0 no reserved threads)
 # jetty.http.reservedThreads=-1
 
+## Idle timeout in milliseconds after which a reserved thread is released (0 never)
+# jetty.http.reservedThreadsIdleTimeout=0
+
 ## Connect Timeout in milliseconds
 # jetty.http.connectTimeout=15000
 
@@ -10,6 +10,9 @@ ssl
 [depend]
 server
 
+[optional]
+timing-wheel-scheduler
+
 [xml]
 etc/jetty-ssl.xml
 etc/jetty-ssl-context.xml
@@ -47,6 +50,9 @@ basehome:modules/ssl/keystore|etc/keystore
 ## Preallocated producer threads (0 disables EatWhatYouKill scheduling)
 # jetty.ssl.reservedThreads=-1
 
+## Idle timeout in milliseconds after which a reserved thread is released (0 never)
+# jetty.ssl.reservedThreadsIdleTimeout=0
+
 ## Connect Timeout in milliseconds
 # jetty.ssl.connectTimeout=15000
 
@@ -0,0 +1,17 @@
+[description]
+Uses a hierarchical timing wheel scheduler for the
+connectors idle timeouts and other server timeouts,
+in place of the default ScheduledExecutorScheduler.
+
+[tags]
+connector
+
+[depend]
+server
+
+[xml]
+etc/jetty-timing-wheel-scheduler.xml
+
+[ini-template]
+## The duration in milliseconds of a tick of the timing wheel
+# jetty.scheduler.tickMillis=10
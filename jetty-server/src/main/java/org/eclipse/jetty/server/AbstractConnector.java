@@ -39,6 +39,7 @@ import java.util.concurrent.locks.Condition;
 
 import org.eclipse.jetty.io.ArrayByteBufferPool;
 import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.Connection;
 import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.io.ssl.SslConnection;
 import org.eclipse.jetty.util.FutureCallback;
@@ -877,6 +878,23 @@ public abstract class AbstractConnector extends ContainerLifeCycle implements Co
         return _immutableEndPoints;
     }
 
+    /**
+     * @return the total capacity in bytes of the buffers retained by the connections waiting to read
+     * @see Connection#getRetainedBufferBytes()
+     */
+    @ManagedAttribute("The bytes of the buffers retained by idle connections")
+    public long getIdleBufferBytes()
+    {
+        long bytes = 0;
+        for (EndPoint endPoint : _endpoints)
+        {
+            Connection connection = endPoint.getConnection();
+            if (connection != null && endPoint.isFillInterested())
+                bytes += connection.getRetainedBufferBytes();
+        }
+        return bytes;
+    }
+
     /**
      * 在终端开启时的回调
      *
@@ -211,6 +211,19 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
         return _requestBuffer;
     }
 
+    @Override
+    public long getRetainedBufferBytes()
+    {
+        long bytes = 0;
+        ByteBuffer buffer = _requestBuffer;
+        if (buffer != null)
+            bytes += buffer.capacity();
+        buffer = _chunk;
+        if (buffer != null)
+            bytes += buffer.capacity();
+        return bytes;
+    }
+
     public boolean isRequestBufferEmpty()
     {
         return BufferUtil.isEmpty(_requestBuffer);
@@ -441,6 +454,9 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
                 // if the buffer is empty
                 if (BufferUtil.isEmpty(_requestBuffer))
                 {
+                    // do not retain an empty buffer while idle
+                    if (_contentBufferReferences.get()==0)
+                        releaseRequestBuffer();
                     // look for more data
                     fillInterested();
                 }
@@ -0,0 +1,527 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.server;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import javax.servlet.MultipartConfigElement;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.Part;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.MultiPartParser;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.IO;
+import org.eclipse.jetty.util.Promise;
+import org.eclipse.jetty.util.QuotedStringTokenizer;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+/**
+ * <p>A {@link ReadListener} that parses {@code multipart/form-data} content with
+ * a {@link MultiPartParser} as it arrives, so that a large upload does not hold
+ * a thread while the client sends it.</p>
+ * <p>As with {@link org.eclipse.jetty.util.MultiPartInputStreamParser}, the content
+ * of a part with a file name is written to a temporary file, unless
+ * {@link #setWriteFilesWithFilenames(boolean)} is false. The content of other parts
+ * is kept in memory until it exceeds the file size threshold of the
+ * {@link MultipartConfigElement}, and is then written to a temporary file with a
+ * {@link FileChannel}, directly from the read buffer.
+ * The max file size and max request size of the configuration are enforced as
+ * the content arrives.</p>
+ * <p>When all the content has been read, the promise is succeeded with the parts,
+ * whose temporary files must be deleted by the application, for example with
+ * {@link #deleteParts()}. If the parsing fails, the temporary files are deleted
+ * and the promise is failed.</p>
+ * <p>Usage:</p>
+ * <pre>
+ * AsyncContext async = request.startAsync();
+ * ServletInputStream input = request.getInputStream();
+ * input.setReadListener(new MultiPartReadListener(input, request.getContentType(), config, tmpDir, new Promise&lt;Collection&lt;Part&gt;&gt;()
+ * {
+ *     public void succeeded(Collection&lt;Part&gt; parts) { ...; async.complete(); }
+ *     public void failed(Throwable x) { ...; async.complete(); }
+ * }));
+ * </pre>
+ */
+public class MultiPartReadListener implements ReadListener, MultiPartParser.Handler
+{
+    private static final Logger LOG = Log.getLogger(MultiPartReadListener.class);
+    private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+
+    private final ServletInputStream _input;
+    private final MultipartConfigElement _config;
+    private final File _tmpDir;
+    private final Promise<Collection<Part>> _promise;
+    private final MultiPartParser _parser;
+    private final byte[] _buffer;
+    private final List<MultiPart> _parts = new ArrayList<>();
+    private HttpFields _fields;
+    private MultiPart _part;
+    private long _total;
+    private boolean _done;
+    private boolean _writeFilesWithFilenames = true;
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param input the input stream of the request
+     * @param contentType the Content-Type header of the request
+     * @param config the multipart configuration, or null for the default configuration
+     * @param contextTmpDir the temporary directory of the context, or null for {@code java.io.tmpdir}
+     * @param promise the promise of the parts
+     * @throws IllegalArgumentException if the content type is not {@code multipart/form-data} with a boundary
+     */
+    public MultiPartReadListener(ServletInputStream input, String contentType, MultipartConfigElement config, File contextTmpDir, Promise<Collection<Part>> promise)
+    {
+        String boundary = getBoundary(contentType);
+        if (boundary == null)
+            throw new IllegalArgumentException("Not multipart/form-data: " + contentType);
+
+        if (contextTmpDir == null)
+            contextTmpDir = new File(System.getProperty("java.io.tmpdir"));
+        if (config == null)
+            config = new MultipartConfigElement(contextTmpDir.getAbsolutePath());
+
+        File tmpDir = contextTmpDir;
+        String location = config.getLocation();
+        if (location != null && !location.isEmpty())
+        {
+            File file = new File(location);
+            tmpDir = file.isAbsolute() ? file : new File(contextTmpDir, location);
+        }
+
+        _input = input;
+        _config = config;
+        _tmpDir = tmpDir;
+        _promise = promise;
+        _parser = new MultiPartParser(this, boundary);
+        _buffer = new byte[8 * 1024];
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param contentType the Content-Type header of a request
+     * @return the boundary of the {@code multipart/form-data} content, or null if the content is not multipart
+     */
+    public static String getBoundary(String contentType)
+    {
+        if (contentType == null || !contentType.startsWith("multipart/form-data"))
+            return null;
+        int start = contentType.indexOf("boundary=");
+        if (start < 0)
+            return null;
+        int end = contentType.indexOf(';', start);
+        String boundary = contentType.substring(start + "boundary=".length(), end < 0 ? contentType.length() : end);
+        boundary = QuotedStringTokenizer.unquote(boundary.trim());
+        return boundary.isEmpty() ? null : boundary;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the parts parsed so far
+     */
+    public Collection<Part> getParsedParts()
+    {
+        return Collections.unmodifiableList(new ArrayList<>(_parts));
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return whether the content of the parts with a file name is written to a file
+     * regardless of the file size threshold
+     */
+    public boolean isWriteFilesWithFilenames()
+    {
+        return _writeFilesWithFilenames;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param writeFilesWithFilenames whether the content of the parts with a file name
+     * is written to a file regardless of the file size threshold
+     */
+    public void setWriteFilesWithFilenames(boolean writeFilesWithFilenames)
+    {
+        _writeFilesWithFilenames = writeFilesWithFilenames;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Deletes the temporary files of the parts.
+     */
+    public void deleteParts()
+    {
+        for (MultiPart part : _parts)
+            part.cleanUp();
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public void onDataAvailable() throws IOException
+    {
+        try
+        {
+            while (!_done && _input.isReady())
+            {
+                int read = _input.read(_buffer);
+                if (read < 0)
+                    break;
+                _total += read;
+                if (_config.getMaxRequestSize() > 0 && _total > _config.getMaxRequestSize())
+                    throw new IllegalStateException("Request exceeds maxRequestSize (" + _config.getMaxRequestSize() + ")");
+                _parser.parse(ByteBuffer.wrap(_buffer, 0, read), false);
+            }
+        }
+        catch (Throwable x)
+        {
+            fail(x);
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public void onAllDataRead() throws IOException
+    {
+        try
+        {
+            if (_done)
+                return;
+            _parser.parse(BufferUtil.EMPTY_BUFFER, true);
+            if (!_parser.isComplete())
+                throw new IOException("Incomplete parts");
+            _done = true;
+            _promise.succeeded(getParsedParts());
+        }
+        catch (Throwable x)
+        {
+            fail(x);
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public void onError(Throwable x)
+    {
+        fail(x);
+    }
+
+    /* ------------------------------------------------------------ */
+    private void fail(Throwable x)
+    {
+        if (_done)
+        {
+            LOG.ignore(x);
+            return;
+        }
+        _done = true;
+        if (LOG.isDebugEnabled())
+            LOG.debug("Failed " + this, x);
+        if (_part != null)
+            _part.close();
+        deleteParts();
+        _promise.failed(x);
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public void startPart()
+    {
+        _fields = new HttpFields();
+        _part = null;
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public void parsedField(String name, String value)
+    {
+        _fields.add(name, value);
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public void headerComplete()
+    {
+        String contentDisposition = _fields.get("Content-Disposition");
+        if (contentDisposition == null)
+            throw new IllegalStateException("Missing content-disposition");
+
+        boolean formData = false;
+        String name = null;
+        String filename = null;
+        QuotedStringTokenizer tok = new QuotedStringTokenizer(contentDisposition, ";", false, true);
+        while (tok.hasMoreTokens())
+        {
+            String t = tok.nextToken().trim();
+            String tl = t.toLowerCase(Locale.ENGLISH);
+            if (tl.startsWith("form-data"))
+                formData = true;
+            else if (tl.startsWith("name="))
+                name = value(t, false);
+            else if (tl.startsWith("filename="))
+                filename = value(t, true);
+        }
+
+        // Parts that are not form data or have no name are skipped.
+        if (formData && name != null)
+        {
+            _part = new MultiPart(name, filename, _fields);
+            _parts.add(_part);
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public void content(ByteBuffer buffer, boolean last)
+    {
+        if (_part == null)
+            return;
+        try
+        {
+            _part.write(buffer);
+            if (last)
+                _part.close();
+        }
+        catch (IOException x)
+        {
+            throw new IllegalStateException(x);
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    private static String value(String nameEqualsValue, boolean lenient)
+    {
+        int idx = nameEqualsValue.indexOf('=');
+        String value = nameEqualsValue.substring(idx + 1).trim();
+        // Browsers do not escape the backslashes of file names.
+        return QuotedStringTokenizer.unquoteOnly(value, lenient);
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{%s,parts=%d,total=%d}", getClass().getSimpleName(), hashCode(), _parser, _parts.size(), _total);
+    }
+
+    /* ------------------------------------------------------------ */
+    /* ------------------------------------------------------------ */
+    /**
+     * A part whose content is in memory or in a temporary file.
+     */
+    public class MultiPart implements Part
+    {
+        private final String _name;
+        private final String _filename;
+        private final HttpFields _headers;
+        private byte[] _bytes = new byte[256];
+        private long _size;
+        private File _file;
+        private FileChannel _channel;
+        private boolean _temporary = true;
+
+        private MultiPart(String name, String filename, HttpFields headers)
+        {
+            _name = name;
+            _filename = filename;
+            _headers = headers;
+        }
+
+        private void write(ByteBuffer buffer) throws IOException
+        {
+            int length = buffer.remaining();
+            long maxFileSize = _config.getMaxFileSize();
+            if (maxFileSize > 0 && _size + length > maxFileSize)
+                throw new IllegalStateException("Multipart Mime part " + _name + " exceeds max filesize");
+
+            long size = _size + length;
+            if (_file == null && (isFileUpload() || exceedsThreshold(size)))
+                createFile();
+
+            if (_channel != null)
+            {
+                while (buffer.hasRemaining())
+                    _channel.write(buffer);
+            }
+            else
+            {
+                if (size > _bytes.length)
+                    _bytes = Arrays.copyOf(_bytes, (int)Math.min(MAX_BUFFER_SIZE, Math.max(_bytes.length * 2L, size)));
+                buffer.get(_bytes, (int)_size, length);
+            }
+            _size = size;
+        }
+
+        private boolean isFileUpload()
+        {
+            return isWriteFilesWithFilenames() && _filename != null && _filename.trim().length() > 0;
+        }
+
+        private boolean exceedsThreshold(long size)
+        {
+            // The content in memory never exceeds the max size of an array.
+            int threshold = _config.getFileSizeThreshold();
+            return threshold > 0 && size > threshold || size > MAX_BUFFER_SIZE;
+        }
+
+        private void createFile() throws IOException
+        {
+            if (!_tmpDir.exists())
+                _tmpDir.mkdirs();
+            _file = File.createTempFile("MultiPart", "", _tmpDir);
+            _file.setReadable(false, false);
+            _file.setReadable(true, true);
+            _channel = FileChannel.open(_file.toPath(), StandardOpenOption.WRITE);
+            if (_size > 0)
+            {
+                ByteBuffer buffer = ByteBuffer.wrap(_bytes, 0, (int)_size);
+                while (buffer.hasRemaining())
+                    _channel.write(buffer);
+            }
+            _bytes = null;
+        }
+
+        private void close()
+        {
+            IO.close(_channel);
+            _channel = null;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException
+        {
+            if (_file != null)
+                return new BufferedInputStream(Files.newInputStream(_file.toPath()));
+            return new ByteArrayInputStream(_bytes, 0, (int)_size);
+        }
+
+        @Override
+        public String getContentType()
+        {
+            return _headers.get(HttpHeader.CONTENT_TYPE);
+        }
+
+        @Override
+        public String getName()
+        {
+            return _name;
+        }
+
+        @Override
+        public String getSubmittedFileName()
+        {
+            return _filename;
+        }
+
+        @Override
+        public long getSize()
+        {
+            return _size;
+        }
+
+        /**
+         * @return the file the content has been written to, or null if the content is in memory
+         */
+        public File getFile()
+        {
+            return _file;
+        }
+
+        @Override
+        public void write(String fileName) throws IOException
+        {
+            _temporary = false;
+            if (_file == null)
+            {
+                _file = new File(_tmpDir, fileName);
+                try (OutputStream out = Files.newOutputStream(_file.toPath()))
+                {
+                    out.write(_bytes, 0, (int)_size);
+                }
+                _bytes = null;
+            }
+            else
+            {
+                Path target = _file.toPath().resolveSibling(fileName);
+                Files.move(_file.toPath(), target, StandardCopyOption.REPLACE_EXISTING);
+                _file = target.toFile();
+            }
+        }
+
+        @Override
+        public void delete() throws IOException
+        {
+            if (_file != null && _file.exists())
+                _file.delete();
+        }
+
+        /**
+         * Deletes the file of the content, unless it was written with {@link #write(String)}.
+         */
+        public void cleanUp()
+        {
+            close();
+            if (_temporary && _file != null && _file.exists())
+                _file.delete();
+        }
+
+        @Override
+        public String getHeader(String name)
+        {
+            return name == null ? null : _headers.get(name);
+        }
+
+        @Override
+        public Collection<String> getHeaders(String name)
+        {
+            return _headers.getValuesList(name);
+        }
+
+        @Override
+        public Collection<String> getHeaderNames()
+        {
+            return _headers.getFieldNamesCollection();
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("Part{n=%s,fn=%s,ct=%s,s=%d,t=%b,f=%s}", _name, _filename, getContentType(), _size, _temporary, _file);
+        }
+    }
+}
@@ -87,6 +87,7 @@ import org.eclipse.jetty.util.MultiPartInputStreamParser;
 import org.eclipse.jetty.util.StringUtil;
 import org.eclipse.jetty.util.URIUtil;
 import org.eclipse.jetty.util.UrlEncoded;
+import org.eclipse.jetty.util.UrlEncodedParser;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 
@@ -188,6 +189,9 @@ public class Request implements HttpServletRequest
     private int _inputState = __NONE;
     private MultiMap<String> _queryParameters;
     private MultiMap<String> _contentParameters;
+    private UrlEncodedParser _formParser;
+    // Whether the content parameters are only held by the form parser.
+    private boolean _formFields;
     private MultiMap<String> _parameters;
     private String _queryEncoding;
     private BufferedReader _reader;
@@ -354,9 +358,9 @@ public class Request implements HttpServletRequest
     }
 
     /* ------------------------------------------------------------ */
-    private MultiMap<String> getParameters()
+    private void extractParameters()
     {
-        if (!_contentParamsExtracted) 
+        if (!_contentParamsExtracted)
         {
             // content parameters need boolean protection as they can only be read
             // once, but may be reset to null by a reset
@@ -391,6 +395,19 @@ public class Request implements HttpServletRequest
                 throw new BadMessageException("Unable to parse URI query", e);
             }
         }
+    }
+
+    /* ------------------------------------------------------------ */
+    private MultiMap<String> getParameters()
+    {
+        extractParameters();
+
+        // The form fields are decoded to a map only when all the parameters are needed.
+        if (_formFields)
+        {
+            _formFields = false;
+            _formParser.decodeTo(_contentParameters,-1);
+        }
 
         // Do parameters need to be combined?
         if (_queryParameters==NO_PARAMS || _queryParameters.size()==0)
@@ -454,7 +471,7 @@ public class Request implements HttpServletRequest
                 if (MimeTypes.Type.FORM_ENCODED.is(contentType) && _inputState == __NONE &&
                     _channel.getHttpConfiguration().isFormEncodedMethod(getMethod()))
                 {
-                    extractFormParameters(_contentParameters);
+                    extractFormParameters(_contentParameters,true);
                 }
                 else if (contentType.startsWith("multipart/form-data") &&
                         getAttribute(__MULTIPART_CONFIG_ELEMENT) != null &&
@@ -470,6 +487,24 @@ public class Request implements HttpServletRequest
     /* ------------------------------------------------------------ */
     public void extractFormParameters(MultiMap<String> params)
     {
+        extractFormParameters(params,false);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param params the map to add the form fields to
+     * @param lazy whether the form fields may be kept by the form parser,
+     * and only added to the map when all the parameters are needed
+     */
+    private void extractFormParameters(MultiMap<String> params, boolean lazy)
+    {
+        // The parser is about to be reset, so it can no longer hold the content parameters.
+        if (_formFields)
+        {
+            _formFields = false;
+            _formParser.decodeTo(_contentParameters,-1);
+        }
+
         try
         {
             int maxFormContentSize = -1;
@@ -522,7 +557,27 @@ public class Request implements HttpServletRequest
             if (_input.isAsync())
                 throw new IllegalStateException("Cannot extract parameters with async IO");
 
-            UrlEncoded.decodeTo(in,params,getCharacterEncoding(),contentLength<0?maxFormContentSize:-1,maxFormKeys);
+            int maxLength = contentLength<0?maxFormContentSize:-1;
+            Charset charset = getFormCharset();
+            if (charset==null)
+            {
+                UrlEncoded.decodeTo(in,params,getCharacterEncoding(),maxLength,maxFormKeys);
+            }
+            else
+            {
+                // The parser is reused by the next requests of the connection.
+                if (_formParser==null)
+                    _formParser = new UrlEncodedParser();
+                _formParser.reset(charset,maxLength);
+                _formParser.parse(in);
+                _formParser.complete();
+                // Fewer fields than the max number of keys cannot have too many keys,
+                // so they can be looked up in the parser without decoding them all.
+                if (lazy && (maxFormKeys<=0 || _formParser.size()<=maxFormKeys))
+                    _formFields=true;
+                else
+                    _formParser.decodeTo(params,maxFormKeys);
+            }
         }
         catch (IOException e)
         {
@@ -533,6 +588,22 @@ public class Request implements HttpServletRequest
         }
     }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the charset of a form that can be decoded by a {@link UrlEncodedParser}, or null
+     */
+    private Charset getFormCharset()
+    {
+        String encoding = getCharacterEncoding();
+        if (encoding==null)
+            encoding=UrlEncoded.ENCODING.name();
+        if (StringUtil.__UTF8.equalsIgnoreCase(encoding))
+            return StandardCharsets.UTF_8;
+        if (StringUtil.__ISO_8859_1.equalsIgnoreCase(encoding))
+            return StandardCharsets.ISO_8859_1;
+        return null;
+    }
+
     /* ------------------------------------------------------------ */
     private void extractMultipartParameters(MultiMap<String> result)
     {
@@ -1016,6 +1087,13 @@ public class Request implements HttpServletRequest
     @Override
     public String getParameter(String name)
     {
+        extractParameters();
+        if (_formFields)
+        {
+            // The query parameters come before the form fields.
+            String value = _queryParameters.getValue(name,0);
+            return value!=null?value:_formParser.getValue(name);
+        }
         return getParameters().getValue(name,0);
     }
 
@@ -1046,7 +1124,22 @@ public class Request implements HttpServletRequest
     @Override
     public String[] getParameterValues(String name)
     {
-        List<String> vals = getParameters().getValues(name);
+        extractParameters();
+        List<String> vals;
+        if (_formFields)
+        {
+            vals = _queryParameters.getValues(name);
+            List<String> fields = _formParser.getValues(name);
+            if (vals == null)
+                vals = fields;
+            else if (fields != null)
+            {
+                vals = new ArrayList<>(vals);
+                vals.addAll(fields);
+            }
+        }
+        else
+            vals = getParameters().getValues(name);
         if (vals == null)
             return null;
         return vals.toArray(new String[vals.size()]);
@@ -1068,6 +1161,7 @@ public class Request implements HttpServletRequest
     public void setContentParameters(MultiMap<String> contentParameters)
     {
         _contentParameters = contentParameters;
+        _formFields = false;
     }
 
     /* ------------------------------------------------------------ */
@@ -1856,6 +1950,11 @@ public class Request implements HttpServletRequest
         _timeStamp = 0;
         _queryParameters = null;
         _contentParameters = null;
+        // Keep the parser for the next request of the connection; reset()
+        // does not retain its arrays if they have grown too large.
+        if (_formParser != null)
+            _formParser.reset(null,-1);
+        _formFields = false;
         _parameters = null;
         _contentParamsExtracted = false;
         _inputState = __NONE;
@@ -65,6 +65,7 @@ import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 import org.eclipse.jetty.util.thread.Locker;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.Scheduler;
 import org.eclipse.jetty.util.thread.ShutdownThread;
 import org.eclipse.jetty.util.thread.ThreadPool;
 import org.eclipse.jetty.util.thread.ThreadPool.SizedThreadPool;
@@ -169,6 +170,27 @@ public class Server extends HandlerWrapper implements Attributes
             errorHandler.setServer(this);
     }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the {@link Scheduler} shared by the connectors that are not given their own, or null
+     */
+    public Scheduler getScheduler()
+    {
+        return getBean(Scheduler.class);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Set the {@link Scheduler} shared by the connectors that are not given their own.
+     * Replaces the {@link Scheduler} previously set or added as a bean, so it must
+     * be set before the connectors are created.
+     * @param scheduler the shared scheduler
+     */
+    public void setScheduler(Scheduler scheduler)
+    {
+        updateBean(getScheduler(),scheduler);
+    }
+
     /* ------------------------------------------------------------ */
     @ManagedAttribute("version of this server")
     public static String getVersion()
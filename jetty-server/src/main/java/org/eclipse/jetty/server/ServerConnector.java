@@ -24,6 +24,8 @@ import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
 import java.nio.channels.Channel;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
@@ -41,7 +43,9 @@ import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.io.ManagedSelector;
 import org.eclipse.jetty.io.SelectorManager;
 import org.eclipse.jetty.io.SocketChannelEndPoint;
+import org.eclipse.jetty.io.WriteCoalescer;
 import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.IO;
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
 import org.eclipse.jetty.util.annotation.Name;
@@ -76,18 +80,45 @@ import org.eclipse.jetty.util.thread.Scheduler;
  * The default number of selectors is equal to half of the number of processors available to the JVM,
  * which should allow optimal performance even if all the connections used are performing
  * significant non-blocking work in the callback tasks.
+ * <h2>Reuse Port</h2>
+ * On platforms that support {@code SO_REUSEPORT} (for example Linux 3.9+ with Java 9+), the connector
+ * may be configured with {@link #setReusePort(boolean)} to open one listening socket per selector
+ * (or per acceptor, if acceptors are used), all bound to the same port. The kernel then spreads
+ * incoming connections over the sockets, and each accepted connection stays on the selector paired
+ * with the socket that accepted it.
  */
 @ManagedObject("HTTP connector using NIO ByteChannels and Selectors")
 public class ServerConnector extends AbstractNetworkConnector
 {
+    /**
+     * {@code StandardSocketOptions.SO_REUSEPORT}, only available since Java 9.
+     */
+    private static final SocketOption<Boolean> REUSE_PORT = findReusePortOption();
+
+    @SuppressWarnings("unchecked")
+    private static SocketOption<Boolean> findReusePortOption()
+    {
+        try
+        {
+            return (SocketOption<Boolean>)StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+        }
+        catch (Throwable x)
+        {
+            return null;
+        }
+    }
+
     private final SelectorManager _manager;
     private final AtomicReference<Closeable> _acceptor = new AtomicReference<>();
     private volatile ServerSocketChannel _acceptChannel;
+    private volatile ServerSocketChannel[] _acceptChannels;
     private volatile boolean _inheritChannel = false;
     private volatile int _localPort = -1;
     private volatile int _acceptQueueSize = 0;
     private volatile boolean _reuseAddress = true;
+    private volatile boolean _reusePort = false;
     private volatile int _lingerTime = -1;
+    private volatile WriteCoalescer _writeCoalescer;
 
     /**
      * <p>Construct a ServerConnector with a private instance of {@link HttpConnectionFactory} as the only factory.</p>
@@ -238,10 +269,30 @@ public class ServerConnector extends AbstractNetworkConnector
         super.doStart();
 
         if (getAcceptors()==0)
+            _acceptor.set(newAcceptor());
+    }
+
+    private Closeable newAcceptor() throws IOException
+    {
+        ServerSocketChannel[] channels = _acceptChannels;
+        if (channels==null)
         {
             _acceptChannel.configureBlocking(false);
-            _acceptor.set(_manager.acceptor(_acceptChannel));
+            return _manager.acceptor(_acceptChannel);
+        }
+
+        // Each listening socket is paired with its own selector.
+        Closeable[] acceptors = new Closeable[channels.length];
+        for (int i=0;i<channels.length;i++)
+        {
+            channels[i].configureBlocking(false);
+            acceptors[i] = _manager.acceptor(channels[i],i);
         }
+        return () ->
+        {
+            for (Closeable acceptor : acceptors)
+                acceptor.close();
+        };
     }
 
     @Override
@@ -305,9 +356,50 @@ public class ServerConnector extends AbstractNetworkConnector
             if (_localPort <= 0)
                 throw new IOException("Server channel not bound");
             addBean(_acceptChannel);
+            if (getReusePort())
+                openReusePortChannels();
         }
     }
 
+    /**
+     * <p>Opens the additional listening sockets bound with {@code SO_REUSEPORT},
+     * one per acceptor or, if there are no acceptors, one per selector.</p>
+     *
+     * @throws IOException if the additional sockets cannot be opened
+     */
+    private void openReusePortChannels() throws IOException
+    {
+        if (REUSE_PORT==null || !Boolean.TRUE.equals(_acceptChannel.getOption(REUSE_PORT)))
+        {
+            LOG.warn("SO_REUSEPORT not available, using a single listening socket for {}", this);
+            return;
+        }
+
+        int count = getAcceptors()>0 ? getAcceptors() : _manager.getSelectorCount();
+        ServerSocketChannel[] channels = new ServerSocketChannel[count];
+        channels[0] = _acceptChannel;
+        try
+        {
+            InetSocketAddress bindAddress = getHost() == null ? new InetSocketAddress(_localPort) : new InetSocketAddress(getHost(), _localPort);
+            for (int i=1;i<count;i++)
+            {
+                ServerSocketChannel channel = ServerSocketChannel.open();
+                channels[i] = channel;
+                channel.socket().setReuseAddress(getReuseAddress());
+                channel.setOption(REUSE_PORT,true);
+                channel.socket().bind(bindAddress, getAcceptQueueSize());
+                channel.configureBlocking(true);
+            }
+        }
+        catch (IOException e)
+        {
+            for (int i=1;i<count;i++)
+                IO.close(channels[i]);
+            throw e;
+        }
+        _acceptChannels = channels;
+    }
+
     /**
      * Called by {@link #open()} to obtain the accepting channel.
      * @return ServerSocketChannel used to accept connections.
@@ -331,6 +423,8 @@ public class ServerConnector extends AbstractNetworkConnector
 
             InetSocketAddress bindAddress = getHost() == null ? new InetSocketAddress(getPort()) : new InetSocketAddress(getHost(), getPort());
             serverChannel.socket().setReuseAddress(getReuseAddress());
+            if (getReusePort() && REUSE_PORT!=null && serverChannel.supportedOptions().contains(REUSE_PORT))
+                serverChannel.setOption(REUSE_PORT,true);
             serverChannel.socket().bind(bindAddress, getAcceptQueueSize());
         }
 
@@ -348,7 +442,15 @@ public class ServerConnector extends AbstractNetworkConnector
     public void close()
     {
         super.close();
-        
+
+        ServerSocketChannel[] channels = _acceptChannels;
+        _acceptChannels = null;
+        if (channels != null)
+        {
+            for (int i = 1; i < channels.length; i++)
+                IO.close(channels[i]);
+        }
+
         ServerSocketChannel serverChannel = _acceptChannel;
         _acceptChannel = null;
         if (serverChannel != null)
@@ -373,6 +475,18 @@ public class ServerConnector extends AbstractNetworkConnector
     @Override
     public void accept(int acceptorID) throws IOException
     {
+        ServerSocketChannel[] channels = _acceptChannels;
+        if (channels != null)
+        {
+            ServerSocketChannel serverChannel = channels[acceptorID % channels.length];
+            if (serverChannel.isOpen())
+            {
+                SocketChannel channel = serverChannel.accept();
+                accepted(channel, acceptorID);
+            }
+            return;
+        }
+
         ServerSocketChannel serverChannel = _acceptChannel;
         if (serverChannel != null && serverChannel.isOpen())
         {
@@ -389,6 +503,14 @@ public class ServerConnector extends AbstractNetworkConnector
         _manager.accept(channel);
     }
 
+    private void accepted(SocketChannel channel, int selector) throws IOException
+    {
+        channel.configureBlocking(false);
+        Socket socket = channel.socket();
+        configure(socket);
+        _manager.accept(channel, selector, null);
+    }
+
     protected void configure(Socket socket)
     {
         try
@@ -428,6 +550,7 @@ public class ServerConnector extends AbstractNetworkConnector
     {
         SocketChannelEndPoint endpoint = new SocketChannelEndPoint(channel, selectSet, key, getScheduler());
         endpoint.setIdleTimeout(getIdleTimeout());
+        endpoint.setWriteCoalescer(_writeCoalescer);
         return endpoint;
     }
 
@@ -485,6 +608,57 @@ public class ServerConnector extends AbstractNetworkConnector
         _reuseAddress = reuseAddress;
     }
 
+    /**
+     * @return whether the connector opens multiple listening sockets bound with {@code SO_REUSEPORT}
+     */
+    @ManagedAttribute("Whether multiple listening sockets are bound with SO_REUSEPORT")
+    public boolean getReusePort()
+    {
+        return _reusePort;
+    }
+
+    /**
+     * <p>Sets whether the connector opens multiple listening sockets bound with {@code SO_REUSEPORT}.</p>
+     * <p>If {@code SO_REUSEPORT} is not supported by the platform, a single listening socket is used.</p>
+     *
+     * @param reusePort whether the connector opens multiple listening sockets bound with {@code SO_REUSEPORT}
+     */
+    public void setReusePort(boolean reusePort)
+    {
+        _reusePort = reusePort;
+    }
+
+    /**
+     * @return the coalescer of small buffers written by the endpoints of this connector, or null
+     */
+    @ManagedAttribute("The coalescer of small buffers written by the endpoints")
+    public WriteCoalescer getWriteCoalescer()
+    {
+        return _writeCoalescer;
+    }
+
+    /**
+     * <p>Sets the coalescer of small buffers written by the endpoints of this connector.</p>
+     * <p>Only the endpoints created after this call use the given coalescer.</p>
+     *
+     * @param writeCoalescer the coalescer of small buffers, or null to not coalesce
+     */
+    public void setWriteCoalescer(WriteCoalescer writeCoalescer)
+    {
+        updateBean(_writeCoalescer, writeCoalescer);
+        _writeCoalescer = writeCoalescer;
+    }
+
+    /**
+     * @return the number of listening sockets bound with {@code SO_REUSEPORT}, or 0 if not in use
+     */
+    @ManagedAttribute("The number of listening sockets bound with SO_REUSEPORT")
+    public int getReusePortSockets()
+    {
+        ServerSocketChannel[] channels = _acceptChannels;
+        return channels == null ? 0 : channels.length;
+    }
+
    
     @Override
     public void setAccepting(boolean accepting)
@@ -499,7 +673,7 @@ public class ServerConnector extends AbstractNetworkConnector
             {
                 if (_acceptor.get()==null)
                 {
-                    Closeable acceptor = _manager.acceptor(_acceptChannel);
+                    Closeable acceptor = newAcceptor();
                     if (!_acceptor.compareAndSet(null,acceptor))
                         acceptor.close();
                 }
@@ -530,6 +704,12 @@ public class ServerConnector extends AbstractNetworkConnector
             ServerConnector.this.accepted((SocketChannel)channel);
         }
 
+        @Override
+        protected void accepted(SelectableChannel channel, int selector) throws IOException
+        {
+            ServerConnector.this.accepted((SocketChannel)channel, selector);
+        }
+
         @Override
         protected ChannelEndPoint newEndPoint(SelectableChannel channel, ManagedSelector selectSet, SelectionKey selectionKey) throws IOException
         {
@@ -37,6 +37,7 @@ public class SslConnectionFactory extends AbstractConnectionFactory
 {
     private final SslContextFactory _sslContextFactory;
     private final String _nextProtocol;
+    private boolean _minimizeIdleFootprint;
 
     public SslConnectionFactory()
     {
@@ -66,6 +67,24 @@ public class SslConnectionFactory extends AbstractConnectionFactory
         return _nextProtocol;
     }
 
+    /**
+     * @return whether the connections minimize their buffers when no bytes can be filled
+     * @see SslConnection#isMinimizeIdleFootprint()
+     */
+    public boolean isMinimizeIdleFootprint()
+    {
+        return _minimizeIdleFootprint;
+    }
+
+    /**
+     * @param minimizeIdleFootprint whether the connections minimize their buffers when no bytes can be filled
+     * @see SslConnection#setMinimizeIdleFootprint(boolean)
+     */
+    public void setMinimizeIdleFootprint(boolean minimizeIdleFootprint)
+    {
+        _minimizeIdleFootprint = minimizeIdleFootprint;
+    }
+
     @Override
     protected void doStart() throws Exception
     {
@@ -88,6 +107,7 @@ public class SslConnectionFactory extends AbstractConnectionFactory
         SslConnection sslConnection = newSslConnection(connector, endPoint, engine);
         sslConnection.setRenegotiationAllowed(_sslContextFactory.isRenegotiationAllowed());
         sslConnection.setRenegotiationLimit(_sslContextFactory.getRenegotiationLimit());
+        sslConnection.setMinimizeIdleFootprint(isMinimizeIdleFootprint());
         configure(sslConnection, connector, endPoint);
 
         ConnectionFactory next = connector.getConnectionFactory(_nextProtocol);
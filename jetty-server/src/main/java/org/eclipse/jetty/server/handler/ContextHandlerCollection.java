@@ -35,8 +35,8 @@ import org.eclipse.jetty.server.Handler;
 import org.eclipse.jetty.server.HandlerContainer;
 import org.eclipse.jetty.server.HttpChannelState;
 import org.eclipse.jetty.server.Request;
-import org.eclipse.jetty.util.ArrayTernaryTrie;
 import org.eclipse.jetty.util.ArrayUtil;
+import org.eclipse.jetty.util.GrowingTernaryTrie;
 import org.eclipse.jetty.util.Trie;
 import org.eclipse.jetty.util.annotation.ManagedObject;
 import org.eclipse.jetty.util.annotation.ManagedOperation;
@@ -87,7 +87,7 @@ public class ContextHandlerCollection extends HandlerCollection
         
         if (getHandlers()==null)
         {
-            _pathBranches=new ArrayTernaryTrie<>(false,16);
+            _pathBranches=new GrowingTernaryTrie<>(false);
             return;
         }
         
@@ -121,24 +121,11 @@ public class ContextHandlerCollection extends HandlerCollection
             entry.setValue(sorted);
         }
         
-        // Loop until we have a big enough trie to hold all the context paths
-        int capacity=512;
-        Trie<Map.Entry<String,Branch[]>> trie;
-        loop: while(true)
-        {
-            trie=new ArrayTernaryTrie<>(false,capacity);
-            for (Map.Entry<String,Branch[]> entry: map.entrySet())
-            {
-                if (!trie.put(entry.getKey().substring(1),entry))
-                {
-                    capacity+=512;
-                    continue loop;
-                }
-            }
-            break loop;
-        }
-            
-        
+        // Map the context paths, the trie growing as needed
+        Trie<Map.Entry<String,Branch[]>> trie=new GrowingTernaryTrie<>(false,512);
+        for (Map.Entry<String,Branch[]> entry: map.entrySet())
+            trie.put(entry.getKey().substring(1),entry);
+
         if (LOG.isDebugEnabled())
         {
             for (String ctx : trie.keySet())
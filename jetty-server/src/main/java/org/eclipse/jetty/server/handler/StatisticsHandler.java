@@ -19,7 +19,13 @@
 package org.eclipse.jetty.server.handler;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -28,11 +34,16 @@ import java.util.concurrent.atomic.LongAdder;
 
 import javax.servlet.AsyncEvent;
 import javax.servlet.AsyncListener;
+import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
+import javax.servlet.ServletRegistration;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.http.pathmap.MappedResource;
+import org.eclipse.jetty.http.pathmap.PathMappings;
+import org.eclipse.jetty.http.pathmap.ServletPathSpec;
 import org.eclipse.jetty.server.AsyncContextEvent;
 import org.eclipse.jetty.server.Handler;
 import org.eclipse.jetty.server.HttpChannelState;
@@ -42,22 +53,44 @@ import org.eclipse.jetty.util.FutureCallback;
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
 import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.component.Container;
 import org.eclipse.jetty.util.component.Graceful;
+import org.eclipse.jetty.util.component.LifeCycle;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 import org.eclipse.jetty.util.statistic.CounterStatistic;
-import org.eclipse.jetty.util.statistic.SampleStatistic;
+import org.eclipse.jetty.util.statistic.HistogramStatistic;
 
+/**
+ * <p>A {@link HandlerWrapper} that gathers statistics on the requests it handles.</p>
+ * <p>When {@link #setEndpointStatistics(boolean) endpoint statistics} are enabled,
+ * the request time, dispatch time, async wait time and request and response bytes
+ * are also recorded per endpoint, that is per context path and, for contexts that
+ * support the servlet registration API, per servlet mapping, so that slow endpoints
+ * can be found in a server hosting many contexts.</p>
+ * <p>Endpoints are resolved with {@link PathMappings} built from the {@link ContextHandler}s
+ * contained by this handler when it is started, and rebuilt when a context contained by this
+ * handler is started or stopped, for example when it is deployed or undeployed, or when
+ * {@link #refreshEndpoints()} is called. Rebuilding keeps the statistics of the endpoints
+ * that still exist. At most {@link #getMaxEndpoints()} endpoints are tracked: requests that do not
+ * match any tracked endpoint are recorded in the {@link #OTHER_ENDPOINT other} endpoint.</p>
+ */
 @ManagedObject("Request Statistics Gathering")
 public class StatisticsHandler extends HandlerWrapper implements Graceful
 {
     private static final Logger LOG = Log.getLogger(StatisticsHandler.class);
+    /**
+     * The context path and path spec of the endpoint recording the requests
+     * that do not match any tracked endpoint.
+     */
+    public static final String OTHER_ENDPOINT = "*";
     private final AtomicLong _statsStartedAt = new AtomicLong();
 
     private final CounterStatistic _requestStats = new CounterStatistic();
-    private final SampleStatistic _requestTimeStats = new SampleStatistic();
+    private final HistogramStatistic _requestTimeStats = new HistogramStatistic();
     private final CounterStatistic _dispatchedStats = new CounterStatistic();
-    private final SampleStatistic _dispatchedTimeStats = new SampleStatistic();
+    private final HistogramStatistic _dispatchedTimeStats = new HistogramStatistic();
     private final CounterStatistic _asyncWaitStats = new CounterStatistic();
 
     private final LongAdder _asyncDispatches = new LongAdder();
@@ -69,10 +102,17 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
     private final LongAdder _responses4xx = new LongAdder();
     private final LongAdder _responses5xx = new LongAdder();
     private final LongAdder _responsesTotalBytes = new LongAdder();
+    private final HistogramStatistic _requestBytesStats = new HistogramStatistic();
+    private final HistogramStatistic _responseBytesStats = new HistogramStatistic();
 
     private final AtomicReference<FutureCallback> _shutdown=new AtomicReference<>();
     
     private final AtomicBoolean _wrapWarning = new AtomicBoolean();
+
+    private boolean _endpointStatistics;
+    private int _maxEndpoints = 256;
+    private volatile Endpoints _endpoints;
+    private final ContextListener _contextListener = new ContextListener();
     
     private final AsyncListener _onCompletion = new AsyncListener()
     {
@@ -140,6 +180,12 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
         _responses4xx.reset();
         _responses5xx.reset();
         _responsesTotalBytes.reset();
+        _requestBytesStats.reset();
+        _responseBytesStats.reset();
+
+        Endpoints endpoints = _endpoints;
+        if (endpoints != null)
+            endpoints._all.forEach(EndpointStatistics::reset);
     }
 
     @Override
@@ -186,11 +232,18 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
             _dispatchedStats.decrement();
             _dispatchedTimeStats.set(dispatched);
 
+            Endpoints endpoints = _endpoints;
+            EndpointStatistics endpoint = endpoints == null ? null : endpoints.resolve(baseRequest);
+            if (endpoint != null)
+                endpoint._dispatchTime.set(dispatched);
+
             if (state.isSuspended())
             {
                 if (state.isInitial())
                 {
                     state.addListener(_onCompletion);
+                    if (endpoint != null)
+                        state.addListener(new EndpointListener(endpoint, now));
                     _asyncWaitStats.increment();
                 }
             }
@@ -199,6 +252,8 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
                 long d=_requestStats.decrement();
                 _requestTimeStats.set(dispatched);
                 updateResponse(baseRequest);
+                if (endpoint != null)
+                    endpoint.updateRequest(baseRequest, dispatched);
                 
                 // If we have no more dispatches, should we signal shutdown?
                 FutureCallback shutdown = _shutdown.get();
@@ -242,14 +297,20 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
         else
             // will fall through to not found handler
             _responses4xx.increment();
-        _responsesTotalBytes.add(response.getContentCount());
+        long responseBytes = response.getContentCount();
+        _responsesTotalBytes.add(responseBytes);
+        _responseBytesStats.set(responseBytes);
+        _requestBytesStats.set(request.getContentRead());
     }
 
     @Override
     protected void doStart() throws Exception
     {
         _shutdown.set(null);
+        if (_endpointStatistics)
+            addEventListener(_contextListener);
         super.doStart();
+        _endpoints = _endpointStatistics ? new Endpoints(null) : null;
         statsReset();
     }
     
@@ -258,11 +319,115 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
     protected void doStop() throws Exception
     {
         super.doStop();
+        removeEventListener(_contextListener);
+        _endpoints = null;
         FutureCallback shutdown = _shutdown.get();
         if (shutdown!=null && !shutdown.isDone())
             shutdown.failed(new TimeoutException());
     }
 
+    /**
+     * @return whether statistics are also recorded per endpoint
+     */
+    @ManagedAttribute("whether statistics are also recorded per endpoint")
+    public boolean isEndpointStatistics()
+    {
+        return _endpointStatistics;
+    }
+
+    /**
+     * <p>Enables the recording of statistics per context path and per servlet mapping.</p>
+     * <p>This setting takes effect when this handler is started.</p>
+     *
+     * @param endpointStatistics whether statistics are also recorded per endpoint
+     */
+    public void setEndpointStatistics(boolean endpointStatistics)
+    {
+        _endpointStatistics = endpointStatistics;
+    }
+
+    /**
+     * @return the max number of endpoints for which statistics are recorded
+     */
+    @ManagedAttribute("max number of endpoints for which statistics are recorded")
+    public int getMaxEndpoints()
+    {
+        return _maxEndpoints;
+    }
+
+    /**
+     * <p>Sets the max number of endpoints for which statistics are recorded,
+     * including the {@link #OTHER_ENDPOINT other} endpoint.</p>
+     * <p>This setting takes effect when this handler is started, or
+     * when the endpoints are rebuilt.</p>
+     *
+     * @param maxEndpoints the max number of endpoints for which statistics are recorded
+     */
+    public void setMaxEndpoints(int maxEndpoints)
+    {
+        if (maxEndpoints < 1)
+            throw new IllegalArgumentException("maxEndpoints " + maxEndpoints);
+        _maxEndpoints = maxEndpoints;
+    }
+
+    /**
+     * <p>Rebuilds the endpoints from the contexts and the servlet mappings currently
+     * contained by this handler.</p>
+     * <p>The endpoints are rebuilt when a context is started or stopped, so this is
+     * only needed when servlet mappings are changed while their context is running.
+     * The statistics of the endpoints that still exist are kept.</p>
+     */
+    @ManagedOperation(value="rebuilds the endpoints from the current contexts", impact="ACTION")
+    public void refreshEndpoints()
+    {
+        if (_endpointStatistics && isStarted())
+        {
+            synchronized (_contextListener)
+            {
+                _endpoints = new Endpoints(_endpoints);
+            }
+        }
+    }
+
+    /**
+     * @return the statistics of the endpoints, or an empty list
+     * if {@link #isEndpointStatistics() endpoint statistics} are not enabled
+     */
+    public List<EndpointStatistics> getEndpointStatistics()
+    {
+        Endpoints endpoints = _endpoints;
+        return endpoints == null ? Collections.emptyList() : Collections.unmodifiableList(endpoints._all);
+    }
+
+    /**
+     * @return a text table of the statistics of the endpoints that have recorded requests
+     */
+    @ManagedOperation(value="statistics per endpoint", impact="INFO")
+    public String dumpEndpointStatistics()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("context path, path spec, requests, request time p50/p99/max (ms), dispatch time p50/p99/max (ms), async wait p50/p99/max (ms), request bytes p99, response bytes p99\n");
+        for (EndpointStatistics endpoint : getEndpointStatistics())
+        {
+            if (endpoint.getRequests() == 0)
+                continue;
+            sb.append(endpoint.getContextPath()).append(", ")
+                    .append(endpoint.getPathSpec()).append(", ")
+                    .append(endpoint.getRequests()).append(", ")
+                    .append(percentiles(endpoint.getRequestTime())).append(", ")
+                    .append(percentiles(endpoint.getDispatchTime())).append(", ")
+                    .append(percentiles(endpoint.getAsyncWait())).append(", ")
+                    .append(endpoint.getRequestBytes().get99()).append(", ")
+                    .append(endpoint.getResponseBytes().get99()).append("\n");
+        }
+        return sb.toString();
+    }
+
+    private static String percentiles(HistogramStatistic histogram)
+    {
+        return histogram.get50() + "/" + histogram.get99() + "/" + histogram.getMax();
+    }
+
     /**
      * @return the number of requests handled by this handler
      * since {@link #statsReset()} was last called, excluding
@@ -327,6 +492,26 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
         return _requestTimeStats.getMean();
     }
 
+    /**
+     * @return the median time (in milliseconds) of request handling
+     * since {@link #statsReset()} was last called.
+     */
+    @ManagedAttribute("median time spent handling requests (in ms)")
+    public long getRequestTime50()
+    {
+        return _requestTimeStats.get50();
+    }
+
+    /**
+     * @return the 99th percentile of the time (in milliseconds) of request handling
+     * since {@link #statsReset()} was last called.
+     */
+    @ManagedAttribute("99th percentile of the time spent handling requests (in ms)")
+    public long getRequestTime99()
+    {
+        return _requestTimeStats.get99();
+    }
+
     /**
      * @return the standard deviation of time (in milliseconds) of request handling
      * since {@link #statsReset()} was last called.
@@ -404,6 +589,26 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
         return _dispatchedTimeStats.getMean();
     }
 
+    /**
+     * @return the median time (in milliseconds) of request dispatch
+     * since {@link #statsReset()} was last called.
+     */
+    @ManagedAttribute("median time spent in dispatch handling (in ms)")
+    public long getDispatchedTime50()
+    {
+        return _dispatchedTimeStats.get50();
+    }
+
+    /**
+     * @return the 99th percentile of the time (in milliseconds) of request dispatch
+     * since {@link #statsReset()} was last called.
+     */
+    @ManagedAttribute("99th percentile of the time spent in dispatch handling (in ms)")
+    public long getDispatchedTime99()
+    {
+        return _dispatchedTimeStats.get99();
+    }
+
     /**
      * @return the standard deviation of time (in milliseconds) of request handling
      * since {@link #statsReset()} was last called.
@@ -535,6 +740,24 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
         return _responsesTotalBytes.longValue();
     }
 
+    /**
+     * @return the 99th percentile of the bytes of content sent in a response
+     */
+    @ManagedAttribute("99th percentile of the bytes of a response")
+    public long getResponseBytes99()
+    {
+        return _responseBytesStats.get99();
+    }
+
+    /**
+     * @return the 99th percentile of the bytes of content read from a request
+     */
+    @ManagedAttribute("99th percentile of the bytes of a request")
+    public long getRequestBytes99()
+    {
+        return _requestBytesStats.get99();
+    }
+
     public String toStatsHTML()
     {
         StringBuilder sb = new StringBuilder();
@@ -550,6 +773,8 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
         sb.append("Mean request time: ").append(getRequestTimeMean()).append("<br />\n");
         sb.append("Max request time: ").append(getRequestTimeMax()).append("<br />\n");
         sb.append("Request time standard deviation: ").append(getRequestTimeStdDev()).append("<br />\n");
+        sb.append("Median request time: ").append(getRequestTime50()).append("<br />\n");
+        sb.append("99th percentile request time: ").append(getRequestTime99()).append("<br />\n");
 
 
         sb.append("<h2>Dispatches:</h2>\n");
@@ -560,6 +785,8 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
         sb.append("Mean dispatched time: ").append(getDispatchedTimeMean()).append("<br />\n");
         sb.append("Max dispatched time: ").append(getDispatchedTimeMax()).append("<br />\n");
         sb.append("Dispatched time standard deviation: ").append(getDispatchedTimeStdDev()).append("<br />\n");
+        sb.append("Median dispatched time: ").append(getDispatchedTime50()).append("<br />\n");
+        sb.append("99th percentile dispatched time: ").append(getDispatchedTime99()).append("<br />\n");
 
 
         sb.append("Total requests suspended: ").append(getAsyncRequests()).append("<br />\n");
@@ -573,6 +800,8 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
         sb.append("4xx responses: ").append(getResponses4xx()).append("<br />\n");
         sb.append("5xx responses: ").append(getResponses5xx()).append("<br />\n");
         sb.append("Bytes sent total: ").append(getResponsesBytesTotal()).append("<br />\n");
+        sb.append("99th percentile response bytes: ").append(getResponseBytes99()).append("<br />\n");
+        sb.append("99th percentile request bytes: ").append(getRequestBytes99()).append("<br />\n");
 
         return sb.toString();
 
@@ -588,4 +817,285 @@ public class StatisticsHandler extends HandlerWrapper implements Graceful
             shutdown.succeeded();
         return shutdown;
     }
+
+    /**
+     * <p>The statistics of the requests handled by an endpoint,
+     * identified by a context path and a servlet path spec.</p>
+     * <p>Times are in milliseconds; the async wait is the time between the end of
+     * the initial dispatch of an async request and its completion.</p>
+     */
+    public static class EndpointStatistics
+    {
+        // Bound the memory of the histograms, as there may be many endpoints.
+        private static final long MAX_TIME = TimeUnit.HOURS.toMillis(1);
+        private static final long MAX_BYTES = 1024 * 1024 * 1024;
+
+        private final String _contextPath;
+        private final String _pathSpec;
+        private final HistogramStatistic _requestTime = new HistogramStatistic(MAX_TIME);
+        private final HistogramStatistic _dispatchTime = new HistogramStatistic(MAX_TIME);
+        private final HistogramStatistic _asyncWait = new HistogramStatistic(MAX_TIME);
+        private final HistogramStatistic _requestBytes = new HistogramStatistic(MAX_BYTES);
+        private final HistogramStatistic _responseBytes = new HistogramStatistic(MAX_BYTES);
+
+        private EndpointStatistics(String contextPath, String pathSpec)
+        {
+            _contextPath = contextPath;
+            _pathSpec = pathSpec;
+        }
+
+        /**
+         * @return the context path, empty for the root context
+         */
+        public String getContextPath()
+        {
+            return _contextPath;
+        }
+
+        /**
+         * @return the servlet path spec, or an empty string for the requests
+         * of the context that did not match a tracked servlet mapping
+         */
+        public String getPathSpec()
+        {
+            return _pathSpec;
+        }
+
+        public long getRequests()
+        {
+            return _requestTime.getCount();
+        }
+
+        public HistogramStatistic getRequestTime()
+        {
+            return _requestTime;
+        }
+
+        public HistogramStatistic getDispatchTime()
+        {
+            return _dispatchTime;
+        }
+
+        public HistogramStatistic getAsyncWait()
+        {
+            return _asyncWait;
+        }
+
+        public HistogramStatistic getRequestBytes()
+        {
+            return _requestBytes;
+        }
+
+        public HistogramStatistic getResponseBytes()
+        {
+            return _responseBytes;
+        }
+
+        private void updateRequest(Request request, long requestTime)
+        {
+            _requestTime.set(requestTime);
+            _requestBytes.set(request.getContentRead());
+            _responseBytes.set(request.getResponse().getContentCount());
+        }
+
+        private void reset()
+        {
+            _requestTime.reset();
+            _dispatchTime.reset();
+            _asyncWait.reset();
+            _requestBytes.reset();
+            _responseBytes.reset();
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x{%s,%s,r=%d}", getClass().getSimpleName(), hashCode(), _contextPath, _pathSpec, getRequests());
+        }
+    }
+
+    /**
+     * Immutable mappings from request paths to endpoints, rebuilt when contexts change.
+     */
+    private class Endpoints
+    {
+        private final List<EndpointStatistics> _all = new ArrayList<>();
+        private final PathMappings<ContextEndpoints> _contexts = new PathMappings<>();
+        private final Map<String, EndpointStatistics> _previous = new HashMap<>();
+        private final EndpointStatistics _other;
+        private boolean _limited;
+
+        private Endpoints(Endpoints previous)
+        {
+            if (previous != null)
+                previous._all.forEach(endpoint -> _previous.put(endpoint.getContextPath() + " " + endpoint.getPathSpec(), endpoint));
+            _other = add(OTHER_ENDPOINT, OTHER_ENDPOINT);
+            for (Handler handler : getChildHandlersByClass(ContextHandler.class))
+            {
+                ContextHandler context = (ContextHandler)handler;
+                if (!context.isRunning())
+                    continue;
+                String contextPath = context.getContextPath();
+                if (contextPath == null || "/".equals(contextPath))
+                    contextPath = "";
+                String contextSpec = contextPath + "/*";
+                if (_contexts.get(new ServletPathSpec(contextSpec)) != null)
+                    continue;
+                if (_all.size() >= _maxEndpoints)
+                {
+                    _limited = true;
+                    break;
+                }
+                _contexts.put(contextSpec, new ContextEndpoints(context, contextPath));
+            }
+            if (_limited)
+                LOG.warn("Endpoint statistics limited to {} endpoints in {}", _maxEndpoints, StatisticsHandler.this);
+        }
+
+        private EndpointStatistics add(String contextPath, String pathSpec)
+        {
+            EndpointStatistics endpoint = _previous.get(contextPath + " " + pathSpec);
+            if (endpoint == null)
+                endpoint = new EndpointStatistics(contextPath, pathSpec);
+            _all.add(endpoint);
+            return endpoint;
+        }
+
+        private EndpointStatistics resolve(Request request)
+        {
+            String path = request.getHttpURI().getDecodedPath();
+            if (path == null)
+                return _other;
+            MappedResource<ContextEndpoints> mapped = _contexts.getMatch(path);
+            if (mapped == null)
+                return _other;
+            return mapped.getResource().resolve(path);
+        }
+
+        private class ContextEndpoints
+        {
+            private final String _contextPath;
+            private final EndpointStatistics _context;
+            private final PathMappings<EndpointStatistics> _servlets = new PathMappings<>();
+
+            private ContextEndpoints(ContextHandler context, String contextPath)
+            {
+                _contextPath = contextPath;
+                _context = add(contextPath, "");
+
+                ServletContext servletContext = context.getServletContext();
+                // The plain context does not support the servlet registration API.
+                if (servletContext == null || servletContext.getClass() == ContextHandler.Context.class)
+                    return;
+                Map<String, ? extends ServletRegistration> registrations;
+                try
+                {
+                    registrations = servletContext.getServletRegistrations();
+                }
+                catch (UnsupportedOperationException x)
+                {
+                    LOG.ignore(x);
+                    return;
+                }
+                if (registrations == null)
+                    return;
+                for (ServletRegistration registration : registrations.values())
+                {
+                    for (String mapping : registration.getMappings())
+                    {
+                        if (_all.size() >= _maxEndpoints)
+                        {
+                            _limited = true;
+                            return;
+                        }
+                        ServletPathSpec pathSpec = new ServletPathSpec(mapping);
+                        if (_servlets.get(pathSpec) == null)
+                            _servlets.put(pathSpec, add(contextPath, mapping));
+                    }
+                }
+            }
+
+            private EndpointStatistics resolve(String path)
+            {
+                String pathInContext = path.length() > _contextPath.length() ? path.substring(_contextPath.length()) : "/";
+                MappedResource<EndpointStatistics> mapped = _servlets.getMatch(pathInContext);
+                return mapped == null ? _context : mapped.getResource();
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the endpoints when a context contained by this handler is started or stopped.
+     */
+    private class ContextListener extends AbstractLifeCycle.AbstractLifeCycleListener implements Container.InheritedListener
+    {
+        @Override
+        public void beanAdded(Container parent, Object child)
+        {
+            if (child instanceof ContextHandler)
+                ((ContextHandler)child).addLifeCycleListener(this);
+        }
+
+        @Override
+        public void beanRemoved(Container parent, Object child)
+        {
+            if (child instanceof ContextHandler)
+            {
+                ((ContextHandler)child).removeLifeCycleListener(this);
+                refreshEndpoints();
+            }
+        }
+
+        @Override
+        public void lifeCycleStarted(LifeCycle event)
+        {
+            refreshEndpoints();
+        }
+
+        @Override
+        public void lifeCycleStopped(LifeCycle event)
+        {
+            refreshEndpoints();
+        }
+    }
+
+    /**
+     * Records the endpoint statistics of an async request when it completes.
+     */
+    private static class EndpointListener implements AsyncListener
+    {
+        private final EndpointStatistics _endpoint;
+        private final long _suspended;
+
+        private EndpointListener(EndpointStatistics endpoint, long suspended)
+        {
+            _endpoint = endpoint;
+            _suspended = suspended;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) throws IOException
+        {
+            Request request = ((AsyncContextEvent)event).getHttpChannelState().getBaseRequest();
+            long now = System.currentTimeMillis();
+            _endpoint._asyncWait.set(now - _suspended);
+            _endpoint.updateRequest(request, now - request.getTimeStamp());
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) throws IOException
+        {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) throws IOException
+        {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) throws IOException
+        {
+            event.getAsyncContext().addListener(this);
+        }
+    }
 }
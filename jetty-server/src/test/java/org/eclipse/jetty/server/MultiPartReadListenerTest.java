@@ -0,0 +1,192 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.server;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.Collection;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.MultipartConfigElement;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.Part;
+
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.IO;
+import org.eclipse.jetty.util.Promise;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MultiPartReadListenerTest
+{
+    private static final String CONTENT = "--AaB03x\r\n" +
+            "Content-Disposition: form-data; name=\"field1\"\r\n" +
+            "\r\n" +
+            "Joe Blow\r\n" +
+            "--AaB03x\r\n" +
+            "Content-Disposition: form-data; name=\"file\"; filename=\"file1.txt\"\r\n" +
+            "Content-Type: text/plain\r\n" +
+            "\r\n" +
+            "0123456789abcdefghijklmnopqrstuvwxyz\r\n" +
+            "--AaB03x--\r\n";
+
+    private Server _server;
+    private LocalConnector _connector;
+    private File _tmpDir;
+    private MultipartConfigElement _config;
+
+    @Before
+    public void init() throws Exception
+    {
+        _tmpDir = Files.createTempDirectory("multipart").toFile();
+        _server = new Server();
+        _connector = new LocalConnector(_server);
+        _server.addConnector(_connector);
+        _server.setHandler(new MultiPartHandler());
+        _server.start();
+    }
+
+    @After
+    public void destroy() throws Exception
+    {
+        _server.stop();
+        IO.delete(_tmpDir);
+    }
+
+    private String request(String first, String second) throws Exception
+    {
+        LocalConnector.LocalEndPoint endPoint = _connector.executeRequest("" +
+                "POST / HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "Content-Type: multipart/form-data; boundary=\"AaB03x\"\r\n" +
+                "Content-Length: " + (first.length() + second.length()) + "\r\n" +
+                "Connection: close\r\n" +
+                "\r\n" +
+                first);
+        Thread.sleep(50);
+        endPoint.addInput(second);
+        return endPoint.getResponse();
+    }
+
+    @Test
+    public void testPartsInMemoryAndInFile() throws Exception
+    {
+        _config = new MultipartConfigElement(_tmpDir.getAbsolutePath(), -1, -1, 16);
+        for (int split : new int[]{1, 60, 110, CONTENT.length() - 5})
+        {
+            String response = request(CONTENT.substring(0, split), CONTENT.substring(split));
+            assertThat(response, containsString(" 200 "));
+            assertThat(response, containsString("field1|null|8|false|Joe Blow\n"));
+            assertThat(response, containsString("file|file1.txt|36|true|0123456789abcdefghijklmnopqrstuvwxyz\n"));
+            assertEquals(0, _tmpDir.list().length);
+        }
+    }
+
+    @Test
+    public void testFileUploadInFileWithDefaultConfig() throws Exception
+    {
+        _config = null;
+        String response = request(CONTENT.substring(0, 100), CONTENT.substring(100));
+        assertThat(response, containsString(" 200 "));
+        assertThat(response, containsString("field1|null|8|false|Joe Blow\n"));
+        assertThat(response, containsString("file|file1.txt|36|true|0123456789abcdefghijklmnopqrstuvwxyz\n"));
+        assertEquals(0, _tmpDir.list().length);
+    }
+
+    @Test
+    public void testMaxFileSize() throws Exception
+    {
+        _config = new MultipartConfigElement(_tmpDir.getAbsolutePath(), 20, -1, 16);
+        String response = request(CONTENT.substring(0, 150), CONTENT.substring(150));
+        assertThat(response, containsString(" 500 "));
+        assertThat(response, containsString("exceeds max filesize"));
+        assertEquals(0, _tmpDir.list().length);
+    }
+
+    @Test
+    public void testIncomplete() throws Exception
+    {
+        _config = new MultipartConfigElement(_tmpDir.getAbsolutePath(), -1, -1, 16);
+        String content = CONTENT.substring(0, CONTENT.length() - 4);
+        String response = request(content.substring(0, 120), content.substring(120));
+        assertThat(response, containsString(" 500 "));
+        assertThat(response, containsString("Incomplete parts"));
+        assertEquals(0, _tmpDir.list().length);
+    }
+
+    private class MultiPartHandler extends AbstractHandler
+    {
+        @Override
+        public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+        {
+            baseRequest.setHandled(true);
+            AsyncContext async = request.startAsync();
+            ServletInputStream input = request.getInputStream();
+            input.setReadListener(new MultiPartReadListener(input, request.getContentType(), _config, _tmpDir, new Promise<Collection<Part>>()
+            {
+                @Override
+                public void succeeded(Collection<Part> parts)
+                {
+                    try
+                    {
+                        PrintWriter writer = response.getWriter();
+                        for (Part part : parts)
+                        {
+                            MultiPartReadListener.MultiPart multiPart = (MultiPartReadListener.MultiPart)part;
+                            writer.printf("%s|%s|%d|%b|%s%n", part.getName(), part.getSubmittedFileName(), part.getSize(),
+                                    multiPart.getFile() != null, IO.toString(part.getInputStream()));
+                            multiPart.cleanUp();
+                        }
+                    }
+                    catch (IOException x)
+                    {
+                        failed(x);
+                        return;
+                    }
+                    async.complete();
+                }
+
+                @Override
+                public void failed(Throwable x)
+                {
+                    response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                    try
+                    {
+                        response.getWriter().print(x.getMessage());
+                    }
+                    catch (IOException ignored)
+                    {
+                    }
+                    async.complete();
+                }
+            }));
+        }
+    }
+}
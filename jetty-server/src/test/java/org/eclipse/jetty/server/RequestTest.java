@@ -754,6 +754,74 @@ public class RequestTest
         assertThat(response, containsString(" 200 OK"));
     }
 
+    @Test
+    public void testEncodedFormWithQuery() throws Exception
+    {
+        _handler._checker = new RequestTester()
+        {
+            @Override
+            public boolean check(HttpServletRequest request,HttpServletResponse response) throws IOException
+            {
+                // The query parameters come before the form fields.
+                if (!"q".equals(request.getParameter("a")) || !"f".equals(request.getParameter("c")))
+                    return false;
+                if (!Arrays.asList("q", "f").equals(Arrays.asList(request.getParameterValues("a"))))
+                    return false;
+                if (!Arrays.asList("f", "g").equals(Arrays.asList(request.getParameterValues("c"))))
+                    return false;
+                if (request.getParameter("x") != null || request.getParameterValues("x") != null)
+                    return false;
+                if (request.getParameterMap().get("a").length != 2)
+                    return false;
+                return "f".equals(request.getParameter("c"));
+            }
+        };
+
+        String content="a=f&c=f&c=g";
+        String request="POST /?a=q&b=q HTTP/1.1\r\n"+
+            "Host: whatever\r\n"+
+            "Content-Type: "+MimeTypes.Type.FORM_ENCODED.asString()+"\r\n" +
+            "Content-Length: "+content.length()+"\r\n"+
+            "Connection: close\r\n"+
+            "\r\n"+
+            content;
+        String response = _connector.getResponse(request);
+        assertThat(response, containsString(" 200 OK"));
+    }
+
+    @Test
+    public void testEncodedFormsOnSameConnection() throws Exception
+    {
+        _handler._checker = new RequestTester()
+        {
+            @Override
+            public boolean check(HttpServletRequest request,HttpServletResponse response) throws IOException
+            {
+                // The fields of the previous request on the connection must not be seen.
+                String n = request.getParameter("n");
+                String other = request.getParameter("1".equals(n) ? "b" : "a");
+                return other == null && request.getParameterMap().size() == 2;
+            }
+        };
+
+        String request="POST / HTTP/1.1\r\n"+
+            "Host: whatever\r\n"+
+            "Content-Type: "+MimeTypes.Type.FORM_ENCODED.asString()+"\r\n" +
+            "Content-Length: 7\r\n"+
+            "\r\n"+
+            "n=1&a=x"+
+            "POST / HTTP/1.1\r\n"+
+            "Host: whatever\r\n"+
+            "Content-Type: "+MimeTypes.Type.FORM_ENCODED.asString()+"\r\n" +
+            "Content-Length: 7\r\n"+
+            "Connection: close\r\n"+
+            "\r\n"+
+            "n=2&b=y";
+        String responses = _connector.getResponses(request);
+        // Both requests are checked on the same connection.
+        assertEquals(responses, 3, responses.split(" 200 OK").length);
+    }
+
     @Test
     public void testEncodedFormUnknownMethod() throws Exception
     {
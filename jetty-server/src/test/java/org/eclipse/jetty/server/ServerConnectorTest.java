@@ -54,8 +54,12 @@ import org.eclipse.jetty.toolchain.test.AdvancedRunner;
 import org.eclipse.jetty.toolchain.test.OS;
 import org.eclipse.jetty.util.IO;
 import org.eclipse.jetty.util.log.StacklessLogging;
+import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
+import org.eclipse.jetty.util.thread.Scheduler;
+import org.eclipse.jetty.util.thread.TimingWheelScheduler;
 import org.hamcrest.Matchers;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
@@ -308,5 +312,53 @@ public class ServerConnectorTest
         
         
         
+    }
+
+    @Test
+    public void testReusePort() throws Exception
+    {
+        Server server = new Server();
+        ServerConnector connector = new ServerConnector(server, 0, 2);
+        connector.setPort(0);
+        connector.setReusePort(true);
+        server.addConnector(connector);
+
+        HandlerList handlers = new HandlerList();
+        handlers.addHandler(new ReuseInfoHandler());
+        handlers.addHandler(new DefaultHandler());
+        server.setHandler(handlers);
+
+        try
+        {
+            server.start();
+            Assume.assumeThat("SO_REUSEPORT supported", connector.getReusePortSockets(), greaterThan(0));
+            assertThat(connector.getReusePortSockets(), is(2));
+
+            URI uri = toServerURI(connector);
+            for (int i = 0; i < 10; ++i)
+                assertThat("Response",getResponse(uri),containsString("connector.getReuseAddress() = true"));
+        }
+        finally
+        {
+            server.stop();
+        }
+
+        assertThat(connector.getReusePortSockets(), is(0));
+    }
+
+    @Test
+    public void testSetScheduler() throws Exception
+    {
+        Server server = new Server();
+        server.addBean(new ScheduledExecutorScheduler());
+
+        // Replaces the shared scheduler, as the timing-wheel-scheduler module does.
+        Scheduler scheduler = new TimingWheelScheduler();
+        server.setScheduler(scheduler);
+        assertSame(scheduler, server.getScheduler());
+        assertEquals(1, server.getBeans(Scheduler.class).size());
+
+        ServerConnector connector = new ServerConnector(server);
+        assertSame(scheduler, connector.getScheduler());
     }
 }
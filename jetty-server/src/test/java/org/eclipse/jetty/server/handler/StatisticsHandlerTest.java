@@ -19,6 +19,9 @@
 package org.eclipse.jetty.server.handler;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.TimeUnit;
@@ -39,6 +42,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -359,10 +363,14 @@ public class StatisticsHandlerTest
         assertThat(_statsHandler.getRequestTimeTotal(), greaterThanOrEqualTo(requestTime * 3 / 4));
         assertEquals(_statsHandler.getRequestTimeTotal(), _statsHandler.getRequestTimeMax());
         assertEquals(_statsHandler.getRequestTimeTotal(), _statsHandler.getRequestTimeMean(), 0.01);
+        // A single request, so all the percentiles are the max.
+        assertEquals(_statsHandler.getRequestTimeMax(), _statsHandler.getRequestTime50());
+        assertEquals(_statsHandler.getRequestTimeMax(), _statsHandler.getRequestTime99());
 
         assertThat(_statsHandler.getDispatchedTimeTotal(), greaterThanOrEqualTo(dispatchTime * 2 * 3 / 4));
         assertTrue(_statsHandler.getDispatchedTimeMean() + dispatchTime <= _statsHandler.getDispatchedTimeTotal());
         assertTrue(_statsHandler.getDispatchedTimeMax() + dispatchTime <= _statsHandler.getDispatchedTimeTotal());
+        assertEquals(_statsHandler.getDispatchedTimeMax(), _statsHandler.getDispatchedTime99());
     }
 
     @Test
@@ -601,6 +609,134 @@ public class StatisticsHandlerTest
         assertEquals(_statsHandler.getDispatchedTimeTotal(), _statsHandler.getDispatchedTimeMean(), 0.01);
     }
 
+    @Test
+    public void testEndpointStatistics() throws Exception
+    {
+        ContextHandler foo = new ContextHandler("/foo");
+        foo.setHandler(new AbstractHandler()
+        {
+            @Override
+            public void handle(String path, Request request, HttpServletRequest httpRequest, HttpServletResponse httpResponse) throws IOException, ServletException
+            {
+                request.setHandled(true);
+                httpResponse.getOutputStream().write(new byte[100]);
+            }
+        });
+        ContextHandler bar = new ContextHandler("/bar");
+        bar.setHandler(new AbstractHandler()
+        {
+            @Override
+            public void handle(String path, Request request, HttpServletRequest httpRequest, HttpServletResponse httpResponse) throws IOException, ServletException
+            {
+                request.setHandled(true);
+                AsyncContext asyncContext = request.startAsync();
+                new Thread(() ->
+                {
+                    sleep(50);
+                    asyncContext.complete();
+                }).start();
+            }
+        });
+        ContextHandler baz = new ContextHandler("/baz");
+        baz.setHandler(new DefaultHandler());
+        _statsHandler.setHandler(new ContextHandlerCollection(foo, bar, baz));
+        _statsHandler.setEndpointStatistics(true);
+        // The other endpoint, plus two contexts.
+        _statsHandler.setMaxEndpoints(3);
+        _server.start();
+
+        _latchHandler.reset(3);
+        _connector.executeRequest("GET /foo/a HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        _connector.executeRequest("GET /foo/b HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        _connector.executeRequest("GET /baz HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        assertTrue(_latchHandler.await());
+        _latchHandler.reset();
+        String response = _connector.getResponse("GET /bar/c HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        assertThat(response, containsString(" 200 "));
+        assertTrue(_latchHandler.await());
+
+        List<StatisticsHandler.EndpointStatistics> endpoints = _statsHandler.getEndpointStatistics();
+        assertEquals(3, endpoints.size());
+        Map<String, StatisticsHandler.EndpointStatistics> byPath = new HashMap<>();
+        endpoints.forEach(endpoint -> byPath.put(endpoint.getContextPath(), endpoint));
+
+        StatisticsHandler.EndpointStatistics fooStats = byPath.get("/foo");
+        assertEquals(2, fooStats.getRequests());
+        assertEquals(2, fooStats.getDispatchTime().getCount());
+        assertEquals(100, fooStats.getResponseBytes().get99());
+        assertEquals(0, fooStats.getAsyncWait().getCount());
+
+        StatisticsHandler.EndpointStatistics barStats = byPath.get("/bar");
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (barStats.getRequests() == 0 && System.nanoTime() < end)
+            sleep(10);
+        assertEquals(1, barStats.getRequests());
+        assertEquals(1, barStats.getAsyncWait().getCount());
+        assertThat(barStats.getRequestTime().getMax(), greaterThanOrEqualTo(barStats.getAsyncWait().getMax()));
+
+        // The third context is not tracked, as the max number of endpoints is reached.
+        StatisticsHandler.EndpointStatistics other = byPath.get(StatisticsHandler.OTHER_ENDPOINT);
+        assertEquals(1, other.getRequests());
+        assertThat(_statsHandler.dumpEndpointStatistics(), containsString("/foo, , 2, "));
+
+        _statsHandler.statsReset();
+        assertEquals(0, fooStats.getRequests());
+    }
+
+    @Test
+    public void testEndpointStatisticsContextDeployedAfterStart() throws Exception
+    {
+        ContextHandler foo = new ContextHandler("/foo");
+        foo.setHandler(new DefaultHandler());
+        ContextHandlerCollection contexts = new ContextHandlerCollection(foo);
+        _statsHandler.setHandler(contexts);
+        _statsHandler.setEndpointStatistics(true);
+        _server.start();
+
+        _latchHandler.reset();
+        _connector.getResponse("GET /foo/a HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        assertTrue(_latchHandler.await());
+
+        // Deploy a context after the handler is started.
+        ContextHandler bar = new ContextHandler("/bar");
+        bar.setHandler(new DefaultHandler());
+        contexts.addHandler(bar);
+        bar.start();
+
+        _latchHandler.reset();
+        _connector.getResponse("GET /bar/b HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        assertTrue(_latchHandler.await());
+
+        Map<String, StatisticsHandler.EndpointStatistics> byPath = new HashMap<>();
+        _statsHandler.getEndpointStatistics().forEach(endpoint -> byPath.put(endpoint.getContextPath(), endpoint));
+        assertEquals(3, byPath.size());
+        // The statistics of the existing context are kept.
+        assertEquals(1, byPath.get("/foo").getRequests());
+        assertEquals(1, byPath.get("/bar").getRequests());
+        assertEquals(0, byPath.get(StatisticsHandler.OTHER_ENDPOINT).getRequests());
+
+        // Undeploy the context.
+        bar.stop();
+        contexts.removeHandler(bar);
+
+        byPath.clear();
+        _statsHandler.getEndpointStatistics().forEach(endpoint -> byPath.put(endpoint.getContextPath(), endpoint));
+        assertEquals(2, byPath.size());
+        assertEquals(1, byPath.get("/foo").getRequests());
+    }
+
+    private static void sleep(long ms)
+    {
+        try
+        {
+            Thread.sleep(ms);
+        }
+        catch (InterruptedException x)
+        {
+            throw new RuntimeException(x);
+        }
+    }
+
     /**
      * This handler is external to the statistics handler and it is used to ensure that statistics handler's
      * handle() is fully executed before asserting its values in the tests, to avoid race conditions with the
@@ -187,6 +187,51 @@ public class SslConnectionFactoryTest
         Assert.assertEquals(0, history.size());
     }
 
+    @Test
+    public void testMinimizeIdleFootprint() throws Exception
+    {
+        _server.stop();
+        _connector.getBean(SslConnectionFactory.class).setMinimizeIdleFootprint(true);
+        _server.start();
+        _port = _connector.getLocalPort();
+
+        SslContextFactory clientContextFactory = new SslContextFactory(true);
+        clientContextFactory.start();
+        try (Socket socket = new Socket("127.0.0.1", _port))
+        {
+            SSLSocket sslSocket = (SSLSocket)clientContextFactory.getSslContext().getSocketFactory().createSocket(socket, "127.0.0.1", _port, false);
+            sslSocket.startHandshake();
+            int packetBufferSize = sslSocket.getSession().getPacketBufferSize();
+
+            // Once the handshake is complete, the idle connection retains no buffers.
+            Assert.assertEquals(0, awaitIdleBufferBytes(0, packetBufferSize));
+
+            // Send a partial TLS record: the header of a 100 bytes application data record and 5 bytes.
+            OutputStream out = socket.getOutputStream();
+            out.write(new byte[]{23, 3, 3, 0, 100, 1, 2, 3, 4, 5});
+            out.flush();
+
+            long idleBytes = awaitIdleBufferBytes(1, packetBufferSize);
+            Assert.assertThat(idleBytes, Matchers.greaterThan(0L));
+            Assert.assertThat(idleBytes, Matchers.lessThan((long)packetBufferSize / 2));
+        }
+        finally
+        {
+            clientContextFactory.stop();
+        }
+    }
+
+    private long awaitIdleBufferBytes(long min, long max) throws Exception
+    {
+        long idleBytes = _connector.getIdleBufferBytes();
+        for (int i = 0; i < 50 && (idleBytes < min || idleBytes > max); ++i)
+        {
+            Thread.sleep(100);
+            idleBytes = _connector.getIdleBufferBytes();
+        }
+        return idleBytes;
+    }
+
     @Test(expected = IllegalStateException.class)
     public void testServerWithoutHttpConnectionFactory() throws Exception
     {
@@ -45,6 +45,8 @@ import org.eclipse.jetty.server.handler.ContextHandler;
 import org.eclipse.jetty.util.URIUtil;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.resource.PathAttributesCache;
+import org.eclipse.jetty.util.resource.PathResource;
 import org.eclipse.jetty.util.resource.Resource;
 import org.eclipse.jetty.util.resource.ResourceFactory;
 
@@ -123,6 +125,10 @@ import org.eclipse.jetty.util.resource.ResourceFactory;
  *  otherGzipFileExtensions
  *                    Other file extensions that signify that a file is already compressed. Eg ".svgz"
  *
+ *  statCache         If true and the resource base is a directory, the attributes of
+ *                    its files are cached by a PathAttributesCache, invalidated when
+ *                    the files change. Default is false.
+ *
  *
  * </pre>
  *
@@ -144,6 +150,7 @@ public class DefaultServlet extends HttpServlet implements ResourceFactory, Welc
 
     private Resource _resourceBase;
     private CachedContentFactory _cache;
+    private PathAttributesCache _statCache;
 
     private MimeTypes _mimeTypes;
     private String[] _welcomes;
@@ -276,6 +283,29 @@ public class DefaultServlet extends HttpServlet implements ResourceFactory, Welc
             throw new UnavailableException(e.toString());
         }
 
+        if (getInitBoolean("statCache",false))
+        {
+            Resource base = _resourceBase!=null?_resourceBase:_contextHandler.getBaseResource();
+            if (base instanceof PathResource && base.isDirectory())
+            {
+                try
+                {
+                    _statCache = new PathAttributesCache(((PathResource)base).getPath());
+                    _statCache.start();
+                    _resourceBase = new PathResource(_statCache.getRoot(),_statCache);
+                }
+                catch (Exception e)
+                {
+                    LOG.warn(Log.EXCEPTION,e);
+                    throw new UnavailableException(e.toString());
+                }
+            }
+            else
+            {
+                LOG.warn("statCache ignored for resource base {}",base);
+            }
+        }
+
         HttpContent.ContentFactory contentFactory=_cache;
         if (contentFactory==null)
         {
@@ -493,6 +523,18 @@ public class DefaultServlet extends HttpServlet implements ResourceFactory, Welc
     {
         if (_cache!=null)
             _cache.flushCache();
+        if (_statCache!=null)
+        {
+            try
+            {
+                _statCache.stop();
+            }
+            catch (Exception e)
+            {
+                LOG.warn(e);
+            }
+            _statCache=null;
+        }
         super.destroy();
     }
 
@@ -151,6 +151,8 @@ public class StatisticsServlet extends HttpServlet
         sb.append("    <requestsTimeMean>").append(_statsHandler.getRequestTimeMean()).append("</requestsTimeMean>\n");
         sb.append("    <requestsTimeMax>").append(_statsHandler.getRequestTimeMax()).append("</requestsTimeMax>\n");
         sb.append("    <requestsTimeStdDev>").append(_statsHandler.getRequestTimeStdDev()).append("</requestsTimeStdDev>\n");
+        sb.append("    <requestsTime50>").append(_statsHandler.getRequestTime50()).append("</requestsTime50>\n");
+        sb.append("    <requestsTime99>").append(_statsHandler.getRequestTime99()).append("</requestsTime99>\n");
 
         sb.append("    <dispatched>").append(_statsHandler.getDispatched()).append("</dispatched>\n");
         sb.append("    <dispatchedActive>").append(_statsHandler.getDispatchedActive()).append("</dispatchedActive>\n");
@@ -159,6 +161,8 @@ public class StatisticsServlet extends HttpServlet
         sb.append("    <dispatchedTimeMeanMs>").append(_statsHandler.getDispatchedTimeMean()).append("</dispatchedTimeMeanMs>\n");
         sb.append("    <dispatchedTimeMaxMs>").append(_statsHandler.getDispatchedTimeMax()).append("</dispatchedTimeMaxMs>\n");
         sb.append("    <dispatchedTimeStdDevMs>").append(_statsHandler.getDispatchedTimeStdDev()).append("</dispatchedTimeStdDevMs>\n");
+        sb.append("    <dispatchedTime50Ms>").append(_statsHandler.getDispatchedTime50()).append("</dispatchedTime50Ms>\n");
+        sb.append("    <dispatchedTime99Ms>").append(_statsHandler.getDispatchedTime99()).append("</dispatchedTime99Ms>\n");
  
         sb.append("    <asyncRequests>").append(_statsHandler.getAsyncRequests()).append("</asyncRequests>\n");
         sb.append("    <requestsSuspended>").append(_statsHandler.getAsyncRequestsWaiting()).append("</requestsSuspended>\n");
@@ -198,6 +202,8 @@ public class StatisticsServlet extends HttpServlet
                 sb.append("      <connectionsDurationMean>").append(connectionStats.getConnectionDurationMean()).append("</connectionsDurationMean>\n");
                 sb.append("      <connectionsDurationMax>").append(connectionStats.getConnectionDurationMax()).append("</connectionsDurationMax>\n");
                 sb.append("      <connectionsDurationStdDev>").append(connectionStats.getConnectionDurationStdDev()).append("</connectionsDurationStdDev>\n");
+                sb.append("      <connectionsDuration50>").append(connectionStats.getConnectionDuration50()).append("</connectionsDuration50>\n");
+                sb.append("      <connectionsDuration99>").append(connectionStats.getConnectionDuration99()).append("</connectionsDuration99>\n");
                 sb.append("      <bytesIn>").append(connectionStats.getReceivedBytes()).append("</bytesIn>\n");
                 sb.append("      <bytesOut>").append(connectionStats.getSentBytes()).append("</connectorStats>\n");
                 sb.append("      <messagesIn>").append(connectionStats.getReceivedMessages()).append("</messagesIn>\n");
@@ -267,6 +273,8 @@ public class StatisticsServlet extends HttpServlet
                 sb.append("Mean connection duration: ").append(connectionStats.getConnectionDurationMean()).append("<br />\n");
                 sb.append("Max connection duration: ").append(connectionStats.getConnectionDurationMax()).append("<br />\n");
                 sb.append("Connection duration standard deviation: ").append(connectionStats.getConnectionDurationStdDev()).append("<br />\n");
+                sb.append("Median connection duration: ").append(connectionStats.getConnectionDuration50()).append("<br />\n");
+                sb.append("99th percentile connection duration: ").append(connectionStats.getConnectionDuration99()).append("<br />\n");
                 sb.append("Total bytes received: ").append(connectionStats.getReceivedBytes()).append("<br />\n");
                 sb.append("Total bytes sent: ").append(connectionStats.getSentBytes()).append("<br />\n");
                 sb.append("Total messages received: ").append(connectionStats.getReceivedMessages()).append("<br />\n");
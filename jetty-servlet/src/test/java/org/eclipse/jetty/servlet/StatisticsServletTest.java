@@ -40,6 +40,9 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringReader;
 import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class StatisticsServletTest
 {
@@ -99,6 +102,38 @@ public class StatisticsServletTest
         Assert.assertEquals(1, stats.responses4xx);
     }
 
+    @Test
+    public void testEndpointStatistics()
+        throws Exception
+    {
+        StatisticsHandler statsHandler = new StatisticsHandler();
+        statsHandler.setEndpointStatistics( true );
+        _server.setHandler(statsHandler);
+        ServletContextHandler context = new ServletContextHandler(statsHandler, "/ctx");
+        context.addServlet( new ServletHolder( new TestServlet() ), "/test1" );
+        context.addServlet( new ServletHolder( new TestServlet() ), "/test2/*" );
+        _server.start();
+
+        getResponse("/ctx/test1" );
+        getResponse("/ctx/test1" );
+        getResponse("/ctx/test2/x" );
+        getResponse("/nothing" );
+
+        // Responses may be received before the statistics are updated.
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((statsHandler.getRequests() < 4 || statsHandler.getRequestsActive() > 0) && System.nanoTime() < end)
+            Thread.sleep(10);
+
+        Map<String, StatisticsHandler.EndpointStatistics> endpoints = new HashMap<>();
+        for (StatisticsHandler.EndpointStatistics endpoint : statsHandler.getEndpointStatistics())
+            endpoints.put(endpoint.getContextPath() + endpoint.getPathSpec(), endpoint);
+
+        Assert.assertEquals(2, endpoints.get("/ctx/test1").getRequests());
+        Assert.assertEquals(1, endpoints.get("/ctx/test2/*").getRequests());
+        Assert.assertEquals(1, endpoints.get(StatisticsHandler.OTHER_ENDPOINT + StatisticsHandler.OTHER_ENDPOINT).getRequests());
+        Assert.assertTrue(endpoints.get("/ctx/test1").getResponseBytes().getMax() > 0);
+    }
+
     public String getResponse( String path )
         throws Exception
     {
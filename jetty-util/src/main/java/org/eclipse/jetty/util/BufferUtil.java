@@ -558,6 +558,34 @@ public class BufferUtil
         return new String(array, buffer.arrayOffset() + position, length, charset);
     }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * Finds the first byte that is not US-ASCII.
+     * <p>The bytes are read 8 at a time as a long, in which any byte that
+     * is not US-ASCII has its high bit set, before the byte is looked for.</p>
+     *
+     * @param buffer the buffer to test. The buffer is unchanged
+     * @param position the absolute index of the first byte to test
+     * @param length the number of bytes to test
+     * @return the absolute index of the first byte that is not US-ASCII, or -1 if all the bytes are US-ASCII
+     */
+    public static int indexOfNonAscii(ByteBuffer buffer, int position, int length)
+    {
+        int end = position + length;
+        int i = position;
+        for (int limit = end - 7; i < limit; i += 8)
+        {
+            if ((buffer.getLong(i) & 0x8080808080808080L) != 0)
+                break;
+        }
+        for (; i < end; i++)
+        {
+            if (buffer.get(i) < 0)
+                return i;
+        }
+        return -1;
+    }
+
     /* ------------------------------------------------------------ */
     /**
      * Convert buffer to an integer. Parses up to the first non-numeric character. If no number is found an IllegalArgumentException is thrown
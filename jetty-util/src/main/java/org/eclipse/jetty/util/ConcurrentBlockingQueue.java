@@ -0,0 +1,335 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>A lock-free {@link BlockingQueue}.</p>
+ * <p>Elements are stored in a {@link ConcurrentLinkedQueue}, so that {@link #offer(Object)}
+ * and {@link #poll()} never take a lock, unlike {@link BlockingArrayQueue} where producers
+ * contend on the tail lock and consumers on the head lock.</p>
+ * <p>Consumers that find the queue empty in {@link #take()} or {@link #poll(long, TimeUnit)}
+ * register themselves in a queue of waiters and {@link LockSupport#park(Object) park}.
+ * Producers only unpark a waiter if there is one, so that offering an element to a queue
+ * without waiting consumers costs no more than the non-blocking offer.</p>
+ * <p>This queue is suitable as the job queue of a
+ * {@link org.eclipse.jetty.util.thread.QueuedThreadPool}.</p>
+ *
+ * @param <E> the type of the elements
+ */
+public class ConcurrentBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E>
+{
+    private final Queue<E> _elements = new ConcurrentLinkedQueue<>();
+    private final Queue<Waiter> _waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger _size = new AtomicInteger();
+    private final int _maxCapacity;
+
+    public ConcurrentBlockingQueue()
+    {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxCapacity the max number of elements of this queue
+     */
+    public ConcurrentBlockingQueue(int maxCapacity)
+    {
+        if (maxCapacity <= 0)
+            throw new IllegalArgumentException("maxCapacity <= 0");
+        _maxCapacity = maxCapacity;
+    }
+
+    /**
+     * @return the max number of elements of this queue
+     */
+    public int getMaxCapacity()
+    {
+        return _maxCapacity;
+    }
+
+    @Override
+    public boolean offer(E e)
+    {
+        Objects.requireNonNull(e);
+        if (_maxCapacity == Integer.MAX_VALUE)
+        {
+            _size.incrementAndGet();
+        }
+        else
+        {
+            while (true)
+            {
+                int size = _size.get();
+                if (size >= _maxCapacity)
+                    return false;
+                if (_size.compareAndSet(size, size + 1))
+                    break;
+            }
+        }
+        _elements.offer(e);
+        if (!_waiters.isEmpty())
+            signal();
+        return true;
+    }
+
+    @Override
+    public E poll()
+    {
+        E e = _elements.poll();
+        if (e != null)
+            _size.decrementAndGet();
+        return e;
+    }
+
+    @Override
+    public E peek()
+    {
+        return _elements.peek();
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException
+    {
+        if (!offer(e))
+            throw new IllegalStateException("Queue full");
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException
+    {
+        // Producers never block: the queue is either unbounded or fails fast like BlockingArrayQueue.
+        return offer(e);
+    }
+
+    @Override
+    public E take() throws InterruptedException
+    {
+        return await(false, 0);
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        return await(true, unit.toNanos(timeout));
+    }
+
+    private E await(boolean timed, long nanos) throws InterruptedException
+    {
+        long deadline = timed ? System.nanoTime() + nanos : 0;
+        while (true)
+        {
+            E e = poll();
+            if (e != null)
+                return e;
+            if (timed && deadline - System.nanoTime() <= 0)
+                return null;
+
+            // Register before polling again, so that either the
+            // poll sees a concurrent offer, or the offer sees the waiter.
+            Waiter waiter = new Waiter(Thread.currentThread());
+            _waiters.offer(waiter);
+            try
+            {
+                e = poll();
+                if (e != null)
+                    return e;
+
+                while (waiter._state == Waiter.WAITING)
+                {
+                    if (Thread.interrupted())
+                        throw new InterruptedException();
+                    if (timed)
+                    {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0)
+                            return null;
+                        LockSupport.parkNanos(this, remaining);
+                    }
+                    else
+                    {
+                        LockSupport.park(this);
+                    }
+                }
+            }
+            finally
+            {
+                if (waiter.cancel())
+                {
+                    // Cancelled waiters are skipped lazily by signal().
+                    prune();
+                }
+                else if (!isEmpty())
+                {
+                    // We were signalled, but the element may have been taken
+                    // by another consumer, or more elements may be available:
+                    // pass the signal on so that no wakeup is lost.
+                    signal();
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>Removes the cancelled waiters at the head of the waiters queue,
+     * so that waiters that timed out do not accumulate when no element
+     * is offered.</p>
+     */
+    private void prune()
+    {
+        while (true)
+        {
+            Waiter waiter = _waiters.peek();
+            if (waiter == null || waiter._state != Waiter.CANCELLED)
+                return;
+            waiter = _waiters.poll();
+            // Lost a race with signal() or another prune(): the
+            // polled waiter is woken up and will register again.
+            if (waiter != null && waiter._state != Waiter.CANCELLED)
+            {
+                waiter.signal();
+                return;
+            }
+        }
+    }
+
+    private void signal()
+    {
+        while (true)
+        {
+            Waiter waiter = _waiters.poll();
+            if (waiter == null || waiter.signal())
+                return;
+        }
+    }
+
+    @Override
+    public boolean remove(Object o)
+    {
+        if (_elements.remove(o))
+        {
+            _size.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int size()
+    {
+        return _size.get();
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return _elements.isEmpty();
+    }
+
+    @Override
+    public int remainingCapacity()
+    {
+        return _maxCapacity - size();
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c)
+    {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements)
+    {
+        int count = 0;
+        while (count < maxElements)
+        {
+            E e = poll();
+            if (e == null)
+                break;
+            c.add(e);
+            ++count;
+        }
+        return count;
+    }
+
+    /**
+     * @return a weakly consistent iterator over the elements, that does not support removal
+     */
+    @Override
+    public Iterator<E> iterator()
+    {
+        Iterator<E> iterator = _elements.iterator();
+        return new Iterator<E>()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public E next()
+            {
+                return iterator.next();
+            }
+        };
+    }
+
+    private static class Waiter
+    {
+        private static final AtomicIntegerFieldUpdater<Waiter> STATE = AtomicIntegerFieldUpdater.newUpdater(Waiter.class, "_state");
+        private static final int WAITING = 0;
+        private static final int SIGNALLED = 1;
+        private static final int CANCELLED = 2;
+
+        private final Thread _thread;
+        volatile int _state;
+
+        private Waiter(Thread thread)
+        {
+            _thread = thread;
+        }
+
+        private boolean signal()
+        {
+            if (STATE.compareAndSet(this, WAITING, SIGNALLED))
+            {
+                LockSupport.unpark(_thread);
+                return true;
+            }
+            return false;
+        }
+
+        private boolean cancel()
+        {
+            return STATE.compareAndSet(this, WAITING, CANCELLED);
+        }
+    }
+}
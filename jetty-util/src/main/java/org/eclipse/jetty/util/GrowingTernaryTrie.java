@@ -0,0 +1,460 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.util;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * <p>A Ternary Trie String lookup data structure that grows as keys are added.</p>
+ * <p>
+ * Like {@link ArrayTernaryTrie}, the rows of the Trie are stored contiguously in a
+ * single <code>int[] _tree</code> array, every 4 sequential elements representing a row of:
+ * character; low index; equal index; high index. The rows are allocated in the order
+ * the keys are added, so the rows of a key are mostly adjacent in memory. The keys and
+ * values of the rows are stored in parallel arrays.
+ * </p>
+ * <p>
+ * Rather than failing {@link #put(String, Object)} when its capacity is exhausted, the
+ * Trie doubles its arrays, up to an optional max capacity, so that caches do not have
+ * to be rebuilt and small Tries only use the memory they need. A max capacity can be
+ * set to bound the memory of Tries used as caches of untrusted input, in which case
+ * {@link #isFull()} reports when it is reached.
+ * </p>
+ * <p>
+ * The lookups are iterative and work directly on the content of Strings, byte arrays,
+ * and heap or direct {@link ByteBuffer}s, whose bytes are assumed to be ISO-8859-1
+ * characters. Case insensitive Tries fold the case of US-ASCII characters.
+ * </p>
+ * <p>This Trie is not Threadsafe and contains no mutual exclusion
+ * or deliberate memory barriers.  It is intended for the Trie to be
+ * built by a single thread and then used concurrently by multiple threads
+ * and not mutated during that access.  If concurrent mutations of the
+ * Trie is required external locks need to be applied.
+ * </p>
+ *
+ * @param <V> the Entry type
+ */
+public class GrowingTernaryTrie<V> extends AbstractTrie<V>
+{
+    private static final int LO=1;
+    private static final int EQ=2;
+    private static final int HI=3;
+
+    /**
+     * The Size of a Trie row is the char, and the low, equal and high
+     * child pointers
+     */
+    private static final int ROW_SIZE = 4;
+
+    /**
+     * The character of a row that has not been used to branch yet.
+     */
+    private static final int UNSET = -1;
+
+    /**
+     * The max capacity that can be indexed in the _tree array.
+     */
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE/ROW_SIZE;
+
+    private final int _maxCapacity;
+
+    /**
+     * The Trie rows in a single array, each row being the character
+     * and the indexes of the low, equal and high rows.
+     */
+    private int[] _tree;
+
+    /**
+     * The key (if any) for a Trie row.
+     */
+    private String[] _key;
+
+    /**
+     * The value (if any) for a Trie row.
+     */
+    private Object[] _value;
+
+    /**
+     * The number of rows allocated
+     */
+    private int _rows;
+
+    /* ------------------------------------------------------------ */
+    /** Create a case insensitive Trie of small initial capacity and no max capacity.
+     */
+    public GrowingTernaryTrie()
+    {
+        this(true);
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Create a Trie of small initial capacity and no max capacity.
+     * @param insensitive true if the Trie is insensitive to the case of the key.
+     */
+    public GrowingTernaryTrie(boolean insensitive)
+    {
+        this(insensitive,16);
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Create a Trie with no max capacity.
+     * @param insensitive true if the Trie is insensitive to the case of the key.
+     * @param capacity The initial capacity of the Trie, in rows.
+     */
+    public GrowingTernaryTrie(boolean insensitive, int capacity)
+    {
+        this(insensitive,capacity,MAX_CAPACITY);
+    }
+
+    /* ------------------------------------------------------------ */
+    /** Create a Trie.
+     * @param insensitive true if the Trie is insensitive to the case of the key.
+     * @param capacity The initial capacity of the Trie, in rows.
+     * @param maxCapacity The max capacity of the Trie, in rows. As for the capacity of an
+     * {@link ArrayTernaryTrie}, each key needs a row per character plus a row for its value,
+     * so in the worst case this is the total number of characters of all keys stored in
+     * the Trie plus the number of keys.
+     */
+    public GrowingTernaryTrie(boolean insensitive, int capacity, int maxCapacity)
+    {
+        super(insensitive);
+        if (maxCapacity<1 || maxCapacity>MAX_CAPACITY)
+            throw new IllegalArgumentException("maxCapacity "+maxCapacity);
+        if (capacity<1)
+            throw new IllegalArgumentException("capacity "+capacity);
+        _maxCapacity=maxCapacity;
+        init(Math.min(capacity,maxCapacity));
+    }
+
+    /* ------------------------------------------------------------ */
+    private void init(int capacity)
+    {
+        _tree=new int[capacity*ROW_SIZE];
+        _key=new String[capacity];
+        _value=new Object[capacity];
+        // The root row, for the empty key.
+        _tree[0]=UNSET;
+        _rows=1;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the number of rows the Trie can hold before growing
+     */
+    public int getCapacity()
+    {
+        return _key.length;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the max number of rows the Trie can hold
+     */
+    public int getMaxCapacity()
+    {
+        return _maxCapacity;
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public void clear()
+    {
+        init(Math.min(16,_maxCapacity));
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the index of a new row, or -1 if the max capacity is reached
+     */
+    private int newRow()
+    {
+        if (_rows==_key.length)
+        {
+            if (_rows==_maxCapacity)
+                return -1;
+            int capacity=(int)Math.min((long)_rows*2,_maxCapacity);
+            _tree=Arrays.copyOf(_tree,capacity*ROW_SIZE);
+            _key=Arrays.copyOf(_key,capacity);
+            _value=Arrays.copyOf(_value,capacity);
+        }
+        int t=_rows++;
+        _tree[t*ROW_SIZE]=UNSET;
+        return t;
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public boolean put(String s, V v)
+    {
+        int t=0;
+        int limit=s.length();
+        for (int k=0; k<limit; k++)
+        {
+            int c=s.charAt(k);
+            if (isCaseInsensitive() && c<128)
+                c=StringUtil.lowercases[c];
+
+            while (true)
+            {
+                int row=ROW_SIZE*t;
+                int n=_tree[row];
+                if (n==UNSET)
+                    _tree[row]=n=c;
+
+                int branch=c==n?EQ:(c<n?LO:HI);
+                int next=_tree[row+branch];
+                if (next==0)
+                {
+                    // Allocate before linking, so a full Trie is left consistent.
+                    next=newRow();
+                    if (next<0)
+                        return false;
+                    _tree[row+branch]=next;
+                }
+                t=next;
+                if (branch==EQ)
+                    break;
+            }
+        }
+
+        _key[t]=v==null?null:s;
+        _value[t]=v;
+        return true;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param t the current row
+     * @param c the next character of the key, case folded if need be
+     * @return the row following the character or 0 if the key is not in the Trie
+     */
+    private int next(int t, int c)
+    {
+        int[] tree=_tree;
+        while (true)
+        {
+            int row=ROW_SIZE*t;
+            int n=tree[row];
+            if (c==n)
+                return tree[row+EQ];
+            t=tree[row+(c<n?LO:HI)];
+            if (t==0)
+                return 0;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    private int fold(int c)
+    {
+        return (_caseInsensitive && c<128)?StringUtil.lowercases[c]:c;
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(String s, int offset, int len)
+    {
+        int t=0;
+        for (int i=0; i<len; i++)
+        {
+            t=next(t,fold(s.charAt(offset+i)));
+            if (t==0)
+                return null;
+        }
+        return (V)_value[t];
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(ByteBuffer b, int offset, int len)
+    {
+        int t=0;
+        if (b.hasArray())
+        {
+            byte[] array=b.array();
+            int o=b.arrayOffset()+b.position()+offset;
+            for (int i=0; i<len; i++)
+            {
+                t=next(t,fold(array[o+i]&0xFF));
+                if (t==0)
+                    return null;
+            }
+        }
+        else
+        {
+            int o=b.position()+offset;
+            for (int i=0; i<len; i++)
+            {
+                t=next(t,fold(b.get(o+i)&0xFF));
+                if (t==0)
+                    return null;
+            }
+        }
+        return (V)_value[t];
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V getBest(String s, int offset, int len)
+    {
+        int t=0;
+        int best=0;
+        for (int i=0; i<len; i++)
+        {
+            t=next(t,fold(s.charAt(offset+i)));
+            if (t==0)
+                break;
+            if (_key[t]!=null)
+                best=t;
+        }
+        return (V)_value[best];
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V getBest(byte[] b, int offset, int len)
+    {
+        int t=0;
+        int best=0;
+        for (int i=0; i<len; i++)
+        {
+            t=next(t,fold(b[offset+i]&0xFF));
+            if (t==0)
+                break;
+            if (_key[t]!=null)
+                best=t;
+        }
+        return (V)_value[best];
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V getBest(ByteBuffer b, int offset, int len)
+    {
+        if (b.hasArray())
+            return getBest(b.array(),b.arrayOffset()+b.position()+offset,len);
+
+        int t=0;
+        int best=0;
+        int o=b.position()+offset;
+        for (int i=0; i<len; i++)
+        {
+            t=next(t,fold(b.get(o+i)&0xFF));
+            if (t==0)
+                break;
+            if (_key[t]!=null)
+                best=t;
+        }
+        return (V)_value[best];
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public String toString()
+    {
+        StringBuilder buf = new StringBuilder();
+        for (int r=0;r<_rows;r++)
+        {
+            if (_key[r]!=null && _value[r]!=null)
+            {
+                buf.append(',');
+                buf.append(_key[r]);
+                buf.append('=');
+                buf.append(_value[r].toString());
+            }
+        }
+        if (buf.length()==0)
+            return "{}";
+
+        buf.setCharAt(0,'{');
+        buf.append('}');
+        return buf.toString();
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public Set<String> keySet()
+    {
+        Set<String> keys = new HashSet<>();
+        for (int r=0;r<_rows;r++)
+        {
+            if (_key[r]!=null && _value[r]!=null)
+                keys.add(_key[r]);
+        }
+        return keys;
+    }
+
+    /* ------------------------------------------------------------ */
+    public int size()
+    {
+        int s=0;
+        for (int r=0;r<_rows;r++)
+        {
+            if (_key[r]!=null && _value[r]!=null)
+                s++;
+        }
+        return s;
+    }
+
+    /* ------------------------------------------------------------ */
+    public boolean isEmpty()
+    {
+        for (int r=0;r<_rows;r++)
+        {
+            if (_key[r]!=null && _value[r]!=null)
+                return false;
+        }
+        return true;
+    }
+
+    /* ------------------------------------------------------------ */
+    @SuppressWarnings("unchecked")
+    public Set<Map.Entry<String,V>> entrySet()
+    {
+        Set<Map.Entry<String,V>> entries = new HashSet<>();
+        for (int r=0;r<_rows;r++)
+        {
+            if (_key[r]!=null && _value[r]!=null)
+                entries.add(new AbstractMap.SimpleEntry<>(_key[r],(V)_value[r]));
+        }
+        return entries;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return true if the max capacity is reached, in which case
+     * adding a key that needs new rows fails
+     */
+    @Override
+    public boolean isFull()
+    {
+        return _rows==_maxCapacity;
+    }
+}
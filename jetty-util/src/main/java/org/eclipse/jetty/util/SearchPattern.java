@@ -0,0 +1,178 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * <p>A byte pattern searched for with the Boyer-Moore-Horspool algorithm.</p>
+ * <p>The pattern is compared from its last byte and, on a mismatch, the search
+ * skips ahead by the distance given by a table indexed by the byte of the data
+ * aligned with the last byte of the pattern, so that most of the bytes of the data
+ * are not compared at all for long patterns such as multipart boundaries.</p>
+ * <p>To search a pattern across several chunks of data, a chunk that ends with a
+ * partial match, as returned by {@link #endsWith(byte[], int, int)}, can be
+ * continued in the next chunk with {@link #startsWith(byte[], int, int, int)}.
+ * When the partial match is not continued, the matched bytes are not searched
+ * again, which is exact only if the first byte of the pattern does not occur
+ * elsewhere in the pattern, as for {@code "\r\n--boundary"}.</p>
+ * <p>Instances are immutable and thread safe.</p>
+ */
+public class SearchPattern
+{
+    private final byte[] _pattern;
+    private final int[] _skip = new int[256];
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param pattern the pattern to search for
+     * @return the compiled pattern
+     */
+    public static SearchPattern compile(byte[] pattern)
+    {
+        return new SearchPattern(Arrays.copyOf(pattern, pattern.length));
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param pattern the pattern to search for, encoded as ISO-8859-1
+     * @return the compiled pattern
+     */
+    public static SearchPattern compile(String pattern)
+    {
+        return new SearchPattern(pattern.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /* ------------------------------------------------------------ */
+    private SearchPattern(byte[] pattern)
+    {
+        if (pattern.length == 0)
+            throw new IllegalArgumentException("Empty pattern");
+        _pattern = pattern;
+        Arrays.fill(_skip, pattern.length);
+        for (int i = 0; i < pattern.length - 1; i++)
+            _skip[pattern[i] & 0xFF] = pattern.length - 1 - i;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the length of the pattern
+     */
+    public int getLength()
+    {
+        return _pattern.length;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Searches the first match of the pattern.
+     *
+     * @param data the data to search
+     * @param offset the offset of the data
+     * @param length the length of the data
+     * @return the index in the array of the first match, or -1 if the pattern is not found
+     */
+    public int match(byte[] data, int offset, int length)
+    {
+        checkBounds(data, offset, length);
+        int last = _pattern.length - 1;
+        int end = offset + length - _pattern.length;
+        int s = offset;
+        while (s <= end)
+        {
+            int i = last;
+            while (data[s + i] == _pattern[i])
+            {
+                if (i == 0)
+                    return s;
+                i--;
+            }
+            s += _skip[data[s + last] & 0xFF];
+        }
+        return -1;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Searches a partial match of the pattern at the end of the data.
+     *
+     * @param data the data to search
+     * @param offset the offset of the data
+     * @param length the length of the data
+     * @return the length of the longest prefix of the pattern that ends the data,
+     * less than the length of the pattern, or 0 if the data does not end with a prefix
+     */
+    public int endsWith(byte[] data, int offset, int length)
+    {
+        checkBounds(data, offset, length);
+        int end = offset + length;
+        for (int matched = Math.min(length, _pattern.length - 1); matched > 0; matched--)
+        {
+            int start = end - matched;
+            int i = 0;
+            while (i < matched && data[start + i] == _pattern[i])
+                i++;
+            if (i == matched)
+                return matched;
+        }
+        return 0;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Continues a partial match of the pattern at the start of the data.
+     *
+     * @param data the data to search
+     * @param offset the offset of the data
+     * @param length the length of the data
+     * @param matched the length of the prefix of the pattern already matched
+     * @return the length of the prefix of the pattern matched with the data,
+     * which is the length of the pattern for a complete match, or -1 if the data
+     * does not continue the partial match
+     */
+    public int startsWith(byte[] data, int offset, int length, int matched)
+    {
+        checkBounds(data, offset, length);
+        if (matched < 0 || matched > _pattern.length)
+            throw new IllegalArgumentException("matched " + matched);
+        int count = Math.min(length, _pattern.length - matched);
+        for (int i = 0; i < count; i++)
+        {
+            if (data[offset + i] != _pattern[matched + i])
+                return -1;
+        }
+        return matched + count;
+    }
+
+    /* ------------------------------------------------------------ */
+    private static void checkBounds(byte[] data, int offset, int length)
+    {
+        if (offset < 0 || length < 0 || offset + length > data.length)
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", array " + data.length);
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{%s}", getClass().getSimpleName(), hashCode(), TypeUtil.toHexString(_pattern));
+    }
+}
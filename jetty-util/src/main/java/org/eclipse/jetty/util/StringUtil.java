@@ -19,6 +19,7 @@
 package org.eclipse.jetty.util;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
@@ -371,6 +372,21 @@ public class StringUtil
         return new String(b,offset,length,StandardCharsets.UTF_8);
     }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * Finds the first byte that is not US-ASCII.
+     * <p>The bytes are tested 8 at a time, as by {@link BufferUtil#indexOfNonAscii(ByteBuffer, int, int)}.</p>
+     *
+     * @param b the bytes to test
+     * @param offset the offset of the first byte to test
+     * @param length the number of bytes to test
+     * @return the index of the first byte that is not US-ASCII, or -1 if all the bytes are US-ASCII
+     */
+    public static int indexOfNonAscii(byte[] b,int offset,int length)
+    {
+        return BufferUtil.indexOfNonAscii(ByteBuffer.wrap(b),offset,length);
+    }
+
     /* ------------------------------------------------------------ */
     public static String toString(byte[] b,int offset,int length,String charset)
     {
@@ -0,0 +1,427 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>An incremental parser of {@code application/x-www-form-urlencoded} content.</p>
+ * <p>The content is parsed as it arrives, from {@link ByteBuffer}s, byte arrays or
+ * an {@link InputStream}, and the percent decoded bytes of the names and values are
+ * stored in a single byte array, each field being 3 offsets into that array. The
+ * names and values are only converted to Strings when they are requested, with a
+ * single {@link Utf8StringBuilder} for UTF-8 content. The values of a name can be
+ * {@link #getValue(String) looked up} without converting the names of the fields
+ * to Strings.</p>
+ * <p>The max length of the content is enforced as the content is parsed. The max
+ * number of keys is enforced, as by {@link UrlEncoded}, when the fields are added
+ * to a {@link MultiMap}.</p>
+ * <p>A parser can be {@link #reset(Charset, int) reset} and reused for another
+ * content, so that its arrays are reused, unless they have grown too large. A parser
+ * that is kept idle, for example by a pooled object, should be {@link #clear() cleared}
+ * so that it does not retain its arrays.</p>
+ * <p>The charset must encode the US-ASCII characters as single bytes, as UTF-8
+ * and ISO-8859-1 do. This class is not thread safe.</p>
+ */
+public class UrlEncodedParser
+{
+    // Arrays larger than these are not retained by reset().
+    private static final int MAX_RETAINED_BYTES = 64 * 1024;
+    private static final int MAX_RETAINED_FIELDS = 1024;
+    private static final int FIELD_SIZE = 3;
+    private static final byte[] NO_BYTES = new byte[0];
+    private static final int[] NO_FIELDS = new int[0];
+
+    private Utf8StringBuilder _utf8;
+    private Charset _charset = StandardCharsets.UTF_8;
+    private int _maxLength = -1;
+    private long _consumed;
+    // The decoded bytes of the names and values.
+    private byte[] _bytes = new byte[256];
+    private int _length;
+    // For each field, the offsets of the name start, name end (and value start) and value end.
+    private int[] _fields = new int[16 * FIELD_SIZE];
+    private int _size;
+    // The names and values converted to String, lazily.
+    private String[] _strings;
+    private int _fieldStart;
+    private int _nameEnd = -1;
+    // 1 after a '%', 2 after a '%' and a hex digit.
+    private int _escape;
+    private int _escapeHi;
+    private byte[] _chunk;
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Resets the parser for a new content.
+     *
+     * @param charset the charset of the content, or null for UTF-8
+     * @param maxLength the max length of the content, or -1 for no limit
+     */
+    public void reset(Charset charset, int maxLength)
+    {
+        _charset = charset == null ? StandardCharsets.UTF_8 : charset;
+        _maxLength = maxLength;
+        _consumed = 0;
+        _length = 0;
+        _size = 0;
+        _fieldStart = 0;
+        _nameEnd = -1;
+        _escape = 0;
+        _strings = null;
+        if (_bytes.length > MAX_RETAINED_BYTES)
+            _bytes = new byte[256];
+        if (_fields.length > MAX_RETAINED_FIELDS * FIELD_SIZE)
+            _fields = new int[16 * FIELD_SIZE];
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * <p>Resets the parser and releases all its arrays, that are allocated
+     * again when another content is parsed.</p>
+     */
+    public void clear()
+    {
+        reset(null, -1);
+        _bytes = NO_BYTES;
+        _fields = NO_FIELDS;
+        _chunk = null;
+        _utf8 = null;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Parses all the remaining bytes of a buffer.
+     *
+     * @param buffer the buffer to parse, whose position is moved to its limit
+     * @throws IllegalStateException if the content is too large
+     * @throws IllegalArgumentException if the content has an invalid percent encoding
+     */
+    public void parse(ByteBuffer buffer)
+    {
+        if (buffer.hasArray())
+        {
+            int remaining = buffer.remaining();
+            parse(buffer.array(), buffer.arrayOffset() + buffer.position(), remaining);
+            buffer.position(buffer.limit());
+            return;
+        }
+
+        byte[] chunk = chunk();
+        while (buffer.hasRemaining())
+        {
+            int length = Math.min(chunk.length, buffer.remaining());
+            buffer.get(chunk, 0, length);
+            parse(chunk, 0, length);
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Parses a stream until its end, reading it by chunks.
+     *
+     * @param in the stream to parse
+     * @throws IOException if the stream cannot be read
+     * @throws IllegalStateException if the content is too large
+     * @throws IllegalArgumentException if the content has an invalid percent encoding
+     */
+    public void parse(InputStream in) throws IOException
+    {
+        byte[] chunk = chunk();
+        int length;
+        while ((length = in.read(chunk)) >= 0)
+            parse(chunk, 0, length);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Parses bytes of the content.
+     *
+     * @param b the array of bytes
+     * @param offset the offset of the first byte to parse
+     * @param length the number of bytes to parse
+     * @throws IllegalStateException if the content is too large
+     * @throws IllegalArgumentException if the content has an invalid percent encoding
+     */
+    public void parse(byte[] b, int offset, int length)
+    {
+        _consumed += length;
+        if (_maxLength >= 0 && _consumed > _maxLength)
+            throw new IllegalStateException("Form is too large");
+
+        // The decoded bytes are never more than the encoded bytes.
+        if (_length + length > _bytes.length)
+            _bytes = Arrays.copyOf(_bytes, Math.max(Math.max(256, _bytes.length * 2), _length + length));
+
+        byte[] bytes = _bytes;
+        int l = _length;
+        int end = offset + length;
+        for (int i = offset; i < end; i++)
+        {
+            byte c = b[i];
+            if (_escape > 0)
+            {
+                int digit = hexDigit(c);
+                if (_escape == 1)
+                {
+                    _escapeHi = digit;
+                    _escape = 2;
+                }
+                else
+                {
+                    bytes[l++] = (byte)((_escapeHi << 4) + digit);
+                    _escape = 0;
+                }
+                continue;
+            }
+
+            switch (c)
+            {
+                case '&':
+                    _length = l;
+                    endField();
+                    break;
+                case '=':
+                    if (_nameEnd < 0)
+                        _nameEnd = l;
+                    else
+                        bytes[l++] = c;
+                    break;
+                case '+':
+                    bytes[l++] = ' ';
+                    break;
+                case '%':
+                    _escape = 1;
+                    break;
+                default:
+                    bytes[l++] = c;
+                    break;
+            }
+        }
+        _length = l;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Completes the parsing of the content, ending the last field.
+     *
+     * @throws IllegalArgumentException if the content ends within a percent encoding
+     */
+    public void complete()
+    {
+        if (_escape > 0)
+            throw new IllegalArgumentException("Not valid encoding '%" + (_escape == 2 ? Integer.toHexString(_escapeHi) : "") + "'");
+        endField();
+    }
+
+    /* ------------------------------------------------------------ */
+    private void endField()
+    {
+        if (_nameEnd >= 0 || _length > _fieldStart)
+        {
+            if ((_size + 1) * FIELD_SIZE > _fields.length)
+                _fields = Arrays.copyOf(_fields, Math.max(16 * FIELD_SIZE, _fields.length * 2));
+            int f = _size * FIELD_SIZE;
+            _fields[f] = _fieldStart;
+            // A field without '=' is a name with an empty value.
+            _fields[f + 1] = _nameEnd < 0 ? _length : _nameEnd;
+            _fields[f + 2] = _length;
+            _size++;
+        }
+        _fieldStart = _length;
+        _nameEnd = -1;
+    }
+
+    /* ------------------------------------------------------------ */
+    private int hexDigit(byte c)
+    {
+        try
+        {
+            return TypeUtil.convertHexDigit((int)c);
+        }
+        catch (NumberFormatException e)
+        {
+            String hi = _escape == 2 ? Integer.toHexString(_escapeHi) : "";
+            throw new IllegalArgumentException("Not valid encoding '%" + hi + (char)(c & 0xFF) + "'");
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    private byte[] chunk()
+    {
+        if (_chunk == null)
+            _chunk = new byte[4096];
+        return _chunk;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the number of fields parsed
+     */
+    public int size()
+    {
+        return _size;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param index the index of the field
+     * @return the decoded name of the field
+     */
+    public String getName(int index)
+    {
+        return string(index, 0);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param index the index of the field
+     * @return the decoded value of the field, empty if the field has no value
+     */
+    public String getValue(int index)
+    {
+        return string(index, 1);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param name the name of the field
+     * @return the decoded value of the first field with the given name, or null
+     */
+    public String getValue(String name)
+    {
+        for (int i = 0; i < _size; i++)
+        {
+            if (nameEquals(i, name))
+                return getValue(i);
+        }
+        return null;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param name the name of the fields
+     * @return the decoded values of the fields with the given name, or null
+     */
+    public List<String> getValues(String name)
+    {
+        List<String> values = null;
+        for (int i = 0; i < _size; i++)
+        {
+            if (nameEquals(i, name))
+            {
+                if (values == null)
+                    values = new ArrayList<>();
+                values.add(getValue(i));
+            }
+        }
+        return values;
+    }
+
+    /* ------------------------------------------------------------ */
+    private boolean nameEquals(int index, String name)
+    {
+        int f = index * FIELD_SIZE;
+        int start = _fields[f];
+        int length = _fields[f + 1] - start;
+        // A character is decoded from at least one byte.
+        if (length < name.length())
+            return false;
+        boolean iso88591 = StandardCharsets.ISO_8859_1.equals(_charset);
+        for (int i = 0; i < length; i++)
+        {
+            int b = _bytes[start + i] & 0xFF;
+            // Multi-byte characters are compared once decoded.
+            if (b >= 0x80 && !iso88591)
+                return getName(index).equals(name);
+            if (i >= name.length() || name.charAt(i) != b)
+                return false;
+        }
+        return length == name.length();
+    }
+
+    /* ------------------------------------------------------------ */
+    private String string(int index, int part)
+    {
+        if (index < 0 || index >= _size)
+            throw new IndexOutOfBoundsException("index " + index + ", size " + _size);
+
+        if (_strings == null || _strings.length < _size * 2)
+            _strings = _strings == null ? new String[_size * 2] : Arrays.copyOf(_strings, _size * 2);
+
+        String string = _strings[index * 2 + part];
+        if (string == null)
+        {
+            int f = index * FIELD_SIZE + part;
+            string = decode(_fields[f], _fields[f + 1]);
+            _strings[index * 2 + part] = string;
+        }
+        return string;
+    }
+
+    /* ------------------------------------------------------------ */
+    private String decode(int start, int end)
+    {
+        int length = end - start;
+        if (length == 0)
+            return "";
+        if (StandardCharsets.UTF_8.equals(_charset))
+        {
+            if (_utf8 == null)
+                _utf8 = new Utf8StringBuilder();
+            _utf8.reset();
+            _utf8.append(_bytes, start, length);
+            return _utf8.toReplacedString();
+        }
+        return new String(_bytes, start, length, _charset);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Adds the fields to a map.
+     *
+     * @param map the map to add the fields to
+     * @param maxKeys the max number of keys of the map, or -1 for no limit
+     * @throws IllegalStateException if the map has too many keys
+     */
+    public void decodeTo(MultiMap<String> map, int maxKeys)
+    {
+        for (int i = 0; i < _size; i++)
+        {
+            map.add(getName(i), getValue(i));
+            if (maxKeys > 0 && map.size() > maxKeys)
+                throw new IllegalStateException(String.format("Form with too many keys [%d > %d]", map.size(), maxKeys));
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{%s,fields=%d,bytes=%d/%d}", getClass().getSimpleName(), hashCode(), _charset, _size, _length, _bytes.length);
+    }
+}
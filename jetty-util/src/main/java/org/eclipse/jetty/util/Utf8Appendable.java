@@ -20,6 +20,7 @@ package org.eclipse.jetty.util;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
@@ -55,6 +56,10 @@ public abstract class Utf8Appendable
     public static final byte[] REPLACEMENT_UTF8 = new byte[] {(byte)0xEF,(byte)0xBF,(byte)0xBD };
     private static final int UTF8_ACCEPT = 0;
     private static final int UTF8_REJECT = 12;
+    // The min length of a run of US-ASCII bytes appended in bulk.
+    private static final int ASCII_RUN = 8;
+    // The number of bytes appended one by one after a shorter run.
+    private static final int ASCII_BACKOFF = 16;
 
     protected final Appendable _appendable;
     protected int _state = UTF8_ACCEPT;
@@ -166,8 +171,33 @@ public abstract class Utf8Appendable
     {
         try
         {
+            if (buf.hasArray())
+            {
+                int remaining = buf.remaining();
+                appendBytes(buf.array(), buf.arrayOffset() + buf.position(), remaining);
+                buf.position(buf.position() + remaining);
+                return;
+            }
+
+            int scan = buf.position();
             while (buf.remaining() > 0)
             {
+                // Bulk append runs of US-ASCII bytes between complete characters.
+                int position = buf.position();
+                if (position >= scan && _state == UTF8_ACCEPT && buf.get(position) >= 0 && buf.remaining() >= ASCII_RUN)
+                {
+                    int nonAscii = BufferUtil.indexOfNonAscii(buf, position, buf.remaining());
+                    int run = (nonAscii < 0 ? buf.limit() : nonAscii) - position;
+                    if (run >= ASCII_RUN)
+                    {
+                        byte[] ascii = new byte[run];
+                        buf.get(ascii);
+                        appendAscii(ascii, 0, run);
+                        continue;
+                    }
+                    // Text mixing short runs with other characters is not scanned again for a while.
+                    scan = nonAscii + ASCII_BACKOFF;
+                }
                 appendByte(buf.get());
             }
         }
@@ -181,9 +211,7 @@ public abstract class Utf8Appendable
     {
         try
         {
-            int end = offset + length;
-            for (int i = offset; i < end; i++)
-                appendByte(b[i]);
+            appendBytes(b, offset, length);
         }
         catch (IOException e)
         {
@@ -191,6 +219,31 @@ public abstract class Utf8Appendable
         }
     }
 
+    private void appendBytes(byte[] b, int offset, int length) throws IOException
+    {
+        int end = offset + length;
+        int i = offset;
+        int scan = offset;
+        while (i < end)
+        {
+            // Bulk append runs of US-ASCII bytes between complete characters.
+            if (i >= scan && _state == UTF8_ACCEPT && b[i] >= 0 && end - i >= ASCII_RUN)
+            {
+                int nonAscii = StringUtil.indexOfNonAscii(b, i, end - i);
+                int run = (nonAscii < 0 ? end : nonAscii) - i;
+                if (run >= ASCII_RUN)
+                {
+                    appendAscii(b, i, run);
+                    i += run;
+                    continue;
+                }
+                // Text mixing short runs with other characters is not scanned again for a while.
+                scan = nonAscii + ASCII_BACKOFF;
+            }
+            appendByte(b[i++]);
+        }
+    }
+
     public boolean append(byte[] b, int offset, int length, int maxChars)
     {
         try
@@ -210,6 +263,21 @@ public abstract class Utf8Appendable
         }
     }
 
+    /**
+     * <p>Appends US-ASCII bytes, which are complete characters whatever the state.</p>
+     * <p>The bytes are appended as a single String, which for the common
+     * {@link StringBuilder} and {@link StringBuffer} appendables is a bulk copy.</p>
+     *
+     * @param b the array of US-ASCII bytes
+     * @param offset the offset of the first byte to append
+     * @param length the number of bytes to append
+     * @throws IOException if the appendable fails
+     */
+    protected void appendAscii(byte[] b, int offset, int length) throws IOException
+    {
+        _appendable.append(new String(b, offset, length, StandardCharsets.ISO_8859_1));
+    }
+
     protected void appendByte(byte b) throws IOException
     {
 
@@ -0,0 +1,312 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.util.resource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.PathWatcher;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+/**
+ * <p>A cache of the attributes of the files of a directory tree, used by the
+ * {@link PathResource}s created with it, so that resolving the same resources
+ * again does not stat the files again.</p>
+ * <p>The cached attributes are whether a file exists, whether it is a directory,
+ * its last modified time and its length. They are invalidated by the events of a
+ * {@link PathWatcher} watching the whole tree, rather than by a time to live, so
+ * they may be stale for the update quiet time of the watcher after a change.
+ * The cache is never used to decide whether a path is an alias: a
+ * {@link PathResource} always checks aliases against the file system.</p>
+ * <p>Only files whose real path is their path are cached, so that every cached
+ * file is within the watched tree. The entries are keyed by the exact string of
+ * the path, so that on a case insensitive file system a path that differs from
+ * the real path only by case does not hit the entry of the real path.
+ * A missing file is cached only if its parent directory is cached.
+ * Attributes are not cached while the cache is not running.</p>
+ * <p>Usage:</p>
+ * <pre>
+ * PathAttributesCache cache = new PathAttributesCache(Paths.get("/var/www"));
+ * server.addBean(cache);
+ * context.setBaseResource(new PathResource(cache.getRoot(), cache));
+ * </pre>
+ */
+@ManagedObject("Cache of the attributes of files")
+public class PathAttributesCache extends ContainerLifeCycle implements PathWatcher.Listener
+{
+    private static final Logger LOG = Log.getLogger(PathAttributesCache.class);
+    private static final Attributes MISSING = new Attributes(false, false, 0, 0);
+
+    // Keyed by Path.toString(), as Path.equals() ignores the case on some file systems.
+    private final ConcurrentMap<String, Attributes> _cache = new ConcurrentHashMap<>();
+    private final AtomicLong _invalidations = new AtomicLong();
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+    private final Path _root;
+    private final PathWatcher _watcher;
+    private int _maxEntries = 64 * 1024;
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param root the root directory of the cached files
+     */
+    public PathAttributesCache(Path root)
+    {
+        _root = root.toAbsolutePath();
+        _watcher = new PathWatcher();
+        _watcher.setNotifyExistingOnStart(false);
+        _watcher.setUpdateQuietTime(100, TimeUnit.MILLISECONDS);
+        PathWatcher.Config config = new PathWatcher.Config(_root);
+        config.setRecurseDepth(PathWatcher.Config.UNLIMITED_DEPTH);
+        _watcher.watch(config);
+        _watcher.addListener(this);
+        addBean(_watcher);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the root directory of the cached files
+     */
+    public Path getRoot()
+    {
+        return _root;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the watcher that invalidates the cache, whose update quiet time is 100 ms by default
+     */
+    public PathWatcher getPathWatcher()
+    {
+        return _watcher;
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("The max number of cached files")
+    public int getMaxEntries()
+    {
+        return _maxEntries;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param maxEntries the max number of cached files, beyond which the attributes of new files are not cached
+     */
+    public void setMaxEntries(int maxEntries)
+    {
+        _maxEntries = maxEntries;
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("The number of cached files")
+    public int getSize()
+    {
+        return _cache.size();
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("The number of lookups of cached attributes")
+    public long getHits()
+    {
+        return _hits.sum();
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("The number of lookups of attributes that were not cached")
+    public long getMisses()
+    {
+        return _misses.sum();
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedOperation(value = "Clears the cache", impact = "ACTION")
+    public void clear()
+    {
+        _invalidations.incrementAndGet();
+        _cache.clear();
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    protected void doStop() throws Exception
+    {
+        super.doStop();
+        clear();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param path the absolute path of a file
+     * @return the attributes of the file, or null if they cannot be cached
+     */
+    Attributes getAttributes(Path path)
+    {
+        if (!isRunning() || !path.startsWith(_root))
+            return null;
+
+        String key = path.toString();
+        Attributes attributes = _cache.get(key);
+        if (attributes != null)
+        {
+            _hits.increment();
+            return attributes;
+        }
+        _misses.increment();
+
+        // An invalidation during the stat makes its result unsafe to cache.
+        long invalidations = _invalidations.get();
+        attributes = stat(path);
+        if (attributes != null && _cache.size() < _maxEntries && _invalidations.get() == invalidations)
+        {
+            _cache.putIfAbsent(key, attributes);
+            if (_invalidations.get() != invalidations)
+                _cache.remove(key, attributes);
+        }
+        return attributes;
+    }
+
+    /* ------------------------------------------------------------ */
+    private Attributes stat(Path path)
+    {
+        try
+        {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if (attributes.isSymbolicLink() || !isRealPath(path))
+                return null;
+            return new Attributes(true, attributes.isDirectory(), attributes.lastModifiedTime().toMillis(), attributes.size());
+        }
+        catch (NoSuchFileException x)
+        {
+            // A missing file is only cached if the creation of the file will be watched.
+            if (path.equals(_root))
+                return null;
+            Attributes parent = getAttributes(path.getParent());
+            if (parent == null || parent.exists() && !parent.isDirectory())
+                return null;
+            return MISSING;
+        }
+        catch (IOException x)
+        {
+            LOG.ignore(x);
+            return null;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    private static boolean isRealPath(Path path) throws IOException
+    {
+        // As PathResource compares the paths to detect an alias.
+        Path real = path.toRealPath();
+        int count = real.getNameCount();
+        if (path.getNameCount() != count)
+            return false;
+        for (int i = count; i-- > 0;)
+        {
+            if (!path.getName(i).toString().equals(real.getName(i).toString()))
+                return false;
+        }
+        return true;
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public void onPathWatchEvent(PathWatcher.PathWatchEvent event)
+    {
+        invalidate(event.getPath());
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * Invalidates the attributes of a file, of the files below it and of its parent directory.
+     *
+     * @param path the path of the file
+     */
+    public void invalidate(Path path)
+    {
+        if (LOG.isDebugEnabled())
+            LOG.debug("invalidate {}", path);
+        _invalidations.incrementAndGet();
+        Path parent = path.getParent();
+        if (parent != null)
+            _cache.remove(parent.toString());
+        String key = path.toString();
+        String prefix = key.endsWith(path.getFileSystem().getSeparator()) ? key : key + path.getFileSystem().getSeparator();
+        _cache.keySet().removeIf(k -> k.equals(key) || k.startsWith(prefix));
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{%s,size=%d}", getClass().getSimpleName(), hashCode(), _root, _cache.size());
+    }
+
+    /* ------------------------------------------------------------ */
+    /* ------------------------------------------------------------ */
+    static class Attributes
+    {
+        private final boolean _exists;
+        private final boolean _directory;
+        private final long _lastModified;
+        private final long _length;
+
+        private Attributes(boolean exists, boolean directory, long lastModified, long length)
+        {
+            _exists = exists;
+            _directory = directory;
+            _lastModified = lastModified;
+            _length = length;
+        }
+
+        boolean exists()
+        {
+            return _exists;
+        }
+
+        boolean isDirectory()
+        {
+            return _directory;
+        }
+
+        long lastModified()
+        {
+            return _lastModified;
+        }
+
+        long length()
+        {
+            return _length;
+        }
+    }
+}
@@ -57,6 +57,7 @@ public class PathResource extends Resource
     private final Path path;
     private final Path alias;
     private final URI uri;
+    private final PathAttributesCache cache;
     
     private final Path checkAliasPath()
     {
@@ -190,9 +191,22 @@ public class PathResource extends Resource
      * @param path the path to use
      */
     public PathResource(Path path)
+    {
+        this(path,null);
+    }
+
+    /**
+     * Construct a new PathResource from a Path object, whose attributes
+     * and those of the resources added to it are cached.
+     *
+     * @param path the path to use
+     * @param cache the cache of the attributes of the files, or null
+     */
+    public PathResource(Path path, PathAttributesCache cache)
     {
         this.path = path.toAbsolutePath();
         assertValidPath(path);
+        this.cache = cache;
         this.uri = this.path.toUri();
         this.alias = checkAliasPath();
     }
@@ -211,6 +225,7 @@ public class PathResource extends Resource
         // obtained via URIUtil.addDecodedPath(uri,childPath)
 
         this.path = parent.path.getFileSystem().getPath(parent.path.toString(), childPath);
+        this.cache = parent.cache;
         if (isDirectory() &&!childPath.endsWith("/"))
             childPath+="/";
         this.uri = URIUtil.addPath(parent.uri,childPath);
@@ -257,6 +272,7 @@ public class PathResource extends Resource
         }
 
         this.path = path.toAbsolutePath();
+        this.cache = null;
         this.uri = path.toUri();
         this.alias = checkAliasPath();
     }
@@ -304,6 +320,11 @@ public class PathResource extends Resource
         return new PathResource(this, subpath);
     }
 
+    private PathAttributesCache.Attributes getCachedAttributes()
+    {
+        return cache==null?null:cache.getAttributes(path);
+    }
+
     private void assertValidPath(Path path)
     {
         // TODO merged from 9.2, check if necessary
@@ -368,6 +389,9 @@ public class PathResource extends Resource
     @Override
     public boolean exists()
     {
+        PathAttributesCache.Attributes attributes = getCachedAttributes();
+        if (attributes!=null)
+            return attributes.exists();
         return Files.exists(path,NO_FOLLOW_LINKS);
     }
 
@@ -448,12 +472,18 @@ public class PathResource extends Resource
     @Override
     public boolean isDirectory()
     {
+        PathAttributesCache.Attributes attributes = getCachedAttributes();
+        if (attributes!=null)
+            return attributes.isDirectory();
         return Files.isDirectory(path,FOLLOW_LINKS);
     }
 
     @Override
     public long lastModified()
     {
+        PathAttributesCache.Attributes attributes = getCachedAttributes();
+        if (attributes!=null)
+            return attributes.lastModified();
         try
         {
             FileTime ft = Files.getLastModifiedTime(path,FOLLOW_LINKS);
@@ -469,6 +499,9 @@ public class PathResource extends Resource
     @Override
     public long length()
     {
+        PathAttributesCache.Attributes attributes = getCachedAttributes();
+        if (attributes!=null)
+            return attributes.length();
         try
         {
             return Files.size(path);
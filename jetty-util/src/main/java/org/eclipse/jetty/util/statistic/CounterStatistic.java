@@ -18,7 +18,6 @@
 
 package org.eclipse.jetty.util.statistic;
 
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAccumulator;
 import java.util.concurrent.atomic.LongAdder;
 
@@ -28,12 +27,15 @@ import java.util.concurrent.atomic.LongAdder;
  * Keep total, current and maximum values of a counter that
  * can be incremented and decremented. The total refers only
  * to increments.
- *
+ * <p>
+ * The values are kept in {@link LongAdder}s, so that concurrent updates
+ * do not contend, and the maximum is only updated when the new value
+ * of the counter is larger than the current maximum.
  */
 public class CounterStatistic
 {
     protected final LongAccumulator _max = new LongAccumulator(Math::max,0L);
-    protected final AtomicLong _current = new AtomicLong();
+    protected final LongAdder _current = new LongAdder();
     protected final LongAdder _total = new LongAdder();
 
     /* ------------------------------------------------------------ */
@@ -41,7 +43,7 @@ public class CounterStatistic
     {
         _total.reset();
         _max.reset();
-        long current=_current.get();
+        long current=_current.sum();
         _total.add(current);
         _max.accumulate(current);
     }
@@ -49,7 +51,8 @@ public class CounterStatistic
     /* ------------------------------------------------------------ */
     public void reset(final long value)
     {
-        _current.set(value);
+        _current.reset();
+        _current.add(value);
         _total.reset();
         _max.reset();
         if (value>0)
@@ -62,15 +65,16 @@ public class CounterStatistic
     /* ------------------------------------------------------------ */
     /**
      * @param delta the amount to add to the count
-     * @return the new value
+     * @return the new value, which may include concurrent updates
      */
     public long add(final long delta)
     {
-        long value=_current.addAndGet(delta);
+        _current.add(delta);
+        long value=_current.sum();
         if (delta > 0)
         {
             _total.add(delta);
-            _max.accumulate(value);
+            updateMax(value);
         }
         return value;
     }
@@ -78,24 +82,34 @@ public class CounterStatistic
     /* ------------------------------------------------------------ */
     /**
      * increment the value by one
-     * @return the new value, post increment
+     * @return the new value, post increment, which may include concurrent updates
      */
     public long increment()
     {
-        long value=_current.incrementAndGet();
+        _current.increment();
         _total.increment();
-        _max.accumulate(value);
+        long value=_current.sum();
+        updateMax(value);
         return value;
     }
 
     /* ------------------------------------------------------------ */
     /**
      * decrement by 1
-     * @return the new value, post-decrement
+     * @return the new value, post-decrement, which may include concurrent updates
      */
     public long decrement()
     {
-        return _current.decrementAndGet();
+        _current.decrement();
+        return _current.sum();
+    }
+
+    /* ------------------------------------------------------------ */
+    private void updateMax(long value)
+    {
+        // Reading the max does not contend, updating it does.
+        if (value>_max.get())
+            _max.accumulate(value);
     }
 
     /* ------------------------------------------------------------ */
@@ -113,7 +127,7 @@ public class CounterStatistic
      */
     public long getCurrent()
     {
-        return _current.get();
+        return _current.sum();
     }
 
     /* ------------------------------------------------------------ */
@@ -129,6 +143,6 @@ public class CounterStatistic
     @Override
     public String toString()
     {
-        return String.format("%s@%x{c=%d,m=%d,t=%d}",this.getClass().getSimpleName(),hashCode(),_current.get(),_max.get(),_total.sum());
+        return String.format("%s@%x{c=%d,m=%d,t=%d}",this.getClass().getSimpleName(),hashCode(),_current.sum(),_max.get(),_total.sum());
     }
 }
@@ -0,0 +1,179 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util.statistic;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Statistics on a distribution of non negative samples, such as latencies or sizes.</p>
+ * <p>Samples are counted in a fixed number of log-linear buckets: each power of two
+ * range is split in 16 linear buckets, so that percentiles are reported with a relative
+ * error below 1/16, whatever the magnitude of the samples, using a fixed amount of memory
+ * that can be further bounded with {@link #HistogramStatistic(long)}.</p>
+ * <p>As a {@link SampleStatistic}, it also provides the count, total, max, mean and
+ * standard deviation of the samples, so it can replace a {@link SampleStatistic}
+ * wherever percentiles are needed.</p>
+ * <p>Recording a sample is lock-free. The statistics read while samples are being
+ * recorded, or while the histogram is being {@link #reset() reset}, are approximate.</p>
+ */
+public class HistogramStatistic extends SampleStatistic
+{
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray _buckets;
+
+    public HistogramStatistic()
+    {
+        this(Long.MAX_VALUE);
+    }
+
+    /**
+     * <p>Creates a histogram that only allocates the buckets needed up to the given value.</p>
+     * <p>Samples above the given value are counted in the last bucket, so percentiles
+     * falling in that bucket are reported as the {@link #getMax() max} sample.</p>
+     *
+     * @param highestTrackableValue the highest sample value tracked with full precision
+     */
+    public HistogramStatistic(long highestTrackableValue)
+    {
+        if (highestTrackableValue < 0)
+            throw new IllegalArgumentException("highestTrackableValue " + highestTrackableValue);
+        _buckets = new AtomicLongArray(bucketOf(highestTrackableValue) + 1);
+    }
+
+    @Override
+    public void reset()
+    {
+        super.reset();
+        for (int i = 0; i < _buckets.length(); ++i)
+            _buckets.set(i, 0);
+    }
+
+    /**
+     * @param sample the sample to record, negative samples are recorded as 0
+     */
+    @Override
+    public void set(long sample)
+    {
+        if (sample < 0)
+            sample = 0;
+        super.set(sample);
+        _buckets.incrementAndGet(Math.min(bucketOf(sample), _buckets.length() - 1));
+    }
+
+    /**
+     * @return the median of the samples
+     * @see #getPercentile(double)
+     */
+    public long get50()
+    {
+        return getPercentile(50);
+    }
+
+    /**
+     * @return the 99th percentile of the samples
+     * @see #getPercentile(double)
+     */
+    public long get99()
+    {
+        return getPercentile(99);
+    }
+
+    /**
+     * @return the 99.9th percentile of the samples
+     * @see #getPercentile(double)
+     */
+    public long get999()
+    {
+        return getPercentile(99.9);
+    }
+
+    /**
+     * @param percentile the percentile, between 0 and 100
+     * @return the highest value of the bucket where the given percentile
+     * of the samples falls, capped to the max sample, or 0 if there are no samples
+     */
+    public long getPercentile(double percentile)
+    {
+        if (percentile < 0 || percentile > 100)
+            throw new IllegalArgumentException("percentile " + percentile);
+
+        long count = 0;
+        long[] buckets = new long[_buckets.length()];
+        for (int i = 0; i < buckets.length; ++i)
+        {
+            buckets[i] = _buckets.get(i);
+            count += buckets[i];
+        }
+        if (count == 0)
+            return 0;
+
+        long rank = Math.max(1, (long)Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; ++i)
+        {
+            seen += buckets[i];
+            if (seen >= rank)
+                return i == buckets.length - 1 ? getMax() : Math.min(highestValueOf(i), getMax());
+        }
+        return getMax();
+    }
+
+    static int bucketOf(long value)
+    {
+        if (value < SUB_BUCKETS)
+            return (int)value;
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int)(value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long lowestValueOf(int bucket)
+    {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        return (SUB_BUCKETS + subBucket) << shift;
+    }
+
+    static long highestValueOf(int bucket)
+    {
+        if (bucket == BUCKETS - 1)
+            return Long.MAX_VALUE;
+        return lowestValueOf(bucket + 1) - 1;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{c=%d,m=%d,t=%d,p50=%d,p99=%d,p999=%d}",
+                getClass().getSimpleName(),
+                hashCode(),
+                getCount(),
+                getMax(),
+                getTotal(),
+                get50(),
+                get99(),
+                get999());
+    }
+}
@@ -0,0 +1,85 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util.statistic;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>A monotonic counter, such as a number of bytes or of messages, that also
+ * reports the rate of its increments.</p>
+ * <p>The counter is a {@link LongAdder}, so that it can be incremented from
+ * many threads without contention. Unlike {@link CounterStatistic} it cannot
+ * be decremented and does not track a current or max value.</p>
+ */
+public class RateCounter
+{
+    private final LongAdder _total = new LongAdder();
+    private final AtomicLong _rateStamp = new AtomicLong(System.nanoTime());
+    private final AtomicLong _rateTotal = new AtomicLong();
+
+    public void reset()
+    {
+        _total.reset();
+        _rateTotal.set(0);
+        _rateStamp.set(System.nanoTime());
+    }
+
+    /**
+     * @param delta the non negative amount to add to the counter
+     */
+    public void add(long delta)
+    {
+        _total.add(delta);
+    }
+
+    public void increment()
+    {
+        _total.increment();
+    }
+
+    /**
+     * @return the total of the counter since the last reset
+     */
+    public long getTotal()
+    {
+        return _total.sum();
+    }
+
+    /**
+     * @return the increments per second of the counter since the last invocation of
+     * this method, or since the last reset
+     */
+    public long getRate()
+    {
+        long now = System.nanoTime();
+        long then = _rateStamp.getAndSet(now);
+        long total = getTotal();
+        long previous = _rateTotal.getAndSet(total);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(now - then);
+        return elapsed <= 0 ? 0 : (total - previous) * 1000 / elapsed;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{t=%d}", getClass().getSimpleName(), hashCode(), getTotal());
+    }
+}
@@ -18,7 +18,6 @@
 
 package org.eclipse.jetty.util.statistic;
 
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAccumulator;
 import java.util.concurrent.atomic.LongAdder;
 
@@ -43,22 +42,26 @@ import org.eclipse.jetty.util.Atomics;
 public class SampleStatistic
 {
     protected final LongAccumulator _max = new LongAccumulator(Math::max,0L);
-    protected final AtomicLong _total = new AtomicLong();
-    protected final AtomicLong _count = new AtomicLong();
+    protected final LongAdder _total = new LongAdder();
+    protected final LongAdder _count = new LongAdder();
     protected final LongAdder _totalVariance100 = new LongAdder();
 
     public void reset()
     {
         _max.reset();
-        _total.set(0);
-        _count.set(0);
+        _total.reset();
+        _count.reset();
         _totalVariance100.reset();
     }
 
     public void set(final long sample)
     {
-        long total = _total.addAndGet(sample);
-        long count = _count.incrementAndGet();
+        _total.add(sample);
+        _count.increment();
+        // The sums may include concurrent samples, which only
+        // slightly changes the mean used to estimate the variance.
+        long total = _total.sum();
+        long count = _count.sum();
 
         if (count>1)
         {
@@ -67,7 +70,9 @@ public class SampleStatistic
             _totalVariance100.add(delta10*delta10);
         }
 
-        _max.accumulate(sample);
+        // Reading the max does not contend, updating it does.
+        if (sample>_max.get())
+            _max.accumulate(sample);
     }
 
     /**
@@ -80,23 +85,23 @@ public class SampleStatistic
 
     public long getTotal()
     {
-        return _total.get();
+        return _total.sum();
     }
 
     public long getCount()
     {
-        return _count.get();
+        return _count.sum();
     }
 
     public double getMean()
     {
-        return (double)_total.get()/_count.get();
+        return (double)_total.sum()/_count.sum();
     }
 
     public double getVariance()
     {
         final long variance100 = _totalVariance100.sum();
-        final long count = _count.get();
+        final long count = _count.sum();
 
         return count>1?((double)variance100)/100.0/(count-1):0.0;
     }
@@ -110,6 +115,6 @@ public class SampleStatistic
     @Override
     public String toString()
     {
-        return String.format("%s@%x{c=%d,m=%d,t=%d,v100=%d}",this.getClass().getSimpleName(),hashCode(),_count.get(),_max.get(),_total.get(),_totalVariance100.sum());
+        return String.format("%s@%x{c=%d,m=%d,t=%d,v100=%d}",this.getClass().getSimpleName(),hashCode(),_count.sum(),_max.get(),_total.sum(),_totalVariance100.sum());
     }
 }
@@ -44,6 +44,7 @@ import org.eclipse.jetty.util.component.DumpableCollection;
 import org.eclipse.jetty.util.component.LifeCycle;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.statistic.HistogramStatistic;
 import org.eclipse.jetty.util.thread.ThreadPool.SizedThreadPool;
 
 @ManagedObject("A thread pool")
@@ -58,6 +59,8 @@ public class QueuedThreadPool extends AbstractLifeCycle implements SizedThreadPo
     private final Object _joinLock = new Object();
     private final BlockingQueue<Runnable> _jobs;
     private final ThreadGroup _threadGroup;
+    private final HistogramStatistic _queueLatency = new HistogramStatistic();
+    private final HistogramStatistic _jobTime = new HistogramStatistic();
     private String _name = "qtp" + hashCode();
     private int _idleTimeout;
     private int _maxThreads;
@@ -65,6 +68,7 @@ public class QueuedThreadPool extends AbstractLifeCycle implements SizedThreadPo
     private int _priority = Thread.NORM_PRIORITY;
     private boolean _daemon = false;
     private boolean _detailedDump = false;
+    private volatile boolean _jobStatistics = false;
     private int _lowThreadsThreshold = 1;
 
     public QueuedThreadPool()
@@ -363,6 +367,92 @@ public class QueuedThreadPool extends AbstractLifeCycle implements SizedThreadPo
         _detailedDump = detailedDump;
     }
     
+    @ManagedAttribute("records the queue latency and execution time of jobs")
+    public boolean isJobStatistics()
+    {
+        return _jobStatistics;
+    }
+
+    /**
+     * <p>Enables the recording of the time jobs wait in the queue before a thread
+     * runs them, and of the time taken to run them.</p>
+     * <p>When disabled (the default), jobs are not timestamped.
+     * Note that the execution time includes long running jobs, such as
+     * the jobs of reserved threads or of selector producers.</p>
+     *
+     * @param jobStatistics whether to record the job statistics
+     */
+    public void setJobStatistics(boolean jobStatistics)
+    {
+        _jobStatistics = jobStatistics;
+    }
+
+    @ManagedAttribute("median time in microseconds jobs wait in the queue")
+    public long getQueueLatency50()
+    {
+        return toMicros(_queueLatency.get50());
+    }
+
+    @ManagedAttribute("99th percentile time in microseconds jobs wait in the queue")
+    public long getQueueLatency99()
+    {
+        return toMicros(_queueLatency.get99());
+    }
+
+    @ManagedAttribute("99.9th percentile time in microseconds jobs wait in the queue")
+    public long getQueueLatency999()
+    {
+        return toMicros(_queueLatency.get999());
+    }
+
+    @ManagedAttribute("max time in microseconds jobs wait in the queue")
+    public long getQueueLatencyMax()
+    {
+        return toMicros(_queueLatency.getMax());
+    }
+
+    @ManagedAttribute("median time in microseconds to run a job")
+    public long getJobTime50()
+    {
+        return toMicros(_jobTime.get50());
+    }
+
+    @ManagedAttribute("99th percentile time in microseconds to run a job")
+    public long getJobTime99()
+    {
+        return toMicros(_jobTime.get99());
+    }
+
+    @ManagedAttribute("99.9th percentile time in microseconds to run a job")
+    public long getJobTime999()
+    {
+        return toMicros(_jobTime.get999());
+    }
+
+    @ManagedAttribute("max time in microseconds to run a job")
+    public long getJobTimeMax()
+    {
+        return toMicros(_jobTime.getMax());
+    }
+
+    @ManagedAttribute("number of jobs with recorded statistics")
+    public long getJobStatisticsCount()
+    {
+        return _jobTime.getCount();
+    }
+
+    @ManagedOperation(value = "resets the job statistics", impact = "ACTION")
+    public void resetJobStatistics()
+    {
+        _queueLatency.reset();
+        _jobTime.reset();
+    }
+
+    private static long toMicros(long nanos)
+    {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
     @ManagedAttribute("threshold at which the pool is low on threads")
     public int getLowThreadsThreshold()
     {
@@ -379,6 +469,8 @@ public class QueuedThreadPool extends AbstractLifeCycle implements SizedThreadPo
     {
         if (LOG.isDebugEnabled())
             LOG.debug("queue {}",job);
+        if (_jobStatistics)
+            job = new TimedJob(job);
         if (!isRunning() || !_jobs.offer(job))
         {
             LOG.warn("{} rejected {}", this, job);
@@ -594,7 +686,10 @@ public class QueuedThreadPool extends AbstractLifeCycle implements SizedThreadPo
                     {
                         if (LOG.isDebugEnabled())
                             LOG.debug("run {}",job);
-                        runJob(job);
+                        if (job instanceof TimedJob)
+                            runTimedJob((TimedJob)job);
+                        else
+                            runJob(job);
                         if (LOG.isDebugEnabled())
                             LOG.debug("ran {}",job);
                         if (Thread.interrupted())
@@ -668,6 +763,20 @@ public class QueuedThreadPool extends AbstractLifeCycle implements SizedThreadPo
         }
     };
 
+    private void runTimedJob(TimedJob job)
+    {
+        long start = System.nanoTime();
+        _queueLatency.set(start - job._queued);
+        try
+        {
+            runJob(job._job);
+        }
+        finally
+        {
+            _jobTime.set(System.nanoTime() - start);
+        }
+    }
+
     /**
      * <p>Runs the given job in the {@link Thread#currentThread() current thread}.</p>
      * <p>Subclasses may override to perform pre/post actions before/after the job is run.</p>
@@ -736,4 +845,33 @@ public class QueuedThreadPool extends AbstractLifeCycle implements SizedThreadPo
         }
         return null;
     }
+
+    private static class TimedJob implements Runnable, Invocable
+    {
+        private final long _queued = System.nanoTime();
+        private final Runnable _job;
+
+        private TimedJob(Runnable job)
+        {
+            _job = job;
+        }
+
+        @Override
+        public void run()
+        {
+            _job.run();
+        }
+
+        @Override
+        public InvocationType getInvocationType()
+        {
+            return Invocable.getInvocationType(_job);
+        }
+
+        @Override
+        public String toString()
+        {
+            return _job.toString();
+        }
+    }
 }
@@ -20,10 +20,13 @@ package org.eclipse.jetty.util.thread;
 
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Condition;
 
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
 import org.eclipse.jetty.util.component.AbstractLifeCycle;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
@@ -33,18 +36,33 @@ import org.eclipse.jetty.util.log.Logger;
  * <p>Calls to {@link #execute(Runnable)} on a {@link ReservedThreadExecutor} will either succeed
  * with a Thread immediately being assigned the Runnable task, or fail if no Thread is
  * available. Threads are preallocated up to the capacity from a wrapped {@link Executor}.
+ * <p>By default reserved threads wait for a task forever. When an
+ * {@link #setIdleTimeout(long, TimeUnit) idle timeout} is set, the number of threads that
+ * are reserved adapts to the load: a miss (a call to {@link #tryExecute(Runnable)} that
+ * finds no reserved thread) raises the limit of reserved threads up to the capacity, while
+ * a reserved thread that stays idle for longer than the idle timeout lowers the limit and
+ * returns to the wrapped executor.
+ * <p>Reserved threads may optionally {@link #setSpinCount(int) spin} for a while before
+ * parking, so that bursts of tasks can be handed off without waking a parked thread.
  */
 @ManagedObject("A pool for reserved threads")
 public class ReservedThreadExecutor extends AbstractLifeCycle implements Executor
 {
     private static final Logger LOG = Log.getLogger(ReservedThreadExecutor.class);
 
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+    private final LongAdder _spinHits = new LongAdder();
+    private final LongAdder _reservations = new LongAdder();
+    private final LongAdder _expirations = new LongAdder();
     private final Executor _executor;
     private final Locker _locker = new Locker();
-    private final ReservedThread[] _queue;
-    private int _head;
+    private final ReservedThread[] _stack;
     private int _size;
     private int _pending;
+    private int _limit;
+    private long _idleTimeout;
+    private volatile int _spinCount;
 
     public ReservedThreadExecutor(Executor executor)
     {
@@ -75,7 +93,21 @@ public class ReservedThreadExecutor extends AbstractLifeCycle implements Executo
             }
         }
 
-        _queue = new ReservedThread[capacity];
+        _stack = new ReservedThread[capacity];
+        _limit = capacity;
+    }
+
+    /**
+     * @param executor The executor to use to obtain threads
+     * @param capacity The number of threads to preallocate, or less than 0 for a heuristic
+     * @param idleTimeout The idle timeout after which a reserved thread is released, or 0 for no timeout
+     * @param unit The idle timeout unit
+     * @see #setIdleTimeout(long, TimeUnit)
+     */
+    public ReservedThreadExecutor(Executor executor,int capacity,long idleTimeout,TimeUnit unit)
+    {
+        this(executor,capacity);
+        _idleTimeout = unit.toNanos(idleTimeout);
     }
 
     public Executor getExecutor()
@@ -86,7 +118,16 @@ public class ReservedThreadExecutor extends AbstractLifeCycle implements Executo
     @ManagedAttribute(value = "max number of reserved threads", readonly = true)
     public int getCapacity()
     {
-        return _queue.length;
+        return _stack.length;
+    }
+
+    @ManagedAttribute(value = "current limit of reserved threads", readonly = true)
+    public int getLimit()
+    {
+        try (Locker.Lock lock = _locker.lock())
+        {
+            return _limit;
+        }
     }
 
     @ManagedAttribute(value = "available reserved threads", readonly = true)
@@ -107,6 +148,92 @@ public class ReservedThreadExecutor extends AbstractLifeCycle implements Executo
         }
     }
 
+    /**
+     * @return the idle timeout in milliseconds after which a reserved thread is released
+     */
+    @ManagedAttribute("idle timeout in ms after which a reserved thread is released")
+    public long getIdleTimeout()
+    {
+        try (Locker.Lock lock = _locker.lock())
+        {
+            return TimeUnit.NANOSECONDS.toMillis(_idleTimeout);
+        }
+    }
+
+    /**
+     * <p>Sets the time a reserved thread waits for a task before it lowers the
+     * limit of reserved threads and returns to the wrapped executor.</p>
+     *
+     * @param idleTimeout the idle timeout, or a value less than or equal to 0
+     * (the default) to keep the reserved threads and the limit fixed
+     * @param unit the idle timeout unit
+     */
+    public void setIdleTimeout(long idleTimeout, TimeUnit unit)
+    {
+        try (Locker.Lock lock = _locker.lock())
+        {
+            _idleTimeout = unit.toNanos(idleTimeout);
+        }
+    }
+
+    /**
+     * @return the number of times a reserved thread yields before parking
+     */
+    @ManagedAttribute("number of times a reserved thread yields before parking")
+    public int getSpinCount()
+    {
+        return _spinCount;
+    }
+
+    /**
+     * @param spinCount the number of times a reserved thread yields, checking for
+     * a task, before parking; 0 (the default) to park immediately
+     */
+    public void setSpinCount(int spinCount)
+    {
+        _spinCount = spinCount;
+    }
+
+    @ManagedAttribute(value = "tasks assigned to a reserved thread", readonly = true)
+    public long getHits()
+    {
+        return _hits.sum();
+    }
+
+    @ManagedAttribute(value = "tasks that found no reserved thread", readonly = true)
+    public long getMisses()
+    {
+        return _misses.sum();
+    }
+
+    @ManagedAttribute(value = "tasks received by a spinning reserved thread", readonly = true)
+    public long getSpinHits()
+    {
+        return _spinHits.sum();
+    }
+
+    @ManagedAttribute(value = "times a thread has been reserved", readonly = true)
+    public long getReservations()
+    {
+        return _reservations.sum();
+    }
+
+    @ManagedAttribute(value = "reserved threads released after the idle timeout", readonly = true)
+    public long getExpirations()
+    {
+        return _expirations.sum();
+    }
+
+    @ManagedOperation(value = "resets the statistics", impact = "ACTION")
+    public void reset()
+    {
+        _hits.reset();
+        _misses.reset();
+        _spinHits.reset();
+        _reservations.reset();
+        _expirations.reset();
+    }
+
     @Override
     public void doStop() throws Exception
     {
@@ -114,10 +241,8 @@ public class ReservedThreadExecutor extends AbstractLifeCycle implements Executo
         {
             while (_size>0)
             {
-                ReservedThread thread = _queue[_head];
-                _queue[_head] = null;
-                _head = (_head+1)%_queue.length;
-                _size--;
+                ReservedThread thread = _stack[--_size];
+                _stack[_size] = null;
                 thread._wakeup.signal();
             }
         }
@@ -143,7 +268,12 @@ public class ReservedThreadExecutor extends AbstractLifeCycle implements Executo
         {
             if (_size==0)
             {
-                if (_pending<_queue.length)
+                _misses.increment();
+                // A miss with all the threads already reserved or pending
+                // means that the limit is too low for the current load.
+                if (_pending>=_limit && _limit<_stack.length)
+                    _limit++;
+                if (_pending<_limit)
                 {
                     _executor.execute(new ReservedThread());
                     _pending++;
@@ -151,17 +281,17 @@ public class ReservedThreadExecutor extends AbstractLifeCycle implements Executo
                 return false;
             }
 
-            ReservedThread thread = _queue[_head];
-            _queue[_head] = null;
-            _head = (_head+1)%_queue.length;
-            _size--;
+            // The most recently reserved thread is the most likely to be spinning.
+            ReservedThread thread = _stack[--_size];
+            _stack[_size] = null;
 
-            if (_size==0 && _pending<_queue.length)
+            if (_size==0 && _pending<_limit)
             {
                 _executor.execute(new ReservedThread());
                 _pending++;
             }
 
+            _hits.increment();
             thread._task = task;
             thread._wakeup.signal();
 
@@ -179,73 +309,143 @@ public class ReservedThreadExecutor extends AbstractLifeCycle implements Executo
     {
         try (Locker.Lock lock = _locker.lock())
         {
-            return String.format("%s{s=%d,p=%d}",super.toString(),_size,_pending);
+            return String.format("%s{s=%d,p=%d,l=%d}",super.toString(),_size,_pending,_limit);
         }
     }
 
-    private class ReservedThread implements Runnable
+    class ReservedThread implements Runnable
     {
         private Condition _wakeup = null;
-        private Runnable _task = null;
+        private volatile Runnable _task = null;
 
-        private void reservedWait() throws InterruptedException
+        private boolean reserve()
         {
-            _wakeup.await();
+            try (Locker.Lock lock = _locker.lock())
+            {
+                // if this is our first loop, decrement pending count
+                if (_wakeup==null)
+                {
+                    _pending--;
+                    _wakeup = _locker.newCondition();
+                }
+
+                // Exit if no longer running or there now too many preallocated threads
+                if (!isRunning() || _size>=_limit)
+                    return false;
+
+                // Insert ourselves in the stack
+                _stack[_size++] = this;
+                _reservations.increment();
+                return true;
+            }
         }
 
-        @Override
-        public void run()
+        private Runnable spin()
+        {
+            int spins = _spinCount;
+            for (int i = 0; i < spins && isRunning(); ++i)
+            {
+                Runnable task = _task;
+                if (task!=null)
+                {
+                    _task = null;
+                    _spinHits.increment();
+                    return task;
+                }
+                Thread.yield();
+            }
+            return null;
+        }
+
+        private Runnable reservedWait()
         {
-            while (true)
+            try (Locker.Lock lock = _locker.lock())
             {
-                Runnable task = null;
-                try (Locker.Lock lock = _locker.lock())
+                long idleTimeout = _idleTimeout;
+                long deadline = System.nanoTime() + idleTimeout;
+                // Wait for a task, ignoring spurious wakeups
+                while (true)
                 {
-                    // if this is our first loop, decrement pending count
-                    if (_wakeup==null)
+                    Runnable task = _task;
+                    if (task!=null)
                     {
-                        _pending--;
-                        _wakeup = _locker.newCondition();
+                        _task = null;
+                        return task;
                     }
 
-                    // Exit if no longer running or there now too many preallocated threads
-                    if (!isRunning() || _size>=_queue.length)
-                        break;
+                    if (!isRunning())
+                        return null;
 
-                    // Insert ourselves in the queue
-                    _queue[(_head+_size++)%_queue.length] = this;
-
-                    // Wait for a task, ignoring spurious wakeups
-                    while (isRunning() && task==null)
+                    try
                     {
-                        try
+                        if (LOG.isDebugEnabled())
+                            LOG.debug("{} waiting", this);
+                        if (idleTimeout<=0)
                         {
-                            if (LOG.isDebugEnabled())
-                                LOG.debug("{} waiting", this);
-                            reservedWait();
-                            if (LOG.isDebugEnabled())
-                                LOG.debug("{} woken up", this);
-                            task = _task;
-                            _task = null;
+                            _wakeup.await();
                         }
-                        catch (InterruptedException e)
+                        else
                         {
-                            LOG.ignore(e);
+                            long remaining = deadline - System.nanoTime();
+                            if (remaining<=0 || _wakeup.awaitNanos(remaining)<=0)
+                            {
+                                if (_task==null && isRunning())
+                                {
+                                    expire();
+                                    return null;
+                                }
+                            }
                         }
+                        if (LOG.isDebugEnabled())
+                            LOG.debug("{} woken up", this);
+                    }
+                    catch (InterruptedException e)
+                    {
+                        LOG.ignore(e);
                     }
                 }
+            }
+        }
 
-                // Run any task 
-                if (task!=null)
+        private void expire()
+        {
+            // Still in the stack, since no task has been assigned.
+            for (int i = 0; i < _size; ++i)
+            {
+                if (_stack[i]==this)
                 {
-                    try
-                    {
-                        task.run();
-                    }
-                    catch (Throwable e)
-                    {
-                        LOG.warn(e);
-                    }
+                    System.arraycopy(_stack,i+1,_stack,i,_size-i-1);
+                    _stack[--_size] = null;
+                    break;
+                }
+            }
+            if (_limit>1)
+                _limit--;
+            _expirations.increment();
+            if (LOG.isDebugEnabled())
+                LOG.debug("{} expired", this);
+        }
+
+        @Override
+        public void run()
+        {
+            while (reserve())
+            {
+                Runnable task = spin();
+                if (task==null)
+                    task = reservedWait();
+
+                // Exit if stopped or expired
+                if (task==null)
+                    break;
+
+                try
+                {
+                    task.run();
+                }
+                catch (Throwable e)
+                {
+                    LOG.warn(e);
                 }
             }
         }
@@ -0,0 +1,503 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util.thread;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.component.Dumpable;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+/**
+ * <p>Implementation of {@link Scheduler} based on a hierarchical timing wheel.</p>
+ * <p>Tasks are kept in the slots of 4 wheels of 256 slots each: the slots of the
+ * first wheel span one tick, the slots of the second wheel span 256 ticks, and so on.
+ * Each time the first wheel completes a revolution, the tasks of the next slot of
+ * the second wheel are redistributed in the first wheel, and similarly for the
+ * higher wheels.</p>
+ * <p>Scheduling and cancelling a task are O(1): both only enqueue the task in a
+ * lock-free queue, and a single timer thread inserts and removes the queued tasks
+ * from the wheels, then runs the expired tasks. The timer thread does not wake up
+ * at every tick: it parks until the next tick that has tasks to expire or to
+ * redistribute, and it is only woken up early by tasks scheduled before that tick.
+ * Compared to {@link ScheduledExecutorScheduler}, there is no shared heap to
+ * reorder, which makes this scheduler well suited to large numbers of timeouts
+ * that are mostly cancelled before they expire, such as idle timeouts.</p>
+ * <p>Tasks run at the first tick after their delay has elapsed, so they may run
+ * late by up to {@link #getTickMillis() one tick}, and they run in the timer thread,
+ * so they must not block.</p>
+ */
+@ManagedObject("A hierarchical timing wheel scheduler")
+public class TimingWheelScheduler extends AbstractLifeCycle implements Scheduler, Dumpable
+{
+    private static final Logger LOG = Log.getLogger(TimingWheelScheduler.class);
+    private static final int WHEEL_BITS = 8;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int WHEELS = 4;
+    private static final long MAX_TICKS = (1L << (WHEEL_BITS * WHEELS)) - 1;
+    private static final Task NOOP_TASK = () -> false;
+    private static final AtomicIntegerFieldUpdater<WheelTask> STATE = AtomicIntegerFieldUpdater.newUpdater(WheelTask.class, "_state");
+
+    private final Queue<WheelTask> _scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<WheelTask> _cancelled = new ConcurrentLinkedQueue<>();
+    private final LongAdder _schedules = new LongAdder();
+    private final LongAdder _cancels = new LongAdder();
+    private final LongAdder _expirations = new LongAdder();
+    private final Slot[][] _wheels = new Slot[WHEELS][WHEEL_SIZE];
+    private final String _name;
+    private final boolean _daemon;
+    private final ClassLoader _classLoader;
+    private final ThreadGroup _threadGroup;
+    private final long _tickNanos;
+    private volatile long _startNanos;
+    private volatile Thread _thread;
+    private volatile long _wakeupTick;
+    private long _tick;
+
+    public TimingWheelScheduler()
+    {
+        this(null, false);
+    }
+
+    public TimingWheelScheduler(String name, boolean daemon)
+    {
+        this(name, daemon, 10);
+    }
+
+    /**
+     * @param name the name of the timer thread
+     * @param daemon whether the timer thread is a daemon thread
+     * @param tickMillis the duration in milliseconds of a tick
+     */
+    public TimingWheelScheduler(String name, boolean daemon, long tickMillis)
+    {
+        this(name, daemon, tickMillis, Thread.currentThread().getContextClassLoader(), null);
+    }
+
+    public TimingWheelScheduler(String name, boolean daemon, long tickMillis, ClassLoader threadFactoryClassLoader, ThreadGroup threadGroup)
+    {
+        if (tickMillis <= 0)
+            throw new IllegalArgumentException("tickMillis <= 0");
+        _name = name == null ? "TimingWheelScheduler-" + hashCode() : name;
+        _daemon = daemon;
+        _tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        _classLoader = threadFactoryClassLoader == null ? Thread.currentThread().getContextClassLoader() : threadFactoryClassLoader;
+        _threadGroup = threadGroup;
+        for (Slot[] wheel : _wheels)
+        {
+            for (int i = 0; i < wheel.length; ++i)
+                wheel[i] = new Slot();
+        }
+    }
+
+    @ManagedAttribute("The duration in milliseconds of a tick")
+    public long getTickMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(_tickNanos);
+    }
+
+    @ManagedAttribute("The number of tasks scheduled")
+    public long getScheduledTasks()
+    {
+        return _schedules.sum();
+    }
+
+    @ManagedAttribute("The number of tasks cancelled")
+    public long getCancelledTasks()
+    {
+        return _cancels.sum();
+    }
+
+    @ManagedAttribute("The number of tasks expired")
+    public long getExpiredTasks()
+    {
+        return _expirations.sum();
+    }
+
+    @ManagedAttribute("The number of tasks waiting to expire")
+    public long getPendingTasks()
+    {
+        return getScheduledTasks() - getCancelledTasks() - getExpiredTasks();
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        _startNanos = System.nanoTime();
+        _tick = 0;
+        _wakeupTick = 0;
+        Thread thread = _thread = new Thread(_threadGroup, this::tick, _name);
+        thread.setDaemon(_daemon);
+        thread.setContextClassLoader(_classLoader);
+        thread.start();
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        Thread thread = _thread;
+        _thread = null;
+        if (thread != null)
+        {
+            LockSupport.unpark(thread);
+            thread.join();
+        }
+        for (Slot[] wheel : _wheels)
+        {
+            for (Slot slot : wheel)
+                slot.clear();
+        }
+        _scheduled.clear();
+        _cancelled.clear();
+        super.doStop();
+    }
+
+    @Override
+    public Task schedule(Runnable task, long delay, TimeUnit unit)
+    {
+        if (_thread == null)
+            return NOOP_TASK;
+
+        // Round up, so that the task never runs before its delay has elapsed.
+        long elapsed = System.nanoTime() - _startNanos + unit.toNanos(Math.max(0, delay));
+        long deadline = (elapsed + _tickNanos - 1) / _tickNanos;
+        WheelTask wheelTask = new WheelTask(task, deadline);
+        _schedules.increment();
+        _scheduled.offer(wheelTask);
+        // Wake up the timer thread if it is parked until a later tick. Otherwise the
+        // timer thread checks the queue after publishing its wakeup tick, so it sees the task.
+        if (deadline < _wakeupTick)
+        {
+            Thread thread = _thread;
+            if (thread != null)
+                LockSupport.unpark(thread);
+        }
+        return wheelTask;
+    }
+
+    private void tick()
+    {
+        while (_thread == Thread.currentThread())
+        {
+            long now = (System.nanoTime() - _startNanos) / _tickNanos;
+            while (_tick <= now)
+            {
+                drain();
+                // Skip the ticks that have nothing to expire nor to redistribute.
+                _tick = Math.max(_tick, Math.min(nextTick(), now));
+                expire(_tick);
+                ++_tick;
+            }
+
+            long wakeup;
+            while (true)
+            {
+                wakeup = nextTick();
+                _wakeupTick = wakeup;
+                if (_scheduled.isEmpty())
+                    break;
+                drain();
+            }
+
+            if (wakeup == Long.MAX_VALUE)
+            {
+                LockSupport.park(this);
+            }
+            else
+            {
+                long pause = wakeup * _tickNanos - (System.nanoTime() - _startNanos);
+                if (pause > 0)
+                    LockSupport.parkNanos(this, pause);
+            }
+            _wakeupTick = 0;
+        }
+    }
+
+    /**
+     * @return the first tick, not before the current tick, that may have tasks to expire
+     * or to redistribute, or {@link Long#MAX_VALUE} if the wheels are empty
+     */
+    private long nextTick()
+    {
+        long next = Long.MAX_VALUE;
+        for (int level = 0; level < WHEELS; ++level)
+        {
+            // The slots of this wheel are expired or redistributed at the ticks that are
+            // multiple of the slot span, starting from the first one not before the current tick.
+            int shift = WHEEL_BITS * level;
+            long start = ((_tick + (1L << shift) - 1) >>> shift) << shift;
+            int index = (int)((start >>> shift) & WHEEL_MASK);
+            Slot[] wheel = _wheels[level];
+            for (int i = 0; i < WHEEL_SIZE; ++i)
+            {
+                if (!wheel[i].isEmpty())
+                {
+                    // The slots before the index are processed after the wheel wraps.
+                    int slots = i >= index ? i - index : WHEEL_SIZE - index + i;
+                    next = Math.min(next, start + ((long)slots << shift));
+                    if (i >= index)
+                        break;
+                }
+            }
+        }
+        return next;
+    }
+
+    private void drain()
+    {
+        while (true)
+        {
+            WheelTask task = _scheduled.poll();
+            if (task == null)
+                break;
+            if (task._state == WheelTask.WAITING)
+                insert(task);
+        }
+        while (true)
+        {
+            WheelTask task = _cancelled.poll();
+            if (task == null)
+                break;
+            if (task._slot != null)
+                task._slot.remove(task);
+        }
+    }
+
+    private void insert(WheelTask task)
+    {
+        long delta = task._deadline - _tick;
+        if (delta < 0)
+        {
+            _wheels[0][(int)(_tick & WHEEL_MASK)].add(task);
+            return;
+        }
+
+        // Tasks beyond the span of the wheels are placed in the farthest
+        // slot, and are placed again each time they are redistributed.
+        long deadline = task._deadline;
+        if (delta > MAX_TICKS)
+        {
+            delta = MAX_TICKS;
+            deadline = _tick + MAX_TICKS;
+        }
+
+        int level = 0;
+        while (level < WHEELS - 1 && delta >= 1L << (WHEEL_BITS * (level + 1)))
+            ++level;
+        _wheels[level][(int)((deadline >>> (WHEEL_BITS * level)) & WHEEL_MASK)].add(task);
+    }
+
+    private void expire(long tick)
+    {
+        int index = (int)(tick & WHEEL_MASK);
+        if (index == 0)
+        {
+            // The first wheel completed a revolution, redistribute the next slots of the higher wheels.
+            for (int level = 1; level < WHEELS; ++level)
+            {
+                int slot = (int)((tick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+                cascade(_wheels[level][slot]);
+                if (slot != 0)
+                    break;
+            }
+        }
+
+        Slot slot = _wheels[0][index];
+        while (true)
+        {
+            WheelTask task = slot.poll();
+            if (task == null)
+                break;
+            if (task.expire())
+            {
+                _expirations.increment();
+                task.run();
+            }
+        }
+    }
+
+    private void cascade(Slot slot)
+    {
+        while (true)
+        {
+            WheelTask task = slot.poll();
+            if (task == null)
+                break;
+            if (task._state == WheelTask.WAITING)
+                insert(task);
+        }
+    }
+
+    @Override
+    public String dump()
+    {
+        return ContainerLifeCycle.dump(this);
+    }
+
+    @Override
+    public void dump(Appendable out, String indent) throws IOException
+    {
+        ContainerLifeCycle.dumpObject(out, this);
+        Thread thread = _thread;
+        if (thread != null)
+        {
+            List<StackTraceElement> frames = Arrays.asList(thread.getStackTrace());
+            ContainerLifeCycle.dump(out, indent, frames);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{%s,tick=%dms,pending=%d}",
+                getClass().getSimpleName(),
+                hashCode(),
+                getState(),
+                getTickMillis(),
+                getPendingTasks());
+    }
+
+    /**
+     * <p>A doubly linked list of tasks, only accessed by the timer thread.</p>
+     */
+    private static class Slot
+    {
+        private WheelTask _head;
+        private WheelTask _tail;
+
+        private void add(WheelTask task)
+        {
+            task._slot = this;
+            task._prev = _tail;
+            task._next = null;
+            if (_tail == null)
+                _head = task;
+            else
+                _tail._next = task;
+            _tail = task;
+        }
+
+        private void remove(WheelTask task)
+        {
+            if (task._prev == null)
+                _head = task._next;
+            else
+                task._prev._next = task._next;
+            if (task._next == null)
+                _tail = task._prev;
+            else
+                task._next._prev = task._prev;
+            task._slot = null;
+            task._prev = null;
+            task._next = null;
+        }
+
+        private boolean isEmpty()
+        {
+            return _head == null;
+        }
+
+        private WheelTask poll()
+        {
+            WheelTask task = _head;
+            if (task != null)
+                remove(task);
+            return task;
+        }
+
+        private void clear()
+        {
+            WheelTask task = poll();
+            while (task != null)
+                task = poll();
+        }
+    }
+
+    private class WheelTask implements Task
+    {
+        private static final int WAITING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable _task;
+        private final long _deadline;
+        volatile int _state;
+        private Slot _slot;
+        private WheelTask _prev;
+        private WheelTask _next;
+
+        private WheelTask(Runnable task, long deadline)
+        {
+            _task = task;
+            _deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel()
+        {
+            if (!STATE.compareAndSet(this, WAITING, CANCELLED))
+                return false;
+            _cancels.increment();
+            // Let the timer thread remove the task from its slot.
+            _cancelled.offer(this);
+            return true;
+        }
+
+        private boolean expire()
+        {
+            return STATE.compareAndSet(this, WAITING, EXPIRED);
+        }
+
+        private void run()
+        {
+            try
+            {
+                _task.run();
+            }
+            catch (Throwable x)
+            {
+                LOG.warn("Exception while executing task " + _task, x);
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s.%s@%x{%s}",
+                    TimingWheelScheduler.class.getSimpleName(),
+                    WheelTask.class.getSimpleName(),
+                    hashCode(),
+                    _task);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util.thread;
+
+import java.lang.reflect.Method;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.Name;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+/**
+ * <p>A {@link QueuedThreadPool} that runs blocking tasks in virtual threads,
+ * when the runtime supports them.</p>
+ * <p>Tasks whose {@link Invocable#getInvocationType(Object) invocation type} is
+ * {@link Invocable.InvocationType#BLOCKING}, including all the tasks that are not
+ * {@link Invocable}, such as the tasks that read and handle HTTP requests, are each
+ * run in a new virtual thread, so that blocking servlets do not require a large
+ * number of platform threads.
+ * Only the tasks that declare a {@link Invocable.InvocationType#NON_BLOCKING} or
+ * {@link Invocable.InvocationType#EITHER} invocation type, such as the producing
+ * tasks of the selectors, are run by the platform threads of this pool as usual,
+ * so the pool may be sized for the number of selectors and non-blocking tasks.
+ * The jobs of the execution machinery also run in platform threads, even though they
+ * are blocking: the threads of a {@link ReservedThreadExecutor}, which park waiting
+ * for a task, and the {@link ExecutionStrategy} instances, such as
+ * {@code EatWhatYouKill}, that are dispatched to produce tasks. They run as many
+ * jobs as they would with a {@link QueuedThreadPool}, which is bounded by the reserved
+ * threads and the selectors and connections using a strategy.</p>
+ * <p>At most {@link #getMaxVirtualThreads()} virtual threads run at the same time,
+ * by default as many as the {@link #getMaxThreads() max threads} of the pool, so that
+ * the concurrency of blocking tasks is limited as it is with platform threads.
+ * The blocking tasks executed while the limit is reached are queued, and each is run
+ * in a new virtual thread when another virtual thread completes.</p>
+ * <p>Virtual threads are looked up by reflection, so this class can be used with
+ * any Java version: when virtual threads are not supported, or when
+ * {@link #setUseVirtualThreads(boolean)} is set to false, this pool behaves like
+ * a {@link QueuedThreadPool}.</p>
+ * <p>Selector managers do not reserve threads when using this pool with virtual threads,
+ * so that blocking tasks are always dispatched to a virtual thread instead of being
+ * run by the selector thread.</p>
+ */
+@ManagedObject("A thread pool running blocking tasks in virtual threads")
+public class VirtualThreadPool extends QueuedThreadPool
+{
+    private static final Logger LOG = Log.getLogger(VirtualThreadPool.class);
+
+    private final AtomicInteger _virtualThreads = new AtomicInteger();
+    private final LongAdder _virtualTasks = new LongAdder();
+    private final Queue<Runnable> _virtualQueue = new ConcurrentLinkedQueue<>();
+    private volatile ThreadFactory _virtualThreadFactory;
+    private volatile Semaphore _virtualPermits;
+    private boolean _useVirtualThreads = true;
+    private int _maxVirtualThreads = -1;
+
+    public VirtualThreadPool()
+    {
+        this(200);
+    }
+
+    public VirtualThreadPool(@Name("maxThreads") int maxThreads)
+    {
+        this(maxThreads, 8);
+    }
+
+    public VirtualThreadPool(@Name("maxThreads") int maxThreads, @Name("minThreads") int minThreads)
+    {
+        super(maxThreads, minThreads);
+    }
+
+    /**
+     * @return whether the runtime supports virtual threads
+     */
+    public static boolean isVirtualThreadsSupported()
+    {
+        return newVirtualThreadFactory("test") != null;
+    }
+
+    /**
+     * @return whether blocking tasks are run in virtual threads
+     */
+    @ManagedAttribute("Whether blocking tasks are run in virtual threads")
+    public boolean isUseVirtualThreads()
+    {
+        return _useVirtualThreads && (isStarted() ? _virtualThreadFactory != null : isVirtualThreadsSupported());
+    }
+
+    /**
+     * @param useVirtualThreads whether blocking tasks are run in virtual threads, if supported
+     */
+    public void setUseVirtualThreads(boolean useVirtualThreads)
+    {
+        _useVirtualThreads = useVirtualThreads;
+    }
+
+    /**
+     * @return the max number of virtual threads running at the same time
+     */
+    @ManagedAttribute("The max number of virtual threads running at the same time")
+    public int getMaxVirtualThreads()
+    {
+        return _maxVirtualThreads > 0 ? _maxVirtualThreads : getMaxThreads();
+    }
+
+    /**
+     * <p>Sets the max number of virtual threads running at the same time.</p>
+     * <p>This setting takes effect when this pool is started.</p>
+     *
+     * @param maxVirtualThreads the max number of virtual threads running at
+     * the same time, or -1 for the {@link #getMaxThreads() max threads} of the pool
+     */
+    public void setMaxVirtualThreads(int maxVirtualThreads)
+    {
+        _maxVirtualThreads = maxVirtualThreads;
+    }
+
+    @ManagedAttribute("The number of blocking tasks waiting for a virtual thread")
+    public int getVirtualQueueSize()
+    {
+        return _virtualQueue.size();
+    }
+
+    @ManagedAttribute("The number of running virtual threads")
+    public int getVirtualThreads()
+    {
+        return _virtualThreads.get();
+    }
+
+    @ManagedAttribute("The number of tasks run in virtual threads")
+    public long getVirtualTasks()
+    {
+        return _virtualTasks.sum();
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        if (_useVirtualThreads)
+        {
+            _virtualPermits = new Semaphore(getMaxVirtualThreads());
+            _virtualThreadFactory = newVirtualThreadFactory(getName() + "-virtual-");
+            if (_virtualThreadFactory == null)
+                LOG.info("Virtual threads are not supported, running blocking tasks in {}", this);
+        }
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        super.doStop();
+        _virtualThreadFactory = null;
+        _virtualQueue.clear();
+    }
+
+    @Override
+    public void execute(Runnable job)
+    {
+        if (_virtualThreadFactory == null || !isVirtual(job))
+        {
+            super.execute(job);
+            return;
+        }
+
+        if (!isRunning())
+            throw new RejectedExecutionException(job.toString());
+
+        if (_virtualQueue.isEmpty() && _virtualPermits.tryAcquire())
+        {
+            startVirtualThread(job);
+        }
+        else
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("queue virtual {}", job);
+            _virtualQueue.offer(job);
+            runQueuedJobs();
+        }
+    }
+
+    /**
+     * @param job the job to execute
+     * @return whether the job is run in a virtual thread
+     */
+    private boolean isVirtual(Runnable job)
+    {
+        if (Invocable.getInvocationType(job) != Invocable.InvocationType.BLOCKING)
+            return false;
+        // Reserved threads and execution strategies are not request handling.
+        return !(job instanceof ReservedThreadExecutor.ReservedThread) && !(job instanceof ExecutionStrategy);
+    }
+
+    private void runQueuedJobs()
+    {
+        // Called after queuing a job and after releasing a permit,
+        // so that a queued job is never left without a permit.
+        while (!_virtualQueue.isEmpty() && _virtualPermits.tryAcquire())
+        {
+            Runnable job = _virtualQueue.poll();
+            if (job == null)
+                _virtualPermits.release();
+            else
+                startVirtualThread(job);
+        }
+    }
+
+    private void startVirtualThread(Runnable job)
+    {
+        ThreadFactory factory = _virtualThreadFactory;
+        if (factory == null)
+        {
+            // Stopped, the job is discarded as the queued jobs are.
+            _virtualPermits.release();
+            return;
+        }
+
+        if (LOG.isDebugEnabled())
+            LOG.debug("virtual {}", job);
+        Thread thread = factory.newThread(() ->
+        {
+            try
+            {
+                runJob(job);
+            }
+            catch (Throwable x)
+            {
+                LOG.warn(x);
+            }
+            finally
+            {
+                _virtualThreads.decrementAndGet();
+                _virtualPermits.release();
+                runQueuedJobs();
+            }
+        });
+        _virtualThreads.incrementAndGet();
+        _virtualTasks.increment();
+        thread.start();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%s{%s,%d<=%d<=%d,i=%d,q=%d,v=%d}",
+                getClass().getName(),
+                getName(),
+                getState(),
+                getMinThreads(),
+                getThreads(),
+                getMaxThreads(),
+                getIdleThreads(),
+                isStarted() ? getQueueSize() : -1,
+                getVirtualThreads());
+    }
+
+    private static ThreadFactory newVirtualThreadFactory(String prefix)
+    {
+        try
+        {
+            // Equivalent to Thread.ofVirtual().name(prefix, 0).factory() on Java 21+.
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            Method factory = builderClass.getMethod("factory");
+            return (ThreadFactory)factory.invoke(builder);
+        }
+        catch (Throwable x)
+        {
+            LOG.ignore(x);
+            return null;
+        }
+    }
+}
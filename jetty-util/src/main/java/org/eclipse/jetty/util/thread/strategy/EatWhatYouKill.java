@@ -19,8 +19,11 @@
 package org.eclipse.jetty.util.thread.strategy;
 
 import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.LongAdder;
 
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
@@ -29,6 +32,7 @@ import org.eclipse.jetty.util.annotation.ManagedOperation;
 import org.eclipse.jetty.util.component.ContainerLifeCycle;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.statistic.HistogramStatistic;
 import org.eclipse.jetty.util.thread.ExecutionStrategy;
 import org.eclipse.jetty.util.thread.Invocable;
 import org.eclipse.jetty.util.thread.Invocable.InvocationType;
@@ -60,6 +64,13 @@ import org.eclipse.jetty.util.thread.ReservedThreadExecutor;
  * the task and immediately continue producing.  When operating in this pattern, the
  * sub-strategy is called ProduceExecuteConsume (PEC).
  * </p>
+ * <p>The strategy records the number of switches between these sub-strategies and
+ * the time spent running or executing the tasks of each of them, excluding the time
+ * spent in {@link Producer#produce()}, which for a selector is mostly the time
+ * blocked in select, so that a producer (for example a selector thread)
+ * that keeps losing the producer role or that is stuck in PC mode can be diagnosed
+ * via JMX or {@link #dump()}.
+ * </p>
  */
 @ManagedObject("eat what you kill execution strategy")
 public class EatWhatYouKill extends ContainerLifeCycle implements ExecutionStrategy, Runnable
@@ -67,15 +78,23 @@ public class EatWhatYouKill extends ContainerLifeCycle implements ExecutionStrat
     private static final Logger LOG = Log.getLogger(EatWhatYouKill.class);
 
     private enum State { IDLE, PRODUCING, REPRODUCING }
+
+    private enum Mode { PRODUCE_CONSUME, EXECUTE_PRODUCE_CONSUME, PRODUCE_EXECUTE_CONSUME }
+
+    // Longer mode times are recorded in the last bucket of the histograms.
+    private static final long MAX_MODE_TIME = TimeUnit.SECONDS.toNanos(10);
     
     private final Locker _locker = new Locker();
     private final LongAdder _nonBlocking = new LongAdder();
     private final LongAdder _blocking = new LongAdder();
     private final LongAdder _executed = new LongAdder();
+    private final LongAdder _modeSwitches = new LongAdder();
     private final Producer _producer;
     private final Executor _executor;
     private final ReservedThreadExecutor _producers;
     private State _state = State.IDLE;
+    private volatile Mode _mode;
+    private volatile HistogramStatistic[] _modeTimes;
 
     public EatWhatYouKill(Producer producer, Executor executor)
     {
@@ -206,6 +225,9 @@ public class EatWhatYouKill extends ContainerLifeCycle implements ExecutionStrat
             }
             else
             {
+                HistogramStatistic[] modeTimes = _modeTimes;
+                long produced = modeTimes == null ? 0 : System.nanoTime();
+                Mode mode;
                 boolean consume;
                 if (Invocable.getInvocationType(task) == InvocationType.NON_BLOCKING)
                 {
@@ -214,6 +236,7 @@ public class EatWhatYouKill extends ContainerLifeCycle implements ExecutionStrat
                         LOG.debug("{} PC t={}", this, task);
                     consume = true;
                     _nonBlocking.increment();
+                    mode = enterMode(Mode.PRODUCE_CONSUME);
                 }
                 else
                 {
@@ -227,12 +250,15 @@ public class EatWhatYouKill extends ContainerLifeCycle implements ExecutionStrat
                             producing = false;
                             consume = true;
                             _blocking.increment();
+                            // The new producer cannot produce before we release the lock.
+                            mode = enterMode(Mode.EXECUTE_PRODUCE_CONSUME);
                         }
                         else
                         {
                             // PRODUCE EXECUTE CONSUME!
                             consume = false;
                             _executed.increment();
+                            mode = enterMode(Mode.PRODUCE_EXECUTE_CONSUME);
                         }
                     }
 
@@ -267,12 +293,68 @@ public class EatWhatYouKill extends ContainerLifeCycle implements ExecutionStrat
                 {
                     LOG.warn(e);
                 }
+
+                if (modeTimes != null)
+                    modeTimes[mode.ordinal()].set(System.nanoTime() - produced);
             }
         }
         
         return producing;
     }
 
+    /**
+     * <p>Records a switch of sub-strategy.</p>
+     * <p>Only called by the producing thread, so no further synchronization is needed.</p>
+     *
+     * @param mode the sub-strategy used for the task just produced
+     * @return the given mode
+     */
+    private Mode enterMode(Mode mode)
+    {
+        Mode last = _mode;
+        if (last != mode)
+        {
+            if (last != null)
+                _modeSwitches.increment();
+            _mode = mode;
+        }
+        return mode;
+    }
+
+    private long getTimeInMode(Mode mode)
+    {
+        HistogramStatistic[] modeTimes = _modeTimes;
+        return modeTimes == null ? 0 : TimeUnit.NANOSECONDS.toMillis(modeTimes[mode.ordinal()].getTotal());
+    }
+
+    @ManagedAttribute(value = "whether the time spent in each sub-strategy is recorded")
+    public boolean isModeTimesEnabled()
+    {
+        return _modeTimes != null;
+    }
+
+    /**
+     * <p>Enables or disables the recording of the time spent in each sub-strategy.</p>
+     * <p>Recording costs two {@link System#nanoTime()} calls and a histogram update
+     * per task, and the histograms are only allocated when it is enabled, so it is
+     * disabled by default.</p>
+     *
+     * @param enabled whether to record the time spent in each sub-strategy
+     */
+    public void setModeTimesEnabled(boolean enabled)
+    {
+        if (enabled == isModeTimesEnabled())
+            return;
+        HistogramStatistic[] modeTimes = null;
+        if (enabled)
+        {
+            modeTimes = new HistogramStatistic[Mode.values().length];
+            for (int i = 0; i < modeTimes.length; ++i)
+                modeTimes[i] = new HistogramStatistic(MAX_MODE_TIME);
+        }
+        _modeTimes = modeTimes;
+    }
+
     @ManagedAttribute(value = "number of non blocking tasks consumed", readonly = true)
     public long getNonBlockingTasksConsumed()
     {
@@ -291,6 +373,37 @@ public class EatWhatYouKill extends ContainerLifeCycle implements ExecutionStrat
         return _executed.longValue();
     }
 
+    @ManagedAttribute(value = "the current sub-strategy", readonly = true)
+    public String getMode()
+    {
+        Mode mode = _mode;
+        return mode == null ? null : mode.name();
+    }
+
+    @ManagedAttribute(value = "number of switches between sub-strategies", readonly = true)
+    public long getModeSwitches()
+    {
+        return _modeSwitches.longValue();
+    }
+
+    @ManagedAttribute(value = "time in ms spent consuming tasks in produce consume mode", readonly = true)
+    public long getProduceConsumeTime()
+    {
+        return getTimeInMode(Mode.PRODUCE_CONSUME);
+    }
+
+    @ManagedAttribute(value = "time in ms spent consuming tasks in execute produce consume mode", readonly = true)
+    public long getExecuteProduceConsumeTime()
+    {
+        return getTimeInMode(Mode.EXECUTE_PRODUCE_CONSUME);
+    }
+
+    @ManagedAttribute(value = "time in ms spent executing tasks in produce execute consume mode", readonly = true)
+    public long getProduceExecuteConsumeTime()
+    {
+        return getTimeInMode(Mode.PRODUCE_EXECUTE_CONSUME);
+    }
+
     @ManagedAttribute(value = "whether this execution strategy is idle", readonly = true)
     public boolean isIdle()
     {
@@ -306,6 +419,44 @@ public class EatWhatYouKill extends ContainerLifeCycle implements ExecutionStrat
         _nonBlocking.reset();
         _blocking.reset();
         _executed.reset();
+        _modeSwitches.reset();
+        HistogramStatistic[] modeTimes = _modeTimes;
+        if (modeTimes != null)
+        {
+            for (HistogramStatistic modeTime : modeTimes)
+                modeTime.reset();
+        }
+    }
+
+    @Override
+    public void dump(Appendable out, String indent) throws IOException
+    {
+        dumpBeans(out, indent, Collections.singletonList(getTelemetry()));
+    }
+
+    private String getTelemetry()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("tasks pc=%d,epc=%d,pec=%d switches=%d",
+                getNonBlockingTasksConsumed(),
+                getBlockingTasksConsumed(),
+                getBlockingTasksExecuted(),
+                getModeSwitches()));
+        HistogramStatistic[] modeTimes = _modeTimes;
+        if (modeTimes == null)
+            return builder.toString();
+        for (Mode mode : Mode.values())
+        {
+            HistogramStatistic modeTime = modeTimes[mode.ordinal()];
+            long count = modeTime.getCount();
+            builder.append(String.format(" %s{n=%d,mean=%dus,p99=%dus,max=%dus}",
+                    mode,
+                    count,
+                    count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros((long)modeTime.getMean()),
+                    TimeUnit.NANOSECONDS.toMicros(modeTime.get99()),
+                    TimeUnit.NANOSECONDS.toMicros(modeTime.getMax())));
+        }
+        return builder.toString();
     }
 
     public String toString()
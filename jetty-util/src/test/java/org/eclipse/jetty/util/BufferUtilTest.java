@@ -374,4 +374,29 @@ public class BufferUtilTest
         assertEquals(data,BufferUtil.toString(readonly));
         assertFalse(BufferUtil.isMappedBuffer(readonly));
     }
+
+    @Test
+    public void testIndexOfNonAscii() throws Exception
+    {
+        byte[] ascii = "0123456789abcdefghijklmnopqrstuvwxyz".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(-1,StringUtil.indexOfNonAscii(ascii,0,ascii.length));
+        assertEquals(-1,BufferUtil.indexOfNonAscii(BufferUtil.toDirectBuffer("0123456789abcdefghijklmnopqrstuvwxyz"),0,ascii.length));
+
+        // A non ASCII byte at every position, tested from every offset.
+        for (int i = 0; i < ascii.length; i++)
+        {
+            byte[] bytes = ascii.clone();
+            bytes[i] = (byte)0x80;
+            ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+            direct.put(bytes).flip();
+            for (int offset = 0; offset < bytes.length; offset++)
+            {
+                int expected = offset <= i ? i : -1;
+                assertEquals(expected,StringUtil.indexOfNonAscii(bytes,offset,bytes.length - offset));
+                assertEquals(expected,BufferUtil.indexOfNonAscii(ByteBuffer.wrap(bytes),offset,bytes.length - offset));
+                assertEquals(expected,BufferUtil.indexOfNonAscii(direct,offset,bytes.length - offset));
+                assertEquals(-1,StringUtil.indexOfNonAscii(bytes,offset,Math.max(0,i - offset)));
+            }
+        }
+    }
 }
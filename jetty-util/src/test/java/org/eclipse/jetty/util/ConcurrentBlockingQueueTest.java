@@ -0,0 +1,237 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConcurrentBlockingQueueTest
+{
+    @Test
+    public void testOfferPoll() throws Exception
+    {
+        ConcurrentBlockingQueue<String> queue = new ConcurrentBlockingQueue<>();
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertNull(queue.poll());
+
+        queue.offer("one");
+        queue.offer("two");
+        queue.offer("three");
+        Assert.assertEquals(3, queue.size());
+        Assert.assertEquals("[one, two, three]", queue.toString());
+        Assert.assertEquals("one", queue.peek());
+
+        Assert.assertTrue(queue.remove("two"));
+        Assert.assertFalse(queue.remove("two"));
+        Assert.assertEquals(2, queue.size());
+
+        Assert.assertEquals("one", queue.poll());
+        Assert.assertEquals("three", queue.poll(1, TimeUnit.SECONDS));
+        Assert.assertEquals(0, queue.size());
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testMaxCapacity() throws Exception
+    {
+        ConcurrentBlockingQueue<String> queue = new ConcurrentBlockingQueue<>(2);
+        Assert.assertTrue(queue.offer("one"));
+        Assert.assertTrue(queue.offer("two"));
+        Assert.assertFalse(queue.offer("three"));
+        Assert.assertEquals(0, queue.remainingCapacity());
+
+        List<String> drained = new ArrayList<>();
+        Assert.assertEquals(2, queue.drainTo(drained));
+        Assert.assertEquals("[one, two]", drained.toString());
+        Assert.assertTrue(queue.offer("three"));
+    }
+
+    @Test
+    public void testPollTimeout() throws Exception
+    {
+        ConcurrentBlockingQueue<String> queue = new ConcurrentBlockingQueue<>();
+        long start = System.nanoTime();
+        Assert.assertNull(queue.poll(200, TimeUnit.MILLISECONDS));
+        Assert.assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), Matchers.greaterThanOrEqualTo(200L));
+
+        // The expired waiter does not retain a signal.
+        queue.offer("one");
+        Assert.assertEquals("one", queue.poll(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testTakeWakesUp() throws Exception
+    {
+        ConcurrentBlockingQueue<String> queue = new ConcurrentBlockingQueue<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch taken = new CountDownLatch(2);
+        for (int i = 0; i < 2; ++i)
+        {
+            new Thread(() ->
+            {
+                try
+                {
+                    if (queue.take() != null)
+                        taken.countDown();
+                }
+                catch (InterruptedException x)
+                {
+                    failure.set(x);
+                }
+            }).start();
+        }
+
+        // Let the consumers park.
+        Thread.sleep(200);
+        Assert.assertEquals(2, taken.getCount());
+
+        queue.offer("one");
+        queue.offer("two");
+        boolean done = taken.await(5, TimeUnit.SECONDS);
+        Assert.assertNull(failure.get());
+        Assert.assertTrue(done);
+    }
+
+    @Test
+    public void testExpiredWaitersDoNotSwallowSignals() throws Exception
+    {
+        ConcurrentBlockingQueue<String> queue = new ConcurrentBlockingQueue<>();
+        for (int i = 0; i < 100; ++i)
+            Assert.assertNull(queue.poll(1, TimeUnit.MILLISECONDS));
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch taken = new CountDownLatch(1);
+        new Thread(() ->
+        {
+            try
+            {
+                if (queue.take() != null)
+                    taken.countDown();
+            }
+            catch (InterruptedException x)
+            {
+                failure.set(x);
+            }
+        }).start();
+
+        // Let the consumer park behind the expired waiters, if any.
+        Thread.sleep(200);
+        queue.offer("one");
+        boolean done = taken.await(5, TimeUnit.SECONDS);
+        Assert.assertNull(failure.get());
+        Assert.assertTrue(done);
+    }
+
+    @Test
+    public void testTakeInterrupted() throws Exception
+    {
+        ConcurrentBlockingQueue<String> queue = new ConcurrentBlockingQueue<>();
+        CountDownLatch interrupted = new CountDownLatch(1);
+        Thread thread = new Thread(() ->
+        {
+            try
+            {
+                queue.take();
+            }
+            catch (InterruptedException x)
+            {
+                interrupted.countDown();
+            }
+        });
+        thread.start();
+        Thread.sleep(200);
+        thread.interrupt();
+        Assert.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testConcurrentProducersConsumers() throws Exception
+    {
+        ConcurrentBlockingQueue<Long> queue = new ConcurrentBlockingQueue<>();
+        int producers = 4;
+        int consumers = 4;
+        int iterations = 100_000;
+        AtomicLong sum = new AtomicLong();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch consumed = new CountDownLatch(consumers);
+
+        for (int c = 0; c < consumers; ++c)
+        {
+            boolean take = c % 2 == 0;
+            new Thread(() ->
+            {
+                try
+                {
+                    while (true)
+                    {
+                        long value = take ? queue.take() : pollUntilNotNull(queue);
+                        if (value < 0)
+                            break;
+                        sum.addAndGet(value);
+                    }
+                    consumed.countDown();
+                }
+                catch (InterruptedException x)
+                {
+                    failure.set(x);
+                }
+            }).start();
+        }
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; ++p)
+        {
+            Thread thread = new Thread(() ->
+            {
+                for (int i = 1; i <= iterations; ++i)
+                    queue.offer((long)i);
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        for (int c = 0; c < consumers; ++c)
+            queue.offer(-1L);
+
+        boolean done = consumed.await(30, TimeUnit.SECONDS);
+        Assert.assertNull(failure.get());
+        Assert.assertTrue(done);
+        Assert.assertEquals(producers * (long)iterations * (iterations + 1) / 2, sum.get());
+        Assert.assertEquals(0, queue.size());
+    }
+
+    private static Long pollUntilNotNull(ConcurrentBlockingQueue<Long> queue) throws InterruptedException
+    {
+        while (true)
+        {
+            Long value = queue.poll(1, TimeUnit.MILLISECONDS);
+            if (value != null)
+                return value;
+        }
+    }
+}
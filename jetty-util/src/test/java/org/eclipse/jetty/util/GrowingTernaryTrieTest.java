@@ -0,0 +1,116 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GrowingTernaryTrieTest
+{
+    @Test
+    public void testGrowsAsKeysAreAdded() throws Exception
+    {
+        GrowingTernaryTrie<Integer> trie = new GrowingTernaryTrie<>(true,2);
+        Assert.assertEquals(2,trie.getCapacity());
+
+        for (int i=0;i<1000;i++)
+            Assert.assertTrue(trie.put("key-"+i,i));
+
+        Assert.assertFalse(trie.isFull());
+        Assert.assertEquals(1000,trie.size());
+        Assert.assertTrue(trie.getCapacity()>2);
+        for (int i=0;i<1000;i++)
+        {
+            Assert.assertEquals(i,trie.get("KEY-"+i).intValue());
+            ByteBuffer buffer = BufferUtil.toDirectBuffer("key-"+i+"\r\n");
+            Assert.assertEquals(i,trie.getBest(buffer,0,buffer.remaining()).intValue());
+        }
+    }
+
+    @Test
+    public void testMaxCapacity() throws Exception
+    {
+        GrowingTernaryTrie<Integer> trie = new GrowingTernaryTrie<>(false,2,8);
+        Assert.assertTrue(trie.put("abc",1));
+        Assert.assertTrue(trie.put("abd",2));
+        Assert.assertEquals(8,trie.getCapacity());
+        Assert.assertFalse(trie.put("xyz",3));
+        Assert.assertTrue(trie.isFull());
+
+        // A failed put leaves the Trie consistent.
+        Assert.assertEquals(1,trie.get("abc").intValue());
+        Assert.assertEquals(2,trie.get("abd").intValue());
+        Assert.assertNull(trie.get("xyz"));
+        Assert.assertNull(trie.get("xy"));
+        Assert.assertEquals(2,trie.getBest("abdxyz").intValue());
+
+        // Keys that do not need new rows can still be replaced.
+        Assert.assertTrue(trie.put("abc",4));
+        Assert.assertEquals(4,trie.get("abc").intValue());
+    }
+
+    @Test
+    public void testCaseSensitivity() throws Exception
+    {
+        GrowingTernaryTrie<Integer> sensitive = new GrowingTernaryTrie<>(false);
+        sensitive.put("Content-Type",1);
+        Assert.assertEquals(1,sensitive.get("Content-Type").intValue());
+        Assert.assertNull(sensitive.get("content-type"));
+
+        GrowingTernaryTrie<Integer> insensitive = new GrowingTernaryTrie<>(true);
+        insensitive.put("Content-Type",1);
+        Assert.assertEquals(1,insensitive.get("CONTENT-TYPE").intValue());
+        Assert.assertEquals(1,insensitive.getBest(BufferUtil.toBuffer("content-type: text/plain"),0,24).intValue());
+    }
+
+    @Test
+    public void testISO88591Bytes() throws Exception
+    {
+        GrowingTernaryTrie<Integer> trie = new GrowingTernaryTrie<>(true);
+        trie.put("café",1);
+        trie.put("cafi",2);
+
+        byte[] bytes = "xcaféx".getBytes(StandardCharsets.ISO_8859_1);
+        Assert.assertEquals(1,trie.get(ByteBuffer.wrap(bytes),1,4).intValue());
+        Assert.assertEquals(1,trie.getBest(bytes,1,5).intValue());
+
+        // A non ASCII byte does not match the ASCII character of its low 7 bits.
+        trie.remove("café");
+        Assert.assertNull(trie.get(ByteBuffer.wrap(bytes),1,4));
+        Assert.assertNull(trie.getBest(bytes,1,5));
+        Assert.assertEquals(2,trie.get("cafi").intValue());
+    }
+
+    @Test
+    public void testClear() throws Exception
+    {
+        GrowingTernaryTrie<Integer> trie = new GrowingTernaryTrie<>(true,2);
+        for (int i=0;i<100;i++)
+            trie.put("key-"+i,i);
+        trie.clear();
+        Assert.assertTrue(trie.isEmpty());
+        Assert.assertNull(trie.get("key-1"));
+        Assert.assertTrue(trie.put("key-1",1));
+        Assert.assertEquals(1,trie.get("key-1").intValue());
+    }
+}
@@ -58,6 +58,7 @@ public class QueueBenchmarkTest
         queues.add(new ConcurrentLinkedQueue<>()); // JDK lock-free queue, allocating nodes
         queues.add(new ArrayBlockingQueue<>(iterations * writers)); // JDK lock-based, circular array queue
         queues.add(new BlockingArrayQueue<>(iterations * writers)); // Jetty lock-based, circular array queue
+        queues.add(new ConcurrentBlockingQueue<>()); // Jetty lock-free queue, allocating nodes
 
         testQueues(readers, writers, iterations, queues, false);
     }
@@ -77,10 +78,29 @@ public class QueueBenchmarkTest
         queues.add(new LinkedBlockingQueue<>());
         queues.add(new ArrayBlockingQueue<>(iterations * writers));
         queues.add(new BlockingArrayQueue<>(iterations * writers));
+        queues.add(new ConcurrentBlockingQueue<>());
 
         testQueues(readers, writers, iterations, queues, true);
     }
 
+    @Stress("High CPU")
+    @Test
+    public void testBlockingQueuesScaling() throws Exception
+    {
+        int cores = Runtime.getRuntime().availableProcessors();
+        Assume.assumeTrue(cores > 1);
+
+        // Compare the job queues of QueuedThreadPool with an increasing number of threads.
+        final int iterations = 4 * 1024 * 1024;
+        for (int threads = 1; threads <= cores / 2; threads *= 2)
+        {
+            final List<Queue<Runnable>> queues = new ArrayList<>();
+            queues.add(new BlockingArrayQueue<>(iterations * threads));
+            queues.add(new ConcurrentBlockingQueue<>());
+            testQueues(threads, threads, iterations, queues, true);
+        }
+    }
+
     private void testQueues(final int readers, final int writers, final int iterations, List<Queue<Runnable>> queues, final boolean blocking) throws Exception
     {
         final int runs = 8;
@@ -0,0 +1,93 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class SearchPatternTest
+{
+    private static byte[] bytes(String string)
+    {
+        return string.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    public void testMatch()
+    {
+        SearchPattern pattern = SearchPattern.compile("\r\n--boundary");
+        byte[] data = bytes("abc\r\n--bound\r\n--boundar\r\n--boundary--\r\n");
+        assertEquals(23, pattern.match(data, 0, data.length));
+        assertEquals(23, pattern.match(data, 23, data.length - 23));
+        assertEquals(-1, pattern.match(data, 24, data.length - 24));
+        assertEquals(-1, pattern.match(data, 0, 34));
+        assertEquals(23, pattern.match(data, 0, 35));
+    }
+
+    @Test
+    public void testMatchAgainstIndexOf()
+    {
+        String text = "abracadabra abracadabrx cadabra abrababracadabra";
+        for (String p : new String[]{"abracadabra", "a", "ab", "bra", "cadabra", "abrab", "x", "zz", "raca"})
+        {
+            SearchPattern pattern = SearchPattern.compile(p);
+            byte[] data = bytes(text);
+            for (int offset = 0; offset <= data.length; offset++)
+            {
+                int expected = text.indexOf(p, offset);
+                assertEquals(p + "@" + offset, expected, pattern.match(data, offset, data.length - offset));
+            }
+        }
+    }
+
+    @Test
+    public void testEndsWith()
+    {
+        SearchPattern pattern = SearchPattern.compile("\r\n--boundary");
+        byte[] data = bytes("content\r\n--bou");
+        assertEquals(7, pattern.endsWith(data, 0, data.length));
+        assertEquals(6, pattern.endsWith(data, 0, data.length - 1));
+        assertEquals(0, pattern.endsWith(data, 0, 7));
+        assertEquals(1, pattern.endsWith(data, 0, 8));
+        // A complete match is not a partial match.
+        data = bytes("content\r\n--boundary");
+        assertEquals(0, pattern.endsWith(data, 0, data.length));
+    }
+
+    @Test
+    public void testStartsWith()
+    {
+        SearchPattern pattern = SearchPattern.compile("\r\n--boundary");
+        byte[] data = bytes("ndary\r\n");
+        assertEquals(12, pattern.startsWith(data, 0, data.length, 7));
+        assertEquals(10, pattern.startsWith(data, 0, 3, 7));
+        assertEquals(-1, pattern.startsWith(data, 1, data.length - 1, 7));
+        assertEquals(-1, pattern.startsWith(data, 0, data.length, 6));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyPattern()
+    {
+        SearchPattern.compile("");
+    }
+}
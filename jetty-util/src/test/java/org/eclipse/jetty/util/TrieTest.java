@@ -39,7 +39,9 @@ public class TrieTest
         Object[][] data = new Object[][]{
             {new ArrayTrie<Integer>(128)},
             {new TreeTrie<Integer>()},
-            {new ArrayTernaryTrie<Integer>(128)}
+            {new ArrayTernaryTrie<Integer>(128)},
+            {new GrowingTernaryTrie<Integer>()},
+            {new GrowingTernaryTrie<Integer>(true,16,128)}
         };
         return Arrays.asList(data);
     }
@@ -232,7 +234,9 @@ public class TrieTest
     @Test 
     public void testFull() throws Exception
     {
-       if (!(trie instanceof ArrayTrie<?> || trie instanceof ArrayTernaryTrie<?>))
+       if (!(trie instanceof ArrayTrie<?> || trie instanceof ArrayTernaryTrie<?> || trie instanceof GrowingTernaryTrie<?>))
+           return;
+       if (trie instanceof GrowingTernaryTrie<?> && ((GrowingTernaryTrie<?>)trie).getMaxCapacity()>128)
            return;
        
        Assert.assertFalse(trie.put("Large: This is a really large key and should blow the maximum size of the array trie as lots of nodes should already be used.",99));
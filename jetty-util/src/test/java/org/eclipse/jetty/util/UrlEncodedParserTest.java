@@ -0,0 +1,233 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class UrlEncodedParserTest
+{
+    private static final String FORM = "name=Jos%C3%A9&empty=&flag&&a+b=c%2Bd%3D=e&%E2%82%AC=euro";
+
+    private MultiMap<String> parse(UrlEncodedParser parser, String form, int chunk)
+    {
+        byte[] bytes = form.getBytes(StandardCharsets.ISO_8859_1);
+        for (int i = 0; i < bytes.length; i += chunk)
+            parser.parse(bytes, i, Math.min(chunk, bytes.length - i));
+        parser.complete();
+        MultiMap<String> map = new MultiMap<>();
+        parser.decodeTo(map, -1);
+        return map;
+    }
+
+    private void assertForm(MultiMap<String> map)
+    {
+        assertEquals(5, map.size());
+        assertEquals("José", map.getString("name"));
+        assertEquals("", map.getString("empty"));
+        assertEquals("", map.getString("flag"));
+        assertEquals("c+d==e", map.getString("a b"));
+        assertEquals("euro", map.getString("€"));
+    }
+
+    @Test
+    public void testAllChunkSizes()
+    {
+        UrlEncodedParser parser = new UrlEncodedParser();
+        for (int chunk = 1; chunk <= FORM.length(); chunk++)
+        {
+            parser.reset(StandardCharsets.UTF_8, -1);
+            assertForm(parse(parser, FORM, chunk));
+        }
+    }
+
+    @Test
+    public void testFields()
+    {
+        UrlEncodedParser parser = new UrlEncodedParser();
+        parser.reset(null, -1);
+        parse(parser, "x=1&x=2&y", 3);
+        assertEquals(3, parser.size());
+        assertEquals("x", parser.getName(1));
+        assertEquals("2", parser.getValue(1));
+        assertEquals("y", parser.getName(2));
+        assertEquals("", parser.getValue(2));
+    }
+
+    @Test
+    public void testLookupByName()
+    {
+        UrlEncodedParser parser = new UrlEncodedParser();
+        parser.reset(StandardCharsets.UTF_8, -1);
+        parse(parser, FORM + "&name=Ann", 5);
+        assertEquals("José", parser.getValue("name"));
+        assertEquals(Arrays.asList("José", "Ann"), parser.getValues("name"));
+        assertEquals("", parser.getValue("flag"));
+        assertEquals("c+d==e", parser.getValue("a b"));
+        assertEquals("euro", parser.getValue("€"));
+        assertNull(parser.getValue("nam"));
+        assertNull(parser.getValue("names"));
+        assertNull(parser.getValues("€uro"));
+
+        parser.reset(StandardCharsets.ISO_8859_1, -1);
+        parse(parser, "Jos%E9=1", 3);
+        assertEquals("1", parser.getValue("José"));
+        assertNull(parser.getValue("Jose"));
+    }
+
+    @Test
+    public void testByteBuffers()
+    {
+        UrlEncodedParser parser = new UrlEncodedParser();
+        parser.reset(StandardCharsets.UTF_8, -1);
+        byte[] bytes = FORM.getBytes(StandardCharsets.ISO_8859_1);
+        int half = 13;
+        ByteBuffer heap = ByteBuffer.wrap(bytes, 0, half).slice();
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length - half);
+        direct.put(bytes, half, bytes.length - half).flip();
+        parser.parse(heap);
+        parser.parse(direct);
+        assertEquals(0, heap.remaining());
+        assertEquals(0, direct.remaining());
+        parser.complete();
+        MultiMap<String> map = new MultiMap<>();
+        parser.decodeTo(map, -1);
+        assertForm(map);
+    }
+
+    @Test
+    public void testInputStream() throws Exception
+    {
+        UrlEncodedParser parser = new UrlEncodedParser();
+        parser.reset(StandardCharsets.UTF_8, -1);
+        parser.parse(new ByteArrayInputStream(FORM.getBytes(StandardCharsets.ISO_8859_1)));
+        parser.complete();
+        MultiMap<String> map = new MultiMap<>();
+        parser.decodeTo(map, -1);
+        assertForm(map);
+    }
+
+    @Test
+    public void testIso88591()
+    {
+        UrlEncodedParser parser = new UrlEncodedParser();
+        parser.reset(StandardCharsets.ISO_8859_1, -1);
+        MultiMap<String> map = parse(parser, "name=Jos%E9", 2);
+        assertEquals("José", map.getString("name"));
+    }
+
+    @Test
+    public void testReuse()
+    {
+        UrlEncodedParser parser = new UrlEncodedParser();
+        parser.reset(StandardCharsets.UTF_8, -1);
+        parse(parser, "a=1&b=2", 4);
+        parser.reset(StandardCharsets.UTF_8, -1);
+        MultiMap<String> map = parse(parser, "c=3", 4);
+        assertEquals(1, map.size());
+        assertEquals("3", map.getString("c"));
+    }
+
+    @Test
+    public void testClear()
+    {
+        UrlEncodedParser parser = new UrlEncodedParser();
+        parser.reset(StandardCharsets.UTF_8, -1);
+        parse(parser, "a=1&b=2", 4);
+        parser.clear();
+        assertEquals(0, parser.size());
+        parser.reset(StandardCharsets.UTF_8, -1);
+        MultiMap<String> map = parse(parser, "c=%C3%A8&d=4", 4);
+        assertEquals(2, map.size());
+        assertEquals("\u00e8", map.getString("c"));
+        assertEquals("4", map.getString("d"));
+    }
+
+    @Test
+    public void testTooLarge()
+    {
+        UrlEncodedParser parser = new UrlEncodedParser();
+        parser.reset(StandardCharsets.UTF_8, 10);
+        parser.parse(new byte[]{'a', '=', 'b', '&'}, 0, 4);
+        try
+        {
+            parser.parse(new byte[]{'c', '=', '0', '1', '2', '3', '4'}, 0, 7);
+            fail();
+        }
+        catch (IllegalStateException expected)
+        {
+        }
+    }
+
+    @Test
+    public void testTooManyKeys()
+    {
+        UrlEncodedParser parser = new UrlEncodedParser();
+        parser.reset(StandardCharsets.UTF_8, -1);
+        byte[] bytes = "a=1&b=2&a=3&c=4".getBytes(StandardCharsets.ISO_8859_1);
+        parser.parse(bytes, 0, bytes.length);
+        parser.complete();
+        parser.decodeTo(new MultiMap<>(), 3);
+        try
+        {
+            parser.decodeTo(new MultiMap<>(), 2);
+            fail();
+        }
+        catch (IllegalStateException expected)
+        {
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidEncoding()
+    {
+        UrlEncodedParser parser = new UrlEncodedParser();
+        parser.reset(StandardCharsets.UTF_8, -1);
+        byte[] bytes = "a=%4".getBytes(StandardCharsets.ISO_8859_1);
+        parser.parse(bytes, 0, bytes.length);
+        parser.parse(new byte[]{'x'}, 0, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIncompleteEncoding()
+    {
+        UrlEncodedParser parser = new UrlEncodedParser();
+        parser.reset(StandardCharsets.UTF_8, -1);
+        byte[] bytes = "a=%4".getBytes(StandardCharsets.ISO_8859_1);
+        parser.parse(bytes, 0, bytes.length);
+        parser.complete();
+    }
+
+    @Test(expected = Utf8Appendable.NotUtf8Exception.class)
+    public void testInvalidUtf8()
+    {
+        UrlEncodedParser parser = new UrlEncodedParser();
+        parser.reset(StandardCharsets.UTF_8, -1);
+        parse(parser, "a=%C3%28", 8);
+    }
+}
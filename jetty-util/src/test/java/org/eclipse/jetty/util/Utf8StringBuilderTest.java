@@ -21,6 +21,7 @@ package org.eclipse.jetty.util;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 import org.junit.Assert;
@@ -134,4 +135,52 @@ public class Utf8StringBuilderTest
         String result = buffer.toString();
         assertEquals(source,result);
     }
+
+    @Test
+    public void testAsciiRunsAndMultiByteCharacters() throws Exception
+    {
+        String source = "Accept-Encoding: gzip, deflate; Grüße aus Zürich, ça va? € \uD842\uDF9F and some more ASCII text to end with";
+        byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+
+        Utf8StringBuilder buffer = new Utf8StringBuilder();
+        buffer.append(bytes,0,bytes.length);
+        assertEquals(source,buffer.toString());
+
+        buffer.reset();
+        buffer.append(ByteBuffer.wrap(bytes));
+        assertEquals(source,buffer.toString());
+
+        buffer.reset();
+        buffer.append(BufferUtil.toDirectBuffer(source,StandardCharsets.UTF_8));
+        assertEquals(source,buffer.toString());
+
+        // Split at every position, including within multi-byte characters.
+        for (int split = 0; split <= bytes.length; split++)
+        {
+            buffer.reset();
+            buffer.append(bytes,0,split);
+            ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length - split);
+            direct.put(bytes,split,bytes.length - split).flip();
+            buffer.append(direct);
+            assertEquals(source,buffer.toString());
+        }
+    }
+
+    @Test
+    public void testInvalidUtf8AfterAsciiRun() throws Exception
+    {
+        // A continuation byte without a leading byte.
+        byte[] bytes = "abcdefghijklmnop\u0080".getBytes(StandardCharsets.ISO_8859_1);
+        Utf8StringBuilder buffer = new Utf8StringBuilder();
+        try
+        {
+            buffer.append(bytes,0,bytes.length);
+            Assert.fail("Should have resulted in an Utf8Appendable.NotUtf8Exception");
+        }
+        catch (Utf8Appendable.NotUtf8Exception e)
+        {
+            // expected path
+        }
+        assertEquals("abcdefghijklmnop\ufffd",buffer.toString());
+    }
 }
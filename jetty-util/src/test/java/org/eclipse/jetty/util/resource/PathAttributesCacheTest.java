@@ -0,0 +1,226 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.util.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.eclipse.jetty.toolchain.test.TestingDir;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class PathAttributesCacheTest
+{
+    @Rule
+    public TestingDir testdir = new TestingDir();
+
+    private PathAttributesCache cache;
+
+    @After
+    public void stop() throws Exception
+    {
+        if (cache != null)
+            cache.stop();
+    }
+
+    private Path start() throws Exception
+    {
+        Path dir = testdir.getEmptyPathDir().toRealPath();
+        Files.createDirectories(dir.resolve("sub"));
+        Files.write(dir.resolve("sub/file.txt"), "hello".getBytes(StandardCharsets.UTF_8));
+        cache = new PathAttributesCache(dir);
+        cache.start();
+        return dir;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException
+    {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean())
+        {
+            if (System.nanoTime() > end)
+                throw new AssertionError("Timeout");
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    public void testAttributesAreCached() throws Exception
+    {
+        Path dir = start();
+        Resource base = new PathResource(dir, cache);
+        Resource file = base.addPath("/sub/file.txt");
+        assertTrue(file.exists());
+        assertFalse(file.isDirectory());
+        assertFalse(file.isAlias());
+        assertEquals(5, file.length());
+        assertEquals(Files.getLastModifiedTime(dir.resolve("sub/file.txt")).toMillis(), file.lastModified());
+        assertTrue(base.addPath("/sub").isDirectory());
+
+        long hits = cache.getHits();
+        Resource again = base.addPath("/sub/file.txt");
+        assertTrue(again.exists());
+        assertEquals(5, again.length());
+        assertTrue(cache.getHits() > hits);
+        assertNotNull(cache.getAttributes(dir.resolve("sub/file.txt")));
+    }
+
+    @Test
+    public void testChangesInvalidateTheCache() throws Exception
+    {
+        Path dir = start();
+        Resource base = new PathResource(dir, cache);
+        assertEquals(5, base.addPath("/sub/file.txt").length());
+        assertFalse(base.addPath("/sub/new.txt").exists());
+        assertNotNull(cache.getAttributes(dir.resolve("sub/new.txt")));
+
+        Files.write(dir.resolve("sub/file.txt"), "hello world".getBytes(StandardCharsets.UTF_8));
+        await(() -> getLength(base, "/sub/file.txt") == 11);
+
+        Files.write(dir.resolve("sub/new.txt"), "new".getBytes(StandardCharsets.UTF_8));
+        await(() -> exists(base, "/sub/new.txt"));
+
+        Files.delete(dir.resolve("sub/new.txt"));
+        await(() -> !exists(base, "/sub/new.txt"));
+    }
+
+    @Test
+    public void testNewDirectory() throws Exception
+    {
+        Path dir = start();
+        Resource base = new PathResource(dir, cache);
+        assertFalse(base.addPath("/other/file.txt").exists());
+
+        Files.createDirectories(dir.resolve("other"));
+        Files.write(dir.resolve("other/file.txt"), "other".getBytes(StandardCharsets.UTF_8));
+        await(() -> exists(base, "/other/file.txt"));
+    }
+
+    @Test
+    public void testAliasesAreNotCached() throws Exception
+    {
+        Path dir = start();
+        try
+        {
+            Files.createSymbolicLink(dir.resolve("link.txt"), dir.resolve("sub/file.txt"));
+        }
+        catch (UnsupportedOperationException | IOException x)
+        {
+            Assume.assumeNoException(x);
+        }
+        Resource link = new PathResource(dir, cache).addPath("/link.txt");
+        assertTrue(link.exists());
+        assertTrue(link.isAlias());
+        assertNull(cache.getAttributes(dir.resolve("link.txt")));
+    }
+
+    @Test
+    public void testCaseVariantIsAlias() throws Exception
+    {
+        Path dir = start();
+        Files.write(dir.resolve("index.jsp"), "<% source %>".getBytes(StandardCharsets.UTF_8));
+        Resource base = new PathResource(dir, cache);
+        Resource real = base.addPath("/index.jsp");
+        assertTrue(real.exists());
+        assertFalse(real.isAlias());
+        assertNotNull(cache.getAttributes(dir.resolve("index.jsp")));
+
+        // On a case insensitive file system the variant exists, but must
+        // neither hit the entry of the real path nor be cached itself.
+        Resource variant = base.addPath("/INDEX.JSP");
+        if (variant.exists())
+            assertTrue(variant.isAlias());
+        else
+            assertFalse(variant.isAlias());
+        if (Files.exists(dir.resolve("INDEX.JSP")))
+            assertNull(cache.getAttributes(dir.resolve("INDEX.JSP")));
+    }
+
+    @Test
+    public void testReplacedBySymlinkIsAliasBeforeInvalidation() throws Exception
+    {
+        Path dir = start();
+        Path target = dir.resolve("sub/file.txt");
+        Path file = dir.resolve("file.txt");
+        Files.write(file, "hello".getBytes(StandardCharsets.UTF_8));
+        Resource base = new PathResource(dir, cache);
+        assertFalse(base.addPath("/file.txt").isAlias());
+
+        // Stop the invalidation to simulate the window before the watcher event.
+        cache.getPathWatcher().stop();
+        Files.delete(file);
+        try
+        {
+            Files.createSymbolicLink(file, target);
+        }
+        catch (UnsupportedOperationException | IOException x)
+        {
+            Assume.assumeNoException(x);
+        }
+        assertTrue(base.addPath("/file.txt").isAlias());
+    }
+
+    @Test
+    public void testNotCachedWhenStopped() throws Exception
+    {
+        Path dir = start();
+        cache.stop();
+        Resource file = new PathResource(dir, cache).addPath("/sub/file.txt");
+        assertTrue(file.exists());
+        assertEquals(5, file.length());
+        assertEquals(0, cache.getSize());
+    }
+
+    private static boolean exists(Resource base, String path)
+    {
+        try
+        {
+            return base.addPath(path).exists();
+        }
+        catch (IOException x)
+        {
+            throw new RuntimeException(x);
+        }
+    }
+
+    private static long getLength(Resource base, String path)
+    {
+        try
+        {
+            return base.addPath(path).length();
+        }
+        catch (IOException x)
+        {
+            throw new RuntimeException(x);
+        }
+    }
+}
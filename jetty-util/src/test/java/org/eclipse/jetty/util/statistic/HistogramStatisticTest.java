@@ -0,0 +1,89 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util.statistic;
+
+import static org.junit.Assert.assertEquals;
+
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HistogramStatisticTest
+{
+    @Test
+    public void testBuckets()
+    {
+        for (long value : new long[]{0, 1, 15, 16, 17, 31, 32, 33, 1000, 123456789L, Long.MAX_VALUE / 3, Long.MAX_VALUE})
+        {
+            int bucket = HistogramStatistic.bucketOf(value);
+            Assert.assertThat(HistogramStatistic.lowestValueOf(bucket), Matchers.lessThanOrEqualTo(value));
+            Assert.assertThat(HistogramStatistic.highestValueOf(bucket), Matchers.greaterThanOrEqualTo(value));
+        }
+
+        // Buckets are contiguous.
+        for (int bucket = 0; bucket < HistogramStatistic.bucketOf(Long.MAX_VALUE); ++bucket)
+            assertEquals(HistogramStatistic.highestValueOf(bucket) + 1, HistogramStatistic.lowestValueOf(bucket + 1));
+    }
+
+    @Test
+    public void testPercentiles()
+    {
+        HistogramStatistic histogram = new HistogramStatistic();
+        assertEquals(0, histogram.getPercentile(99));
+
+        for (long i = 1; i <= 10_000; ++i)
+            histogram.set(i);
+
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(10_000, histogram.getMax());
+        assertEquals(5000.5, histogram.getMean(), 0.01);
+        assertNearEnough(5_000, histogram.get50());
+        assertNearEnough(9_900, histogram.get99());
+        assertNearEnough(9_990, histogram.get999());
+        assertEquals(2886.75, histogram.getStdDev(), 0.1);
+        assertEquals(10_000, histogram.getPercentile(100));
+        assertEquals(1, histogram.getPercentile(0));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(50));
+    }
+
+    @Test
+    public void testHighestTrackableValue()
+    {
+        HistogramStatistic histogram = new HistogramStatistic(1000);
+        for (long i = 1; i <= 100; ++i)
+            histogram.set(i);
+        histogram.set(1_000_000);
+
+        assertEquals(101, histogram.getCount());
+        assertNearEnough(50, histogram.get50());
+        // Samples above the highest trackable value are reported as the max.
+        assertEquals(1_000_000, histogram.getPercentile(100));
+        assertEquals(1_000_000, histogram.getMax());
+    }
+
+    private void assertNearEnough(long expected, long actual)
+    {
+        // Values are reported with a relative error below 1/16.
+        Assert.assertThat(actual, Matchers.greaterThanOrEqualTo(expected));
+        Assert.assertThat(actual, Matchers.lessThanOrEqualTo(expected + expected / 16));
+    }
+}
@@ -0,0 +1,51 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util.statistic;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class RateCounterTest
+{
+    @Test
+    public void testRate() throws Exception
+    {
+        RateCounter counter = new RateCounter();
+        counter.add(100);
+        counter.increment();
+        assertEquals(101, counter.getTotal());
+
+        Thread.sleep(100);
+        long rate = counter.getRate();
+        assertThat(rate, greaterThan(0L));
+        assertThat(rate, lessThanOrEqualTo(101L * 10));
+
+        // The rate only accounts for the increments since the last call.
+        Thread.sleep(100);
+        assertEquals(0, counter.getRate());
+        assertEquals(101, counter.getTotal());
+
+        counter.reset();
+        assertEquals(0, counter.getTotal());
+    }
+}
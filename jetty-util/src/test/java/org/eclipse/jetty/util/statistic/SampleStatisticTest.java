@@ -63,6 +63,42 @@ public class SampleStatisticTest
         }
     }
 
+    @Test
+    public void testLargeOffset()
+    {
+        // A large mean must not cancel out a small variance.
+        SampleStatistic stats = new SampleStatistic();
+        for (long x : data[2])
+            stats.set(1_000_000_000L + x);
+
+        assertNearEnough("mean", 1_000_000_100.0, stats.getMean());
+        assertNearEnough("stddev", results[2][1], stats.getStdDev());
+    }
+
+    @Test
+    public void testContended() throws Exception
+    {
+        SampleStatistic stats = new SampleStatistic();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; ++t)
+        {
+            final int thread = t;
+            threads[t] = new Thread(() ->
+            {
+                for (int i = 1; i <= 1000; ++i)
+                    stats.set(thread * 1000 + i);
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        assertEquals(8000, stats.getCount());
+        assertEquals(8000L * 8001 / 2, stats.getTotal());
+        assertEquals(8000, stats.getMax());
+        assertNearEnough("mean", 4000.5, stats.getMean());
+    }
+
     private void assertNearEnough(String test,double expected, double actual)
     {
         Assert.assertThat(actual,Matchers.greaterThan(expected-0.1D));
@@ -29,6 +29,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.jetty.toolchain.test.AdvancedRunner;
 import org.eclipse.jetty.toolchain.test.annotation.Slow;
+import org.eclipse.jetty.util.ConcurrentBlockingQueue;
 import org.eclipse.jetty.util.log.StacklessLogging;
 import org.junit.Assert;
 import org.junit.Test;
@@ -76,7 +77,18 @@ public class QueuedThreadPoolTest
     @Slow
     public void testThreadPool() throws Exception
     {
-        QueuedThreadPool tp= new QueuedThreadPool();
+        testThreadPool(new QueuedThreadPool());
+    }
+
+    @Test
+    @Slow
+    public void testThreadPoolWithConcurrentBlockingQueue() throws Exception
+    {
+        testThreadPool(new QueuedThreadPool(200, 8, 60000, new ConcurrentBlockingQueue<>()));
+    }
+
+    private void testThreadPool(QueuedThreadPool tp) throws Exception
+    {
         tp.setMinThreads(5);
         tp.setMaxThreads(10);
         tp.setIdleTimeout(1000);
@@ -302,4 +314,127 @@ public class QueuedThreadPoolTest
 
         assertTrue(latch.await(5, TimeUnit.SECONDS));
     }
+
+    @Test
+    public void testJobStatistics() throws Exception
+    {
+        QueuedThreadPool pool = new QueuedThreadPool(1, 1);
+        pool.start();
+        try
+        {
+            // Disabled by default.
+            CountDownLatch first = new CountDownLatch(1);
+            pool.execute(first::countDown);
+            assertTrue(first.await(5, TimeUnit.SECONDS));
+            assertEquals(0, pool.getJobStatisticsCount());
+
+            pool.setJobStatistics(true);
+
+            // Block the only thread, so that the next job waits in the queue.
+            CountDownLatch blocked = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            pool.execute(() ->
+            {
+                blocked.countDown();
+                try
+                {
+                    release.await();
+                    Thread.sleep(100);
+                }
+                catch (InterruptedException x)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+            CountDownLatch queued = new CountDownLatch(1);
+            pool.execute(queued::countDown);
+            release.countDown();
+            assertTrue(queued.await(5, TimeUnit.SECONDS));
+
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (pool.getJobStatisticsCount() < 2 && System.nanoTime() < end)
+                Thread.sleep(10);
+            assertEquals(2, pool.getJobStatisticsCount());
+            assertThat(pool.getJobTimeMax(), greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toMicros(100)));
+            assertThat(pool.getQueueLatencyMax(), greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toMicros(100)));
+            assertThat(pool.getQueueLatency999(), greaterThanOrEqualTo(pool.getQueueLatency50()));
+
+            pool.resetJobStatistics();
+            assertEquals(0, pool.getJobStatisticsCount());
+        }
+        finally
+        {
+            pool.stop();
+        }
+    }
+
+    @Test
+    public void testTimedJobDelegatesToJob() throws Exception
+    {
+        QueuedThreadPool pool = new QueuedThreadPool(1, 1);
+        pool.setJobStatistics(true);
+        pool.start();
+        try
+        {
+            // Block the only thread, so that the next job stays in the queue.
+            CountDownLatch blocked = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            pool.execute(() ->
+            {
+                blocked.countDown();
+                try
+                {
+                    release.await();
+                }
+                catch (InterruptedException x)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+            CountDownLatch run = new CountDownLatch(1);
+            Runnable job = new NonBlockingJob(run);
+            pool.execute(job);
+            Runnable queued = pool.getQueue().peek();
+            assertEquals(Invocable.InvocationType.NON_BLOCKING, Invocable.getInvocationType(queued));
+            assertEquals(job.toString(), queued.toString());
+
+            release.countDown();
+            assertTrue(run.await(5, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            pool.stop();
+        }
+    }
+
+    private static class NonBlockingJob implements Runnable, Invocable
+    {
+        private final CountDownLatch _latch;
+
+        private NonBlockingJob(CountDownLatch latch)
+        {
+            _latch = latch;
+        }
+
+        @Override
+        public void run()
+        {
+            _latch.countDown();
+        }
+
+        @Override
+        public InvocationType getInvocationType()
+        {
+            return InvocationType.NON_BLOCKING;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "NonBlockingJob";
+        }
+    }
 }
@@ -127,6 +127,93 @@ public class ReservedThreadExecutorTest
         waitForAllAvailable();
     }
 
+    @Test
+    public void testStatistics() throws Exception
+    {
+        for (int i = 0; i < SIZE; i++)
+            assertThat(_reservedExecutor.tryExecute(NOOP), is(false));
+        for (int i = 0; i < SIZE; i++)
+            _executor.execute();
+        waitForAllAvailable();
+        assertThat(_reservedExecutor.getMisses(), is((long)SIZE));
+        assertThat(_reservedExecutor.getReservations(), is((long)SIZE));
+
+        Task task = new Task();
+        assertThat(_reservedExecutor.tryExecute(task), is(true));
+        assertThat(task._ran.await(10, TimeUnit.SECONDS), is(true));
+        task._complete.countDown();
+        waitForAllAvailable();
+        assertThat(_reservedExecutor.getHits(), is(1L));
+        assertThat(_reservedExecutor.getReservations(), is(SIZE + 1L));
+
+        _reservedExecutor.reset();
+        assertThat(_reservedExecutor.getHits(), is(0L));
+        assertThat(_reservedExecutor.getMisses(), is(0L));
+    }
+
+    @Test
+    public void testNoIdleTimeoutByDefault() throws Exception
+    {
+        assertThat(_reservedExecutor.getIdleTimeout(), is(0L));
+    }
+
+    @Test
+    public void testIdleTimeoutLowersLimit() throws Exception
+    {
+        _reservedExecutor.stop();
+        _reservedExecutor = new ReservedThreadExecutor(_executor, SIZE, 500, TimeUnit.MILLISECONDS);
+        _reservedExecutor.start();
+
+        for (int i = 0; i < SIZE; i++)
+            _reservedExecutor.tryExecute(NOOP);
+        for (int i = 0; i < SIZE; i++)
+            _executor.execute();
+        waitForAllAvailable();
+
+        // The idle reserved threads expire, but the limit does not go below 1.
+        long started = System.nanoTime();
+        while (_reservedExecutor.getAvailable() > 0)
+        {
+            if (System.nanoTime() - started > TimeUnit.SECONDS.toNanos(10))
+                Assert.fail();
+            Thread.sleep(10);
+        }
+        assertThat(_reservedExecutor.getExpirations(), is((long)SIZE));
+        assertThat(_reservedExecutor.getLimit(), is(1));
+
+        // Misses raise the limit back up to the capacity.
+        for (int i = 0; i < SIZE; i++)
+            assertThat(_reservedExecutor.tryExecute(NOOP), is(false));
+        assertThat(_reservedExecutor.getLimit(), is(SIZE));
+        assertThat(_executor._queue.size(), is(SIZE));
+    }
+
+    @Test
+    public void testSpinBeforePark() throws Exception
+    {
+        _reservedExecutor.stop();
+        _reservedExecutor = new ReservedThreadExecutor(_executor, 1);
+        _reservedExecutor.setSpinCount(Integer.MAX_VALUE);
+        _reservedExecutor.start();
+
+        _reservedExecutor.tryExecute(NOOP);
+        _executor.execute();
+        long started = System.nanoTime();
+        while (_reservedExecutor.getAvailable() < 1)
+        {
+            if (System.nanoTime() - started > TimeUnit.SECONDS.toNanos(10))
+                Assert.fail();
+            Thread.sleep(10);
+        }
+
+        // The reserved thread is still spinning, so it takes the task without parking.
+        Task task = new Task();
+        assertThat(_reservedExecutor.tryExecute(task), is(true));
+        assertThat(task._ran.await(10, TimeUnit.SECONDS), is(true));
+        assertThat(_reservedExecutor.getSpinHits(), is(1L));
+        task._complete.countDown();
+    }
+
     protected void waitForAllAvailable() throws InterruptedException
     {
         long started = System.nanoTime();
@@ -0,0 +1,221 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util.thread;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.toolchain.test.AdvancedRunner;
+import org.eclipse.jetty.toolchain.test.annotation.Stress;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AdvancedRunner.class)
+public class TimingWheelSchedulerTest
+{
+    private static final Logger logger = Log.getLogger(TimingWheelSchedulerTest.class);
+
+    @Test
+    public void testTasksAcrossWheels() throws Exception
+    {
+        // With 1 ms ticks, the delays span the first and the second wheels.
+        TimingWheelScheduler scheduler = new TimingWheelScheduler(null, false, 1);
+        scheduler.start();
+        try
+        {
+            long[] delays = new long[]{0, 1, 10, 255, 256, 257, 300, 511, 600, 1000};
+            CountDownLatch latch = new CountDownLatch(delays.length);
+            List<AtomicLong> executions = new ArrayList<>();
+            long start = System.nanoTime();
+            for (long delay : delays)
+            {
+                AtomicLong execution = new AtomicLong();
+                executions.add(execution);
+                scheduler.schedule(() ->
+                {
+                    execution.set(System.nanoTime());
+                    latch.countDown();
+                }, delay, TimeUnit.MILLISECONDS);
+            }
+
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < delays.length; ++i)
+            {
+                long elapsed = TimeUnit.NANOSECONDS.toMillis(executions.get(i).get() - start);
+                Assert.assertThat(elapsed, Matchers.greaterThanOrEqualTo(delays[i]));
+                Assert.assertThat(elapsed, Matchers.lessThan(delays[i] + 500));
+            }
+            Assert.assertEquals(delays.length, scheduler.getExpiredTasks());
+            Assert.assertEquals(0, scheduler.getPendingTasks());
+        }
+        finally
+        {
+            scheduler.stop();
+        }
+    }
+
+    @Test
+    public void testCancel() throws Exception
+    {
+        TimingWheelScheduler scheduler = new TimingWheelScheduler(null, false, 1);
+        scheduler.start();
+        try
+        {
+            AtomicLong executions = new AtomicLong();
+            int count = 1000;
+            List<Scheduler.Task> tasks = new ArrayList<>();
+            for (int i = 0; i < count; ++i)
+                tasks.add(scheduler.schedule(executions::incrementAndGet, 200 + i, TimeUnit.MILLISECONDS));
+            for (int i = 0; i < count; i += 2)
+                Assert.assertTrue(tasks.get(i).cancel());
+            // Cancelling twice fails.
+            Assert.assertFalse(tasks.get(0).cancel());
+
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (scheduler.getPendingTasks() > 0 && System.nanoTime() < end)
+                Thread.sleep(10);
+
+            Assert.assertEquals(count / 2, executions.get());
+            Assert.assertEquals(count / 2, scheduler.getCancelledTasks());
+            Assert.assertEquals(count / 2, scheduler.getExpiredTasks());
+            // Expired tasks cannot be cancelled.
+            Assert.assertFalse(tasks.get(1).cancel());
+        }
+        finally
+        {
+            scheduler.stop();
+        }
+    }
+
+    @Test
+    public void testTimerParksUntilNextDeadline() throws Exception
+    {
+        TimingWheelScheduler scheduler = new TimingWheelScheduler("wheel-park", false, 1);
+        scheduler.start();
+        try
+        {
+            Thread timer = Thread.getAllStackTraces().keySet().stream()
+                    .filter(thread -> "wheel-park".equals(thread.getName()))
+                    .findFirst()
+                    .orElseThrow(AssertionError::new);
+
+            // Without tasks, the timer thread parks without a timeout.
+            awaitState(timer, Thread.State.WAITING);
+
+            // A task wakes up the timer thread, which parks until the task expires.
+            CountDownLatch late = new CountDownLatch(1);
+            scheduler.schedule(late::countDown, 2, TimeUnit.SECONDS);
+            awaitState(timer, Thread.State.TIMED_WAITING);
+
+            // An earlier task wakes up the timer thread again.
+            CountDownLatch early = new CountDownLatch(1);
+            long start = System.nanoTime();
+            scheduler.schedule(early::countDown, 50, TimeUnit.MILLISECONDS);
+            Assert.assertTrue(early.await(5, TimeUnit.SECONDS));
+            Assert.assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), Matchers.lessThan(1000L));
+            Assert.assertEquals(1, late.getCount());
+
+            Assert.assertTrue(late.await(5, TimeUnit.SECONDS));
+            awaitState(timer, Thread.State.WAITING);
+        }
+        finally
+        {
+            scheduler.stop();
+        }
+    }
+
+    private static void awaitState(Thread thread, Thread.State state) throws InterruptedException
+    {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != state && System.nanoTime() < end)
+            Thread.sleep(10);
+        Assert.assertEquals(state, thread.getState());
+    }
+
+    @Test
+    public void testScheduleWhenStopped() throws Exception
+    {
+        TimingWheelScheduler scheduler = new TimingWheelScheduler();
+        Scheduler.Task task = scheduler.schedule(() -> {}, 1, TimeUnit.MILLISECONDS);
+        Assert.assertFalse(task.cancel());
+    }
+
+    @Stress("High CPU")
+    @Test
+    public void testCancelChurnBenchmark() throws Exception
+    {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int iterations = 1_000_000;
+        for (int run = 0; run < 3; ++run)
+        {
+            long executor = benchmark(new ScheduledExecutorScheduler(), threads, iterations);
+            long wheel = benchmark(new TimingWheelScheduler(), threads, iterations);
+            logger.info("{} threads x {} schedule/cancel: ScheduledExecutorScheduler={}ms TimingWheelScheduler={}ms",
+                    threads, iterations, executor, wheel);
+        }
+    }
+
+    /**
+     * <p>Simulates idle timeouts: each thread schedules timeouts that are cancelled
+     * before they expire, while a large number of other timeouts are pending.</p>
+     */
+    private long benchmark(Scheduler scheduler, int threads, int iterations) throws Exception
+    {
+        scheduler.start();
+        try
+        {
+            List<Scheduler.Task> pending = new ArrayList<>();
+            for (int i = 0; i < 100_000; ++i)
+                pending.add(scheduler.schedule(() -> {}, 30_000 + i, TimeUnit.MILLISECONDS));
+
+            CountDownLatch latch = new CountDownLatch(threads);
+            long begin = System.nanoTime();
+            for (int t = 0; t < threads; ++t)
+            {
+                new Thread(() ->
+                {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < iterations; ++i)
+                    {
+                        Scheduler.Task task = scheduler.schedule(() -> {}, 30_000 + random.nextInt(1000), TimeUnit.MILLISECONDS);
+                        task.cancel();
+                    }
+                    latch.countDown();
+                }).start();
+            }
+            Assert.assertTrue(latch.await(5, TimeUnit.MINUTES));
+            long elapsed = System.nanoTime() - begin;
+
+            pending.forEach(Scheduler.Task::cancel);
+            return TimeUnit.NANOSECONDS.toMillis(elapsed);
+        }
+        finally
+        {
+            scheduler.stop();
+        }
+    }
+}
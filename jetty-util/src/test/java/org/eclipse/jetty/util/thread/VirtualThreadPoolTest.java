@@ -0,0 +1,299 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util.thread;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+public class VirtualThreadPoolTest
+{
+    private VirtualThreadPool _pool;
+
+    @After
+    public void dispose() throws Exception
+    {
+        if (_pool != null)
+            _pool.stop();
+    }
+
+    @Test
+    public void testNonBlockingTasksRunInPlatformThreads() throws Exception
+    {
+        _pool = new VirtualThreadPool();
+        _pool.setName("vtp");
+        _pool.start();
+
+        AtomicReference<Thread> either = new AtomicReference<>();
+        AtomicReference<Thread> nonBlocking = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(2);
+        _pool.execute(new Task(Invocable.InvocationType.EITHER, () ->
+        {
+            either.set(Thread.currentThread());
+            latch.countDown();
+        }));
+        _pool.execute(new Task(Invocable.InvocationType.NON_BLOCKING, () ->
+        {
+            nonBlocking.set(Thread.currentThread());
+            latch.countDown();
+        }));
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(either.get().getName().startsWith("vtp-"));
+        Assert.assertTrue(nonBlocking.get().getName().startsWith("vtp-"));
+        Assert.assertEquals(0, _pool.getVirtualTasks());
+    }
+
+    @Test
+    public void testPlainTasksRunInVirtualThreads() throws Exception
+    {
+        Assume.assumeTrue(VirtualThreadPool.isVirtualThreadsSupported());
+
+        _pool = new VirtualThreadPool();
+        _pool.setName("vtp");
+        _pool.start();
+
+        AtomicReference<Thread> plain = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        _pool.execute(() ->
+        {
+            plain.set(Thread.currentThread());
+            latch.countDown();
+        });
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(plain.get().getName().startsWith("vtp-virtual-"));
+        Assert.assertEquals(1, _pool.getVirtualTasks());
+    }
+
+    @Test
+    public void testToString() throws Exception
+    {
+        _pool = new VirtualThreadPool(8, 2);
+        _pool.setName("vtp");
+        Assert.assertEquals(VirtualThreadPool.class.getName() + "@vtp{STOPPED,2<=0<=8,i=0,q=-1,v=0}", _pool.toString());
+    }
+
+    @Test
+    public void testBlockingTasksWithoutVirtualThreads() throws Exception
+    {
+        _pool = new VirtualThreadPool();
+        _pool.setName("vtp");
+        _pool.setUseVirtualThreads(false);
+        _pool.start();
+        Assert.assertFalse(_pool.isUseVirtualThreads());
+
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        _pool.execute(new Task(Invocable.InvocationType.BLOCKING, () ->
+        {
+            thread.set(Thread.currentThread());
+            latch.countDown();
+        }));
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(thread.get().getName().startsWith("vtp-"));
+        Assert.assertEquals(0, _pool.getVirtualTasks());
+    }
+
+    @Test
+    public void testBlockingTasksRunInVirtualThreads() throws Exception
+    {
+        Assume.assumeTrue(VirtualThreadPool.isVirtualThreadsSupported());
+
+        // Many more blocked tasks than platform threads.
+        int tasks = 100;
+        _pool = new VirtualThreadPool(8, 2);
+        _pool.setName("vtp");
+        _pool.setMaxVirtualThreads(tasks);
+        _pool.start();
+        Assert.assertTrue(_pool.isUseVirtualThreads());
+
+        CountDownLatch blocked = new CountDownLatch(tasks);
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < tasks; ++i)
+        {
+            _pool.execute(new Task(Invocable.InvocationType.BLOCKING, () ->
+            {
+                blocked.countDown();
+                try
+                {
+                    release.await();
+                }
+                catch (InterruptedException x)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+
+        Assert.assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(tasks, _pool.getVirtualThreads());
+        Assert.assertEquals(tasks, _pool.getVirtualTasks());
+        Assert.assertTrue(_pool.getThreads() <= 8);
+
+        release.countDown();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (_pool.getVirtualThreads() > 0 && System.nanoTime() < end)
+            Thread.sleep(10);
+        Assert.assertEquals(0, _pool.getVirtualThreads());
+    }
+
+    @Test
+    public void testVirtualThreadsLimitedByMaxThreads() throws Exception
+    {
+        Assume.assumeTrue(VirtualThreadPool.isVirtualThreadsSupported());
+
+        _pool = new VirtualThreadPool(8, 2);
+        _pool.setName("vtp");
+        _pool.start();
+        Assert.assertEquals(8, _pool.getMaxVirtualThreads());
+
+        int tasks = 20;
+        CountDownLatch blocked = new CountDownLatch(8);
+        CountDownLatch completed = new CountDownLatch(tasks);
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < tasks; ++i)
+        {
+            _pool.execute(new Task(Invocable.InvocationType.BLOCKING, () ->
+            {
+                blocked.countDown();
+                try
+                {
+                    release.await();
+                    completed.countDown();
+                }
+                catch (InterruptedException x)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+
+        Assert.assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(8, _pool.getVirtualThreads());
+        Assert.assertEquals(tasks - 8, _pool.getVirtualQueueSize());
+
+        release.countDown();
+        Assert.assertTrue(completed.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, _pool.getVirtualQueueSize());
+        Assert.assertEquals(tasks, _pool.getVirtualTasks());
+    }
+
+    @Test
+    public void testReservedThreadsAndStrategiesRunInPlatformThreads() throws Exception
+    {
+        Assume.assumeTrue(VirtualThreadPool.isVirtualThreadsSupported());
+
+        _pool = new VirtualThreadPool();
+        _pool.setName("vtp");
+        _pool.start();
+
+        AtomicReference<Thread> strategy = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        _pool.execute(new Strategy(() ->
+        {
+            strategy.set(Thread.currentThread());
+            latch.countDown();
+        }));
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(strategy.get().getName().startsWith("vtp-"));
+        Assert.assertFalse(strategy.get().getName().startsWith("vtp-virtual-"));
+
+        ReservedThreadExecutor reserved = new ReservedThreadExecutor(_pool, 1);
+        reserved.start();
+        try
+        {
+            AtomicReference<Thread> task = new AtomicReference<>();
+            CountDownLatch executed = new CountDownLatch(1);
+            Runnable job = () ->
+            {
+                task.set(Thread.currentThread());
+                executed.countDown();
+            };
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!reserved.tryExecute(job) && System.nanoTime() < end)
+                Thread.sleep(10);
+            Assert.assertTrue(executed.await(5, TimeUnit.SECONDS));
+            Assert.assertTrue(task.get().getName().startsWith("vtp-"));
+            Assert.assertFalse(task.get().getName().startsWith("vtp-virtual-"));
+        }
+        finally
+        {
+            reserved.stop();
+        }
+        Assert.assertEquals(0, _pool.getVirtualTasks());
+    }
+
+    private static class Strategy implements ExecutionStrategy, Runnable
+    {
+        private final Runnable _task;
+
+        private Strategy(Runnable task)
+        {
+            _task = task;
+        }
+
+        @Override
+        public void dispatch()
+        {
+        }
+
+        @Override
+        public void produce()
+        {
+            _task.run();
+        }
+
+        @Override
+        public void run()
+        {
+            produce();
+        }
+    }
+
+    private static class Task implements Runnable, Invocable
+    {
+        private final InvocationType _type;
+        private final Runnable _task;
+
+        private Task(InvocationType type, Runnable task)
+        {
+            _type = type;
+            _task = task;
+        }
+
+        @Override
+        public void run()
+        {
+            _task.run();
+        }
+
+        @Override
+        public InvocationType getInvocationType()
+        {
+            return _type;
+        }
+    }
+}
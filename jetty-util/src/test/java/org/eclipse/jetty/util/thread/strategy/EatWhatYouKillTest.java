@@ -0,0 +1,167 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util.thread.strategy;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.util.thread.ExecutionStrategy.Producer;
+import org.eclipse.jetty.util.thread.Invocable;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ReservedThreadExecutor;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EatWhatYouKillTest
+{
+    private QueuedThreadPool _threads;
+
+    @Before
+    public void before() throws Exception
+    {
+        _threads = new QueuedThreadPool(20);
+        _threads.start();
+    }
+
+    @After
+    public void after() throws Exception
+    {
+        _threads.stop();
+    }
+
+    @Test
+    public void testModeTelemetry() throws Exception
+    {
+        int tasks = 10;
+        CountDownLatch latch = new CountDownLatch(tasks);
+        Producer producer = new Producer()
+        {
+            private int produced;
+
+            @Override
+            public Runnable produce()
+            {
+                if (produced == tasks)
+                    return null;
+                // Alternate non blocking tasks, consumed by the producer,
+                // and blocking tasks, executed as there are no reserved threads.
+                if (produced++ % 2 == 0)
+                    return new NonBlockingTask(latch);
+                return latch::countDown;
+            }
+        };
+
+        EatWhatYouKill strategy = new EatWhatYouKill(producer, _threads, new ReservedThreadExecutor(_threads, 0));
+        strategy.start();
+        try
+        {
+            strategy.produce();
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+            Assert.assertEquals(tasks / 2, strategy.getNonBlockingTasksConsumed());
+            Assert.assertEquals(tasks / 2, strategy.getBlockingTasksExecuted());
+            Assert.assertEquals(tasks - 1, strategy.getModeSwitches());
+            Assert.assertEquals("PRODUCE_EXECUTE_CONSUME", strategy.getMode());
+            // Mode times are not recorded by default.
+            Assert.assertFalse(strategy.isModeTimesEnabled());
+            Assert.assertEquals(0, strategy.getProduceConsumeTime());
+            Assert.assertThat(strategy.dump(), Matchers.containsString("switches=" + (tasks - 1)));
+            Assert.assertThat(strategy.dump(), Matchers.not(Matchers.containsString("PRODUCE_CONSUME{")));
+
+            strategy.reset();
+            Assert.assertEquals(0, strategy.getModeSwitches());
+        }
+        finally
+        {
+            strategy.stop();
+        }
+    }
+
+    @Test
+    public void testModeTimeExcludesProduce() throws Exception
+    {
+        int tasks = 3;
+        CountDownLatch latch = new CountDownLatch(tasks);
+        Producer producer = new Producer()
+        {
+            private int produced;
+
+            @Override
+            public Runnable produce()
+            {
+                if (produced == tasks)
+                    return null;
+                // Block like a selector waiting for keys before producing a quick task.
+                try
+                {
+                    Thread.sleep(100);
+                }
+                catch (InterruptedException x)
+                {
+                    throw new RuntimeException(x);
+                }
+                ++produced;
+                return new NonBlockingTask(latch);
+            }
+        };
+
+        EatWhatYouKill strategy = new EatWhatYouKill(producer, _threads, new ReservedThreadExecutor(_threads, 0));
+        strategy.setModeTimesEnabled(true);
+        strategy.start();
+        try
+        {
+            strategy.produce();
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+            Assert.assertEquals(tasks, strategy.getNonBlockingTasksConsumed());
+            Assert.assertEquals(0, strategy.getModeSwitches());
+            Assert.assertThat(strategy.getProduceConsumeTime(), Matchers.lessThan(100L));
+            Assert.assertThat(strategy.dump(), Matchers.containsString("PRODUCE_CONSUME{n=" + tasks));
+        }
+        finally
+        {
+            strategy.stop();
+        }
+    }
+
+    private static class NonBlockingTask implements Runnable, Invocable
+    {
+        private final CountDownLatch _latch;
+
+        private NonBlockingTask(CountDownLatch latch)
+        {
+            _latch = latch;
+        }
+
+        @Override
+        public void run()
+        {
+            _latch.countDown();
+        }
+
+        @Override
+        public InvocationType getInvocationType()
+        {
+            return InvocationType.NON_BLOCKING;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.http.client;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import static org.junit.Assert.assertThat;
+
+public class HttpClientOpenLoopLoadTest extends AbstractTest
+{
+    private final Logger logger = Log.getLogger(HttpClientOpenLoopLoadTest.class);
+
+    public HttpClientOpenLoopLoadTest(Transport transport)
+    {
+        super(transport);
+    }
+
+    @Test
+    public void testOpenLoopLoad() throws Exception
+    {
+        start(new EmptyServerHandler());
+
+        LoadGenerator generator = new LoadGenerator(client, URI.create(newURI()));
+        generator.setRate(200);
+        generator.setDuration(1, TimeUnit.SECONDS);
+        generator.setTimeout(5, TimeUnit.SECONDS);
+        LoadGenerator.Result result = generator.run();
+        logger.info("{} {}", transport, result);
+
+        Assert.assertEquals(200, result.getRequests());
+        Assert.assertEquals(0, result.getFailures());
+        Assert.assertEquals(0, result.getOutstanding());
+        Assert.assertEquals(200, result.getCorrectedLatencies().getCount());
+        assertThat(result.getCorrectedLatencies().getMax(), Matchers.greaterThanOrEqualTo(result.getUncorrectedLatencies().getMax()));
+    }
+
+    @Test
+    public void testStallIsAccountedToQueuedRequests() throws Exception
+    {
+        // Over HTTP/2 the other streams are not blocked by the stalled one.
+        Assume.assumeTrue(transport == Transport.HTTP || transport == Transport.HTTPS || transport == Transport.FCGI);
+
+        long stall = 500;
+        AtomicBoolean stalled = new AtomicBoolean();
+        start(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                baseRequest.setHandled(true);
+                if (stalled.compareAndSet(false, true))
+                {
+                    try
+                    {
+                        Thread.sleep(stall);
+                    }
+                    catch (InterruptedException x)
+                    {
+                        throw new ServletException(x);
+                    }
+                }
+            }
+        });
+        // A single connection, so that requests queue behind the stalled one.
+        client.setMaxConnectionsPerDestination(1);
+
+        LoadGenerator generator = new LoadGenerator(client, URI.create(newURI()));
+        generator.setRate(100);
+        generator.setDuration(1, TimeUnit.SECONDS);
+        generator.setTimeout(5, TimeUnit.SECONDS);
+        LoadGenerator.Result result = generator.run();
+        logger.info("{} {}", transport, result);
+
+        Assert.assertEquals(0, result.getFailures());
+        Assert.assertEquals(0, result.getOutstanding());
+        // The requests queued during the stall only show up in the corrected latencies.
+        long threshold = TimeUnit.MILLISECONDS.toMicros(stall / 2);
+        assertThat(result.getCorrectedLatencies().getPercentile(90), Matchers.greaterThan(threshold));
+        assertThat(result.getUncorrectedLatencies().getPercentile(90), Matchers.lessThan(threshold));
+    }
+
+    @Test
+    public void testTimeoutsAreRecorded() throws Exception
+    {
+        long delay = 500;
+        start(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                baseRequest.setHandled(true);
+                try
+                {
+                    Thread.sleep(delay);
+                }
+                catch (InterruptedException x)
+                {
+                    throw new ServletException(x);
+                }
+            }
+        });
+
+        long timeout = 100;
+        LoadGenerator generator = new LoadGenerator(client, URI.create(newURI()));
+        generator.setRate(20);
+        generator.setDuration(500, TimeUnit.MILLISECONDS);
+        generator.setTimeout(timeout, TimeUnit.MILLISECONDS);
+        LoadGenerator.Result result = generator.run();
+        logger.info("{} {}", transport, result);
+
+        Assert.assertEquals(10, result.getRequests());
+        Assert.assertEquals(10, result.getTimeouts());
+        Assert.assertEquals(10, result.getFailures());
+        // The timed out requests are in the corrected latencies, at least at the timeout.
+        Assert.assertEquals(10, result.getCorrectedLatencies().getCount());
+        assertThat(result.getCorrectedLatencies().get50(), Matchers.greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toMicros(timeout)));
+        Assert.assertEquals(0, result.getUncorrectedLatencies().getCount());
+    }
+}
@@ -0,0 +1,356 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.http.client;
+
+import java.net.URI;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.HttpClientTransport;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.http.HttpClientTransportOverHTTP;
+import org.eclipse.jetty.fcgi.client.http.HttpClientTransportOverFCGI;
+import org.eclipse.jetty.http2.client.HTTP2Client;
+import org.eclipse.jetty.http2.client.http.HttpClientTransportOverHTTP2;
+import org.eclipse.jetty.util.statistic.HistogramStatistic;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+
+/**
+ * <p>An open-loop load generator built on {@link HttpClient}.</p>
+ * <p>Requests are sent at a fixed arrival rate, whatever the time the server takes to
+ * respond, as independent users would do. Each request has an intended send time on
+ * the schedule, and its latency is recorded both from the intended send time and from
+ * the time the request was actually sent. The former is corrected for coordinated
+ * omission: when the server or the client stall, the requests that should have been
+ * sent during the stall are accounted for with the time they waited, instead of being
+ * silently delayed as in a closed-loop test. For the same reason, the requests that time
+ * out are recorded in the corrected latencies, at the time they timed out.</p>
+ * <p>The transport is the one of the {@link HttpClient}, so the same generator drives
+ * HTTP/1.1, HTTP/2 and FastCGI, in clear text or over TLS, against a server in the
+ * same JVM or, via {@link #main(String[])}, against a server in a separate JVM.</p>
+ * <p>Latencies are recorded in microseconds.</p>
+ */
+public class LoadGenerator
+{
+    private final HttpClient client;
+    private final URI uri;
+    private int rate = 1000;
+    private long duration = TimeUnit.SECONDS.toNanos(10);
+    private long warmup;
+    private long timeout = TimeUnit.SECONDS.toNanos(30);
+    private Consumer<Request> customizer = request -> {};
+
+    public LoadGenerator(HttpClient client, URI uri)
+    {
+        this.client = client;
+        this.uri = uri;
+    }
+
+    /**
+     * @return the number of requests sent per second
+     */
+    public int getRate()
+    {
+        return rate;
+    }
+
+    /**
+     * @param rate the number of requests sent per second
+     */
+    public void setRate(int rate)
+    {
+        if (rate <= 0)
+            throw new IllegalArgumentException("rate " + rate);
+        this.rate = rate;
+    }
+
+    /**
+     * @param duration the time requests are sent for, warmup included
+     * @param unit the unit of the duration
+     */
+    public void setDuration(long duration, TimeUnit unit)
+    {
+        this.duration = unit.toNanos(duration);
+    }
+
+    /**
+     * @param warmup the time at the beginning of the run during which latencies are not recorded
+     * @param unit the unit of the warmup
+     */
+    public void setWarmup(long warmup, TimeUnit unit)
+    {
+        this.warmup = unit.toNanos(warmup);
+    }
+
+    /**
+     * @param timeout the total timeout of each request
+     * @param unit the unit of the timeout
+     */
+    public void setTimeout(long timeout, TimeUnit unit)
+    {
+        this.timeout = unit.toNanos(timeout);
+    }
+
+    /**
+     * @param customizer a function called to customize each request before it is sent
+     */
+    public void setRequestCustomizer(Consumer<Request> customizer)
+    {
+        this.customizer = customizer;
+    }
+
+    /**
+     * <p>Sends requests at the configured rate for the configured duration,
+     * then waits for the outstanding responses.</p>
+     *
+     * @return the result of the run
+     * @throws InterruptedException if interrupted while waiting for the responses
+     */
+    public Result run() throws InterruptedException
+    {
+        Result result = new Result();
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long recordFrom = start + warmup;
+        long end = start + duration;
+
+        for (long i = 0; ; ++i)
+        {
+            long intended = start + i * interval;
+            if (intended - end >= 0)
+                break;
+            long now;
+            while ((now = System.nanoTime()) - intended < 0)
+                LockSupport.parkNanos(intended - now);
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            send(result, intended, intended - recordFrom >= 0);
+        }
+
+        result.awaitCompletion(TimeUnit.NANOSECONDS.toMillis(timeout) + 1000);
+        result.elapsed = System.nanoTime() - start;
+        return result;
+    }
+
+    private void send(Result result, long intended, boolean record)
+    {
+        result.outstanding.incrementAndGet();
+        result.sent.increment();
+        long[] sent = new long[]{intended};
+        Request request = client.newRequest(uri)
+                .timeout(timeout, TimeUnit.NANOSECONDS)
+                .onRequestBegin(r -> sent[0] = System.nanoTime());
+        customizer.accept(request);
+        request.send(r ->
+        {
+            long now = System.nanoTime();
+            if (r.isSucceeded() && r.getResponse().getStatus() < 400)
+            {
+                if (record)
+                {
+                    result.corrected.set(TimeUnit.NANOSECONDS.toMicros(now - intended));
+                    result.uncorrected.set(TimeUnit.NANOSECONDS.toMicros(now - sent[0]));
+                }
+            }
+            else
+            {
+                result.failures.increment();
+                if (r.getFailure() instanceof TimeoutException)
+                {
+                    // Leaving out the slowest requests would hide them from the percentiles.
+                    result.timeouts.increment();
+                    if (record)
+                        result.corrected.set(TimeUnit.NANOSECONDS.toMicros(now - intended));
+                }
+            }
+            result.complete();
+        });
+    }
+
+    public static class Result
+    {
+        private final HistogramStatistic corrected = new HistogramStatistic();
+        private final HistogramStatistic uncorrected = new HistogramStatistic();
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final AtomicLong outstanding = new AtomicLong();
+        private volatile long elapsed;
+
+        /**
+         * @return the latencies from the intended send times, in microseconds,
+         * including the requests that timed out
+         */
+        public HistogramStatistic getCorrectedLatencies()
+        {
+            return corrected;
+        }
+
+        /**
+         * @return the latencies from the actual send times, in microseconds,
+         * of the successful requests only
+         */
+        public HistogramStatistic getUncorrectedLatencies()
+        {
+            return uncorrected;
+        }
+
+        /**
+         * @return the number of requests sent
+         */
+        public long getRequests()
+        {
+            return sent.sum();
+        }
+
+        /**
+         * @return the number of requests that failed or had an error status
+         */
+        public long getFailures()
+        {
+            return failures.sum();
+        }
+
+        /**
+         * @return the number of requests that timed out, included in the failures
+         */
+        public long getTimeouts()
+        {
+            return timeouts.sum();
+        }
+
+        /**
+         * @return the number of requests without a response yet
+         */
+        public long getOutstanding()
+        {
+            return outstanding.get();
+        }
+
+        /**
+         * @param unit the unit of the returned duration
+         * @return the duration of the run, including the wait for the outstanding responses
+         */
+        public long getElapsed(TimeUnit unit)
+        {
+            return unit.convert(elapsed, TimeUnit.NANOSECONDS);
+        }
+
+        private void complete()
+        {
+            if (outstanding.decrementAndGet() == 0)
+            {
+                synchronized (this)
+                {
+                    notifyAll();
+                }
+            }
+        }
+
+        private synchronized void awaitCompletion(long millis) throws InterruptedException
+        {
+            long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+            long wait;
+            while (outstanding.get() > 0 && (wait = TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime())) > 0)
+                wait(wait);
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder builder = new StringBuilder();
+            builder.append(String.format(Locale.ENGLISH, "requests=%d failures=%d timeouts=%d outstanding=%d elapsed=%dms%n",
+                    getRequests(), getFailures(), getTimeouts(), getOutstanding(), getElapsed(TimeUnit.MILLISECONDS)));
+            append(builder, "corrected", corrected);
+            append(builder, "uncorrected", uncorrected);
+            return builder.toString();
+        }
+
+        private static void append(StringBuilder builder, String name, HistogramStatistic latencies)
+        {
+            builder.append(String.format(Locale.ENGLISH, "%s latency (us): count=%d mean=%.0f p50=%d p90=%d p99=%d p99.9=%d max=%d%n",
+                    name, latencies.getCount(), latencies.getMean(), latencies.get50(), latencies.getPercentile(90),
+                    latencies.get99(), latencies.get999(), latencies.getMax()));
+        }
+    }
+
+    /**
+     * <p>Runs the load generator against a server, possibly in a separate JVM.</p>
+     * <p>Usage: {@code LoadGenerator <uri> [http1|h2|fcgi] [rate] [durationSeconds] [warmupSeconds]}</p>
+     * <p>TLS is used for {@code https} URIs; HTTP/2 over TLS requires ALPN support in the client.</p>
+     *
+     * @param args the command line arguments
+     * @throws Exception if the run fails
+     */
+    public static void main(String[] args) throws Exception
+    {
+        if (args.length < 1)
+        {
+            System.err.println("Usage: LoadGenerator <uri> [http1|h2|fcgi] [rate] [durationSeconds] [warmupSeconds]");
+            System.exit(1);
+        }
+
+        URI uri = URI.create(args[0]);
+        String protocol = args.length > 1 ? args[1] : "http1";
+        int rate = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int duration = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        int warmup = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+
+        HttpClientTransport transport;
+        switch (protocol)
+        {
+            case "http1":
+                transport = new HttpClientTransportOverHTTP();
+                break;
+            case "h2":
+                transport = new HttpClientTransportOverHTTP2(new HTTP2Client());
+                break;
+            case "fcgi":
+                transport = new HttpClientTransportOverFCGI("");
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown protocol " + protocol);
+        }
+
+        HttpClient client = new HttpClient(transport, new SslContextFactory(true));
+        client.setMaxConnectionsPerDestination(Math.max(64, rate / 100));
+        client.setMaxRequestsQueuedPerDestination(Integer.MAX_VALUE);
+        client.start();
+        try
+        {
+            LoadGenerator generator = new LoadGenerator(client, uri);
+            generator.setRate(rate);
+            generator.setDuration(duration + warmup, TimeUnit.SECONDS);
+            generator.setWarmup(warmup, TimeUnit.SECONDS);
+            Result result = generator.run();
+            System.out.print(result);
+        }
+        finally
+        {
+            client.stop();
+        }
+    }
+}